@@ -0,0 +1,169 @@
+package com.yuelchen.client;
+
+import java.util.concurrent.TimeUnit;
+import com.amazonaws.AbortedException;
+
+/**
+ * AdaptiveRateLimiter is a token bucket whose refill rate adapts to throttling; the rate is
+ * multiplied down on each throttle event and ramps up additively on each success, staying
+ * between a floor and the configured maximum rate (additive increase, multiplicative decrease).
+ *
+ * The bucket holds up to one second of tokens, so idle callers can burst up to the current rate.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class AdaptiveRateLimiter {
+
+	/**
+	 * The factor the rate is multiplied by on a throttle event.
+	 */
+	public static final double DECREASE_FACTOR = 0.7;
+
+	/**
+	 * The number of successes which ramp the rate from its floor back to the maximum.
+	 */
+	public static final int RAMP_UP_SUCCESSES = 200;
+
+	/**
+	 * The maximum rate in permits per second.
+	 */
+	private final double maxRate;
+
+	/**
+	 * The lowest rate in permits per second the limiter backs off to.
+	 */
+	private final double minRate;
+
+	/**
+	 * The current rate in permits per second.
+	 */
+	private double rate;
+
+	/**
+	 * The tokens available, at most one second worth at the current rate.
+	 */
+	private double tokens;
+
+	/**
+	 * The time in nanoseconds the tokens were last refilled.
+	 */
+	private long refilledAt;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxRate					the maximum rate in permits per second.
+	 * @param minRate					the lowest rate in permits per second backed off to.
+	 */
+	public AdaptiveRateLimiter(double maxRate, double minRate) {
+		if(maxRate <= 0 || minRate <= 0 || minRate > maxRate) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid rates; maximum '%s' and minimum '%s' per second", maxRate, minRate));
+		}
+		this.maxRate = maxRate;
+		this.minRate = minRate;
+		this.rate = maxRate;
+		this.tokens = Math.max(1, maxRate);
+		this.refilledAt = System.nanoTime();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Takes a permit, waiting for one when the bucket is empty.
+	 *
+	 * @return							the time in milliseconds waited for the permit.
+	 *
+	 * @throws AbortedException			thrown when the thread was interrupted while waiting, i.e.
+	 * 									the call was cancelled; the interrupt status is kept.
+	 */
+	public long acquire() throws AbortedException {
+		long waitNanos = reserve();
+		if(waitNanos <= 0) {
+			return 0;
+		}
+
+		try {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AbortedException("Interrupted while waiting for a request permit", e);
+		}
+		return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Lowers the rate after a throttle event.
+	 */
+	public synchronized void onThrottle() {
+		refill();
+		rate = Math.max(minRate, rate * DECREASE_FACTOR);
+		tokens = Math.min(tokens, Math.max(1, rate));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Raises the rate after a successful request.
+	 */
+	public synchronized void onSuccess() {
+		if(rate < maxRate) {
+			refill();
+			rate = Math.min(maxRate, rate + (maxRate - minRate) / RAMP_UP_SUCCESSES);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the current rate in permits per second.
+	 *
+	 * @return							the current rate.
+	 */
+	public synchronized double getRate() {
+		return rate;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the maximum rate in permits per second.
+	 *
+	 * @return							the maximum rate.
+	 */
+	public double getMaxRate() {
+		return maxRate;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Takes a token, which may leave the bucket in debt, and returns how long the caller must
+	 * wait for it; waiting outside the lock lets later callers queue up behind the debt.
+	 *
+	 * @return							the time in nanoseconds to wait, 0 or less for none.
+	 */
+	private synchronized long reserve() {
+		refill();
+		tokens -= 1;
+		return tokens >= 0 ? 0 : (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Adds the tokens accrued since the last refill at the current rate.
+	 */
+	private void refill() {
+		long now = System.nanoTime();
+		double accrued = (now - refilledAt) * rate / TimeUnit.SECONDS.toNanos(1);
+		tokens = Math.min(Math.max(1, rate), tokens + accrued);
+		refilledAt = now;
+	}
+}
@@ -0,0 +1,442 @@
+package com.yuelchen.client;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AsyncApiExecutor runs blocking ApiClient calls on a managed pool of daemon threads and returns
+ * their results as CompletableFutures, which backs the asynchronous ApiClient facades
+ * (i.e. S3AsyncApiClient).
+ *
+ * Futures returned by submit can be cancelled or timed out; either completes the future at once
+ * and interrupts the worker thread running the call, which the SDK honours between retries and
+ * before sending each request. Cancelling a stage derived from such a future (i.e. by thenApply)
+ * does not reach the call, so apply timeouts and cancellation to the submitted future itself.
+ *
+ * A call holds a worker thread only while it runs; callers composing the futures hold none, so
+ * many operations can be queued or chained from a few threads, with the pool size bounding how
+ * many requests are in flight at once.
+ *
+ * For bulk I/O bound work (i.e. thousands of S3 transfers or SQS publishes) newVirtualThreadExecutor
+ * runs each call on its own virtual thread behind a concurrency limiter when the JVM supports
+ * them (Java 21 or later), so a blocked call costs a small heap allocation rather than a platform
+ * thread. The client connection pool must be sized to the limit through AwsClientFactory, or calls
+ * beyond it wait for a pooled connection.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class AsyncApiExecutor implements AutoCloseable {
+
+	/**
+	 * The default number of worker threads.
+	 */
+	public static final int DEFAULT_THREAD_COUNT = 32;
+
+	/**
+	 * The default timeout in milliseconds applied to each call, 0 for none.
+	 */
+	public static final long DEFAULT_TIMEOUT_MILLIS = 0;
+
+	/**
+	 * The default timeout applied to each submitted call.
+	 */
+	private final long defaultTimeoutMillis;
+
+	/**
+	 * The worker threads running submitted calls.
+	 */
+	private final ExecutorService workers;
+
+	/**
+	 * The limiter of calls in flight for virtual threads, or null when the pool size bounds them.
+	 */
+	private final Semaphore limiter;
+
+	/**
+	 * The number of calls submitted.
+	 */
+	private final AtomicLong submittedCount = new AtomicLong();
+
+	/**
+	 * The number of calls completed with a TimeoutException.
+	 */
+	private final AtomicLong timedOutCount = new AtomicLong();
+
+	//====================================================================================================
+
+	/**
+	 * Constructor with default thread count and no default timeout.
+	 */
+	public AsyncApiExecutor() {
+		this(DEFAULT_THREAD_COUNT, DEFAULT_TIMEOUT_MILLIS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param threadCount				the number of worker threads, bounding calls in flight.
+	 * @param defaultTimeoutMillis		the timeout in milliseconds applied to each call unless
+	 * 									one is given, 0 for none.
+	 */
+	public AsyncApiExecutor(int threadCount, long defaultTimeoutMillis) {
+		this(newPlatformThreadPool(threadCount), null, defaultTimeoutMillis);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param workers					the worker threads.
+	 * @param limiter					the limiter of calls in flight, or null for none.
+	 * @param defaultTimeoutMillis		the timeout in milliseconds applied to each call unless
+	 * 									one is given, 0 for none.
+	 */
+	private AsyncApiExecutor(ExecutorService workers, Semaphore limiter, long defaultTimeoutMillis) {
+		this.workers = workers;
+		this.limiter = limiter;
+		this.defaultTimeoutMillis = defaultTimeoutMillis;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns an executor running each call on its own virtual thread with at most given number of
+	 * calls in flight; on a JVM without virtual threads (before Java 21) the executor falls back to
+	 * a pool of that many platform threads, which bounds calls in flight the same way.
+	 *
+	 * @param maxInFlightCalls			the maximum number of calls running at once.
+	 * @param defaultTimeoutMillis		the timeout in milliseconds applied to each call unless
+	 * 									one is given, 0 for none.
+	 *
+	 * @return							the executor.
+	 */
+	public static AsyncApiExecutor newVirtualThreadExecutor(int maxInFlightCalls,
+			long defaultTimeoutMillis) {
+
+		if(maxInFlightCalls < 1) {
+			throw new IllegalArgumentException("Maximum in flight calls must be at least 1");
+		}
+
+		ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+		if(virtualThreads == null) {
+			System.out.println(String.format("Virtual threads are not supported by Java %s; "
+					+ "using %d platform threads", System.getProperty("java.version"), maxInFlightCalls));
+			return new AsyncApiExecutor(maxInFlightCalls, defaultTimeoutMillis);
+		}
+		return new AsyncApiExecutor(virtualThreads, new Semaphore(maxInFlightCalls), defaultTimeoutMillis);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the executor shared by the asynchronous ApiClient facades; created on first use.
+	 *
+	 * @return							the shared executor.
+	 */
+	public static AsyncApiExecutor getSharedExecutor() {
+		return SharedExecutor.executor;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a future completed with the result of given call, run on a worker thread with the
+	 * default timeout.
+	 *
+	 * @param call						the blocking call.
+	 *
+	 * @return							a future completed with the call result, or exceptionally
+	 * 									with the exception the call threw.
+	 */
+	public <T> CompletableFuture<T> submit(Callable<T> call) {
+		return submit(call, defaultTimeoutMillis);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a future completed with the result of given call, run on a worker thread; the
+	 * future is completed with a TimeoutException and the worker interrupted when the call has
+	 * not finished within given timeout, measured from submission.
+	 *
+	 * @param call						the blocking call.
+	 * @param timeoutMillis				the timeout in milliseconds, 0 for none.
+	 *
+	 * @return							a future completed with the call result, or exceptionally
+	 * 									with the exception the call threw.
+	 */
+	public <T> CompletableFuture<T> submit(Callable<T> call, long timeoutMillis) {
+		Task<T> task = new Task<T>(call);
+		submittedCount.incrementAndGet();
+		if(timeoutMillis > 0) {
+			orTimeout(task, timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+
+		try {
+			workers.execute(task);
+		} catch(RejectedExecutionException e) {
+			task.completeExceptionally(e);
+		}
+		return task;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Completes given future with a TimeoutException when it has not completed within given
+	 * timeout; the worker running its call is interrupted when the future was returned by submit.
+	 *
+	 * @param future					the future.
+	 * @param timeout					the timeout.
+	 * @param unit						the unit of the timeout.
+	 *
+	 * @return							the given future.
+	 */
+	public static <T> CompletableFuture<T> orTimeout(CompletableFuture<T> future, long timeout,
+			TimeUnit unit) {
+
+		if(future.isDone()) {
+			return future;
+		}
+
+		ScheduledFuture<?> timer = SharedTimer.timer.schedule(() -> {
+			String message = String.format("Call did not complete within %d %s",
+					timeout, unit.name().toLowerCase());
+			if(future.completeExceptionally(new TimeoutException(message)) && future instanceof Task) {
+				((Task<?>) future).onTimeout();
+			}
+		}, timeout, unit);
+		future.whenComplete((result, throwable) -> timer.cancel(false));
+		return future;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns whether or not calls run on virtual threads.
+	 *
+	 * @return							true when calls run on virtual threads.
+	 */
+	public boolean isVirtual() {
+		return limiter != null;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of calls submitted.
+	 *
+	 * @return							the number of submitted calls.
+	 */
+	public long getSubmittedCount() {
+		return submittedCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of calls of this executor which timed out.
+	 *
+	 * @return							the number of timed out calls.
+	 */
+	public long getTimedOutCount() {
+		return timedOutCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Stops the worker threads; running calls are interrupted and futures of calls not yet
+	 * started are cancelled.
+	 */
+	@Override
+	public void close() {
+		List<Runnable> pending = workers.shutdownNow();
+		for(Runnable runnable : pending) {
+			((Task<?>) runnable).cancel(false);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a fixed pool of given number of daemon platform threads.
+	 *
+	 * @param threadCount				the number of threads.
+	 *
+	 * @return							the thread pool.
+	 */
+	private static ExecutorService newPlatformThreadPool(int threadCount) {
+		if(threadCount < 1) {
+			throw new IllegalArgumentException("Thread count must be at least 1");
+		}
+
+		AtomicInteger threadNumber = new AtomicInteger();
+		return Executors.newFixedThreadPool(threadCount, runnable -> {
+			Thread thread = new Thread(runnable, "async-api-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns an executor starting a virtual thread per task, looked up reflectively since this
+	 * module compiles for a Java release without virtual threads.
+	 *
+	 * @return							the executor, or null when the JVM has no virtual threads.
+	 */
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch(ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A submitted call which is its own future; cancelling or timing out the future interrupts
+	 * the worker thread while it runs the call.
+	 */
+	private class Task<T> extends CompletableFuture<T> implements Runnable {
+
+		/**
+		 * The call to be run.
+		 */
+		private final Callable<T> call;
+
+		/**
+		 * The worker thread running the call, or null when it is not running.
+		 */
+		private Thread worker;
+
+		//================================================================================================
+
+		/**
+		 * Constructor.
+		 *
+		 * @param call					the call to be run.
+		 */
+		private Task(Callable<T> call) {
+			this.call = call;
+		}
+
+		//================================================================================================
+
+		/**
+		 * Runs the call unless the future completed (i.e. was cancelled) before a worker picked
+		 * it up.
+		 */
+		@Override
+		public void run() {
+			synchronized(this) {
+				if(isDone()) {
+					return;
+				}
+				worker = Thread.currentThread();
+			}
+
+			boolean isPermitted = false;
+			try {
+				//virtual threads wait here rather than in a queue; a cancelled wait is interrupted
+				if(limiter != null) {
+					limiter.acquire();
+					isPermitted = true;
+				}
+				if(!isDone()) {
+					complete(call.call());
+				}
+			} catch(Throwable e) {
+				completeExceptionally(e);
+			} finally {
+				if(isPermitted) {
+					limiter.release();
+				}
+				synchronized(this) {
+					worker = null;
+				}
+				//clears an interrupt which arrived after the call returned so it cannot reach the next task
+				Thread.interrupted();
+			}
+		}
+
+		//================================================================================================
+
+		/**
+		 * Cancels the future and interrupts the running call when mayInterruptIfRunning is set.
+		 */
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean isCancelled = super.cancel(mayInterruptIfRunning);
+			if(isCancelled && mayInterruptIfRunning) {
+				interruptWorker();
+			}
+			return isCancelled;
+		}
+
+		//================================================================================================
+
+		/**
+		 * Counts the timeout and interrupts the running call.
+		 */
+		private void onTimeout() {
+			timedOutCount.incrementAndGet();
+			interruptWorker();
+		}
+
+		//================================================================================================
+
+		/**
+		 * Interrupts the worker thread if it is running the call.
+		 */
+		private synchronized void interruptWorker() {
+			if(worker != null) {
+				worker.interrupt();
+			}
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Holder of the shared executor; created on first use.
+	 */
+	private static class SharedExecutor {
+		private static final AsyncApiExecutor executor = new AsyncApiExecutor();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Holder of the timer firing timeouts for all executors.
+	 */
+	private static class SharedTimer {
+		private static final ScheduledExecutorService timer =
+				Executors.newSingleThreadScheduledExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "async-api-timer");
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+}
@@ -0,0 +1,363 @@
+package com.yuelchen.client;
+
+import java.util.EnumMap;
+import java.util.Map;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.retry.PredefinedBackoffStrategies.FullJitterBackoffStrategy;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.services.elasticmapreduce.AmazonElasticMapReduce;
+import com.amazonaws.services.elasticmapreduce.AmazonElasticMapReduceClientBuilder;
+import com.amazonaws.services.glue.AWSGlue;
+import com.amazonaws.services.glue.AWSGlueClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.AmazonSNSClientBuilder;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+
+/**
+ * AwsClientFactory builds the AWS clients used by the ApiClient classes from one client
+ * configuration profile per service, so connection pools, timeouts, TCP keep-alive and retries
+ * can be tuned in a single place.
+ *
+ * All services can be pointed at a local endpoint (i.e. a local stand-in for load tests) with
+ * the aws.local.endpoint system property, the AWS_LOCAL_ENDPOINT environment variable or
+ * setLocalEndpoint. Profiles and the local endpoint apply to clients built afterwards; inject
+ * a rebuilt client into an ApiClient class with its setter, i.e. S3ApiClient.setAmazonS3Client.
+ *
+ * Every client retries with exponential backoff and full jitter, and passes its requests through
+ * the ResilienceHandler of its service, which opens a circuit breaker on repeated server errors
+ * and counts retries and throttles; read the metrics with getResilienceHandler(service).toString().
+ *
+ * Account quotas differ per region, API and account, so no service is rate limited by default;
+ * S3 requests are only paced per prefix, at the rate S3 itself supports. A service rate, set with
+ * setServiceRate or the aws.(service).rate system property (i.e. -Daws.glue.rate=20), adds an
+ * adaptive token bucket shared by every client of the service in the process, which backs off on
+ * throttles and ramps back up on success.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class AwsClientFactory {
+
+	/**
+	 * The services with a client configuration profile.
+	 */
+	public enum Service { S3, SQS, SNS, GLUE, EMR }
+
+	/**
+	 * The system property naming the local endpoint for all services.
+	 */
+	public static final String LOCAL_ENDPOINT_PROPERTY = "aws.local.endpoint";
+
+	/**
+	 * The environment variable naming the local endpoint for all services.
+	 */
+	public static final String LOCAL_ENDPOINT_ENV = "AWS_LOCAL_ENDPOINT";
+
+	/**
+	 * The signing region used for a local endpoint unless one is given.
+	 */
+	public static final String DEFAULT_LOCAL_REGION = "us-east-1";
+
+	/**
+	 * The system property format naming the rate of a service in requests per second, by lower
+	 * case service name (i.e. aws.glue.rate).
+	 */
+	public static final String SERVICE_RATE_PROPERTY = "aws.%s.rate";
+
+	/**
+	 * The maximum rate per S3 prefix in requests per second; S3 supports 3,500 writes per second
+	 * per prefix.
+	 */
+	private static final double S3_PREFIX_RATE = 3500;
+
+	/**
+	 * The connection timeout in milliseconds shared by all profiles.
+	 */
+	private static final int CONNECTION_TIMEOUT = 5000;
+
+	/**
+	 * The base delay in milliseconds of the full jitter backoff.
+	 */
+	private static final int BACKOFF_BASE_DELAY = 100;
+
+	/**
+	 * The maximum delay in milliseconds of the full jitter backoff.
+	 */
+	private static final int BACKOFF_MAX_DELAY = 20000;
+
+	/**
+	 * The client configuration profiles mapped by service.
+	 */
+	private static final Map<Service, ClientConfiguration> profiles =
+			new EnumMap<Service, ClientConfiguration>(Service.class);
+
+	/**
+	 * The local endpoint all services are pointed at, or null for the AWS endpoints.
+	 */
+	private static volatile EndpointConfiguration localEndpoint;
+
+	/**
+	 * The resilience handlers mapped by service, shared by all clients of a service.
+	 */
+	private static final Map<Service, ResilienceHandler> resilienceHandlers =
+			new EnumMap<Service, ResilienceHandler>(Service.class);
+
+	static {
+		//transfers run many concurrent parts of unbounded duration
+		profiles.put(Service.S3, newProfile(128, 60000, 0, 5));
+		//the socket timeout must outlast a 20 second long poll
+		profiles.put(Service.SQS, newProfile(64, 30000, 0, 5));
+		profiles.put(Service.SNS, newProfile(50, 15000, 15000, 3));
+		//control plane APIs are throttled aggressively so need fewer connections and more retries
+		profiles.put(Service.GLUE, newProfile(16, 30000, 60000, 5));
+		profiles.put(Service.EMR, newProfile(8, 30000, 60000, 5));
+
+		//S3 scales per prefix rather than per account
+		for(Service service : Service.values()) {
+			resilienceHandlers.put(service, newResilienceHandler(service, getServiceRateProperty(service),
+					service == Service.S3 ? S3_PREFIX_RATE : 0));
+		}
+
+		String endpoint = System.getProperty(LOCAL_ENDPOINT_PROPERTY, System.getenv(LOCAL_ENDPOINT_ENV));
+		if(endpoint != null && !endpoint.isEmpty()) {
+			localEndpoint = new EndpointConfiguration(endpoint, DEFAULT_LOCAL_REGION);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Private constructor.
+	 */
+	private AwsClientFactory() {}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a copy of the client configuration profile for given service.
+	 *
+	 * @param service					the service.
+	 *
+	 * @return							the client configuration profile.
+	 */
+	public static synchronized ClientConfiguration getClientConfiguration(Service service) {
+		return new ClientConfiguration(profiles.get(service));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Replaces the client configuration profile for given service.
+	 *
+	 * @param service					the service.
+	 * @param clientConfiguration		the client configuration profile.
+	 */
+	public static synchronized void setClientConfiguration(Service service,
+			ClientConfiguration clientConfiguration) {
+		profiles.put(service, new ClientConfiguration(clientConfiguration));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the resilience handler of given service, i.e. for its metrics or rate limiters.
+	 *
+	 * @param service					the service.
+	 *
+	 * @return							the resilience handler.
+	 */
+	public static ResilienceHandler getResilienceHandler(Service service) {
+		return resilienceHandlers.get(service);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Sets the rate limit of given service, applied to every client of the service including those
+	 * already built.
+	 *
+	 * @param service					the service.
+	 * @param serviceRate				the maximum rate in requests per second, or 0 for no limit.
+	 */
+	public static void setServiceRate(Service service, double serviceRate) {
+		resilienceHandlers.get(service).setServiceRate(serviceRate);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Points all services at given local endpoint (i.e. http://localhost:4566).
+	 *
+	 * @param endpoint					the endpoint url, or null for the AWS endpoints.
+	 * @param signingRegion				the region requests are signed for.
+	 */
+	public static void setLocalEndpoint(String endpoint, String signingRegion) {
+		localEndpoint = endpoint == null ? null : new EndpointConfiguration(endpoint, signingRegion);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the local endpoint all services are pointed at.
+	 *
+	 * @return							the local endpoint, or null for the AWS endpoints.
+	 */
+	public static EndpointConfiguration getLocalEndpoint() {
+		return localEndpoint;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a new Amazon S3 Client; path style access is enabled for a local endpoint since
+	 * local stand-ins do not resolve bucket subdomains.
+	 *
+	 * @return							the Amazon S3 Client.
+	 */
+	public static AmazonS3 newS3Client() {
+		return build(AmazonS3ClientBuilder.standard()
+				.withPathStyleAccessEnabled(localEndpoint != null), Service.S3);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a new Amazon SQS Client.
+	 *
+	 * @return							the Amazon SQS Client.
+	 */
+	public static AmazonSQS newSQSClient() {
+		return build(AmazonSQSClientBuilder.standard(), Service.SQS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a new Amazon SNS Client.
+	 *
+	 * @return							the Amazon SNS Client.
+	 */
+	public static AmazonSNS newSNSClient() {
+		return build(AmazonSNSClientBuilder.standard(), Service.SNS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a new Amazon Glue Client.
+	 *
+	 * @return							the Amazon Glue Client.
+	 */
+	public static AWSGlue newGlueClient() {
+		return build(AWSGlueClientBuilder.standard(), Service.GLUE);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a new Amazon EMR Client.
+	 *
+	 * @return							the Amazon EMR Client.
+	 */
+	public static AmazonElasticMapReduce newEMRClient() {
+		return build(AmazonElasticMapReduceClientBuilder.standard(), Service.EMR);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the client built with the profile of given service and the local endpoint, if any;
+	 * region and credentials are resolved by the default provider chains.
+	 *
+	 * @param builder					the client builder.
+	 * @param service					the service.
+	 *
+	 * @return							the built client.
+	 */
+	private static <B extends AwsClientBuilder<B, T>, T> T build(B builder, Service service) {
+		builder.withClientConfiguration(getClientConfiguration(service))
+				.withRequestHandlers(resilienceHandlers.get(service));
+
+		EndpointConfiguration endpoint = localEndpoint;
+		if(endpoint != null) {
+			builder.withEndpointConfiguration(endpoint);
+		}
+		return builder.build();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a client configuration profile with TCP keep-alive enabled and a full jitter 
+	 * retry policy.
+	 *
+	 * @param maxConnections			the maximum number of pooled connections.
+	 * @param socketTimeout				the socket timeout in milliseconds.
+	 * @param requestTimeout			the request timeout in milliseconds, or 0 for none.
+	 * @param maxErrorRetry				the maximum number of retries for a failed request.
+	 *
+	 * @return							the client configuration profile.
+	 */
+	private static ClientConfiguration newProfile(int maxConnections, int socketTimeout,
+			int requestTimeout, int maxErrorRetry) {
+		return new ClientConfiguration()
+				.withMaxConnections(maxConnections)
+				.withConnectionTimeout(CONNECTION_TIMEOUT)
+				.withSocketTimeout(socketTimeout)
+				.withRequestTimeout(requestTimeout)
+				.withTcpKeepAlive(true)
+				.withMaxErrorRetry(maxErrorRetry)
+				.withRetryPolicy(new RetryPolicy(PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION,
+						new FullJitterBackoffStrategy(BACKOFF_BASE_DELAY, BACKOFF_MAX_DELAY),
+						maxErrorRetry, true));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the rate of given service from its system property, or 0 when not set.
+	 *
+	 * @param service					the service.
+	 *
+	 * @return							the maximum rate in requests per second, or 0 for no limit.
+	 */
+	private static double getServiceRateProperty(Service service) {
+		String property = String.format(SERVICE_RATE_PROPERTY, service.name().toLowerCase());
+		String rate = System.getProperty(property);
+		if(rate == null || rate.isEmpty()) {
+			return 0;
+		}
+
+		try {
+			return Double.parseDouble(rate);
+		} catch(NumberFormatException e) {
+			throw new IllegalArgumentException(String.format("System property '%s' has invalid rate "
+					+ "'%s'", property, rate), e);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a resilience handler with a default circuit breaker.
+	 *
+	 * @param service					the service.
+	 * @param serviceRate				the maximum rate for the service in requests per second, or 0
+	 * 									for no service bucket.
+	 * @param prefixRate				the maximum rate per prefix in requests per second, or 0 for
+	 * 									no prefix buckets.
+	 *
+	 * @return							the resilience handler.
+	 */
+	private static ResilienceHandler newResilienceHandler(Service service, double serviceRate,
+			double prefixRate) {
+		return new ResilienceHandler(service.name(), serviceRate, prefixRate, new CircuitBreaker());
+	}
+}
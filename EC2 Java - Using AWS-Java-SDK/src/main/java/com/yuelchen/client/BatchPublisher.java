@@ -0,0 +1,579 @@
+package com.yuelchen.client;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+
+/**
+ * BatchPublisher is the batching core shared by SQSBatchPublisher and SNSBatchPublisher; it
+ * buffers entries for a single destination and sends them as batch requests of up to 10 entries
+ * and 256 KB, leaving the request and result types to the subclass.
+ *
+ * A batch is sent once it is full or once the linger time has passed since its first entry.
+ * Every entry gets a future completed with its message Id; entries which fail within a partially
+ * successful batch are retried on their own, unless the service reports a sender fault.
+ *
+ * Batches are sent on a sender executor, either owned by the publisher or shared by many
+ * publishers, with at most a fixed number of batches of a publisher in flight; for FIFO
+ * destinations that is one, with retries completed before the next batch, so messages of a group
+ * keep their order. Linger flushes of every publisher run on one shared daemon thread.
+ *
+ * @param <E>							the batch request entry type.
+ * @param <R>							the batch result type.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public abstract class BatchPublisher<E, R> implements AutoCloseable {
+
+	/**
+	 * The maximum number of entries in a batch request.
+	 */
+	public static final int MAX_BATCH_ENTRIES = 10;
+
+	/**
+	 * The maximum total payload size in bytes of a batch request.
+	 */
+	public static final int MAX_BATCH_BYTES = 256 * 1024;
+
+	/**
+	 * The default linger time in milliseconds before a partial batch is sent.
+	 */
+	public static final long DEFAULT_LINGER_MILLIS = 20;
+
+	/**
+	 * The default number of send attempts for each entry.
+	 */
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	/**
+	 * The default number of batches sent concurrently for standard destinations.
+	 */
+	public static final int DEFAULT_SENDER_THREADS = 4;
+
+	/**
+	 * The base delay in milliseconds between attempts; doubled after every attempt.
+	 */
+	private static final long RETRY_BASE_DELAY = 100;
+
+	/**
+	 * The kind of destination (i.e. queue, topic), used in messages.
+	 */
+	private final String destinationKind;
+
+	/**
+	 * The name of the destination entries are sent to, used in messages.
+	 */
+	private final String destinationName;
+
+	/**
+	 * The linger time in milliseconds before a partial batch is sent.
+	 */
+	private final long lingerMillis;
+
+	/**
+	 * The maximum number of send attempts for each entry.
+	 */
+	private final int maxAttempts;
+
+	/**
+	 * The maximum number of batches of this publisher in flight.
+	 */
+	private final int maxSendingBatches;
+
+	/**
+	 * The executor sending batches.
+	 */
+	private final ExecutorService senderExecutor;
+
+	/**
+	 * Whether the sender executor is owned, and shut down, by this publisher.
+	 */
+	private final boolean isSenderExecutorOwned;
+
+	/**
+	 * The entries of the batch being filled.
+	 */
+	private List<PendingEntry<E>> pendingEntries = new ArrayList<PendingEntry<E>>();
+
+	/**
+	 * The payload size in bytes of the batch being filled.
+	 */
+	private int pendingBytes = 0;
+
+	/**
+	 * The scheduled linger flush of the batch being filled.
+	 */
+	private ScheduledFuture<?> lingerFlush;
+
+	/**
+	 * The full batches waiting for a sending slot.
+	 */
+	private final Deque<List<PendingEntry<E>>> queuedBatches = new ArrayDeque<List<PendingEntry<E>>>();
+
+	/**
+	 * The number of batches of this publisher in flight.
+	 */
+	private int sendingBatches = 0;
+
+	/**
+	 * Whether the publisher has been closed.
+	 */
+	private boolean isClosed = false;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param destinationKind			the kind of destination (i.e. queue, topic).
+	 * @param destinationName			the name of the destination entries are sent to.
+	 * @param lingerMillis				the linger time in milliseconds before a partial batch is sent.
+	 * @param maxAttempts				the maximum number of send attempts for each entry.
+	 * @param maxSendingBatches			the maximum number of batches in flight; one for FIFO
+	 * 									destinations.
+	 * @param senderExecutor			the executor sending batches.
+	 * @param isSenderExecutorOwned		true if close shuts down the executor, false if it is shared.
+	 */
+	protected BatchPublisher(String destinationKind, String destinationName, long lingerMillis,
+			int maxAttempts, int maxSendingBatches, ExecutorService senderExecutor,
+			boolean isSenderExecutorOwned) {
+
+		if(maxAttempts <= 0 || maxSendingBatches <= 0) {
+			throw new IllegalArgumentException(String.format("Max attempts '%d' and max sending batches "
+					+ "'%d' must both be positive", maxAttempts, maxSendingBatches));
+		}
+
+		this.destinationKind = destinationKind;
+		this.destinationName = destinationName;
+		this.lingerMillis = lingerMillis;
+		this.maxAttempts = maxAttempts;
+		this.maxSendingBatches = maxSendingBatches;
+		this.senderExecutor = senderExecutor;
+		this.isSenderExecutorOwned = isSenderExecutorOwned;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a fixed pool of daemon sender threads, i.e. to be shared by many publishers; daemon
+	 * threads so an unclosed publisher does not hold the JVM open.
+	 *
+	 * @param threadName				the name of the sender threads.
+	 * @param threadCount				the number of sender threads.
+	 *
+	 * @return							the sender executor.
+	 */
+	public static ExecutorService newSenderExecutor(String threadName, int threadCount) {
+		return Executors.newFixedThreadPool(threadCount, runnable -> {
+			Thread thread = new Thread(runnable, threadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Sends the batch being filled without waiting for it to be full or for the linger time.
+	 */
+	public synchronized void flush() {
+		if(this.pendingEntries.isEmpty()) {
+			return;
+		}
+
+		if(this.lingerFlush != null) {
+			this.lingerFlush.cancel(false);
+			this.lingerFlush = null;
+		}
+
+		this.queuedBatches.add(this.pendingEntries);
+		this.pendingEntries = new ArrayList<PendingEntry<E>>();
+		this.pendingBytes = 0;
+		this.dispatch();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Sends all buffered entries and waits for every outstanding batch of this publisher to
+	 * complete; an owned sender executor is shut down, a shared one is left running.
+	 */
+	@Override
+	public void close() {
+		synchronized(this) {
+			this.isClosed = true;
+			this.flush();
+			try {
+				while(this.sendingBatches > 0 || !this.queuedBatches.isEmpty()) {
+					this.wait();
+				}
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if(this.isSenderExecutorOwned) {
+			this.senderExecutor.shutdown();
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a future of the message Id after adding the entry to the batch being filled.
+	 *
+	 * @param entry						the batch entry without Id.
+	 *
+	 * @return							a future completed with the message Id.
+	 */
+	protected synchronized CompletableFuture<String> enqueue(E entry) {
+		CompletableFuture<String> messageFuture = new CompletableFuture<String>();
+		int entryBytes = this.getPayloadBytes(entry);
+
+		if(this.isClosed) {
+			messageFuture.completeExceptionally(new IllegalStateException(String.format(
+					"Publisher for %s '%s' is closed", this.destinationKind, this.destinationName)));
+			return messageFuture;
+		}
+		if(entryBytes > MAX_BATCH_BYTES) {
+			messageFuture.completeExceptionally(new IllegalArgumentException(String.format(
+					"Message of '%d' bytes exceeds the '%d' bytes limit", entryBytes, MAX_BATCH_BYTES)));
+			return messageFuture;
+		}
+
+		if(this.pendingBytes + entryBytes > MAX_BATCH_BYTES) {
+			this.flush();
+		}
+
+		this.pendingEntries.add(new PendingEntry<E>(entry, messageFuture));
+		this.pendingBytes += entryBytes;
+
+		if(this.pendingEntries.size() >= MAX_BATCH_ENTRIES) {
+			this.flush();
+		} else if(this.pendingEntries.size() == 1) {
+			this.lingerFlush = LingerScheduler.scheduler.schedule(this::flush,
+					this.lingerMillis, TimeUnit.MILLISECONDS);
+		}
+
+		return messageFuture;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the payload size in bytes the service counts for the entry.
+	 *
+	 * @param entry						the batch entry.
+	 *
+	 * @return							the payload size in bytes.
+	 */
+	protected abstract int getPayloadBytes(E entry);
+
+	//====================================================================================================
+
+	/**
+	 * Sets the Id of the entry within its batch request.
+	 *
+	 * @param entry						the batch entry.
+	 * @param entryId					the entry Id.
+	 */
+	protected abstract void setEntryId(E entry, String entryId);
+
+	//====================================================================================================
+
+	/**
+	 * Returns the result of sending the given entries as one batch request.
+	 *
+	 * @param entries					the batch entries with Ids.
+	 *
+	 * @return							the batch result.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but the service could
+	 * 									not process the requested action.
+	 * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to the
+	 * 									service.
+	 */
+	protected abstract R sendBatchRequest(List<E> entries)
+			throws AmazonServiceException, SdkClientException;
+
+	//====================================================================================================
+
+	/**
+	 * Returns the message Ids of the successful entries of a batch result.
+	 *
+	 * @param batchResult				the batch result.
+	 *
+	 * @return							the message Ids mapped by entry Id.
+	 */
+	protected abstract Map<String, String> getMessageIds(R batchResult);
+
+	//====================================================================================================
+
+	/**
+	 * Returns the failed entries of a batch result.
+	 *
+	 * @param batchResult				the batch result.
+	 *
+	 * @return							the failed entries.
+	 */
+	protected abstract List<FailedEntry> getFailedEntries(R batchResult);
+
+	//====================================================================================================
+
+	/**
+	 * Hands queued batches to the sender executor while fewer than the maximum are in flight;
+	 * called holding the publisher's lock.
+	 */
+	private void dispatch() {
+		while(this.sendingBatches < this.maxSendingBatches && !this.queuedBatches.isEmpty()) {
+			List<PendingEntry<E>> batch = this.queuedBatches.poll();
+			this.sendingBatches++;
+			try {
+				this.senderExecutor.execute(() -> this.runBatch(batch));
+			} catch(RejectedExecutionException e) {
+				this.sendingBatches--;
+				batch.forEach(pendingEntry -> pendingEntry.future.completeExceptionally(e));
+			}
+		}
+		this.notifyAll();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Sends the given batch on a sender thread, then frees its sending slot.
+	 *
+	 * @param batch						the entries to be sent.
+	 */
+	private void runBatch(List<PendingEntry<E>> batch) {
+		try {
+			this.sendBatch(batch);
+		} finally {
+			synchronized(this) {
+				this.sendingBatches--;
+				this.dispatch();
+			}
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Sends the given batch, retrying entries which failed until they succeed, report a sender
+	 * fault or run out of attempts.
+	 *
+	 * @param batch						the entries to be sent.
+	 */
+	private void sendBatch(List<PendingEntry<E>> batch) {
+		List<PendingEntry<E>> remaining = batch;
+		for(int attempt = 1; !remaining.isEmpty(); attempt++) {
+			if(attempt > 1 && !this.backoff(attempt, remaining)) {
+				return;
+			}
+
+			boolean isLastAttempt = attempt >= this.maxAttempts;
+			remaining = this.sendEntries(remaining, isLastAttempt);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the entries to be retried after sending the given entries as one batch.
+	 *
+	 * @param pendingEntries			the entries to be sent.
+	 * @param isLastAttempt				true if failed entries should not be retried.
+	 *
+	 * @return							the entries to be retried.
+	 */
+	private List<PendingEntry<E>> sendEntries(List<PendingEntry<E>> pendingEntries, boolean isLastAttempt) {
+		Map<String, PendingEntry<E>> entriesById = new HashMap<String, PendingEntry<E>>();
+		List<E> entries = new ArrayList<E>();
+		for(int index = 0; index < pendingEntries.size(); index++) {
+			String entryId = Integer.toString(index);
+			PendingEntry<E> pendingEntry = pendingEntries.get(index);
+			entriesById.put(entryId, pendingEntry);
+			this.setEntryId(pendingEntry.entry, entryId);
+			entries.add(pendingEntry.entry);
+		}
+
+		R batchResult;
+		try {
+			batchResult = this.sendBatchRequest(entries);
+
+		} catch(SdkClientException e) {
+			boolean isClientError = e instanceof AmazonServiceException
+					&& ((AmazonServiceException) e).getErrorType() == AmazonServiceException.ErrorType.Client;
+			if(isLastAttempt || isClientError) {
+				pendingEntries.forEach(pendingEntry -> pendingEntry.future.completeExceptionally(e));
+				return new ArrayList<PendingEntry<E>>();
+			}
+			return pendingEntries;
+		}
+
+		this.getMessageIds(batchResult).forEach((entryId, messageId) -> {
+			PendingEntry<E> pendingEntry = entriesById.remove(entryId);
+			if(pendingEntry != null) {
+				pendingEntry.future.complete(messageId);
+			}
+		});
+
+		List<PendingEntry<E>> retryEntries = new ArrayList<PendingEntry<E>>();
+		for(FailedEntry failedEntry : this.getFailedEntries(batchResult)) {
+			PendingEntry<E> pendingEntry = entriesById.remove(failedEntry.entryId);
+			if(pendingEntry == null) {
+				continue;
+			}
+			if(isLastAttempt || failedEntry.isSenderFault) {
+				pendingEntry.future.completeExceptionally(new SdkClientException(String.format(
+						"Failed to publish message to %s '%s' with code '%s': %s", this.destinationKind,
+						this.destinationName, failedEntry.code, failedEntry.message)));
+			} else {
+				retryEntries.add(pendingEntry);
+			}
+		}
+
+		//entries missing from both lists were not processed and are treated as failed
+		retryEntries.addAll(entriesById.values());
+		if(isLastAttempt) {
+			retryEntries.forEach(pendingEntry -> pendingEntry.future.completeExceptionally(new SdkClientException(
+					String.format("No result returned for message published to %s '%s'",
+							this.destinationKind, this.destinationName))));
+			return new ArrayList<PendingEntry<E>>();
+		}
+
+		//retries keep the original order so FIFO groups are not reordered
+		retryEntries.sort((left, right) -> Integer.compare(
+				pendingEntries.indexOf(left), pendingEntries.indexOf(right)));
+		return retryEntries;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns true after waiting before the given attempt; on interruption the remaining
+	 * entries are failed and false is returned.
+	 *
+	 * @param attempt					the upcoming attempt.
+	 * @param remaining					the entries to be retried.
+	 *
+	 * @return							true if the retry should proceed, false if it should not.
+	 */
+	private boolean backoff(int attempt, List<PendingEntry<E>> remaining) {
+		try {
+			Thread.sleep(RETRY_BASE_DELAY << (attempt - 2));
+			return true;
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			remaining.forEach(pendingEntry -> pendingEntry.future.completeExceptionally(e));
+			return false;
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A failed entry of a batch result.
+	 */
+	protected static class FailedEntry {
+
+		/**
+		 * The entry Id.
+		 */
+		private final String entryId;
+
+		/**
+		 * The error code.
+		 */
+		private final String code;
+
+		/**
+		 * The error message.
+		 */
+		private final String message;
+
+		/**
+		 * Whether the failure is the sender's fault, which a retry cannot fix.
+		 */
+		private final boolean isSenderFault;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param entryId				the entry Id.
+		 * @param code					the error code.
+		 * @param message				the error message.
+		 * @param senderFault			whether the failure is the sender's fault, null if unknown.
+		 */
+		public FailedEntry(String entryId, String code, String message, Boolean senderFault) {
+			this.entryId = entryId;
+			this.code = code;
+			this.message = message;
+			this.isSenderFault = Boolean.TRUE.equals(senderFault);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A buffered batch entry with the future of its message Id.
+	 *
+	 * @param <E>						the batch request entry type.
+	 */
+	private static class PendingEntry<E> {
+
+		/**
+		 * The batch entry.
+		 */
+		private final E entry;
+
+		/**
+		 * The future completed with the message Id.
+		 */
+		private final CompletableFuture<String> future;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param entry					the batch entry.
+		 * @param future				the future completed with the message Id.
+		 */
+		private PendingEntry(E entry, CompletableFuture<String> future) {
+			this.entry = entry;
+			this.future = future;
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Holder of the scheduler flushing partial batches of every publisher after the linger time;
+	 * created on first use.
+	 */
+	private static class LingerScheduler {
+
+		/**
+		 * The scheduler shared by every publisher.
+		 */
+		private static final ScheduledExecutorService scheduler =
+				Executors.newSingleThreadScheduledExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "batch-publisher-linger");
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+}
@@ -0,0 +1,158 @@
+package com.yuelchen.client;
+
+/**
+ * CircuitBreaker stops requests to a service after consecutive failures; once open, requests are
+ * rejected until the open period has passed, then a single trial request is let through which
+ * closes the breaker on success or opens it again on failure.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class CircuitBreaker {
+
+	/**
+	 * The states of the breaker.
+	 */
+	public enum State { CLOSED, OPEN, HALF_OPEN }
+
+	/**
+	 * The default number of consecutive failures which opens the breaker.
+	 */
+	public static final int DEFAULT_FAILURE_THRESHOLD = 20;
+
+	/**
+	 * The default time in milliseconds the breaker stays open.
+	 */
+	public static final long DEFAULT_OPEN_MILLIS = 30000;
+
+	/**
+	 * The number of consecutive failures which opens the breaker.
+	 */
+	private final int failureThreshold;
+
+	/**
+	 * The time in milliseconds the breaker stays open.
+	 */
+	private final long openMillis;
+
+	/**
+	 * The current state.
+	 */
+	private State state = State.CLOSED;
+
+	/**
+	 * The number of consecutive failures.
+	 */
+	private int failureCount;
+
+	/**
+	 * The time in milliseconds the breaker last opened.
+	 */
+	private long openedAt;
+
+	/**
+	 * Whether or not the trial request of a half open breaker is in flight.
+	 */
+	private boolean isTrialInFlight;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor with default failure threshold and open period.
+	 */
+	public CircuitBreaker() {
+		this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param failureThreshold			the number of consecutive failures which opens the breaker.
+	 * @param openMillis				the time in milliseconds the breaker stays open.
+	 */
+	public CircuitBreaker(int failureThreshold, long openMillis) {
+		this.failureThreshold = failureThreshold;
+		this.openMillis = openMillis;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns whether or not a request may be sent; an open breaker whose open period has passed
+	 * turns half open and lets the caller through as its trial request.
+	 *
+	 * @return							true when the request may be sent.
+	 */
+	public synchronized boolean allowRequest() {
+		if(state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+			state = State.HALF_OPEN;
+		}
+
+		switch(state) {
+			case CLOSED:
+				return true;
+			case HALF_OPEN:
+				if(isTrialInFlight) {
+					return false;
+				}
+				isTrialInFlight = true;
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Records a successful request, closing the breaker.
+	 */
+	public synchronized void onSuccess() {
+		failureCount = 0;
+		isTrialInFlight = false;
+		state = State.CLOSED;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Records a failed request; the breaker opens when the failure threshold is reached or the
+	 * trial request of a half open breaker fails.
+	 */
+	public synchronized void onFailure() {
+		failureCount++;
+		if(state == State.HALF_OPEN || failureCount >= failureThreshold) {
+			if(state != State.OPEN) {
+				System.out.println(String.format("Circuit opened after %d consecutive failures; "
+						+ "rejecting requests for %d ms", failureCount, openMillis));
+			}
+			state = State.OPEN;
+			openedAt = System.currentTimeMillis();
+			isTrialInFlight = false;
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Records an attempt which ended without an outcome (i.e. was interrupted), letting another
+	 * trial request through when it was the trial of a half open breaker.
+	 */
+	public synchronized void onAbandoned() {
+		isTrialInFlight = false;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the current state.
+	 *
+	 * @return							the current state.
+	 */
+	public synchronized State getState() {
+		return state;
+	}
+}
@@ -0,0 +1,72 @@
+package com.yuelchen.client;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * PageStreams turns a NextToken paginated listing into a lazy stream, shared by the ApiClient
+ * classes whose list APIs page with a next token (i.e. SNSApiClient.listTopics and
+ * GlueApiClient.streamDatabases).
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class PageStreams {
+
+	/**
+	 * Private constructor.
+	 */
+	private PageStreams() {}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a stream over paginated results, fetching the next page only once the items of the
+	 * previous page have been consumed; a page without items list is treated as empty.
+	 *
+	 * @param fetch						the function fetching the page for a next token, null first.
+	 * @param items						the function returning the items of a page.
+	 * @param nextToken					the function returning the next token of a page, null or
+	 * 									empty last.
+	 *
+	 * @return							a lazily paginated stream of items.
+	 */
+	public static <R, T> Stream<T> stream(Function<String, R> fetch, Function<R, List<T>> items,
+			Function<R, String> nextToken) {
+
+		Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(
+				Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			private final Deque<T> pageItems = new ArrayDeque<T>();
+			private String pageToken = null;
+			private boolean isLastPage = false;
+
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action) {
+				while(this.pageItems.isEmpty() && !this.isLastPage) {
+					R page = fetch.apply(this.pageToken);
+					List<T> pageList = items.apply(page);
+					if(pageList != null) {
+						this.pageItems.addAll(pageList);
+					}
+					this.pageToken = nextToken.apply(page);
+					this.isLastPage = this.pageToken == null || this.pageToken.isEmpty();
+				}
+
+				if(this.pageItems.isEmpty()) {
+					return false;
+				}
+				action.accept(this.pageItems.poll());
+				return true;
+			}
+		};
+		return StreamSupport.stream(spliterator, false);
+	}
+}
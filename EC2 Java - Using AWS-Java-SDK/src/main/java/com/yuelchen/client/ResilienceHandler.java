@@ -0,0 +1,406 @@
+package com.yuelchen.client;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.Request;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.retry.RetryUtils;
+
+/**
+ * ResilienceHandler is the request handler AwsClientFactory adds to every client of a service;
+ * each request attempt, including retries, passes a circuit breaker and takes a permit from an
+ * adaptive token bucket for the service, when a service rate is set, and one for the request
+ * prefix, when a prefix rate is set (i.e. for S3), since S3 throttles with 503 SlowDown per key
+ * prefix. The service rate can be changed or turned off while clients are in use.
+ *
+ * Throttle responses lower the rate of the buckets the attempt passed through and successes ramp
+ * it back up; server errors and connection failures count towards opening the breaker, while
+ * throttles do not since the service is reachable and the rate already backs off. Retries
+ * themselves are made by the client's retry policy, with full jitter backoff.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class ResilienceHandler extends RequestHandler2 {
+
+	/**
+	 * The maximum number of prefix buckets kept; the least recently used is dropped beyond it.
+	 */
+	public static final int MAX_PREFIX_LIMITERS = 1024;
+
+	/**
+	 * The number of leading resource path segments forming a prefix; covers the bucket and top
+	 * level prefix for path style requests, or two prefix levels for virtual hosted requests.
+	 */
+	public static final int PREFIX_DEPTH = 2;
+
+	/**
+	 * The lowest rate as a fraction of the maximum rate the buckets back off to.
+	 */
+	private static final double MIN_RATE_FRACTION = 0.05;
+
+	/**
+	 * The name of the service, used in log messages.
+	 */
+	private final String serviceName;
+
+	/**
+	 * The bucket shared by all requests to the service, or null for no service bucket.
+	 */
+	private volatile AdaptiveRateLimiter serviceLimiter;
+
+	/**
+	 * The maximum rate per prefix in requests per second, or 0 for no prefix buckets.
+	 */
+	private final double prefixRate;
+
+	/**
+	 * The prefix buckets by host and prefix, in access order.
+	 */
+	private final Map<String, AdaptiveRateLimiter> prefixLimiters;
+
+	/**
+	 * The breaker shared by all requests to the service.
+	 */
+	private final CircuitBreaker circuitBreaker;
+
+	/**
+	 * The number of requests, counted once regardless of retries.
+	 */
+	private final AtomicLong requestCount = new AtomicLong();
+
+	/**
+	 * The number of attempts, including retries.
+	 */
+	private final AtomicLong attemptCount = new AtomicLong();
+
+	/**
+	 * The number of throttle responses.
+	 */
+	private final AtomicLong throttleCount = new AtomicLong();
+
+	/**
+	 * The number of attempts rejected by the open circuit breaker.
+	 */
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	/**
+	 * The total time in milliseconds attempts waited for permits.
+	 */
+	private final AtomicLong permitWaitMillis = new AtomicLong();
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param serviceName				the name of the service.
+	 * @param serviceRate				the maximum rate for the service in requests per second, or 0
+	 * 									for no service bucket.
+	 * @param prefixRate				the maximum rate per prefix in requests per second, or 0 for
+	 * 									no prefix buckets.
+	 * @param circuitBreaker			the breaker for the service.
+	 */
+	public ResilienceHandler(String serviceName, double serviceRate, double prefixRate,
+			CircuitBreaker circuitBreaker) {
+
+		this.serviceName = serviceName;
+		this.serviceLimiter = newServiceLimiter(serviceRate);
+		this.prefixRate = prefixRate;
+		this.prefixLimiters = Collections.synchronizedMap(
+				new LinkedHashMap<String, AdaptiveRateLimiter>(16, 0.75f, true) {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected boolean removeEldestEntry(Map.Entry<String, AdaptiveRateLimiter> eldest) {
+						return size() > MAX_PREFIX_LIMITERS;
+					}
+				});
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Counts the request once before its first attempt.
+	 */
+	@Override
+	public void beforeRequest(Request<?> request) {
+		requestCount.incrementAndGet();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Rejects the attempt when the circuit is open, otherwise waits for permits from the service
+	 * and prefix buckets.
+	 *
+	 * @throws CircuitOpenException		thrown when the circuit is open; not retried by the client.
+	 * @throws AbortedException			thrown when interrupted while waiting for a permit.
+	 */
+	@Override
+	public void beforeAttempt(HandlerBeforeAttemptContext context) {
+		attemptCount.incrementAndGet();
+		if(!circuitBreaker.allowRequest()) {
+			rejectedCount.incrementAndGet();
+			throw new CircuitOpenException(String.format(
+					"Circuit open for %s; request rejected without being sent", serviceName));
+		}
+
+		try {
+			AdaptiveRateLimiter serviceLimiter = this.serviceLimiter;
+			long waitMillis = serviceLimiter == null ? 0 : serviceLimiter.acquire();
+			AdaptiveRateLimiter prefixLimiter = getPrefixLimiter(context.getRequest());
+			if(prefixLimiter != null) {
+				waitMillis += prefixLimiter.acquire();
+			}
+			permitWaitMillis.addAndGet(waitMillis);
+		} catch(AbortedException e) {
+			circuitBreaker.onAbandoned();
+			throw e;
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Adapts the bucket rates and the breaker to the outcome of the attempt.
+	 */
+	@Override
+	public void afterAttempt(HandlerAfterAttemptContext context) {
+		Exception exception = context.getException();
+		if(exception instanceof CircuitOpenException || exception instanceof AbortedException) {
+			return;
+		}
+
+		AdaptiveRateLimiter serviceLimiter = this.serviceLimiter;
+		AdaptiveRateLimiter prefixLimiter = getPrefixLimiter(context.getRequest());
+		if(exception == null) {
+			if(serviceLimiter != null) {
+				serviceLimiter.onSuccess();
+			}
+			if(prefixLimiter != null) {
+				prefixLimiter.onSuccess();
+			}
+			circuitBreaker.onSuccess();
+		} else if(exception instanceof AmazonServiceException
+				&& RetryUtils.isThrottlingException((AmazonServiceException) exception)) {
+			throttleCount.incrementAndGet();
+			if(serviceLimiter != null) {
+				serviceLimiter.onThrottle();
+			}
+			if(prefixLimiter != null) {
+				prefixLimiter.onThrottle();
+			}
+			circuitBreaker.onSuccess();
+		} else if(isServiceFailure(exception)) {
+			circuitBreaker.onFailure();
+		} else if(exception instanceof AmazonServiceException) {
+			//a client error such as a missing key is a valid response from a healthy service
+			circuitBreaker.onSuccess();
+		} else {
+			circuitBreaker.onAbandoned();
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of requests, counted once regardless of retries.
+	 *
+	 * @return							the number of requests.
+	 */
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of retries, i.e. attempts beyond the first of each request.
+	 *
+	 * @return							the number of retries.
+	 */
+	public long getRetryCount() {
+		return Math.max(0, attemptCount.get() - requestCount.get());
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of throttle responses.
+	 *
+	 * @return							the number of throttle responses.
+	 */
+	public long getThrottleCount() {
+		return throttleCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of attempts rejected by the open circuit breaker.
+	 *
+	 * @return							the number of rejected attempts.
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the total time in milliseconds attempts waited for permits.
+	 *
+	 * @return							the total permit wait time.
+	 */
+	public long getPermitWaitMillis() {
+		return permitWaitMillis.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the bucket shared by all requests to the service.
+	 *
+	 * @return							the service bucket, or null for no service bucket.
+	 */
+	public AdaptiveRateLimiter getServiceLimiter() {
+		return serviceLimiter;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Replaces the service bucket with one of given maximum rate; attempts already waiting for a
+	 * permit keep waiting on the previous bucket.
+	 *
+	 * @param serviceRate				the maximum rate for the service in requests per second, or 0
+	 * 									for no service bucket.
+	 */
+	public void setServiceRate(double serviceRate) {
+		serviceLimiter = newServiceLimiter(serviceRate);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the breaker shared by all requests to the service.
+	 *
+	 * @return							the circuit breaker.
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a summary of the metrics, i.e. for periodic logging.
+	 *
+	 * @return							the metrics summary.
+	 */
+	@Override
+	public String toString() {
+		AdaptiveRateLimiter serviceLimiter = this.serviceLimiter;
+		return String.format("%s requests '%d', retries '%d', throttles '%d', rejected '%d', "
+				+ "permit wait '%d' ms, rate '%s', circuit '%s'", serviceName, getRequestCount(),
+				getRetryCount(), getThrottleCount(), getRejectedCount(), getPermitWaitMillis(),
+				serviceLimiter == null ? "unlimited" : String.format("%.1f/s", serviceLimiter.getRate()),
+				circuitBreaker.getState());
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the prefix bucket for given request, created on first use.
+	 *
+	 * @param request					the request.
+	 *
+	 * @return							the prefix bucket, or null when prefix rates are disabled.
+	 */
+	private AdaptiveRateLimiter getPrefixLimiter(Request<?> request) {
+		if(prefixRate <= 0 || request == null) {
+			return null;
+		}
+
+		//the prefix ends at the last delimiter within the prefix depth, so keys share their folder's bucket
+		String path = request.getResourcePath() == null ? "" : request.getResourcePath();
+		int start = path.startsWith("/") ? 1 : 0;
+		int end = start;
+		for(int depth = 0, delimiter = start - 1; depth < PREFIX_DEPTH; depth++) {
+			delimiter = path.indexOf('/', delimiter + 1);
+			if(delimiter < 0) {
+				break;
+			}
+			end = delimiter;
+		}
+
+		String prefix = path.substring(start, end);
+		String key = request.getEndpoint().getHost() + "/" + prefix;
+		return prefixLimiters.computeIfAbsent(key,
+				k -> new AdaptiveRateLimiter(prefixRate, prefixRate * MIN_RATE_FRACTION));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a service bucket of given maximum rate.
+	 *
+	 * @param serviceRate				the maximum rate in requests per second, or 0 for none.
+	 *
+	 * @return							the service bucket, or null for no service bucket.
+	 */
+	private static AdaptiveRateLimiter newServiceLimiter(double serviceRate) {
+		if(serviceRate < 0) {
+			throw new IllegalArgumentException(String.format("Service rate '%s' per second must not be "
+					+ "negative", serviceRate));
+		}
+		return serviceRate == 0 ? null : new AdaptiveRateLimiter(serviceRate, serviceRate * MIN_RATE_FRACTION);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns whether or not given exception indicates an unhealthy service, i.e. a server error or
+	 * a failure to connect or read the response.
+	 *
+	 * @param exception					the exception of the attempt.
+	 *
+	 * @return							true for a server error or connection failure.
+	 */
+	private static boolean isServiceFailure(Exception exception) {
+		if(exception instanceof AmazonServiceException) {
+			return ((AmazonServiceException) exception).getStatusCode() >= 500;
+		}
+		return exception instanceof SdkClientException
+				&& exception.getCause() instanceof IOException;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Thrown for an attempt rejected by an open circuit breaker; the request was not sent.
+	 */
+	public static class CircuitOpenException extends SdkClientException {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param message				the detail message.
+		 */
+		public CircuitOpenException(String message) {
+			super(message);
+		}
+	}
+}
@@ -2,12 +2,12 @@ package com.yuelchen.emr;
 
 import java.util.List;
 import com.amazonaws.services.elasticmapreduce.AmazonElasticMapReduce;
-import com.amazonaws.services.elasticmapreduce.AmazonElasticMapReduceClientBuilder;
 import com.amazonaws.services.elasticmapreduce.model.AddJobFlowStepsRequest;
 import com.amazonaws.services.elasticmapreduce.model.AddJobFlowStepsResult;
 import com.amazonaws.services.elasticmapreduce.model.HadoopJarStepConfig;
 import com.amazonaws.services.elasticmapreduce.model.InternalServerErrorException;
 import com.amazonaws.services.elasticmapreduce.model.StepConfig;
+import com.yuelchen.client.AwsClientFactory;
 
 /**
  * Amazon EMR API client handler for performing EMR operations. 
@@ -19,10 +19,9 @@ import com.amazonaws.services.elasticmapreduce.model.StepConfig;
 public class EMRApiClient {
 	
 	/**
-	 * The default Amazon EMR Client for making API requests. 
+	 * The Amazon EMR Client for making API requests, built from the EMR client profile. 
 	 */
-	private static AmazonElasticMapReduce amazonEMRClient = 
-			AmazonElasticMapReduceClientBuilder.defaultClient();
+	private static AmazonElasticMapReduce amazonEMRClient = AwsClientFactory.newEMRClient();
 
     //====================================================================================================
     
@@ -31,6 +30,17 @@ public class EMRApiClient {
      */
 	private EMRApiClient() {}
     
+    //====================================================================================================
+	
+	/**
+	 * Replaces the Amazon EMR Client, i.e. one built with a tuned profile from AwsClientFactory. 
+	 * 
+	 * @param emrClient							the Amazon EMR Client.
+	 */
+	public static void setAmazonEMRClient(AmazonElasticMapReduce emrClient) {
+		amazonEMRClient = emrClient;
+	}
+    
     //====================================================================================================
 	
 	/**
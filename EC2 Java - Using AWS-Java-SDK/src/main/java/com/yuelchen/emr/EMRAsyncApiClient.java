@@ -0,0 +1,62 @@
+package com.yuelchen.emr;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import com.yuelchen.client.AsyncApiExecutor;
+
+/**
+ * Asynchronous facade of EMRApiClient; each method runs the blocking EMR call of the same name 
+ * on an AsyncApiExecutor and returns a future of its result, completed exceptionally with the 
+ * exception the call threw. 
+ * 
+ * Per-call timeouts are applied with AsyncApiExecutor.orTimeout, i.e. 
+ * orTimeout(EMRAsyncApiClient.submitEMRStep(...), 5, TimeUnit.SECONDS); cancelling or timing out a 
+ * returned future interrupts the call. 
+ * 
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class EMRAsyncApiClient {
+	
+	/**
+	 * The executor running the calls; the shared executor unless replaced. 
+	 */
+	private static AsyncApiExecutor asyncApiExecutor = AsyncApiExecutor.getSharedExecutor();
+	
+	//====================================================================================================
+	
+	/**
+	 * Private constructor.
+	 */
+	private EMRAsyncApiClient() {}
+	
+	//====================================================================================================
+	
+	/**
+	 * Replaces the executor running the calls, i.e. one with more threads or a default timeout. 
+	 * 
+	 * @param executor					the executor.
+	 */
+	public static void setAsyncApiExecutor(AsyncApiExecutor executor) {
+		asyncApiExecutor = executor;
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the step identifiers of the added step; see 
+	 * EMRApiClient.submitEMRStep(String, String, String). 
+	 * 
+	 * @param clusterId					the EMR cluster Id.
+	 * @param stepName					the name of the step.
+	 * @param jarLocation				the custom jar to be executed as step.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<List<String>> submitEMRStep(String clusterId, String stepName,
+			String jarLocation) {
+		return asyncApiExecutor.submit(() -> 
+				EMRApiClient.submitEMRStep(clusterId, stepName, jarLocation));
+	}
+}
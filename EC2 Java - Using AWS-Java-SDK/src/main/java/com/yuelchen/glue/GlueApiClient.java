@@ -4,9 +4,12 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.ResponseMetadata;
 import com.amazonaws.SdkClientException;
 import com.amazonaws.services.glue.AWSGlue;
-import com.amazonaws.services.glue.AWSGlueClientBuilder;
 import com.amazonaws.services.glue.model.*;
+import com.yuelchen.client.AwsClientFactory;
+import com.yuelchen.client.PageStreams;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Amazon Glue API client handler for performing Glue operations. 
@@ -18,9 +21,14 @@ import java.util.List;
 public class GlueApiClient {
 	
 	/**
-	 * The default Amazon Glue Client for making API requests. 
+	 * The maximum number of databases or tables requested per page, the largest Glue accepts. 
 	 */
-    public static AWSGlue amazonGlueClient = AWSGlueClientBuilder.defaultClient();
+	public static final int MAX_RESULTS_PER_PAGE = 100;
+	
+	/**
+	 * The Amazon Glue Client for making API requests, built from the Glue client profile. 
+	 */
+    public static AWSGlue amazonGlueClient = AwsClientFactory.newGlueClient();
 
     //====================================================================================================
     
@@ -31,6 +39,17 @@ public class GlueApiClient {
     
     //====================================================================================================
     
+    /**
+     * Replaces the Amazon Glue Client, i.e. one built with a tuned profile from AwsClientFactory. 
+     * 
+     * @param glueClient				the Amazon Glue Client.
+     */
+    public static void setAmazonGlueClient(AWSGlue glueClient) {
+    	amazonGlueClient = glueClient;
+    }
+    
+    //====================================================================================================
+    
     /**
      * Returns the response metadata for given database creation request. 
      * 
@@ -100,7 +119,7 @@ public class GlueApiClient {
     //====================================================================================================
     
     /**
-     * Returns a list of Glue Database objects if account Id exists. 
+     * Returns a list of all Glue Database objects if account Id exists, following every page. 
      * 
      * @param accountId					the AWS account Id. 
      * 
@@ -113,11 +132,33 @@ public class GlueApiClient {
     public static List<Database> getDatabasesList(String accountId) 
     		throws AmazonServiceException, SdkClientException {
     	
-        GetDatabasesRequest getDatabasesRequest = new GetDatabasesRequest();
-        getDatabasesRequest.setCatalogId(accountId);
-
-        GetDatabasesResult getDatabasesResult = amazonGlueClient.getDatabases(getDatabasesRequest);
-        return getDatabasesResult.getDatabaseList();
+        return streamDatabases(accountId).collect(Collectors.toList());
+    }
+    
+    //====================================================================================================
+    
+    /**
+     * Returns a stream of the Glue Database objects of given account, requested one GetDatabases 
+     * page at a time as the stream is consumed. 
+     * 
+     * @param accountId					the AWS account Id. 
+     * 
+     * @return							a lazily paginated stream of Glue Database objects.
+     * 
+     * @throws AmazonServiceException	thrown when call was successfully sent but Glue could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to Glue. 
+     */
+    public static Stream<Database> streamDatabases(String accountId) 
+    		throws AmazonServiceException, SdkClientException {
+    	
+        return PageStreams.stream(nextToken -> {
+            GetDatabasesRequest getDatabasesRequest = new GetDatabasesRequest();
+            getDatabasesRequest.setCatalogId(accountId);
+            getDatabasesRequest.setMaxResults(MAX_RESULTS_PER_PAGE);
+            getDatabasesRequest.setNextToken(nextToken);
+            return amazonGlueClient.getDatabases(getDatabasesRequest);
+        }, GetDatabasesResult::getDatabaseList, GetDatabasesResult::getNextToken);
     }
     
     //====================================================================================================
@@ -148,7 +189,8 @@ public class GlueApiClient {
     //====================================================================================================
 
     /**
-     * Returns a list of Glue Table objects if account Id and database exists. 
+     * Returns a list of all Glue Table objects if account Id and database exists, following every 
+     * page. 
      * 
      * @param accountId					the AWS account Id. 
      * @param databaseName				the database name in Glue. 
@@ -162,12 +204,35 @@ public class GlueApiClient {
     public static List<Table> getTablesList(String accountId, String databaseName) 
     		throws AmazonServiceException, SdkClientException {
     	
-        GetTablesRequest getTablesRequest = new GetTablesRequest();
-        getTablesRequest.setCatalogId(accountId);
-        getTablesRequest.setDatabaseName(databaseName);
-
-        GetTablesResult getTablesResult = amazonGlueClient.getTables(getTablesRequest);
-        return getTablesResult.getTableList();
+        return streamTables(accountId, databaseName).collect(Collectors.toList());
+    }
+    
+    //====================================================================================================
+    
+    /**
+     * Returns a stream of the Glue Table objects of given database, requested one GetTables page 
+     * at a time as the stream is consumed. 
+     * 
+     * @param accountId					the AWS account Id. 
+     * @param databaseName				the database name in Glue. 
+     * 
+     * @return							a lazily paginated stream of Glue Table objects.
+     * 
+     * @throws AmazonServiceException	thrown when call was successfully sent but Glue could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to Glue. 
+     */
+    public static Stream<Table> streamTables(String accountId, String databaseName) 
+    		throws AmazonServiceException, SdkClientException {
+    	
+        return PageStreams.stream(nextToken -> {
+            GetTablesRequest getTablesRequest = new GetTablesRequest();
+            getTablesRequest.setCatalogId(accountId);
+            getTablesRequest.setDatabaseName(databaseName);
+            getTablesRequest.setMaxResults(MAX_RESULTS_PER_PAGE);
+            getTablesRequest.setNextToken(nextToken);
+            return amazonGlueClient.getTables(getTablesRequest);
+        }, GetTablesResult::getTableList, GetTablesResult::getNextToken);
     }
     
     //====================================================================================================
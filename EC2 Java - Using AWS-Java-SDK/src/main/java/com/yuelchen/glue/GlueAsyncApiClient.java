@@ -0,0 +1,145 @@
+package com.yuelchen.glue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import com.amazonaws.ResponseMetadata;
+import com.amazonaws.services.glue.model.Database;
+import com.amazonaws.services.glue.model.Table;
+import com.yuelchen.client.AsyncApiExecutor;
+
+/**
+ * Asynchronous facade of GlueApiClient; each method runs the blocking Glue call of the same name 
+ * on an AsyncApiExecutor and returns a future of its result, completed exceptionally with the 
+ * exception the call threw. 
+ * 
+ * Per-call timeouts are applied with AsyncApiExecutor.orTimeout, i.e. 
+ * orTimeout(GlueAsyncApiClient.createDatabase(...), 5, TimeUnit.SECONDS); cancelling or timing out a 
+ * returned future interrupts the call. 
+ * 
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class GlueAsyncApiClient {
+	
+	/**
+	 * The executor running the calls; the shared executor unless replaced. 
+	 */
+	private static AsyncApiExecutor asyncApiExecutor = AsyncApiExecutor.getSharedExecutor();
+	
+	//====================================================================================================
+	
+	/**
+	 * Private constructor.
+	 */
+	private GlueAsyncApiClient() {}
+	
+	//====================================================================================================
+	
+	/**
+	 * Replaces the executor running the calls, i.e. one with more threads or a default timeout. 
+	 * 
+	 * @param executor					the executor.
+	 */
+	public static void setAsyncApiExecutor(AsyncApiExecutor executor) {
+		asyncApiExecutor = executor;
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the response metadata of a database creation; see 
+	 * GlueApiClient.createDatabase(String, String, String). 
+	 * 
+	 * @param accountId					the AWS account Id.
+	 * @param databaseName				the database name.
+	 * @param databaseDescription		the database description - optional field.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<ResponseMetadata> createDatabase(String accountId,
+			String databaseName, String databaseDescription) {
+		return asyncApiExecutor.submit(() -> 
+				GlueApiClient.createDatabase(accountId, databaseName, databaseDescription));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the response metadata of a table creation; see 
+	 * GlueApiClient.createTable(String, String, String). 
+	 * 
+	 * @param accountId					the AWS account Id.
+	 * @param databaseName				the database name.
+	 * @param tableName					the table name.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<ResponseMetadata> createTable(String accountId,
+			String databaseName, String tableName) {
+		return asyncApiExecutor.submit(() -> 
+				GlueApiClient.createTable(accountId, databaseName, tableName));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the databases of given account; see 
+	 * GlueApiClient.getDatabasesList(String). 
+	 * 
+	 * @param accountId					the AWS account Id.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<List<Database>> getDatabasesList(String accountId) {
+		return asyncApiExecutor.submit(() -> GlueApiClient.getDatabasesList(accountId));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the database with given name; see GlueApiClient.getDatabase(String, 
+	 * String). 
+	 * 
+	 * @param accountId					the AWS account Id.
+	 * @param databaseName				the database name.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<Database> getDatabase(String accountId, String databaseName) {
+		return asyncApiExecutor.submit(() -> GlueApiClient.getDatabase(accountId, databaseName));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the tables of given database; see GlueApiClient.getTablesList(String, 
+	 * String). 
+	 * 
+	 * @param accountId					the AWS account Id.
+	 * @param databaseName				the database name.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<List<Table>> getTablesList(String accountId, String databaseName) {
+		return asyncApiExecutor.submit(() -> GlueApiClient.getTablesList(accountId, databaseName));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the table with given name; see GlueApiClient.getTablesList(String, 
+	 * String, String). 
+	 * 
+	 * @param accountId					the AWS account Id.
+	 * @param databaseName				the database name.
+	 * @param tableName					the table name.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<Table> getTablesList(String accountId, String databaseName,
+			String tableName) {
+		return asyncApiExecutor.submit(() -> 
+				GlueApiClient.getTablesList(accountId, databaseName, tableName));
+	}
+}
@@ -0,0 +1,528 @@
+package com.yuelchen.glue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.glue.model.Database;
+import com.amazonaws.services.glue.model.EntityNotFoundException;
+import com.amazonaws.services.glue.model.Table;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * GlueCatalogCache is a read-through cache of Glue Database and Table objects, so services looking
+ * up the same catalog entries on every request do not pay a Glue round trip, or its throttling,
+ * each time.
+ *
+ * Entries expire after a time to live and the least recently used entry is evicted beyond the
+ * maximum size; a lookup of a missing or expired entry loads it from Glue. A background refresh
+ * revalidates cached entries before they expire: each database with cached tables is listed with
+ * paginated GetTables (100 tables per request instead of one GetTable per table), tables whose
+ * UpdateTime changed are replaced, unchanged ones are renewed and dropped ones are evicted. The
+ * cache can be saved to and loaded from a gzip compressed JSON snapshot file, so a restarted
+ * process starts warm; loaded entries keep the time they were loaded from Glue, so stale ones are
+ * revalidated by the first refresh or reloaded on lookup rather than served for another time to
+ * live. Snapshots hold plain JSON of the Glue model properties rather than Java serialized objects,
+ * so reading one never instantiates classes named by the file and survives SDK upgrades.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class GlueCatalogCache implements AutoCloseable {
+
+	/**
+	 * The default time in milliseconds an entry is served without being revalidated.
+	 */
+	public static final long DEFAULT_TTL_MILLIS = 10 * 60 * 1000;
+
+	/**
+	 * The default maximum number of cached databases and tables.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 50000;
+
+	/**
+	 * The magic number identifying a snapshot file, "GCC1".
+	 */
+	private static final int MAGIC = 0x47434331;
+
+	/**
+	 * The snapshot format version.
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * The object mapper converting Glue Database and Table objects to and from JSON; properties
+	 * unknown to the SDK version reading a snapshot are ignored.
+	 */
+	private static final ObjectMapper objectMapper = new ObjectMapper()
+			.setSerializationInclusion(JsonInclude.Include.NON_NULL)
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	/**
+	 * The time in milliseconds an entry is served without being revalidated.
+	 */
+	private final long ttlMillis;
+
+	/**
+	 * The cached entries by key, in access order.
+	 */
+	private final Map<String, CacheEntry> entries;
+
+	/**
+	 * The number of lookups answered from the cache.
+	 */
+	private final AtomicLong hitCount = new AtomicLong();
+
+	/**
+	 * The number of lookups which loaded from Glue.
+	 */
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * The number of entries replaced by a refresh since their UpdateTime changed.
+	 */
+	private final AtomicLong updatedCount = new AtomicLong();
+
+	/**
+	 * The scheduler of background refreshes, or null when not started.
+	 */
+	private ScheduledExecutorService refreshScheduler;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor using default time to live and maximum size.
+	 */
+	public GlueCatalogCache() {
+		this(DEFAULT_TTL_MILLIS, DEFAULT_MAX_ENTRIES);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param ttlMillis					the time in milliseconds an entry is served without being
+	 * 									revalidated.
+	 * @param maxEntries				the maximum number of cached databases and tables.
+	 */
+	public GlueCatalogCache(long ttlMillis, int maxEntries) {
+		this.ttlMillis = ttlMillis;
+		this.entries = Collections.synchronizedMap(
+				new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+						return size() > maxEntries;
+					}
+				});
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the Glue Database object, loading it from Glue when missing or expired.
+	 *
+	 * @param accountId					the AWS account Id.
+	 * @param databaseName				the database name in Glue.
+	 *
+	 * @return							a Glue Database object.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but Glue could not process
+	 * 									the requested action.
+	 * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to Glue.
+	 */
+	public Database getDatabase(String accountId, String databaseName)
+			throws AmazonServiceException, SdkClientException {
+
+		return (Database) this.get(new CacheEntry(accountId, databaseName, null, null, 0),
+				entry -> GlueApiClient.getDatabase(accountId, databaseName));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the Glue Table object, loading it from Glue when missing or expired.
+	 *
+	 * @param accountId					the AWS account Id.
+	 * @param databaseName				the database name in Glue.
+	 * @param tableName					the table name under database name.
+	 *
+	 * @return							a Glue Table object.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but Glue could not process
+	 * 									the requested action.
+	 * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to Glue.
+	 */
+	public Table getTable(String accountId, String databaseName, String tableName)
+			throws AmazonServiceException, SdkClientException {
+
+		return (Table) this.get(new CacheEntry(accountId, databaseName, tableName, null, 0),
+				entry -> GlueApiClient.getTablesList(accountId, databaseName, tableName));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Revalidates every cached entry against Glue; databases are reloaded with GetDatabase, tables
+	 * by listing their database once and comparing UpdateTime. Entries of a database which could
+	 * not be revalidated are kept and expire as usual.
+	 */
+	public void refresh() {
+		List<CacheEntry> cachedEntries;
+		synchronized(this.entries) {
+			cachedEntries = new ArrayList<CacheEntry>(this.entries.values());
+		}
+
+		Map<String, List<CacheEntry>> entriesByDatabase = cachedEntries.stream()
+				.collect(Collectors.groupingBy(entry -> entry.accountId + "/" + entry.databaseName,
+						LinkedHashMap::new, Collectors.toList()));
+		long startMillis = System.currentTimeMillis();
+		int[] counts = new int[3];
+
+		for(List<CacheEntry> databaseEntries : entriesByDatabase.values()) {
+			CacheEntry first = databaseEntries.get(0);
+			try {
+				boolean hasTables = databaseEntries.stream().anyMatch(entry -> entry.tableName != null);
+				Map<String, Table> tables = hasTables
+						? GlueApiClient.streamTables(first.accountId, first.databaseName)
+								.collect(Collectors.toMap(Table::getName, table -> table))
+						: Collections.<String, Table>emptyMap();
+
+				for(CacheEntry entry : databaseEntries) {
+					Object value = entry.tableName == null
+							? GlueApiClient.getDatabase(entry.accountId, entry.databaseName)
+							: tables.get(entry.tableName);
+
+					if(value == null) {
+						this.entries.remove(entry.getKey(), entry);
+						counts[2]++;
+					} else if(entry.tableName != null && Objects.equals(
+							((Table) value).getUpdateTime(), ((Table) entry.value).getUpdateTime())) {
+						this.entries.replace(entry.getKey(), entry, entry.renew(entry.value));
+						counts[0]++;
+					} else {
+						this.entries.replace(entry.getKey(), entry, entry.renew(value));
+						counts[1]++;
+					}
+				}
+			} catch(EntityNotFoundException e) {
+				databaseEntries.forEach(entry -> this.entries.remove(entry.getKey(), entry));
+				counts[2] += databaseEntries.size();
+			} catch(SdkClientException e) {
+				System.out.println(String.format("Failed to refresh cached entries of database '%s': %s",
+						first.databaseName, e.getMessage()));
+			}
+		}
+
+		this.updatedCount.addAndGet(counts[1]);
+		System.out.println(String.format("Refreshed Glue catalog cache in '%d' ms; '%d' unchanged, "
+				+ "'%d' updated, '%d' removed", System.currentTimeMillis() - startMillis,
+				counts[0], counts[1], counts[2]));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Starts refreshing the cache in the background, first right away and then at given interval;
+	 * an interval below the time to live keeps lookups from loading expired entries.
+	 *
+	 * @param intervalMillis			the time in milliseconds between refreshes.
+	 */
+	public synchronized void startRefresh(long intervalMillis) {
+		if(this.refreshScheduler != null) {
+			return;
+		}
+
+		this.refreshScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "glue-catalog-cache-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.refreshScheduler.scheduleWithFixedDelay(() -> {
+			try {
+				this.refresh();
+			} catch(RuntimeException e) {
+				System.out.println(String.format("Failed to refresh Glue catalog cache: %s", e.getMessage()));
+			}
+		}, 0, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Writes the cached entries as a gzip compressed JSON array to a snapshot file, replacing it
+	 * atomically.
+	 *
+	 * @param snapshotFileLocation		the location of the snapshot file.
+	 *
+	 * @throws IOException				thrown when the snapshot could not be written.
+	 */
+	public void saveSnapshot(String snapshotFileLocation) throws IOException {
+		List<CacheEntry> cachedEntries;
+		synchronized(this.entries) {
+			cachedEntries = new ArrayList<CacheEntry>(this.entries.values());
+		}
+
+		Path snapshotPath = Paths.get(snapshotFileLocation);
+		Path temporaryPath = Paths.get(snapshotFileLocation + ".tmp");
+		try(DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(
+				Files.newOutputStream(temporaryPath), 64 * 1024))) {
+
+			dataOutputStream.writeInt(MAGIC);
+			dataOutputStream.writeInt(VERSION);
+			dataOutputStream.flush();
+
+			try(SequenceWriter sequenceWriter = objectMapper.writer().writeValuesAsArray(
+					new GZIPOutputStream(dataOutputStream, 64 * 1024))) {
+				for(CacheEntry entry : cachedEntries) {
+					ObjectNode entryNode = objectMapper.createObjectNode()
+							.put("accountId", entry.accountId)
+							.put("databaseName", entry.databaseName)
+							.put("tableName", entry.tableName)
+							.put("loadedAtMillis", entry.loadedAtMillis);
+					entryNode.set("value", objectMapper.valueToTree(entry.value));
+					sequenceWriter.write(entryNode);
+				}
+			}
+		}
+		Files.move(temporaryPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		System.out.println(String.format("Saved '%d' Glue catalog entries to snapshot '%s' of '%d' bytes",
+				cachedEntries.size(), snapshotFileLocation, Files.size(snapshotPath)));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Loads the entries of a snapshot file written by saveSnapshot; loaded entries keep the time
+	 * they were loaded from Glue, so entries older than the time to live are reloaded on lookup
+	 * unless a refresh revalidates them first.
+	 *
+	 * @param snapshotFileLocation		the location of the snapshot file.
+	 *
+	 * @return							the number of loaded entries.
+	 *
+	 * @throws IOException				thrown when the file could not be read or is not a snapshot.
+	 */
+	public int loadSnapshot(String snapshotFileLocation) throws IOException {
+		try(DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(
+				Files.newInputStream(Paths.get(snapshotFileLocation)), 64 * 1024))) {
+
+			if(dataInputStream.readInt() != MAGIC || dataInputStream.readInt() != VERSION) {
+				throw new IOException(String.format("File '%s' is not a Glue catalog cache snapshot",
+						snapshotFileLocation));
+			}
+
+			int entryCount = 0;
+			try(MappingIterator<JsonNode> entryNodes = objectMapper.readerFor(JsonNode.class)
+					.readValues(new GZIPInputStream(dataInputStream, 64 * 1024))) {
+				while(entryNodes.hasNextValue()) {
+					JsonNode entryNode = entryNodes.nextValue();
+					String tableName = entryNode.path("tableName").textValue();
+					Class<?> valueClass = tableName == null ? Database.class : Table.class;
+					Object value = objectMapper.treeToValue(entryNode.path("value"), valueClass);
+					CacheEntry entry = new CacheEntry(entryNode.path("accountId").textValue(),
+							entryNode.path("databaseName").textValue(), tableName, value,
+							entryNode.path("loadedAtMillis").longValue());
+					this.entries.put(entry.getKey(), entry);
+					entryCount++;
+				}
+			}
+			System.out.println(String.format("Loaded '%d' Glue catalog entries from snapshot '%s'",
+					entryCount, snapshotFileLocation));
+			return entryCount;
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Removes all cached entries.
+	 */
+	public void invalidateAll() {
+		this.entries.clear();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of lookups answered from the cache.
+	 *
+	 * @return							the hit count.
+	 */
+	public long getHitCount() {
+		return this.hitCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of lookups which loaded from Glue.
+	 *
+	 * @return							the miss count.
+	 */
+	public long getMissCount() {
+		return this.missCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of entries replaced by a refresh since their UpdateTime changed.
+	 *
+	 * @return							the updated count.
+	 */
+	public long getUpdatedCount() {
+		return this.updatedCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of cached databases and tables.
+	 *
+	 * @return							the number of cached entries.
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Stops the background refresh.
+	 */
+	@Override
+	public synchronized void close() {
+		if(this.refreshScheduler != null) {
+			this.refreshScheduler.shutdownNow();
+			this.refreshScheduler = null;
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the cached value of given key entry, loading it when missing or expired.
+	 *
+	 * @param key						an entry holding the names to look up.
+	 * @param loader					the function loading the value from Glue.
+	 *
+	 * @return							the cached or loaded value.
+	 */
+	private Object get(CacheEntry key, Function<CacheEntry, Object> loader) {
+		CacheEntry entry = this.entries.get(key.getKey());
+		if(entry != null && System.currentTimeMillis() - entry.loadedAtMillis < this.ttlMillis) {
+			this.hitCount.incrementAndGet();
+			return entry.value;
+		}
+
+		this.missCount.incrementAndGet();
+		Object value = loader.apply(key);
+		this.entries.put(key.getKey(), key.renew(value));
+		return value;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A cached database or table with the time it was loaded or last revalidated.
+	 */
+	private static class CacheEntry {
+
+		/**
+		 * The AWS account Id.
+		 */
+		private final String accountId;
+
+		/**
+		 * The database name.
+		 */
+		private final String databaseName;
+
+		/**
+		 * The table name, or null for a database entry.
+		 */
+		private final String tableName;
+
+		/**
+		 * The Glue Database or Table object.
+		 */
+		private final Object value;
+
+		/**
+		 * The time in milliseconds the value was loaded or last revalidated.
+		 */
+		private final long loadedAtMillis;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param accountId				the AWS account Id.
+		 * @param databaseName			the database name.
+		 * @param tableName				the table name, or null for a database entry.
+		 * @param value					the Glue Database or Table object.
+		 * @param loadedAtMillis		the time in milliseconds the value was loaded.
+		 */
+		private CacheEntry(String accountId, String databaseName, String tableName, Object value,
+				long loadedAtMillis) {
+
+			this.accountId = accountId;
+			this.databaseName = databaseName;
+			this.tableName = tableName;
+			this.value = value;
+			this.loadedAtMillis = loadedAtMillis;
+		}
+
+		/**
+		 * Returns the cache key, i.e. "accountId/database/table".
+		 *
+		 * @return						the cache key.
+		 */
+		private String getKey() {
+			return tableName == null ? accountId + "/" + databaseName
+					: accountId + "/" + databaseName + "/" + tableName;
+		}
+
+		/**
+		 * Returns an entry with given value loaded now.
+		 *
+		 * @param value					the Glue Database or Table object.
+		 *
+		 * @return						the renewed entry.
+		 */
+		private CacheEntry renew(Object value) {
+			return new CacheEntry(accountId, databaseName, tableName, value, System.currentTimeMillis());
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package com.yuelchen.glue;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.glue.model.Database;
+import com.amazonaws.services.glue.model.Table;
+
+/**
+ * GlueCatalogCrawler lists the tables of every database in a catalog concurrently, instead of one
+ * database after another.
+ *
+ * Databases are streamed page by page and the tables of each database are requested on a pool of
+ * threads as soon as it is listed, with at most a fixed number of databases in flight so a large
+ * catalog neither floods Glue nor piles up pending results; every database's tables are still
+ * paginated, and attempts are paced by the Glue service rate when one is set (see
+ * AwsClientFactory.setServiceRate). A failing database, or a consumer throwing for one, stops the
+ * crawl from starting new ones and the first error is thrown once the databases in flight are done.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class GlueCatalogCrawler implements AutoCloseable {
+
+	/**
+	 * The default number of databases whose tables are requested at once.
+	 */
+	public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+	/**
+	 * The number of databases whose tables are requested at once.
+	 */
+	private final int maxInFlight;
+
+	/**
+	 * The executor requesting tables.
+	 */
+	private final ExecutorService requestExecutor;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor using the default number of databases in flight.
+	 */
+	public GlueCatalogCrawler() {
+		this(DEFAULT_MAX_IN_FLIGHT);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxInFlight				the number of databases whose tables are requested at once.
+	 */
+	public GlueCatalogCrawler(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+		this.requestExecutor = Executors.newFixedThreadPool(maxInFlight, runnable -> {
+			Thread thread = new Thread(runnable, "glue-catalog-crawler");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the tables of every database of given account mapped by database name, in the order
+	 * the databases completed.
+	 *
+	 * @param accountId					the AWS account Id.
+	 *
+	 * @return							the tables mapped by database name.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but Glue could not process
+	 * 									the requested action.
+	 * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to Glue.
+	 */
+	public Map<String, List<Table>> crawl(String accountId)
+			throws AmazonServiceException, SdkClientException {
+
+		Map<String, List<Table>> catalog = new LinkedHashMap<String, List<Table>>();
+		this.crawl(accountId, (database, tables) -> catalog.put(database.getName(), tables));
+		return catalog;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Passes every database of given account with its tables to the consumer as each database
+	 * completes; the consumer is called by one thread at a time, so it need not be thread safe. An
+	 * exception thrown by the consumer stops the crawl and is rethrown. The crawl returns or throws
+	 * only once no database is in flight, so the consumer is never called afterwards.
+	 *
+	 * @param accountId					the AWS account Id.
+	 * @param consumer					the consumer of each database and its tables.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but Glue could not process
+	 * 									the requested action.
+	 * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to Glue.
+	 */
+	public void crawl(String accountId, BiConsumer<Database, List<Table>> consumer)
+			throws AmazonServiceException, SdkClientException {
+
+		long startMillis = System.currentTimeMillis();
+		Semaphore inFlight = new Semaphore(this.maxInFlight);
+		AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+		int[] counts = new int[2];
+
+		boolean isDrained = false;
+		try {
+			Iterable<Database> databases = GlueApiClient.streamDatabases(accountId)::iterator;
+			for(Database database : databases) {
+				inFlight.acquire();
+				if(failure.get() != null) {
+					inFlight.release();
+					break;
+				}
+
+				CompletableFuture.supplyAsync(() ->
+						GlueApiClient.getTablesList(accountId, database.getName()), this.requestExecutor)
+						.whenComplete((tables, throwable) -> {
+							try {
+								if(throwable != null) {
+									Throwable cause = throwable instanceof CompletionException
+											? throwable.getCause() : throwable;
+									failure.compareAndSet(null, cause instanceof RuntimeException
+											? (RuntimeException) cause : new SdkClientException(cause));
+								} else {
+									synchronized(consumer) {
+										consumer.accept(database, tables);
+										counts[0]++;
+										counts[1] += tables.size();
+									}
+								}
+							} catch(RuntimeException e) {
+								//a failing consumer stops the crawl like a failing database
+								failure.compareAndSet(null, e);
+							} finally {
+								inFlight.release();
+							}
+						});
+			}
+			inFlight.acquire(this.maxInFlight);
+			isDrained = true;
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AbortedException("Interrupted while crawling the Glue catalog", e);
+		} finally {
+			//a failed database page or an interrupt still waits for the databases in flight, so no
+			//callback calls the consumer after the crawl has returned
+			if(!isDrained) {
+				inFlight.acquireUninterruptibly(this.maxInFlight);
+			}
+		}
+
+		if(failure.get() != null) {
+			throw failure.get();
+		}
+		synchronized(consumer) {
+			System.out.println(String.format("Crawled '%d' tables in '%d' databases of AWS account with "
+					+ "Id '%s' in '%d' ms", counts[1], counts[0], accountId,
+					System.currentTimeMillis() - startMillis));
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Stops the request threads once submitted requests are made.
+	 */
+	@Override
+	public void close() {
+		this.requestExecutor.shutdown();
+	}
+}
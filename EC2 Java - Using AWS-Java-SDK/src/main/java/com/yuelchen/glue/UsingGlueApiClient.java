@@ -1,8 +1,8 @@
 package com.yuelchen.glue;
 
-import java.util.List;
-import com.amazonaws.services.glue.model.Database;
-import com.amazonaws.services.glue.model.Table;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 /**
  * 
@@ -32,15 +32,32 @@ public class UsingGlueApiClient {
 			GlueApiClient.createTable(accountId, databaseName, tableName);
 		}
 		
-		//list all glue databases and print database name and it's tables
-		List<Database> databases = GlueApiClient.getDatabasesList(accountId);
-		System.out.println(String.format("There are '%d' databases in AWS account with Id '%s'", 
-				databases.size(), accountId));
-		for(Database database : databases) {
-			List<Table> tables = GlueApiClient.getTablesList(accountId, database.getName());
-			System.out.println(String.format("Found database named '%s' with description '%s' "
-					+ "containing '%d' tables", database.getName(), database.getDescription(),
-					tables.size()));			
+		//list all glue databases and print database name and it's tables, crawling databases concurrently
+		try(GlueCatalogCrawler glueCatalogCrawler = new GlueCatalogCrawler()) {
+			glueCatalogCrawler.crawl(accountId, (database, tables) -> 
+				System.out.println(String.format("Found database named '%s' with description '%s' "
+						+ "containing '%d' tables", database.getName(), database.getDescription(),
+						tables.size())));
+		}
+		
+		//look up tables through a cache refreshed in the background, starting warm from a snapshot
+		String snapshotFileLocation = "glue-catalog-cache.snapshot";
+		try(GlueCatalogCache glueCatalogCache = new GlueCatalogCache()) {
+			if(Files.exists(Paths.get(snapshotFileLocation))) {
+				glueCatalogCache.loadSnapshot(snapshotFileLocation);
+			}
+			glueCatalogCache.startRefresh(GlueCatalogCache.DEFAULT_TTL_MILLIS / 2);
+			
+			for(String tableName: tableNames) {
+				glueCatalogCache.getTable(accountId, databaseName, tableName);
+				glueCatalogCache.getTable(accountId, databaseName, tableName);
+			}
+			System.out.println(String.format("Glue catalog cache hits '%d', misses '%d'", 
+					glueCatalogCache.getHitCount(), glueCatalogCache.getMissCount()));
+			glueCatalogCache.saveSnapshot(snapshotFileLocation);
+		} catch(IOException e) {
+			System.out.println(String.format("Failed to read or write snapshot '%s': %s", 
+					snapshotFileLocation, e.getMessage()));
 		}
 	}
 }
\ No newline at end of file
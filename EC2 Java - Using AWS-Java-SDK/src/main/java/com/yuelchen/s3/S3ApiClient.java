@@ -2,17 +2,23 @@ package com.yuelchen.s3;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.Bucket;
 import com.amazonaws.services.s3.model.CreateBucketRequest;
 import com.amazonaws.services.s3.model.DeleteBucketRequest;
@@ -20,10 +26,11 @@ import com.amazonaws.services.s3.model.DeleteObjectRequest;
 import com.amazonaws.services.s3.model.GetBucketInventoryConfigurationResult;
 import com.amazonaws.services.s3.model.ListObjectsV2Request;
 import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
 import com.amazonaws.services.s3.model.ObjectMetadata;
-import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.model.SSEAwsKeyManagementParams;
 import com.amazonaws.services.s3.model.SetBucketInventoryConfigurationRequest;
 import com.amazonaws.services.s3.model.inventory.InventoryConfiguration;
@@ -33,7 +40,7 @@ import com.amazonaws.services.s3.model.inventory.InventoryOptionalField;
 import com.amazonaws.services.s3.model.inventory.InventoryS3BucketDestination;
 import com.amazonaws.services.s3.model.inventory.InventorySchedule;
 import com.amazonaws.services.s3.model.inventory.ServerSideEncryptionKMS;
-import com.amazonaws.util.IOUtils;
+import com.yuelchen.client.AwsClientFactory;
 
 /**
  * Amazon S3 API client handler for performing S3 operations. 
@@ -45,9 +52,14 @@ import com.amazonaws.util.IOUtils;
 public class S3ApiClient {
 	
 	/**
-	 * The default Amazon S3 Client for making API requests. 
+	 * The Amazon S3 Client for making API requests, built from the S3 client profile. 
 	 */
-	private static AmazonS3 amazonS3Client = AmazonS3ClientBuilder.defaultClient();
+	private static AmazonS3 amazonS3Client = AwsClientFactory.newS3Client();
+	
+	/**
+	 * The default reader buffer size in characters for streamed object lines. 
+	 */
+	public static final int DEFAULT_LINE_BUFFER_SIZE = 64 * 1024;
 
     //====================================================================================================
 	
@@ -58,6 +70,29 @@ public class S3ApiClient {
 	
 	//====================================================================================================
 	
+	/**
+	 * Returns the Amazon S3 Client shared by S3 engines within this package. 
+	 * 
+	 * @return							the Amazon S3 Client.
+	 */
+	static AmazonS3 getAmazonS3Client() {
+		return amazonS3Client;
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Replaces the Amazon S3 Client, i.e. one built with a tuned profile from AwsClientFactory; 
+	 * S3 engines created afterwards use the new client. 
+	 * 
+	 * @param s3Client					the Amazon S3 Client.
+	 */
+	public static void setAmazonS3Client(AmazonS3 s3Client) {
+		amazonS3Client = s3Client;
+	}
+	
+	//====================================================================================================
+	
 	/**
 	 * Returns a boolean value which represents whether or not a bucket exists. 
 	 * 
@@ -119,23 +154,14 @@ public class S3ApiClient {
 		
 		List<String> prefixList = new ArrayList<String>();
 		ListObjectsV2Result listObjectsResult;
-		int requestCount = 1;
 		do {
 			
 			//retrieve prefix list from response
 			listObjectsResult = amazonS3Client.listObjectsV2(listObjectsRequest);
-			List<String> commonPrefixes = listObjectsResult.getCommonPrefixes();
-			prefixList.addAll(commonPrefixes);
+			prefixList.addAll(listObjectsResult.getCommonPrefixes());
 			
 			//check to see if there are more prefixes to paginate through
-			String token = listObjectsResult.getNextContinuationToken();
-			listObjectsRequest.setContinuationToken(token);
-			
-			//print out progress report in logger and increment request count
-			System.out.print(String.format("Prefix list request count '%d' retrieved '%d' "
-					+ "prefixes in response from path 's3://%s/%s with continuation token '%s''", 
-					requestCount, commonPrefixes.size(), bucketName, objectPrefix, token));
-			requestCount++;
+			listObjectsRequest.setContinuationToken(listObjectsResult.getNextContinuationToken());
 			
 		} while(listObjectsResult.isTruncated());
 		
@@ -145,7 +171,44 @@ public class S3ApiClient {
 	//====================================================================================================
 	
 	/**
-	 * Returns the content within S3 object at given S3 location. 
+	 * Lists every object under given bucket and object prefix path, fanning out across common 
+	 * prefixes with at most the given number of list requests in flight; objects and prefixes 
+	 * are handed to the consumers as each page arrives, from multiple threads. 
+	 * 
+	 * @param bucketName				the bucket name. 
+	 * @param objectPrefix				the object prefix path. 
+	 * @param objectConsumer			the thread safe consumer of listed objects.
+	 * @param prefixConsumer			the thread safe consumer of listed common prefixes.
+	 * @param maxInFlightRequests		the maximum number of list requests in flight.
+	 * 
+	 * @return							the number of objects listed.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 */
+	public static long listRecursive(String bucketName, String objectPrefix, 
+			Consumer<S3ObjectSummary> objectConsumer, Consumer<String> prefixConsumer, 
+			int maxInFlightRequests) throws AmazonServiceException, SdkClientException {
+		
+		try(S3PrefixLister prefixLister = new S3PrefixLister(maxInFlightRequests)) {
+			prefixLister.list(bucketName, objectPrefix, objectConsumer, prefixConsumer).join();
+			return prefixLister.getObjectCount();
+			
+		} catch(CompletionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns the content within S3 object at given S3 location decoded with the platform's 
+	 * default charset; line separators are kept. Intended for small objects, see getObjectLines 
+	 * for streaming large objects. 
 	 * 
 	 * @param bucketName				the bucket name. 
 	 * @param objectPrefix				the object prefix.
@@ -160,23 +223,138 @@ public class S3ApiClient {
 	public static String getObjectContent(String bucketName, String objectPrefix) 
 			throws AmazonServiceException, SdkClientException, IOException {
 		
-		S3Object s3Object = amazonS3Client.getObject(bucketName, objectPrefix);
-		S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent();
+		return getObjectContent(bucketName, objectPrefix, Charset.defaultCharset());
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns the content within S3 object at given S3 location decoded with given charset; 
+	 * line separators are kept. Intended for small objects, see getObjectLines for streaming 
+	 * large objects. 
+	 * 
+	 * @param bucketName				the bucket name. 
+	 * @param objectPrefix				the object prefix.
+	 * @param charset					the charset of the object content.
+	 * 
+	 * @return							the content within S3 object.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 * @throws IOException				thrown when unable to stream content. 
+	 */
+	public static String getObjectContent(String bucketName, String objectPrefix, Charset charset) 
+			throws AmazonServiceException, SdkClientException, IOException {
 		
-		InputStreamReader inputStreamReader = new InputStreamReader(s3ObjectInputStream);
-		BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
+		return new String(getObjectBytes(bucketName, objectPrefix), charset);
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns the bytes within S3 object at given S3 location, read into a single array sized 
+	 * to the object's content length. 
+	 * 
+	 * @param bucketName				the bucket name. 
+	 * @param objectPrefix				the object prefix.
+	 * 
+	 * @return							the bytes within S3 object.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 * @throws IOException				thrown when unable to stream content or the object is too 
+	 * 									large for a single array. 
+	 */
+	public static byte[] getObjectBytes(String bucketName, String objectPrefix) 
+			throws AmazonServiceException, SdkClientException, IOException {
 		
-		String content = "", line = "";
-		do {
-			content += line;
-			line = bufferedReader.readLine();
-		} while(line != null);
+		S3Object s3Object = amazonS3Client.getObject(bucketName, objectPrefix);
+		try(S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent()) {
+			
+			long contentLength = s3Object.getObjectMetadata().getContentLength();
+			if(contentLength > Integer.MAX_VALUE - 8) {
+				s3ObjectInputStream.abort();
+				throw new IOException(String.format("Object '%s' in bucket '%s' of '%d' bytes is "
+						+ "too large to be read into memory", objectPrefix, bucketName, contentLength));
+			}
+			
+			byte[] content = new byte[(int) contentLength];
+			int length = s3ObjectInputStream.readNBytes(content, 0, content.length);
+			if(length < content.length) {
+				throw new IOException(String.format("Object '%s' in bucket '%s' ended after '%d' of "
+						+ "'%d' bytes", objectPrefix, bucketName, length, contentLength));
+			}
+			return content;
+		}
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a lazily read stream of the lines within S3 object at given S3 location, decoded 
+	 * with the platform's default charset and the default line buffer size; see getObjectLines(String, String, Charset, int). 
+	 * 
+	 * @param bucketName				the bucket name. 
+	 * @param objectPrefix				the object prefix.
+	 * 
+	 * @return							the lines within S3 object; must be closed.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 */
+	public static Stream<String> getObjectLines(String bucketName, String objectPrefix) 
+			throws AmazonServiceException, SdkClientException {
 		
-		s3ObjectInputStream.close();
-		inputStreamReader.close();
-		bufferedReader.close();
+		return getObjectLines(bucketName, objectPrefix, Charset.defaultCharset(), DEFAULT_LINE_BUFFER_SIZE);
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a lazily read stream of the lines within S3 object at given S3 location; only 
+	 * the reader buffer is held in memory. The stream must be closed, i.e. with 
+	 * try-with-resources, to release the connection; closing before the last line aborts the 
+	 * connection instead of reading the remaining content. Read failures are thrown as 
+	 * UncheckedIOException from the stream operations. 
+	 * 
+	 * @param bucketName				the bucket name. 
+	 * @param objectPrefix				the object prefix.
+	 * @param charset					the charset of the object content.
+	 * @param bufferSize				the reader buffer size in characters.
+	 * 
+	 * @return							the lines within S3 object; must be closed.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 */
+	public static Stream<String> getObjectLines(String bucketName, String objectPrefix, 
+			Charset charset, int bufferSize) throws AmazonServiceException, SdkClientException {
 		
-		return content;
+		S3Object s3Object = amazonS3Client.getObject(bucketName, objectPrefix);
+		S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent();
+		BufferedReader bufferedReader = new BufferedReader(
+				new InputStreamReader(s3ObjectInputStream, charset), bufferSize);
+		
+		return bufferedReader.lines().onClose(() -> {
+			try(bufferedReader) {
+				boolean isFullyRead = false;
+				try {
+					//a fully read stream is closed so its connection can be reused
+					isFullyRead = s3ObjectInputStream.read() == -1;
+				} finally {
+					//otherwise, or when the check fails, the connection is aborted before closing
+					if(!isFullyRead) {
+						s3ObjectInputStream.abort();
+					}
+				}
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
 	}
 	
 	//====================================================================================================
@@ -196,21 +374,74 @@ public class S3ApiClient {
 	public static void downloadWithFileLocation(String fileLocation, String bucketName, String objectPrefix) 
 			throws AmazonServiceException, SdkClientException, IOException {
 		
-		S3Object s3Object = amazonS3Client.getObject(bucketName, objectPrefix);
-		S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent();
-		
-		File outputFile = new File(fileLocation);
-		FileOutputStream fileOutputStream = new FileOutputStream(outputFile);
+		downloadWithFileLocation(fileLocation, bucketName, objectPrefix, false);
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Downloads an object from S3 to designated file location through a file channel; when 
+	 * memory mapped, the target file is pre-allocated to the object size and written in place. 
+	 * 
+	 * @param fileLocation				the download location.
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix.
+	 * @param isMemoryMapped			true if target file should be pre-allocated and memory mapped,
+	 * 									false if content should be streamed through a reusable buffer.
+	 *  
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 * @throws IOException				thrown when unable to stream content. 
+	 */
+	public static void downloadWithFileLocation(String fileLocation, String bucketName, 
+			String objectPrefix, boolean isMemoryMapped) 
+					throws AmazonServiceException, SdkClientException, IOException {
 		
-		byte[] bufferSize = new byte[1024];
-		int contentIndex = 0;
-		do {
-			fileOutputStream.write(bufferSize, 0, contentIndex);
-			contentIndex = s3ObjectInputStream.read(bufferSize);
-		} while(contentIndex > 0);
+		S3Object s3Object = amazonS3Client.getObject(bucketName, objectPrefix);
+		try(S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent()) {
+			
+			if(isMemoryMapped) {
+				long contentLength = s3Object.getObjectMetadata().getContentLength();
+				S3ChannelTransfer.transferMapped(s3ObjectInputStream, fileLocation, contentLength);
+				return;
+			}
+			
+			try(FileChannel fileChannel = FileChannel.open(Paths.get(fileLocation), 
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE, 
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				S3ChannelTransfer.transfer(s3ObjectInputStream, fileChannel);
+			}
+		}
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns the number of bytes downloaded after fetching an object from S3 to designated 
+	 * file location as concurrent ranged requests; resumes from the checkpoint left by an 
+	 * earlier interrupted download of the same object. 
+	 * 
+	 * @param fileLocation				the download location.
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix.
+	 * @param partSize					the size in bytes of each ranged request.
+	 * @param threadCount				the maximum number of parts downloaded concurrently.
+	 * 
+	 * @return							the number of bytes downloaded.
+	 *  
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 * @throws IOException				thrown when unable to stream content. 
+	 */
+	public static long downloadRanged(String fileLocation, String bucketName, String objectPrefix,
+			long partSize, int threadCount) 
+					throws AmazonServiceException, SdkClientException, IOException {
 		
-		s3ObjectInputStream.close();
-		fileOutputStream.close();
+		S3RangedDownloader rangedDownloader = new S3RangedDownloader(partSize, threadCount, 
+				S3RangedDownloader.DEFAULT_MAX_ATTEMPTS);
+		return rangedDownloader.download(fileLocation, bucketName, objectPrefix);
 	}
 	
 	//====================================================================================================
@@ -266,22 +497,16 @@ public class S3ApiClient {
 	//====================================================================================================
 	
 	/**
-	 * Returns the object metadata for given file input stream. 
+	 * Returns the object metadata for given file; the content length is taken from the file 
+	 * size so the file content is never read into heap. 
 	 * 
-	 * @param fileInputStream			the input stream for object metadata. 
+	 * @param inputFile					the file for object metadata. 
 	 * 
 	 * @return							object metadata.
-	 * 
-	 * @throws IOException				thrown when unable to stream content.
 	 */
-	private static ObjectMetadata getObjectMetadata(FileInputStream fileInputStream)
-			throws IOException {
-		
-		byte[] byteArray = IOUtils.toByteArray(fileInputStream);
-		Long contentSize = Long.valueOf(byteArray.length);
-		
+	private static ObjectMetadata getObjectMetadata(File inputFile) {
 		ObjectMetadata objectMetadata = new ObjectMetadata();
-		objectMetadata.setContentLength(contentSize.longValue());
+		objectMetadata.setContentLength(inputFile.length());
 		
 		return objectMetadata;
 	}
@@ -304,15 +529,11 @@ public class S3ApiClient {
 			throws AmazonServiceException, SdkClientException, IOException {
 		
 		File inputFile = new File(fileLocation);
-		FileInputStream fileInputStream = new FileInputStream(inputFile);
-		ObjectMetadata objectMetadata = getObjectMetadata(fileInputStream);
+		ObjectMetadata objectMetadata = getObjectMetadata(inputFile);
 		objectMetadata.setSSEAlgorithm(ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
 		
-		PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, objectPrefix,
-				fileInputStream, objectMetadata);
-		amazonS3Client.putObject(putObjectRequest);
-		
-		fileInputStream.close();
+		S3MultipartUploader multipartUploader = new S3MultipartUploader();
+		multipartUploader.upload(inputFile, bucketName, objectPrefix, objectMetadata, null);
 	}
 	
 	//====================================================================================================
@@ -335,19 +556,15 @@ public class S3ApiClient {
 					throws AmazonServiceException, SdkClientException, IOException {
 		
 		File inputFile = new File(fileLocation);
-		FileInputStream fileInputStream = new FileInputStream(inputFile);
-		ObjectMetadata objectMetadata = getObjectMetadata(fileInputStream);
+		ObjectMetadata objectMetadata = getObjectMetadata(inputFile);
 		objectMetadata.setSSEAlgorithm(ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
 		
 		for(Map.Entry<String, String> keyPair : keyPairs.entrySet()) {
 			objectMetadata.addUserMetadata(keyPair.getKey(), keyPair.getValue());
 		}
 		
-		PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, objectPrefix,
-				fileInputStream, objectMetadata);
-		amazonS3Client.putObject(putObjectRequest);
-		
-		fileInputStream.close();
+		S3MultipartUploader multipartUploader = new S3MultipartUploader();
+		multipartUploader.upload(inputFile, bucketName, objectPrefix, objectMetadata, null);
 	}
 	
 	//====================================================================================================
@@ -370,16 +587,12 @@ public class S3ApiClient {
 					throws AmazonServiceException, SdkClientException, IOException {
 		
 		File inputFile = new File(fileLocation);
-		FileInputStream fileInputStream = new FileInputStream(inputFile);
-		ObjectMetadata objectMetadata = getObjectMetadata(fileInputStream);		
+		ObjectMetadata objectMetadata = getObjectMetadata(inputFile);		
 		SSEAwsKeyManagementParams sseAwsKeyManagementParams = new SSEAwsKeyManagementParams(kmsKeyId);
 		
-		PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, objectPrefix,
-				fileInputStream, objectMetadata)
-				.withSSEAwsKeyManagementParams(sseAwsKeyManagementParams);
-		amazonS3Client.putObject(putObjectRequest);
-		
-		fileInputStream.close();
+		S3MultipartUploader multipartUploader = new S3MultipartUploader();
+		multipartUploader.upload(inputFile, bucketName, objectPrefix, objectMetadata, 
+				sseAwsKeyManagementParams);
 	}
 	
 	//====================================================================================================
@@ -403,20 +616,16 @@ public class S3ApiClient {
 					throws AmazonServiceException, SdkClientException, IOException {
 		
 		File inputFile = new File(fileLocation);
-		FileInputStream fileInputStream = new FileInputStream(inputFile);
-		ObjectMetadata objectMetadata = getObjectMetadata(fileInputStream);		
+		ObjectMetadata objectMetadata = getObjectMetadata(inputFile);		
 		SSEAwsKeyManagementParams sseAwsKeyManagementParams = new SSEAwsKeyManagementParams(kmsKeyId);
 
 		for(Map.Entry<String, String> keyPair : keyPairs.entrySet()) {
 			objectMetadata.addUserMetadata(keyPair.getKey(), keyPair.getValue());
 		}
 		
-		PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, objectPrefix,
-				fileInputStream, objectMetadata)
-				.withSSEAwsKeyManagementParams(sseAwsKeyManagementParams);
-		amazonS3Client.putObject(putObjectRequest);
-		
-		fileInputStream.close();
+		S3MultipartUploader multipartUploader = new S3MultipartUploader();
+		multipartUploader.upload(inputFile, bucketName, objectPrefix, objectMetadata, 
+				sseAwsKeyManagementParams);
 	}
 	
 	//====================================================================================================
@@ -513,6 +722,25 @@ public class S3ApiClient {
 	
 	//====================================================================================================
 	
+	/**
+	 * Returns the keys which could not be deleted after deleting the given objects with 
+	 * concurrent DeleteObjects requests of up to 1000 keys each; see S3BulkDeleter. 
+	 * 
+	 * @param bucketName				the bucket name. 
+	 * @param objectPrefixes			the object prefixes to be deleted. 
+	 * 
+	 * @return							the per-key errors, empty if every object was deleted.
+	 * 
+	 * @throws InterruptedIOException	thrown when interrupted while waiting for requests.
+	 */
+	public static List<DeleteError> deleteS3Objects(String bucketName, List<String> objectPrefixes) 
+			throws InterruptedIOException {
+		
+		return new S3BulkDeleter().delete(bucketName, objectPrefixes.stream()).getErrors();
+	}
+	
+	//====================================================================================================
+	
 	/**
 	 * Deletes a bucket in Amazon S3. 
 	 * 
@@ -522,4 +750,25 @@ public class S3ApiClient {
 		DeleteBucketRequest deleteBucketRequest = new DeleteBucketRequest(bucketName);
 		amazonS3Client.deleteBucket(deleteBucketRequest);
 	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns the keys which could not be deleted after deleting every object version and 
+	 * delete marker in given bucket; the bucket itself is deleted only when none are left. 
+	 * 
+	 * @param bucketName				the bucket name.
+	 * 
+	 * @return							the per-key errors, empty if the bucket was deleted.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 * @throws InterruptedIOException	thrown when interrupted while waiting for requests.
+	 */
+	public static List<DeleteError> emptyAndDeleteS3Bucket(String bucketName) 
+			throws AmazonServiceException, SdkClientException, InterruptedIOException {
+		
+		return new S3BulkDeleter().emptyAndDeleteBucket(bucketName).getErrors();
+	}
 }
\ No newline at end of file
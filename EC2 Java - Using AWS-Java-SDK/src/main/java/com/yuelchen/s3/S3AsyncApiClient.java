@@ -0,0 +1,384 @@
+package com.yuelchen.s3;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import com.amazonaws.services.s3.model.Bucket;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
+import com.amazonaws.services.s3.model.inventory.InventoryConfiguration;
+import com.yuelchen.client.AsyncApiExecutor;
+
+/**
+ * Asynchronous facade of S3ApiClient; each method runs the blocking S3 call of the same name 
+ * on an AsyncApiExecutor and returns a future of its result, completed exceptionally with the 
+ * exception the call threw. 
+ * 
+ * Streaming and listing calls with consumers (getObjectLines, listRecursive) are not mirrored 
+ * since their results are consumed as they arrive; the S3PrefixLister is asynchronous already.
+ * 
+ * Per-call timeouts are applied with AsyncApiExecutor.orTimeout, i.e. 
+ * orTimeout(S3AsyncApiClient.isBucketExist(...), 5, TimeUnit.SECONDS); cancelling or timing out a 
+ * returned future interrupts the call. 
+ * 
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class S3AsyncApiClient {
+	
+	/**
+	 * The executor running the calls; the shared executor unless replaced. 
+	 */
+	private static AsyncApiExecutor asyncApiExecutor = AsyncApiExecutor.getSharedExecutor();
+	
+	//====================================================================================================
+	
+	/**
+	 * Private constructor.
+	 */
+	private S3AsyncApiClient() {}
+	
+	//====================================================================================================
+	
+	/**
+	 * Replaces the executor running the calls, i.e. one with more threads or a default timeout. 
+	 * 
+	 * @param executor					the executor.
+	 */
+	public static void setAsyncApiExecutor(AsyncApiExecutor executor) {
+		asyncApiExecutor = executor;
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of whether or not a bucket exists; see S3ApiClient.isBucketExist(String). 
+	 * 
+	 * @param bucketName				the bucket name.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<Boolean> isBucketExist(String bucketName) {
+		return asyncApiExecutor.submit(() -> S3ApiClient.isBucketExist(bucketName));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the bucket created with given name; see 
+	 * S3ApiClient.createBucket(String). 
+	 * 
+	 * @param bucketName				the bucket name.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<Bucket> createBucket(String bucketName) {
+		return asyncApiExecutor.submit(() -> S3ApiClient.createBucket(bucketName));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the keys and common prefixes under given prefix; see 
+	 * S3ApiClient.listPrefix(String, String). 
+	 * 
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix (key).
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<List<String>> listPrefix(String bucketName, String objectPrefix) {
+		return asyncApiExecutor.submit(() -> S3ApiClient.listPrefix(bucketName, objectPrefix));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the object content decoded with the platform charset; see 
+	 * S3ApiClient.getObjectContent(String, String). 
+	 * 
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix (key).
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<String> getObjectContent(String bucketName, String objectPrefix) {
+		return asyncApiExecutor.submit(() -> 
+				S3ApiClient.getObjectContent(bucketName, objectPrefix));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the object content decoded with given charset; see 
+	 * S3ApiClient.getObjectContent(String, String, Charset). 
+	 * 
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix (key).
+	 * @param charset					the charset the content is decoded with.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<String> getObjectContent(String bucketName,
+			String objectPrefix, Charset charset) {
+		return asyncApiExecutor.submit(() -> 
+				S3ApiClient.getObjectContent(bucketName, objectPrefix, charset));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the object content bytes; see S3ApiClient.getObjectBytes(String, 
+	 * String). 
+	 * 
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix (key).
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<byte[]> getObjectBytes(String bucketName, String objectPrefix) {
+		return asyncApiExecutor.submit(() -> S3ApiClient.getObjectBytes(bucketName, objectPrefix));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future completed once the object is downloaded to given file location; see 
+	 * S3ApiClient.downloadWithFileLocation(String, String, String). 
+	 * 
+	 * @param fileLocation				the local file location.
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix (key).
+	 * 
+	 * @return							a future of the completion.
+	 */
+	public static CompletableFuture<Void> downloadWithFileLocation(String fileLocation,
+			String bucketName, String objectPrefix) {
+		return asyncApiExecutor.submit(() -> {
+			S3ApiClient.downloadWithFileLocation(fileLocation, bucketName, objectPrefix);
+			return null;
+		});
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the number of bytes downloaded in ranged parts; see 
+	 * S3ApiClient.downloadRanged(String, String, String, long, int). 
+	 * 
+	 * @param fileLocation				the local file location.
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix (key).
+	 * @param partSize					the part size in bytes.
+	 * @param threadCount				the number of parts downloaded at once.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<Long> downloadRanged(String fileLocation, String bucketName,
+			String objectPrefix, long partSize, int threadCount) {
+		return asyncApiExecutor.submit(() -> S3ApiClient.downloadRanged(fileLocation, bucketName, 
+				objectPrefix, partSize, threadCount));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the location the object is downloaded to; see 
+	 * S3ApiClient.downloadWithFilename(String, String, String). 
+	 * 
+	 * @param filename					the local file name.
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix (key).
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<String> downloadWithFilename(String filename,
+			String bucketName, String objectPrefix) {
+		return asyncApiExecutor.submit(() -> 
+				S3ApiClient.downloadWithFilename(filename, bucketName, objectPrefix));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the location the object is downloaded to; see 
+	 * S3ApiClient.downloadDefault(String, String). 
+	 * 
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix (key).
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<String> downloadDefault(String bucketName, String objectPrefix) {
+		return asyncApiExecutor.submit(() -> S3ApiClient.downloadDefault(bucketName, objectPrefix));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future completed once the file is uploaded with AES256 encryption; see 
+	 * S3ApiClient.uploadWithAES256(String, String, String). 
+	 * 
+	 * @param fileLocation				the local file location.
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix (key).
+	 * 
+	 * @return							a future of the completion.
+	 */
+	public static CompletableFuture<Void> uploadWithAES256(String fileLocation, String bucketName,
+			String objectPrefix) {
+		return asyncApiExecutor.submit(() -> {
+			S3ApiClient.uploadWithAES256(fileLocation, bucketName, objectPrefix);
+			return null;
+		});
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future completed once the file is uploaded with metadata and AES256 encryption; 
+	 * see S3ApiClient.uploadMetadataWithAES256(String, String, String, Map<String, String>). 
+	 * 
+	 * @param fileLocation				the local file location.
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix (key).
+	 * @param keyPairs					the user metadata.
+	 * 
+	 * @return							a future of the completion.
+	 */
+	public static CompletableFuture<Void> uploadMetadataWithAES256(String fileLocation,
+			String bucketName, String objectPrefix, Map<String, String> keyPairs) {
+		return asyncApiExecutor.submit(() -> {
+			S3ApiClient.uploadMetadataWithAES256(fileLocation, bucketName, objectPrefix, keyPairs);
+			return null;
+		});
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future completed once the file is uploaded with KMS encryption; see 
+	 * S3ApiClient.uploadWithKMS(String, String, String, String). 
+	 * 
+	 * @param fileLocation				the local file location.
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix (key).
+	 * @param kmsKeyId					the KMS key id.
+	 * 
+	 * @return							a future of the completion.
+	 */
+	public static CompletableFuture<Void> uploadWithKMS(String fileLocation, String bucketName,
+			String objectPrefix, String kmsKeyId) {
+		return asyncApiExecutor.submit(() -> {
+			S3ApiClient.uploadWithKMS(fileLocation, bucketName, objectPrefix, kmsKeyId);
+			return null;
+		});
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future completed once the file is uploaded with metadata and KMS encryption; see 
+	 * S3ApiClient.uploadMetadataWithKMS(String, String, String, Map<String, String>, String). 
+	 * 
+	 * @param fileLocation				the local file location.
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix (key).
+	 * @param keyPairs					the user metadata.
+	 * @param kmsKeyId					the KMS key id.
+	 * 
+	 * @return							a future of the completion.
+	 */
+	public static CompletableFuture<Void> uploadMetadataWithKMS(String fileLocation,
+			String bucketName, String objectPrefix, Map<String, String> keyPairs, String kmsKeyId) {
+		return asyncApiExecutor.submit(() -> {
+			S3ApiClient.uploadMetadataWithKMS(fileLocation, bucketName,
+					objectPrefix, keyPairs, kmsKeyId);
+			return null;
+		});
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the inventory configuration; see 
+	 * S3ApiClient.getInventoryConfiguration(String, String). 
+	 * 
+	 * @param bucketName				the bucket name.
+	 * @param inventoryId				the inventory configuration id.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<InventoryConfiguration> getInventoryConfiguration(String bucketName,
+			String inventoryId) {
+		return asyncApiExecutor.submit(() -> 
+				S3ApiClient.getInventoryConfiguration(bucketName, inventoryId));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future completed once the object is deleted; see 
+	 * S3ApiClient.deleteS3Object(String, String). 
+	 * 
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix (key).
+	 * 
+	 * @return							a future of the completion.
+	 */
+	public static CompletableFuture<Void> deleteS3Object(String bucketName, String objectPrefix) {
+		return asyncApiExecutor.submit(() -> {
+			S3ApiClient.deleteS3Object(bucketName, objectPrefix);
+			return null;
+		});
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the per-key errors of a bulk delete; see 
+	 * S3ApiClient.deleteS3Objects(String, List<String>). 
+	 * 
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefixes			the object prefixes (keys).
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<List<DeleteError>> deleteS3Objects(String bucketName,
+			List<String> objectPrefixes) {
+		return asyncApiExecutor.submit(() -> 
+				S3ApiClient.deleteS3Objects(bucketName, objectPrefixes));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future completed once the bucket is deleted; see 
+	 * S3ApiClient.deleteS3Bucket(String). 
+	 * 
+	 * @param bucketName				the bucket name.
+	 * 
+	 * @return							a future of the completion.
+	 */
+	public static CompletableFuture<Void> deleteS3Bucket(String bucketName) {
+		return asyncApiExecutor.submit(() -> {
+			S3ApiClient.deleteS3Bucket(bucketName);
+			return null;
+		});
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the per-key errors of emptying and deleting the bucket; see 
+	 * S3ApiClient.emptyAndDeleteS3Bucket(String). 
+	 * 
+	 * @param bucketName				the bucket name.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<List<DeleteError>> emptyAndDeleteS3Bucket(String bucketName) {
+		return asyncApiExecutor.submit(() -> S3ApiClient.emptyAndDeleteS3Bucket(bucketName));
+	}
+}
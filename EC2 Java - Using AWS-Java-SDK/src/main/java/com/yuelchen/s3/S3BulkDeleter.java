@@ -0,0 +1,542 @@
+package com.yuelchen.s3;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ListVersionsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.S3VersionSummary;
+import com.amazonaws.services.s3.model.VersionListing;
+
+/**
+ * S3BulkDeleter deletes large numbers of S3 objects with DeleteObjects requests of up to 1000
+ * keys each, sent concurrently and paced to a maximum request rate.
+ *
+ * Keys are consumed as they arrive, i.e. straight from a listing, and only a bounded number of
+ * chunks is queued at any time. Keys S3 fails to delete, and keys of chunks cut short by an
+ * interruption, are reported per key in the result rather than failing the whole deletion.
+ *
+ * The request rate is capped for the whole deleter, i.e. across every bucket and prefix it
+ * deletes from, rather than per prefix: S3 scales its request rate per partitioned prefix, which
+ * the client cannot see, so the cap is kept below the rate of a single prefix. Deletions spread
+ * over many prefixes may raise it with the maxRequestsPerSecond constructor argument.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class S3BulkDeleter {
+
+	/**
+	 * The maximum number of keys in a DeleteObjects request.
+	 */
+	public static final int MAX_KEYS_PER_REQUEST = 1000;
+
+	/**
+	 * The default number of DeleteObjects requests sent concurrently.
+	 */
+	public static final int DEFAULT_THREAD_COUNT = 8;
+
+	/**
+	 * The default maximum number of DeleteObjects requests per second for the whole deleter; 3000
+	 * keys per second stays below the 3500 deletes per second S3 supports per prefix even when
+	 * every key shares one prefix.
+	 */
+	public static final int DEFAULT_MAX_REQUESTS_PER_SECOND = 3;
+
+	/**
+	 * The Amazon S3 Client for making delete requests.
+	 */
+	private final AmazonS3 amazonS3Client;
+
+	/**
+	 * The number of DeleteObjects requests sent concurrently.
+	 */
+	private final int threadCount;
+
+	/**
+	 * The minimum interval in nanoseconds between two DeleteObjects requests.
+	 */
+	private final long requestIntervalNanos;
+
+	/**
+	 * The System.nanoTime value at which the next request may be sent.
+	 */
+	private long nextRequestAt = System.nanoTime();
+
+	//====================================================================================================
+
+	/**
+	 * Constructor using default thread count and request rate.
+	 */
+	public S3BulkDeleter() {
+		this(DEFAULT_THREAD_COUNT, DEFAULT_MAX_REQUESTS_PER_SECOND);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param threadCount				the number of DeleteObjects requests sent concurrently.
+	 * @param maxRequestsPerSecond		the maximum number of DeleteObjects requests per second,
+	 * 									across every bucket and prefix.
+	 */
+	public S3BulkDeleter(int threadCount, int maxRequestsPerSecond) {
+		if(threadCount <= 0 || maxRequestsPerSecond <= 0) {
+			throw new IllegalArgumentException(String.format("Thread count '%d' and max requests per "
+					+ "second '%d' must both be positive", threadCount, maxRequestsPerSecond));
+		}
+
+		this.amazonS3Client = S3ApiClient.getAmazonS3Client();
+		this.threadCount = threadCount;
+		this.requestIntervalNanos = TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the result of deleting the given keys from a bucket.
+	 *
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefixes			the object prefixes to be deleted.
+	 *
+	 * @return							the number of deleted keys and the per-key errors.
+	 *
+	 * @throws InterruptedIOException	thrown when interrupted while waiting for requests.
+	 */
+	public Result delete(String bucketName, Stream<String> objectPrefixes) throws InterruptedIOException {
+		return this.deleteVersions(bucketName, objectPrefixes.map(KeyVersion::new));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the result of deleting the given key versions from a bucket; a key version without
+	 * version Id deletes the current version.
+	 *
+	 * @param bucketName				the bucket name.
+	 * @param keyVersions				the key versions to be deleted.
+	 *
+	 * @return							the number of deleted keys and the per-key errors.
+	 *
+	 * @throws InterruptedIOException	thrown when interrupted while waiting for requests.
+	 */
+	public Result deleteVersions(String bucketName, Stream<KeyVersion> keyVersions)
+			throws InterruptedIOException {
+
+		BulkDeletion bulkDeletion = new BulkDeletion(bucketName);
+		try {
+			keyVersions.forEach(bulkDeletion::add);
+		} catch(InterruptedDeletionException e) {
+			bulkDeletion.cancel();
+			throw e.getCause();
+		} catch(RuntimeException | Error e) {
+			//a failing key stream must not leave chunks deleting after the caller saw the failure
+			bulkDeletion.cancel();
+			throw e;
+		}
+		return bulkDeletion.finish();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the result of deleting every object under given prefix, deleting each page of
+	 * the listing while the next page is fetched.
+	 *
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix path.
+	 *
+	 * @return							the number of deleted keys and the per-key errors.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 * @throws InterruptedIOException	thrown when interrupted while waiting for requests.
+	 */
+	public Result deletePrefix(String bucketName, String objectPrefix)
+			throws AmazonServiceException, SdkClientException, InterruptedIOException {
+
+		ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request()
+				.withBucketName(bucketName)
+				.withPrefix(objectPrefix);
+
+		BulkDeletion bulkDeletion = new BulkDeletion(bucketName);
+		try {
+			ListObjectsV2Result listObjectsResult;
+			do {
+				listObjectsResult = this.amazonS3Client.listObjectsV2(listObjectsRequest);
+				for(S3ObjectSummary objectSummary : listObjectsResult.getObjectSummaries()) {
+					bulkDeletion.add(new KeyVersion(objectSummary.getKey()));
+				}
+				listObjectsRequest.setContinuationToken(listObjectsResult.getNextContinuationToken());
+			} while(listObjectsResult.isTruncated());
+
+		} catch(InterruptedDeletionException e) {
+			bulkDeletion.cancel();
+			throw e.getCause();
+		} catch(RuntimeException | Error e) {
+			bulkDeletion.cancel();
+			throw e;
+		}
+		return bulkDeletion.finish();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the result of deleting every object version and delete marker in given bucket.
+	 *
+	 * @param bucketName				the bucket name.
+	 *
+	 * @return							the number of deleted keys and the per-key errors.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 * @throws InterruptedIOException	thrown when interrupted while waiting for requests.
+	 */
+	public Result emptyBucket(String bucketName)
+			throws AmazonServiceException, SdkClientException, InterruptedIOException {
+
+		ListVersionsRequest listVersionsRequest = new ListVersionsRequest()
+				.withBucketName(bucketName)
+				.withMaxResults(MAX_KEYS_PER_REQUEST);
+
+		//unversioned buckets list every object once with the "null" version Id
+		BulkDeletion bulkDeletion = new BulkDeletion(bucketName);
+		try {
+			VersionListing versionListing = this.amazonS3Client.listVersions(listVersionsRequest);
+			while(true) {
+				for(S3VersionSummary versionSummary : versionListing.getVersionSummaries()) {
+					bulkDeletion.add(new KeyVersion(versionSummary.getKey(), versionSummary.getVersionId()));
+				}
+				if(!versionListing.isTruncated()) {
+					break;
+				}
+				versionListing = this.amazonS3Client.listNextBatchOfVersions(versionListing);
+			}
+
+		} catch(InterruptedDeletionException e) {
+			bulkDeletion.cancel();
+			throw e.getCause();
+		} catch(RuntimeException | Error e) {
+			bulkDeletion.cancel();
+			throw e;
+		}
+		return bulkDeletion.finish();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the result of emptying given bucket; the bucket itself is deleted only when every
+	 * object version was deleted, otherwise the result holds the keys left behind.
+	 *
+	 * @param bucketName				the bucket name.
+	 *
+	 * @return							the number of deleted keys and the per-key errors.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 * @throws InterruptedIOException	thrown when interrupted while waiting for requests.
+	 */
+	public Result emptyAndDeleteBucket(String bucketName)
+			throws AmazonServiceException, SdkClientException, InterruptedIOException {
+
+		Result result = this.emptyBucket(bucketName);
+		if(result.getErrors().isEmpty()) {
+			this.amazonS3Client.deleteBucket(bucketName);
+		}
+		return result;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Waits until the next request may be sent at the configured request rate.
+	 *
+	 * @throws InterruptedException		thrown when interrupted while waiting.
+	 */
+	private void awaitRequestSlot() throws InterruptedException {
+		long requestAt;
+		synchronized(this) {
+			requestAt = Math.max(this.nextRequestAt, System.nanoTime());
+			this.nextRequestAt = requestAt + this.requestIntervalNanos;
+		}
+
+		long waitNanos = requestAt - System.nanoTime();
+		if(waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Deletes a single chunk of key versions and records the outcome in the result.
+	 *
+	 * @param bucketName				the bucket name.
+	 * @param chunk						the key versions, at most MAX_KEYS_PER_REQUEST.
+	 * @param result					the result of the bulk deletion.
+	 */
+	private void deleteChunk(String bucketName, List<KeyVersion> chunk, Result result) {
+		DeleteObjectsRequest deleteObjectsRequest = new DeleteObjectsRequest(bucketName)
+				.withKeys(chunk)
+				.withQuiet(true);
+		try {
+			this.awaitRequestSlot();
+			this.amazonS3Client.deleteObjects(deleteObjectsRequest);
+			result.deletedCount.addAndGet(chunk.size());
+
+		} catch(MultiObjectDeleteException e) {
+			result.deletedCount.addAndGet(chunk.size() - e.getErrors().size());
+			result.addErrors(e.getErrors());
+
+		} catch(SdkClientException e) {
+			result.addErrors(chunk, e instanceof AmazonServiceException
+					? ((AmazonServiceException) e).getErrorCode() : e.getClass().getSimpleName(), e.getMessage());
+
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			result.addErrors(chunk, e.getClass().getSimpleName(), String.format("Interrupted before "
+					+ "deleting objects from bucket '%s'", bucketName));
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * The outcome of a bulk deletion.
+	 */
+	public static class Result {
+
+		/**
+		 * The number of keys deleted.
+		 */
+		private final AtomicLong deletedCount = new AtomicLong();
+
+		/**
+		 * The keys which could not be deleted.
+		 */
+		private final List<DeleteError> errors = Collections.synchronizedList(new ArrayList<DeleteError>());
+
+		/**
+		 * Returns the number of keys deleted.
+		 *
+		 * @return						the deleted count.
+		 */
+		public long getDeletedCount() {
+			return this.deletedCount.get();
+		}
+
+		/**
+		 * Returns the keys which could not be deleted with their error code and message.
+		 *
+		 * @return						the per-key errors.
+		 */
+		public List<DeleteError> getErrors() {
+			synchronized(this.errors) {
+				return new ArrayList<DeleteError>(this.errors);
+			}
+		}
+
+		/**
+		 * Records the given per-key errors.
+		 *
+		 * @param deleteErrors			the per-key errors.
+		 */
+		private void addErrors(List<DeleteError> deleteErrors) {
+			this.errors.addAll(deleteErrors);
+		}
+
+		/**
+		 * Records the same error for every key version of a chunk.
+		 *
+		 * @param chunk					the key versions which could not be deleted.
+		 * @param code					the error code.
+		 * @param message				the error message.
+		 */
+		private void addErrors(List<KeyVersion> chunk, String code, String message) {
+			List<DeleteError> deleteErrors = new ArrayList<DeleteError>(chunk.size());
+			for(KeyVersion keyVersion : chunk) {
+				DeleteError deleteError = new DeleteError();
+				deleteError.setKey(keyVersion.getKey());
+				deleteError.setVersionId(keyVersion.getVersion());
+				deleteError.setCode(code);
+				deleteError.setMessage(message);
+				deleteErrors.add(deleteError);
+			}
+			this.addErrors(deleteErrors);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A bulk deletion in progress, collecting key versions into chunks and sending each full
+	 * chunk; at most two chunks per thread are queued so a fast key source is held back.
+	 */
+	private class BulkDeletion {
+
+		/**
+		 * The bucket name.
+		 */
+		private final String bucketName;
+
+		/**
+		 * The executor sending chunks.
+		 */
+		private final ExecutorService deleteExecutor;
+
+		/**
+		 * The slots for chunks sent or queued.
+		 */
+		private final Semaphore chunkSlots;
+
+		/**
+		 * The result of the deletion.
+		 */
+		private final Result result = new Result();
+
+		/**
+		 * The chunk being collected.
+		 */
+		private List<KeyVersion> chunk = new ArrayList<KeyVersion>(MAX_KEYS_PER_REQUEST);
+
+		/**
+		 * Constructor.
+		 *
+		 * @param bucketName			the bucket name.
+		 */
+		private BulkDeletion(String bucketName) {
+			this.bucketName = bucketName;
+			this.deleteExecutor = Executors.newFixedThreadPool(S3BulkDeleter.this.threadCount, runnable -> {
+				Thread thread = new Thread(runnable, "s3-bulk-delete");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.chunkSlots = new Semaphore(S3BulkDeleter.this.threadCount * 2);
+		}
+
+		/**
+		 * Adds a key version, sending the chunk once it is full.
+		 *
+		 * @param keyVersion			the key version to be deleted.
+		 */
+		private void add(KeyVersion keyVersion) {
+			this.chunk.add(keyVersion);
+			if(this.chunk.size() >= MAX_KEYS_PER_REQUEST) {
+				this.send();
+			}
+		}
+
+		/**
+		 * Sends the collected chunk once a chunk slot is free.
+		 */
+		private void send() {
+			List<KeyVersion> fullChunk = this.chunk;
+			this.chunk = new ArrayList<KeyVersion>(MAX_KEYS_PER_REQUEST);
+			try {
+				this.chunkSlots.acquire();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedDeletionException(new InterruptedIOException(String.format(
+						"Interrupted while deleting objects from bucket '%s'", this.bucketName)));
+			}
+
+			this.deleteExecutor.execute(() -> {
+				try {
+					S3BulkDeleter.this.deleteChunk(this.bucketName, fullChunk, this.result);
+				} finally {
+					this.chunkSlots.release();
+				}
+			});
+		}
+
+		/**
+		 * Returns the result once the last chunk is sent and every chunk has completed.
+		 *
+		 * @return						the result of the deletion.
+		 *
+		 * @throws InterruptedIOException	thrown when interrupted while waiting for requests.
+		 */
+		private Result finish() throws InterruptedIOException {
+			try {
+				if(!this.chunk.isEmpty()) {
+					this.send();
+				}
+				this.deleteExecutor.shutdown();
+				this.deleteExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+				return this.result;
+
+			} catch(InterruptedDeletionException e) {
+				throw e.getCause();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(String.format("Interrupted while deleting objects "
+						+ "from bucket '%s'", this.bucketName));
+			} finally {
+				this.deleteExecutor.shutdownNow();
+			}
+		}
+
+		/**
+		 * Stops sending chunks: queued chunks are dropped and running requests are interrupted,
+		 * though a request already received by S3 may still complete.
+		 */
+		private void cancel() {
+			this.deleteExecutor.shutdownNow();
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Carries an InterruptedIOException out of the key stream consumer.
+	 */
+	private static class InterruptedDeletionException extends RuntimeException {
+
+		/**
+		 * The serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param cause					the interruption.
+		 */
+		private InterruptedDeletionException(InterruptedIOException cause) {
+			super(cause);
+		}
+
+		/**
+		 * Returns the interruption.
+		 *
+		 * @return						the interruption.
+		 */
+		@Override
+		public synchronized InterruptedIOException getCause() {
+			return (InterruptedIOException) super.getCause();
+		}
+	}
+}
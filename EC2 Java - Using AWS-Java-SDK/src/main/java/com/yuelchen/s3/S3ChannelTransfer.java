@@ -0,0 +1,164 @@
+package com.yuelchen.s3;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * S3ChannelTransfer is for streaming S3 object content into local files through NIO channels.
+ *
+ * Content is read with InputStream.read into a large per-thread heap array, which is filled
+ * before each FileChannel write so one write covers up to BUFFER_SIZE bytes. Reading through a
+ * Channels.newChannel adapter or FileChannel.transferFrom would cap every read at 8 KB, since for
+ * a stream source both copy through an internal array of that size; a direct buffer filled that
+ * way saves no copy either, as the adapter's array is copied into it (see
+ * S3ChannelTransferBenchmark).
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class S3ChannelTransfer {
+
+	/**
+	 * The size of the buffer used for each transfer thread.
+	 */
+	public static final int BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * The largest region a single memory-mapped buffer can cover.
+	 */
+	private static final long MAX_MAPPED_REGION = Integer.MAX_VALUE;
+
+	/**
+	 * Buffers are reused per thread so a transfer does not allocate BUFFER_SIZE bytes each time.
+	 */
+	private static final ThreadLocal<byte[]> transferBuffer =
+			ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+	//====================================================================================================
+
+	/**
+	 * Private constructor
+	 */
+	private S3ChannelTransfer() {}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of bytes written after streaming the input stream to the file channel
+	 * at the channel's current position.
+	 *
+	 * @param inputStream				the content input stream (i.e. S3ObjectInputStream).
+	 * @param fileChannel				the target file channel.
+	 *
+	 * @return							the number of bytes written.
+	 *
+	 * @throws IOException				thrown when unable to stream content.
+	 */
+	public static long transfer(InputStream inputStream, FileChannel fileChannel)
+			throws IOException {
+
+		long transferred = transfer(inputStream, fileChannel, fileChannel.position());
+		fileChannel.position(fileChannel.position() + transferred);
+		return transferred;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of bytes written after streaming the input stream to the file channel
+	 * starting at the given position; the channel's own position is not modified, which allows
+	 * several threads to write different regions of the same channel.
+	 *
+	 * @param inputStream				the content input stream (i.e. S3ObjectInputStream).
+	 * @param fileChannel				the target file channel.
+	 * @param position					the file position for the first byte.
+	 *
+	 * @return							the number of bytes written.
+	 *
+	 * @throws IOException				thrown when unable to stream content.
+	 */
+	public static long transfer(InputStream inputStream, FileChannel fileChannel, long position)
+			throws IOException {
+
+		byte[] array = transferBuffer.get();
+
+		long transferred = 0;
+		boolean isEndOfStream = false;
+		while(!isEndOfStream) {
+
+			//fill the whole buffer before writing so each write covers up to BUFFER_SIZE bytes
+			int filled = 0;
+			while(filled < array.length && !isEndOfStream) {
+				int read = inputStream.read(array, filled, array.length - filled);
+				if(read < 0) {
+					isEndOfStream = true;
+				} else {
+					filled += read;
+				}
+			}
+
+			ByteBuffer buffer = ByteBuffer.wrap(array, 0, filled);
+			while(buffer.hasRemaining()) {
+				transferred += fileChannel.write(buffer, position + transferred);
+			}
+		}
+
+		return transferred;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of bytes written after streaming the input stream into a pre-allocated,
+	 * memory-mapped file of given content length; content is read into the per-thread buffer and
+	 * copied into the mapped pages, which replaces the write calls with page faults but not the
+	 * copy, since a stream cannot read into native memory.
+	 *
+	 * @param inputStream				the content input stream (i.e. S3ObjectInputStream).
+	 * @param fileLocation				the target file location.
+	 * @param contentLength				the expected content length (i.e. S3 object size).
+	 *
+	 * @return							the number of bytes written.
+	 *
+	 * @throws IOException				thrown when unable to stream content or when the stream
+	 * 									ends before reaching the given content length.
+	 */
+	public static long transferMapped(InputStream inputStream, String fileLocation, long contentLength)
+			throws IOException {
+
+		byte[] array = transferBuffer.get();
+
+		try(RandomAccessFile randomAccessFile = new RandomAccessFile(fileLocation, "rw");
+				FileChannel fileChannel = randomAccessFile.getChannel()) {
+
+			//pre-allocate so the mapped regions below never extend the file
+			randomAccessFile.setLength(contentLength);
+
+			long transferred = 0;
+			while(transferred < contentLength) {
+				long regionSize = Math.min(MAX_MAPPED_REGION, contentLength - transferred);
+				MappedByteBuffer mappedBuffer = fileChannel.map(
+						FileChannel.MapMode.READ_WRITE, transferred, regionSize);
+
+				while(mappedBuffer.hasRemaining()) {
+					int read = inputStream.read(array, 0, Math.min(array.length, mappedBuffer.remaining()));
+					if(read < 0) {
+						throw new IOException(String.format("Stream ended after '%d' of '%d' "
+								+ "expected bytes", transferred + mappedBuffer.position(), contentLength));
+					}
+					mappedBuffer.put(array, 0, read);
+				}
+
+				mappedBuffer.force();
+				transferred += regionSize;
+			}
+
+			return transferred;
+		}
+	}
+}
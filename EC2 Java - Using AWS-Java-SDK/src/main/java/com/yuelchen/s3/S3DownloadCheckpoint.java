@@ -0,0 +1,187 @@
+package com.yuelchen.s3;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.BitSet;
+
+/**
+ * S3DownloadCheckpoint is the sidecar file recording which parts of a ranged download have
+ * been written; it allows an interrupted download to resume with only the missing parts.
+ *
+ * The file starts with the object ETag, content length and part size the download was started
+ * with, followed by one completed part index per line.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+class S3DownloadCheckpoint {
+
+	/**
+	 * The suffix appended to the download location for the checkpoint file.
+	 */
+	static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+	/**
+	 * The checkpoint file.
+	 */
+	private final File checkpointFile;
+
+	/**
+	 * The completed part indexes.
+	 */
+	private final BitSet completedParts;
+
+	/**
+	 * The writer appending completed part indexes.
+	 */
+	private BufferedWriter checkpointWriter;
+
+	//====================================================================================================
+
+	/**
+	 * Private constructor
+	 *
+	 * @param checkpointFile			the checkpoint file.
+	 * @param completedParts			the completed part indexes.
+	 */
+	private S3DownloadCheckpoint(File checkpointFile, BitSet completedParts) {
+		this.checkpointFile = checkpointFile;
+		this.completedParts = completedParts;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the checkpoint for given download location; previously completed parts are kept
+	 * only when the checkpoint was written for the same ETag, content length and part size,
+	 * otherwise a new checkpoint is started.
+	 *
+	 * @param fileLocation				the download location.
+	 * @param eTag						the S3 object ETag.
+	 * @param contentLength				the S3 object content length.
+	 * @param partSize					the part size of the download.
+	 *
+	 * @return							the download checkpoint.
+	 *
+	 * @throws IOException				thrown when unable to read or write the checkpoint file.
+	 */
+	static S3DownloadCheckpoint open(String fileLocation, String eTag, long contentLength, long partSize)
+			throws IOException {
+
+		File checkpointFile = new File(fileLocation.concat(CHECKPOINT_SUFFIX));
+		String header = getHeader(eTag, contentLength, partSize);
+		BitSet completedParts = new BitSet();
+
+		if(checkpointFile.exists() && new File(fileLocation).exists()) {
+			try(BufferedReader bufferedReader = new BufferedReader(new FileReader(checkpointFile))) {
+				if(header.equals(bufferedReader.readLine())) {
+					String line;
+					while((line = bufferedReader.readLine()) != null) {
+
+						//a partially written last line means the process died while recording it
+						if(!line.isEmpty() && line.chars().allMatch(Character::isDigit)) {
+							completedParts.set(Integer.parseInt(line));
+						}
+					}
+				}
+			}
+		}
+
+		S3DownloadCheckpoint checkpoint = new S3DownloadCheckpoint(checkpointFile, completedParts);
+		checkpoint.checkpointWriter = new BufferedWriter(new FileWriter(checkpointFile));
+		checkpoint.checkpointWriter.write(header);
+		checkpoint.checkpointWriter.newLine();
+		for(int partIndex = completedParts.nextSetBit(0); partIndex >= 0;
+				partIndex = completedParts.nextSetBit(partIndex + 1)) {
+			checkpoint.checkpointWriter.write(Integer.toString(partIndex));
+			checkpoint.checkpointWriter.newLine();
+		}
+		checkpoint.checkpointWriter.flush();
+
+		return checkpoint;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns true if given part has been recorded as completed.
+	 *
+	 * @param partIndex					the part index.
+	 *
+	 * @return							true if part is completed, false if it is not.
+	 */
+	synchronized boolean isCompleted(int partIndex) {
+		return this.completedParts.get(partIndex);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of parts recorded as completed.
+	 *
+	 * @return							the number of completed parts.
+	 */
+	synchronized int getCompletedCount() {
+		return this.completedParts.cardinality();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Records the given part as completed; should only be called once the part's content has
+	 * been forced to storage.
+	 *
+	 * @param partIndex					the part index.
+	 *
+	 * @throws IOException				thrown when unable to write the checkpoint file.
+	 */
+	synchronized void markCompleted(int partIndex) throws IOException {
+		this.completedParts.set(partIndex);
+		this.checkpointWriter.write(Integer.toString(partIndex));
+		this.checkpointWriter.newLine();
+		this.checkpointWriter.flush();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Closes the checkpoint and keeps the file so the download can be resumed.
+	 *
+	 * @throws IOException				thrown when unable to close the checkpoint file.
+	 */
+	synchronized void close() throws IOException {
+		this.checkpointWriter.close();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Closes and removes the checkpoint once the download has completed.
+	 *
+	 * @throws IOException				thrown when unable to close the checkpoint file.
+	 */
+	synchronized void delete() throws IOException {
+		this.checkpointWriter.close();
+		this.checkpointFile.delete();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the header line identifying the download a checkpoint belongs to.
+	 *
+	 * @param eTag						the S3 object ETag.
+	 * @param contentLength				the S3 object content length.
+	 * @param partSize					the part size of the download.
+	 *
+	 * @return							the header line.
+	 */
+	private static String getHeader(String eTag, long contentLength, long partSize) {
+		return String.format("%s %d %d", eTag, contentLength, partSize);
+	}
+}
@@ -0,0 +1,126 @@
+package com.yuelchen.s3;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * S3FilePartInputStream reads a single part of a file through positional reads on a shared
+ * FileChannel, so several parts of one file can be uploaded concurrently.
+ *
+ * Mark and reset only move the read position, which lets the SDK retry a part without
+ * buffering its content in heap.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+class S3FilePartInputStream extends InputStream {
+
+	/**
+	 * The file channel shared by all parts; not closed by this stream.
+	 */
+	private final FileChannel fileChannel;
+
+	/**
+	 * The file position of the first byte of the part.
+	 */
+	private final long partOffset;
+
+	/**
+	 * The size in bytes of the part.
+	 */
+	private final long partSize;
+
+	/**
+	 * The number of bytes of the part already read.
+	 */
+	private long partPosition;
+
+	/**
+	 * The part position recorded by the last mark.
+	 */
+	private long markPosition;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param fileChannel				the file channel shared by all parts.
+	 * @param partOffset				the file position of the first byte of the part.
+	 * @param partSize					the size in bytes of the part.
+	 */
+	S3FilePartInputStream(FileChannel fileChannel, long partOffset, long partSize) {
+		this.fileChannel = fileChannel;
+		this.partOffset = partOffset;
+		this.partSize = partSize;
+	}
+
+	//====================================================================================================
+
+	@Override
+	public int read() throws IOException {
+		byte[] singleByte = new byte[1];
+		return this.read(singleByte, 0, 1) < 0 ? -1 : singleByte[0] & 0xFF;
+	}
+
+	//====================================================================================================
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		long remaining = this.partSize - this.partPosition;
+		if(remaining <= 0) {
+			return -1;
+		}
+
+		int readLength = (int) Math.min(length, remaining);
+		int read = this.fileChannel.read(ByteBuffer.wrap(bytes, offset, readLength),
+				this.partOffset + this.partPosition);
+		if(read < 0) {
+			throw new IOException(String.format("File ended before part at offset '%d' with size "
+					+ "'%d' was fully read", this.partOffset, this.partSize));
+		}
+
+		this.partPosition += read;
+		return read;
+	}
+
+	//====================================================================================================
+
+	@Override
+	public long skip(long count) {
+		long skipped = Math.max(0, Math.min(count, this.partSize - this.partPosition));
+		this.partPosition += skipped;
+		return skipped;
+	}
+
+	//====================================================================================================
+
+	@Override
+	public int available() {
+		return (int) Math.min(Integer.MAX_VALUE, this.partSize - this.partPosition);
+	}
+
+	//====================================================================================================
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	//====================================================================================================
+
+	@Override
+	public synchronized void mark(int readLimit) {
+		this.markPosition = this.partPosition;
+	}
+
+	//====================================================================================================
+
+	@Override
+	public synchronized void reset() {
+		this.partPosition = this.markPosition;
+	}
+}
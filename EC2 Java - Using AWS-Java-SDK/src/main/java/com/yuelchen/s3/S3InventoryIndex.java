@@ -0,0 +1,1094 @@
+package com.yuelchen.s3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+/**
+ * S3InventoryIndex is a local, memory-mapped index of the objects listed by an S3 Inventory
+ * report, answering prefix queries and size rollups without any list requests.
+ *
+ * The index is built once from the CSV data files of a report (see
+ * S3ApiClient.setInventoryConfigurationWithKMS) and stored as a single file: a header, the
+ * storage class names, fixed size records sorted by key and the key bytes. Keys are ordered by
+ * their UTF-8 bytes, as S3 orders them, so a prefix query is a binary search for both ends of
+ * the prefix range followed by a sequential scan of the matching records.
+ *
+ * Building is an external sort: each data file is sorted on its own and written to a temporary
+ * run file next to the index, and the runs are then merged into the index file, so only one
+ * data file per reading thread is held in memory however large the report is.
+ *
+ * Only CSV reports are in scope. ORC and Parquet reports are rejected before any data file is
+ * read, since reading them requires the Apache ORC and Parquet libraries which this project does
+ * not depend on; configure the inventory rule with the CSV format to use this index.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class S3InventoryIndex implements AutoCloseable {
+
+	/**
+	 * The default number of data files read concurrently while building.
+	 */
+	public static final int DEFAULT_THREAD_COUNT = 4;
+
+	/**
+	 * The magic number identifying an index file, "S3IX".
+	 */
+	private static final int MAGIC = 0x53334958;
+
+	/**
+	 * The version of the index file layout.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * The size in bytes of the header: magic, version, entry count, records and keys offsets.
+	 */
+	private static final int HEADER_SIZE = 32;
+
+	/**
+	 * The size in bytes of a record: key offset, size, last modified, key length and storage
+	 * class index.
+	 */
+	private static final int RECORD_SIZE = 32;
+
+	/**
+	 * The maximum length in bytes of an S3 object key.
+	 */
+	private static final int MAX_KEY_LENGTH = 1024;
+
+	/**
+	 * The size in bytes of each mapped segment of a region.
+	 */
+	private static final long SEGMENT_SIZE = 1L << 30;
+
+	/**
+	 * The size in bytes of the buffer of each run file and index file stream while building.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The file channel of the index file.
+	 */
+	private final FileChannel fileChannel;
+
+	/**
+	 * The number of entries in the index.
+	 */
+	private final long entryCount;
+
+	/**
+	 * The storage class names by storage class index.
+	 */
+	private final List<String> storageClasses;
+
+	/**
+	 * The mapped record region.
+	 */
+	private final MappedRegion records;
+
+	/**
+	 * The mapped key region.
+	 */
+	private final MappedRegion keys;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param fileChannel				the file channel of the index file.
+	 * @param entryCount				the number of entries in the index.
+	 * @param storageClasses			the storage class names by storage class index.
+	 * @param records					the mapped record region.
+	 * @param keys						the mapped key region.
+	 */
+	private S3InventoryIndex(FileChannel fileChannel, long entryCount, List<String> storageClasses,
+			MappedRegion records, MappedRegion keys) {
+		this.fileChannel = fileChannel;
+		this.entryCount = entryCount;
+		this.storageClasses = storageClasses;
+		this.records = records;
+		this.keys = keys;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the index built from the latest report delivered under given inventory prefix.
+	 *
+	 * @param bucketName				the bucket name the reports are delivered to.
+	 * @param inventoryPrefix			the prefix of the inventory rule's reports, i.e.
+	 * 									destination-prefix/source-bucket/inventory-id/.
+	 * @param indexFileLocation			the location of the index file to be written.
+	 *
+	 * @return							the opened index.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 * @throws IOException				thrown when no report has been delivered yet or the index
+	 * 									could not be built.
+	 */
+	public static S3InventoryIndex build(String bucketName, String inventoryPrefix,
+			String indexFileLocation) throws AmazonServiceException, SdkClientException, IOException {
+
+		String manifestKey = S3InventoryManifest.findLatestManifestKey(bucketName, inventoryPrefix);
+		if(manifestKey == null) {
+			throw new FileNotFoundException(String.format("No inventory report found under "
+					+ "'s3://%s/%s'", bucketName, inventoryPrefix));
+		}
+		return buildFromManifest(bucketName, manifestKey, indexFileLocation, DEFAULT_THREAD_COUNT);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the index built from the report of given manifest; the sorted runs of the data files
+	 * are merged into a temporary file first, which is moved into place once complete.
+	 *
+	 * @param bucketName				the bucket name the report was delivered to.
+	 * @param manifestKey				the object key of the report's manifest.json.
+	 * @param indexFileLocation			the location of the index file to be written.
+	 * @param threadCount				the number of data files read concurrently.
+	 *
+	 * @return							the opened index.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 * @throws IOException				thrown when the report could not be read or the index written.
+	 * @throws UnsupportedOperationException	thrown when the report is not in CSV format; ORC and
+	 * 									Parquet reports are not supported.
+	 */
+	public static S3InventoryIndex buildFromManifest(String bucketName, String manifestKey,
+			String indexFileLocation, int threadCount)
+					throws AmazonServiceException, SdkClientException, IOException {
+
+		S3InventoryManifest manifest = S3InventoryManifest.read(bucketName, manifestKey);
+		if(!S3InventoryManifest.CSV_FORMAT.equalsIgnoreCase(manifest.getFileFormat())) {
+			throw new UnsupportedOperationException(String.format("Inventory report '%s' has file "
+					+ "format '%s'; only CSV reports can be indexed", manifestKey, manifest.getFileFormat()));
+		}
+		if(manifest.getColumnIndex("Key") < 0) {
+			throw new IOException(String.format("Inventory report '%s' has no Key column", manifestKey));
+		}
+
+		Path indexPath = Paths.get(indexFileLocation).toAbsolutePath();
+		Path temporaryPath = Paths.get(indexPath + ".tmp");
+		Path runDirectory = Files.createTempDirectory(indexPath.getParent(), "s3-inventory-runs");
+		try {
+			Map<String, Integer> storageClassIndexes = new HashMap<String, Integer>();
+			List<SortedRun> sortedRuns = readDataFiles(manifest, storageClassIndexes, runDirectory,
+					threadCount);
+
+			String[] storageClasses = new String[storageClassIndexes.size()];
+			storageClassIndexes.forEach((storageClass, index) -> storageClasses[index] = storageClass);
+
+			write(temporaryPath, runDirectory.resolve("keys"), sortedRuns, storageClasses);
+			Files.move(temporaryPath, indexPath, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+
+		} finally {
+			Files.deleteIfExists(temporaryPath);
+			try(DirectoryStream<Path> runFiles = Files.newDirectoryStream(runDirectory)) {
+				for(Path runFile : runFiles) {
+					Files.deleteIfExists(runFile);
+				}
+			}
+			Files.delete(runDirectory);
+		}
+
+		return open(indexFileLocation);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the index stored at given file location.
+	 *
+	 * @param indexFileLocation			the location of the index file.
+	 *
+	 * @return							the opened index.
+	 *
+	 * @throws IOException				thrown when the file could not be read or is not an index.
+	 */
+	public static S3InventoryIndex open(String indexFileLocation) throws IOException {
+		FileChannel fileChannel = FileChannel.open(Paths.get(indexFileLocation), StandardOpenOption.READ);
+		try {
+			MappedRegion header = fileChannel.size() < HEADER_SIZE ? null
+					: new MappedRegion(fileChannel, 0, HEADER_SIZE, 0);
+			if(header == null || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException(String.format("File '%s' is not an inventory index of version "
+						+ "'%d'", indexFileLocation, VERSION));
+			}
+			long entryCount = header.getLong(8);
+			long recordsOffset = header.getLong(16);
+			long keysOffset = header.getLong(24);
+
+			MappedRegion storageClassRegion = new MappedRegion(fileChannel, HEADER_SIZE,
+					recordsOffset - HEADER_SIZE, 0);
+			int storageClassCount = storageClassRegion.getInt(0);
+			List<String> storageClasses = new ArrayList<String>(storageClassCount);
+			long position = Integer.BYTES;
+			for(int index = 0; index < storageClassCount; index++) {
+				byte[] name = new byte[storageClassRegion.getShort(position)];
+				storageClassRegion.get(position + Short.BYTES, name);
+				storageClasses.add(new String(name, StandardCharsets.UTF_8));
+				position += Short.BYTES + name.length;
+			}
+
+			MappedRegion records = new MappedRegion(fileChannel, recordsOffset,
+					entryCount * RECORD_SIZE, 0);
+			MappedRegion keys = new MappedRegion(fileChannel, keysOffset,
+					fileChannel.size() - keysOffset, MAX_KEY_LENGTH);
+			return new S3InventoryIndex(fileChannel, entryCount, Collections.unmodifiableList(storageClasses),
+					records, keys);
+
+		} catch(IOException | RuntimeException e) {
+			fileChannel.close();
+			throw e;
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of entries in the index.
+	 *
+	 * @return							the entry count.
+	 */
+	public long size() {
+		return this.entryCount;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Hands every entry whose key starts with given prefix to the consumer in key order.
+	 *
+	 * @param objectPrefix				the object prefix; an empty prefix matches every entry.
+	 * @param consumer					the consumer of matching entries.
+	 */
+	public void forEachWithPrefix(String objectPrefix, Consumer<Entry> consumer) {
+		byte[] prefix = objectPrefix.getBytes(StandardCharsets.UTF_8);
+		long endIndex = this.upperBound(prefix);
+		for(long index = this.lowerBound(prefix); index < endIndex; index++) {
+			long record = index * RECORD_SIZE;
+			consumer.accept(new Entry(new String(this.getKey(index), StandardCharsets.UTF_8),
+					this.records.getLong(record + 8), this.records.getLong(record + 16),
+					this.storageClasses.get(this.records.getInt(record + 28))));
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of entries whose key starts with given prefix; found by binary search
+	 * for both ends of the prefix range without scanning it.
+	 *
+	 * @param objectPrefix				the object prefix; an empty prefix matches every entry.
+	 *
+	 * @return							the number of matching entries.
+	 */
+	public long getObjectCount(String objectPrefix) {
+		byte[] prefix = objectPrefix.getBytes(StandardCharsets.UTF_8);
+		return this.upperBound(prefix) - this.lowerBound(prefix);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the total size in bytes of the entries whose key starts with given prefix.
+	 *
+	 * @param objectPrefix				the object prefix; an empty prefix matches every entry.
+	 *
+	 * @return							the total size in bytes.
+	 */
+	public long getTotalSize(String objectPrefix) {
+		return this.getSizeByStorageClass(objectPrefix).values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the total size in bytes of the entries whose key starts with given prefix,
+	 * rolled up by storage class; read from the records alone without decoding keys.
+	 *
+	 * @param objectPrefix				the object prefix; an empty prefix matches every entry.
+	 *
+	 * @return							the total size in bytes mapped by storage class.
+	 */
+	public Map<String, Long> getSizeByStorageClass(String objectPrefix) {
+		byte[] prefix = objectPrefix.getBytes(StandardCharsets.UTF_8);
+		long[] sizes = new long[this.storageClasses.size()];
+		long endIndex = this.upperBound(prefix);
+		for(long index = this.lowerBound(prefix); index < endIndex; index++) {
+			long record = index * RECORD_SIZE;
+			sizes[this.records.getInt(record + 28)] += this.records.getLong(record + 8);
+		}
+
+		Map<String, Long> sizeByStorageClass = new TreeMap<String, Long>();
+		for(int index = 0; index < sizes.length; index++) {
+			if(sizes[index] > 0) {
+				sizeByStorageClass.put(this.storageClasses.get(index), sizes[index]);
+			}
+		}
+		return sizeByStorageClass;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Closes the index file; mapped regions are released once garbage collected.
+	 *
+	 * @throws IOException				thrown when the file could not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.fileChannel.close();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the index of the first entry whose key is not less than given prefix.
+	 *
+	 * @param prefix					the prefix bytes.
+	 *
+	 * @return							the index of the first candidate entry.
+	 */
+	private long lowerBound(byte[] prefix) {
+		long low = 0, high = this.entryCount;
+		while(low < high) {
+			long middle = (low + high) >>> 1;
+			if(Arrays.compareUnsigned(this.getKey(middle), prefix) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the index of the first entry after every entry whose key starts with given prefix.
+	 *
+	 * @param prefix					the prefix bytes.
+	 *
+	 * @return							the index past the last matching entry.
+	 */
+	private long upperBound(byte[] prefix) {
+		long low = 0, high = this.entryCount;
+		while(low < high) {
+			long middle = (low + high) >>> 1;
+			if(this.compareToPrefix(middle, prefix) <= 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Compares the key of given entry, cut to the length of given prefix, with the prefix; zero if
+	 * the key starts with the prefix.
+	 *
+	 * @param index						the entry index.
+	 * @param prefix					the prefix bytes.
+	 *
+	 * @return							negative, zero or positive as the cut key is less than,
+	 * 									equal to or greater than the prefix.
+	 */
+	private int compareToPrefix(long index, byte[] prefix) {
+		long record = index * RECORD_SIZE;
+		int keyLength = this.records.getInt(record + 24);
+		long keyOffset = this.records.getLong(record);
+		for(int position = 0; position < prefix.length; position++) {
+			if(position == keyLength) {
+				return -1;
+			}
+			int difference = Byte.toUnsignedInt(this.keys.getByte(keyOffset + position))
+					- Byte.toUnsignedInt(prefix[position]);
+			if(difference != 0) {
+				return difference;
+			}
+		}
+		return 0;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the key bytes of given entry.
+	 *
+	 * @param index						the entry index.
+	 *
+	 * @return							the key bytes.
+	 */
+	private byte[] getKey(long index) {
+		long record = index * RECORD_SIZE;
+		byte[] key = new byte[this.records.getInt(record + 24)];
+		this.keys.get(this.records.getLong(record), key);
+		return key;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the sorted runs of every data file in the report, read concurrently.
+	 *
+	 * @param manifest					the report manifest.
+	 * @param storageClassIndexes		the storage class indexes by name, filled while reading.
+	 * @param runDirectory				the directory the run files are written to.
+	 * @param threadCount				the number of data files read concurrently.
+	 *
+	 * @return							the sorted runs, one per data file.
+	 *
+	 * @throws IOException				thrown when a data file could not be read or parsed, or a run
+	 * 									file could not be written.
+	 */
+	private static List<SortedRun> readDataFiles(S3InventoryManifest manifest,
+			Map<String, Integer> storageClassIndexes, Path runDirectory, int threadCount)
+					throws IOException {
+
+		ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<SortedRun>> fileFutures = new ArrayList<Future<SortedRun>>();
+			List<String> dataFileKeys = manifest.getDataFileKeys();
+			for(int fileIndex = 0; fileIndex < dataFileKeys.size(); fileIndex++) {
+				String dataFileKey = dataFileKeys.get(fileIndex);
+				Path runPath = runDirectory.resolve(String.format("run-%05d", fileIndex));
+				fileFutures.add(executorService.submit(() ->
+						readDataFile(manifest, dataFileKey, storageClassIndexes, runPath)));
+			}
+
+			List<SortedRun> sortedRuns = new ArrayList<SortedRun>();
+			for(Future<SortedRun> fileFuture : fileFutures) {
+				sortedRuns.add(fileFuture.get());
+			}
+			return sortedRuns;
+
+		} catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading inventory data files");
+
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the sorted run of a single gzip compressed CSV data file, streamed line by line and
+	 * written to a run file once sorted by key.
+	 *
+	 * @param manifest					the report manifest.
+	 * @param dataFileKey				the object key of the data file.
+	 * @param storageClassIndexes		the storage class indexes by name, filled while reading.
+	 * @param runPath					the path of the run file to be written.
+	 *
+	 * @return							the sorted run of the data file.
+	 *
+	 * @throws IOException				thrown when the data file could not be read or parsed, or the
+	 * 									run file could not be written.
+	 */
+	private static SortedRun readDataFile(S3InventoryManifest manifest, String dataFileKey,
+			Map<String, Integer> storageClassIndexes, Path runPath) throws IOException {
+
+		int keyColumn = manifest.getColumnIndex("Key");
+		int sizeColumn = manifest.getColumnIndex("Size");
+		int lastModifiedColumn = manifest.getColumnIndex("LastModifiedDate");
+		int storageClassColumn = manifest.getColumnIndex("StorageClass");
+
+		List<IndexRecord> indexRecords = new ArrayList<IndexRecord>();
+		S3Object s3Object = S3ApiClient.getAmazonS3Client().getObject(manifest.getBucketName(), dataFileKey);
+		try(S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent();
+				BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(
+						new GZIPInputStream(s3ObjectInputStream), StandardCharsets.UTF_8))) {
+
+			String line;
+			while((line = bufferedReader.readLine()) != null) {
+				if(line.isEmpty()) {
+					continue;
+				}
+
+				List<String> fields = parseCSVLine(line);
+				String storageClass = getField(fields, storageClassColumn, "");
+				int storageClassIndex;
+				synchronized(storageClassIndexes) {
+					storageClassIndex = storageClassIndexes.computeIfAbsent(storageClass,
+							name -> storageClassIndexes.size());
+				}
+
+				try {
+					String size = getField(fields, sizeColumn, "");
+					String lastModified = getField(fields, lastModifiedColumn, "");
+					indexRecords.add(new IndexRecord(
+							S3ObjectParse.decodeAsUTF8(fields.get(keyColumn)).getBytes(StandardCharsets.UTF_8),
+							size.isEmpty() ? 0 : Long.parseLong(size),
+							lastModified.isEmpty() ? 0 : Instant.parse(lastModified).toEpochMilli(),
+							storageClassIndex));
+				} catch(NumberFormatException | DateTimeParseException | IndexOutOfBoundsException e) {
+					throw new IOException(String.format("Malformed row in inventory data file '%s': %s",
+							dataFileKey, line), e);
+				}
+			}
+		}
+
+		indexRecords.sort(IndexRecord::compareTo);
+		try(DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(
+				Files.newOutputStream(runPath), BUFFER_SIZE))) {
+			for(IndexRecord indexRecord : indexRecords) {
+				indexRecord.writeTo(dataOutputStream);
+			}
+		}
+		return new SortedRun(runPath, indexRecords.size());
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the field at given column, or the default value if the report has no such column.
+	 *
+	 * @param fields					the fields of a row.
+	 * @param column					the column index, or -1 if the column is not present.
+	 * @param defaultValue				the default value.
+	 *
+	 * @return							the field value.
+	 */
+	private static String getField(List<String> fields, int column, String defaultValue) {
+		return column < 0 || column >= fields.size() ? defaultValue : fields.get(column);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the fields of a CSV line; fields may be quoted, with quotes within escaped as "".
+	 *
+	 * @param line						the CSV line.
+	 *
+	 * @return							the fields.
+	 */
+	static List<String> parseCSVLine(String line) {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean isQuoted = false;
+		for(int position = 0; position < line.length(); position++) {
+			char character = line.charAt(position);
+			if(isQuoted) {
+				if(character != '"') {
+					field.append(character);
+				} else if(position + 1 < line.length() && line.charAt(position + 1) == '"') {
+					field.append('"');
+					position++;
+				} else {
+					isQuoted = false;
+				}
+			} else if(character == '"') {
+				isQuoted = true;
+			} else if(character == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(character);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Writes the index file by merging the sorted runs; records are written in place while the key
+	 * bytes go to a temporary keys file, appended once every run is merged.
+	 *
+	 * @param indexPath					the path of the index file.
+	 * @param keysPath					the path of the temporary keys file.
+	 * @param sortedRuns				the sorted runs of the data files.
+	 * @param storageClasses			the storage class names by storage class index.
+	 *
+	 * @throws IOException				thrown when a run file could not be read or the index file
+	 * 									written.
+	 */
+	private static void write(Path indexPath, Path keysPath, List<SortedRun> sortedRuns,
+			String[] storageClasses) throws IOException {
+
+		long entryCount = 0;
+		for(SortedRun sortedRun : sortedRuns) {
+			entryCount += sortedRun.recordCount;
+		}
+		long recordsOffset = HEADER_SIZE + Integer.BYTES;
+		for(String storageClass : storageClasses) {
+			recordsOffset += Short.BYTES + storageClass.getBytes(StandardCharsets.UTF_8).length;
+		}
+		long keysOffset = recordsOffset + entryCount * RECORD_SIZE;
+
+		PriorityQueue<SortedRun> mergeQueue = new PriorityQueue<SortedRun>(Math.max(1, sortedRuns.size()),
+				(left, right) -> left.current.compareTo(right.current));
+		try(DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(
+					Files.newOutputStream(indexPath), BUFFER_SIZE));
+				DataOutputStream keysOutputStream = new DataOutputStream(new BufferedOutputStream(
+					Files.newOutputStream(keysPath), BUFFER_SIZE))) {
+
+			dataOutputStream.writeInt(MAGIC);
+			dataOutputStream.writeInt(VERSION);
+			dataOutputStream.writeLong(entryCount);
+			dataOutputStream.writeLong(recordsOffset);
+			dataOutputStream.writeLong(keysOffset);
+
+			dataOutputStream.writeInt(storageClasses.length);
+			for(String storageClass : storageClasses) {
+				byte[] name = storageClass.getBytes(StandardCharsets.UTF_8);
+				dataOutputStream.writeShort(name.length);
+				dataOutputStream.write(name);
+			}
+
+			for(SortedRun sortedRun : sortedRuns) {
+				if(sortedRun.open()) {
+					mergeQueue.add(sortedRun);
+				}
+			}
+
+			long keyOffset = 0;
+			while(!mergeQueue.isEmpty()) {
+				SortedRun sortedRun = mergeQueue.poll();
+				IndexRecord indexRecord = sortedRun.current;
+				dataOutputStream.writeLong(keyOffset);
+				dataOutputStream.writeLong(indexRecord.size);
+				dataOutputStream.writeLong(indexRecord.lastModified);
+				dataOutputStream.writeInt(indexRecord.key.length);
+				dataOutputStream.writeInt(indexRecord.storageClassIndex);
+				keysOutputStream.write(indexRecord.key);
+				keyOffset += indexRecord.key.length;
+
+				if(sortedRun.next()) {
+					mergeQueue.add(sortedRun);
+				}
+			}
+
+		} finally {
+			for(SortedRun sortedRun : sortedRuns) {
+				sortedRun.close();
+			}
+		}
+
+		try(FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND);
+				FileChannel keysChannel = FileChannel.open(keysPath, StandardOpenOption.READ)) {
+			long position = 0, keysLength = keysChannel.size();
+			while(position < keysLength) {
+				position += keysChannel.transferTo(position, keysLength - position, indexChannel);
+			}
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * An object listed by the index.
+	 */
+	public static class Entry {
+
+		/**
+		 * The object key.
+		 */
+		private final String key;
+
+		/**
+		 * The object size in bytes.
+		 */
+		private final long size;
+
+		/**
+		 * The last modified time in milliseconds since the epoch.
+		 */
+		private final long lastModified;
+
+		/**
+		 * The storage class.
+		 */
+		private final String storageClass;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param key					the object key.
+		 * @param size					the object size in bytes.
+		 * @param lastModified			the last modified time in milliseconds since the epoch.
+		 * @param storageClass			the storage class.
+		 */
+		private Entry(String key, long size, long lastModified, String storageClass) {
+			this.key = key;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.storageClass = storageClass;
+		}
+
+		/**
+		 * Returns the object key.
+		 *
+		 * @return						the object key.
+		 */
+		public String getKey() {
+			return this.key;
+		}
+
+		/**
+		 * Returns the object size in bytes.
+		 *
+		 * @return						the object size.
+		 */
+		public long getSize() {
+			return this.size;
+		}
+
+		/**
+		 * Returns the last modified time in milliseconds since the epoch.
+		 *
+		 * @return						the last modified time.
+		 */
+		public long getLastModified() {
+			return this.lastModified;
+		}
+
+		/**
+		 * Returns the storage class (i.e. STANDARD, GLACIER).
+		 *
+		 * @return						the storage class.
+		 */
+		public String getStorageClass() {
+			return this.storageClass;
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A record read from a data file while building the index.
+	 */
+	private static class IndexRecord {
+
+		/**
+		 * The UTF-8 bytes of the object key.
+		 */
+		private final byte[] key;
+
+		/**
+		 * The object size in bytes.
+		 */
+		private final long size;
+
+		/**
+		 * The last modified time in milliseconds since the epoch.
+		 */
+		private final long lastModified;
+
+		/**
+		 * The storage class index.
+		 */
+		private final int storageClassIndex;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param key					the UTF-8 bytes of the object key.
+		 * @param size					the object size in bytes.
+		 * @param lastModified			the last modified time in milliseconds since the epoch.
+		 * @param storageClassIndex		the storage class index.
+		 */
+		private IndexRecord(byte[] key, long size, long lastModified, int storageClassIndex) {
+			this.key = key;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.storageClassIndex = storageClassIndex;
+		}
+
+		/**
+		 * Compares the keys of this and given record by their unsigned bytes, as S3 orders them.
+		 *
+		 * @param indexRecord			the record to compare with.
+		 *
+		 * @return						negative, zero or positive as this key is less than, equal
+		 * 								to or greater than the other.
+		 */
+		private int compareTo(IndexRecord indexRecord) {
+			return Arrays.compareUnsigned(this.key, indexRecord.key);
+		}
+
+		/**
+		 * Writes this record to a run file.
+		 *
+		 * @param dataOutputStream		the run file stream.
+		 *
+		 * @throws IOException			thrown when the record could not be written.
+		 */
+		private void writeTo(DataOutputStream dataOutputStream) throws IOException {
+			dataOutputStream.writeShort(this.key.length);
+			dataOutputStream.write(this.key);
+			dataOutputStream.writeLong(this.size);
+			dataOutputStream.writeLong(this.lastModified);
+			dataOutputStream.writeInt(this.storageClassIndex);
+		}
+
+		/**
+		 * Returns the next record of a run file.
+		 *
+		 * @param dataInputStream		the run file stream.
+		 *
+		 * @return						the record read.
+		 *
+		 * @throws IOException			thrown when the record could not be read.
+		 */
+		private static IndexRecord readFrom(DataInputStream dataInputStream) throws IOException {
+			byte[] key = new byte[dataInputStream.readUnsignedShort()];
+			dataInputStream.readFully(key);
+			return new IndexRecord(key, dataInputStream.readLong(), dataInputStream.readLong(),
+					dataInputStream.readInt());
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A run file holding the records of one data file sorted by key, read back one record at a
+	 * time while merging.
+	 */
+	private static class SortedRun implements AutoCloseable {
+
+		/**
+		 * The path of the run file.
+		 */
+		private final Path runPath;
+
+		/**
+		 * The number of records in the run.
+		 */
+		private final long recordCount;
+
+		/**
+		 * The number of records not yet read.
+		 */
+		private long remainingCount;
+
+		/**
+		 * The run file stream, once opened.
+		 */
+		private DataInputStream dataInputStream;
+
+		/**
+		 * The record read last.
+		 */
+		private IndexRecord current;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param runPath				the path of the run file.
+		 * @param recordCount			the number of records in the run.
+		 */
+		private SortedRun(Path runPath, long recordCount) {
+			this.runPath = runPath;
+			this.recordCount = recordCount;
+		}
+
+		/**
+		 * Opens the run file and reads its first record.
+		 *
+		 * @return						true if the run has a record.
+		 *
+		 * @throws IOException			thrown when the run file could not be read.
+		 */
+		private boolean open() throws IOException {
+			this.dataInputStream = new DataInputStream(new BufferedInputStream(
+					Files.newInputStream(this.runPath), BUFFER_SIZE));
+			this.remainingCount = this.recordCount;
+			return this.next();
+		}
+
+		/**
+		 * Reads the next record of the run.
+		 *
+		 * @return						true if a record was read, false once the run is exhausted.
+		 *
+		 * @throws IOException			thrown when the run file could not be read.
+		 */
+		private boolean next() throws IOException {
+			if(this.remainingCount == 0) {
+				this.current = null;
+				return false;
+			}
+			this.current = IndexRecord.readFrom(this.dataInputStream);
+			this.remainingCount--;
+			return true;
+		}
+
+		/**
+		 * Closes the run file stream if opened.
+		 *
+		 * @throws IOException			thrown when the stream could not be closed.
+		 */
+		@Override
+		public void close() throws IOException {
+			if(this.dataInputStream != null) {
+				this.dataInputStream.close();
+				this.dataInputStream = null;
+			}
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A region of the index file mapped as segments of up to 1 GB; consecutive segments overlap
+	 * so a value of up to the overlap in length never spans two segments.
+	 */
+	private static class MappedRegion {
+
+		/**
+		 * The mapped segments in order.
+		 */
+		private final MappedByteBuffer[] segments;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param fileChannel			the file channel of the index file.
+		 * @param offset				the offset of the region within the file.
+		 * @param length				the length of the region in bytes.
+		 * @param overlap				the number of bytes consecutive segments overlap.
+		 *
+		 * @throws IOException			thrown when the region could not be mapped.
+		 */
+		private MappedRegion(FileChannel fileChannel, long offset, long length, int overlap)
+				throws IOException {
+			int segmentCount = (int) Math.max(1, (length + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+			this.segments = new MappedByteBuffer[segmentCount];
+			for(int index = 0; index < segmentCount; index++) {
+				long segmentOffset = index * SEGMENT_SIZE;
+				long segmentLength = Math.min(SEGMENT_SIZE + overlap, length - segmentOffset);
+				this.segments[index] = fileChannel.map(FileChannel.MapMode.READ_ONLY,
+						offset + segmentOffset, Math.max(0, segmentLength));
+			}
+		}
+
+		/**
+		 * Returns the segment holding given position.
+		 *
+		 * @param position				the position within the region.
+		 *
+		 * @return						the segment.
+		 */
+		private MappedByteBuffer segment(long position) {
+			return this.segments[(int) (position / SEGMENT_SIZE)];
+		}
+
+		/**
+		 * Returns the byte at given position.
+		 *
+		 * @param position				the position within the region.
+		 *
+		 * @return						the byte.
+		 */
+		private byte getByte(long position) {
+			return this.segment(position).get((int) (position % SEGMENT_SIZE));
+		}
+
+		/**
+		 * Returns the short at given position.
+		 *
+		 * @param position				the position within the region.
+		 *
+		 * @return						the short.
+		 */
+		private short getShort(long position) {
+			return this.segment(position).getShort((int) (position % SEGMENT_SIZE));
+		}
+
+		/**
+		 * Returns the int at given position.
+		 *
+		 * @param position				the position within the region.
+		 *
+		 * @return						the int.
+		 */
+		private int getInt(long position) {
+			return this.segment(position).getInt((int) (position % SEGMENT_SIZE));
+		}
+
+		/**
+		 * Returns the long at given position.
+		 *
+		 * @param position				the position within the region.
+		 *
+		 * @return						the long.
+		 */
+		private long getLong(long position) {
+			return this.segment(position).getLong((int) (position % SEGMENT_SIZE));
+		}
+
+		/**
+		 * Copies bytes starting at given position into the destination array.
+		 *
+		 * @param position				the position within the region.
+		 * @param destination			the destination array, filled completely.
+		 */
+		private void get(long position, byte[] destination) {
+			this.segment(position).get((int) (position % SEGMENT_SIZE), destination);
+		}
+	}
+}
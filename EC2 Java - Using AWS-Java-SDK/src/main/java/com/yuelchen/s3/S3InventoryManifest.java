@@ -0,0 +1,208 @@
+package com.yuelchen.s3;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * S3InventoryManifest is the manifest.json of a single S3 Inventory report, listing the data
+ * files delivered for the report and the columns within them.
+ *
+ * Reports are delivered to destination-prefix/source-bucket/inventory-id/ with one folder per
+ * report named after its creation time (i.e. 2019-09-01T00-00Z/manifest.json), so the latest
+ * report is the last folder in key order.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+class S3InventoryManifest {
+
+	/**
+	 * The manifest file name within a report folder.
+	 */
+	static final String MANIFEST_FILENAME = "manifest.json";
+
+	/**
+	 * The file format of comma separated data files.
+	 */
+	static final String CSV_FORMAT = "CSV";
+
+	/**
+	 * The bucket name the report was delivered to.
+	 */
+	private final String bucketName;
+
+	/**
+	 * The file format of the data files (i.e. CSV, ORC, Parquet).
+	 */
+	private final String fileFormat;
+
+	/**
+	 * The column names of the data files in order.
+	 */
+	private final List<String> columns;
+
+	/**
+	 * The object keys of the data files.
+	 */
+	private final List<String> dataFileKeys;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param bucketName				the bucket name the report was delivered to.
+	 * @param fileFormat				the file format of the data files.
+	 * @param columns					the column names of the data files in order.
+	 * @param dataFileKeys				the object keys of the data files.
+	 */
+	private S3InventoryManifest(String bucketName, String fileFormat, List<String> columns,
+			List<String> dataFileKeys) {
+		this.bucketName = bucketName;
+		this.fileFormat = fileFormat;
+		this.columns = columns;
+		this.dataFileKeys = dataFileKeys;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the manifest at given S3 location.
+	 *
+	 * @param bucketName				the bucket name the report was delivered to.
+	 * @param manifestKey				the object key of manifest.json.
+	 *
+	 * @return							the manifest.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 * @throws IOException				thrown when the manifest could not be read or parsed.
+	 */
+	static S3InventoryManifest read(String bucketName, String manifestKey)
+			throws AmazonServiceException, SdkClientException, IOException {
+
+		AmazonS3 amazonS3Client = S3ApiClient.getAmazonS3Client();
+		JsonNode manifest;
+		S3Object s3Object = amazonS3Client.getObject(bucketName, manifestKey);
+		try(S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent()) {
+			manifest = new ObjectMapper().readTree(s3ObjectInputStream);
+		}
+
+		List<String> columns = new ArrayList<String>();
+		for(String column : manifest.path("fileSchema").asText().split(",")) {
+			columns.add(column.trim());
+		}
+
+		List<String> dataFileKeys = new ArrayList<String>();
+		for(JsonNode file : manifest.path("files")) {
+			dataFileKeys.add(file.path("key").asText());
+		}
+
+		return new S3InventoryManifest(bucketName, manifest.path("fileFormat").asText(),
+				Collections.unmodifiableList(columns), Collections.unmodifiableList(dataFileKeys));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the object key of the latest manifest delivered under given inventory prefix, or
+	 * null if no report has been delivered yet.
+	 *
+	 * @param bucketName				the bucket name the reports are delivered to.
+	 * @param inventoryPrefix			the prefix of the inventory rule's reports, i.e.
+	 * 									destination-prefix/source-bucket/inventory-id/.
+	 *
+	 * @return							the object key of the latest manifest.json.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 */
+	static String findLatestManifestKey(String bucketName, String inventoryPrefix)
+			throws AmazonServiceException, SdkClientException {
+
+		String reportPrefix = inventoryPrefix.endsWith(S3ObjectParse.PREFIX_DELIMITER)
+				? inventoryPrefix : inventoryPrefix + S3ObjectParse.PREFIX_DELIMITER;
+		ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request()
+				.withBucketName(bucketName)
+				.withPrefix(reportPrefix)
+				.withDelimiter(S3ObjectParse.PREFIX_DELIMITER);
+
+		//report folders are named after their creation time, besides the data/ and hive/ folders
+		String latestReport = null;
+		ListObjectsV2Result listObjectsResult;
+		do {
+			listObjectsResult = S3ApiClient.getAmazonS3Client().listObjectsV2(listObjectsRequest);
+			for(String commonPrefix : listObjectsResult.getCommonPrefixes()) {
+				String folder = commonPrefix.substring(reportPrefix.length());
+				if(!folder.isEmpty() && Character.isDigit(folder.charAt(0))
+						&& (latestReport == null || commonPrefix.compareTo(latestReport) > 0)) {
+					latestReport = commonPrefix;
+				}
+			}
+			listObjectsRequest.setContinuationToken(listObjectsResult.getNextContinuationToken());
+		} while(listObjectsResult.isTruncated());
+
+		return latestReport == null ? null : latestReport + MANIFEST_FILENAME;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the bucket name the report was delivered to.
+	 *
+	 * @return							the bucket name.
+	 */
+	String getBucketName() {
+		return this.bucketName;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the file format of the data files.
+	 *
+	 * @return							the file format (i.e. CSV, ORC, Parquet).
+	 */
+	String getFileFormat() {
+		return this.fileFormat;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the index of given column in the data files, or -1 if the report does not
+	 * include the column.
+	 *
+	 * @param column					the column name (i.e. Key, Size).
+	 *
+	 * @return							the column index.
+	 */
+	int getColumnIndex(String column) {
+		return this.columns.indexOf(column);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the object keys of the data files.
+	 *
+	 * @return							the data file keys.
+	 */
+	List<String> getDataFileKeys() {
+		return this.dataFileKeys;
+	}
+}
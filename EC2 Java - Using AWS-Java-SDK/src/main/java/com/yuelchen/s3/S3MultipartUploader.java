@@ -0,0 +1,239 @@
+package com.yuelchen.s3;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.SSEAwsKeyManagementParams;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+
+/**
+ * S3MultipartUploader uploads local files to S3 without holding file content in heap; files up
+ * to a single part are sent as one PutObject request, larger files as a multipart upload with
+ * parts read concurrently from a shared FileChannel.
+ *
+ * Object metadata (user metadata, SSE-AES256) and SSE-KMS parameters given to the upload are
+ * applied to the resulting object in both cases.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class S3MultipartUploader {
+
+	/**
+	 * The default part size of 16 MB.
+	 */
+	public static final long DEFAULT_PART_SIZE = 16L * 1024 * 1024;
+
+	/**
+	 * The default number of parts uploaded concurrently.
+	 */
+	public static final int DEFAULT_THREAD_COUNT = 4;
+
+	/**
+	 * The smallest part size accepted by S3 for all but the last part.
+	 */
+	private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+	/**
+	 * The largest number of parts accepted by S3 for one upload.
+	 */
+	private static final int MAX_PART_COUNT = 10000;
+
+	/**
+	 * The Amazon S3 Client for making upload requests.
+	 */
+	private final AmazonS3 amazonS3Client;
+
+	/**
+	 * The requested size in bytes of every part except the last.
+	 */
+	private final long partSize;
+
+	/**
+	 * The maximum number of parts uploaded concurrently.
+	 */
+	private final int threadCount;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor using default part size and thread count.
+	 */
+	public S3MultipartUploader() {
+		this(DEFAULT_PART_SIZE, DEFAULT_THREAD_COUNT);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param partSize					the size in bytes of each part; at least 5 MB.
+	 * @param threadCount				the maximum number of parts uploaded concurrently.
+	 */
+	public S3MultipartUploader(long partSize, int threadCount) {
+		if(partSize < MIN_PART_SIZE || threadCount <= 0) {
+			throw new IllegalArgumentException(String.format("Part size '%d' must be at least '%d' "
+					+ "and thread count '%d' must be positive", partSize, MIN_PART_SIZE, threadCount));
+		}
+
+		this.amazonS3Client = S3ApiClient.getAmazonS3Client();
+		this.partSize = partSize;
+		this.threadCount = threadCount;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Uploads the given file to S3; content length is taken from the file and the given object
+	 * metadata is updated with it.
+	 *
+	 * @param inputFile					the file on local.
+	 * @param bucketName				the bucket name destination.
+	 * @param objectPrefix				the object prefix destination.
+	 * @param objectMetadata			the object metadata (i.e. user metadata, SSE algorithm).
+	 * @param sseAwsKeyManagementParams	the KMS parameters, or null when not using KMS encryption.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 * @throws IOException				thrown when unable to read the file.
+	 */
+	public void upload(File inputFile, String bucketName, String objectPrefix,
+			ObjectMetadata objectMetadata, SSEAwsKeyManagementParams sseAwsKeyManagementParams)
+					throws AmazonServiceException, SdkClientException, IOException {
+
+		long contentLength = inputFile.length();
+		objectMetadata.setContentLength(contentLength);
+
+		if(contentLength <= this.partSize) {
+			PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, objectPrefix, inputFile)
+					.withMetadata(objectMetadata)
+					.withSSEAwsKeyManagementParams(sseAwsKeyManagementParams);
+			this.amazonS3Client.putObject(putObjectRequest);
+			return;
+		}
+
+		this.multipartUpload(inputFile, contentLength, bucketName, objectPrefix,
+				objectMetadata, sseAwsKeyManagementParams);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Uploads the given file as a multipart upload; the upload is aborted if any part fails so
+	 * no orphaned parts are left in the bucket.
+	 *
+	 * @param inputFile					the file on local.
+	 * @param contentLength				the file length.
+	 * @param bucketName				the bucket name destination.
+	 * @param objectPrefix				the object prefix destination.
+	 * @param objectMetadata			the object metadata.
+	 * @param sseAwsKeyManagementParams	the KMS parameters, or null when not using KMS encryption.
+	 *
+	 * @throws IOException				thrown when unable to read the file.
+	 */
+	private void multipartUpload(File inputFile, long contentLength, String bucketName,
+			String objectPrefix, ObjectMetadata objectMetadata,
+			SSEAwsKeyManagementParams sseAwsKeyManagementParams) throws IOException {
+
+		//content length belongs to each part, not to the initiate request
+		ObjectMetadata initiateMetadata = objectMetadata.clone();
+		initiateMetadata.setContentLength(0);
+		InitiateMultipartUploadRequest initiateRequest =
+				new InitiateMultipartUploadRequest(bucketName, objectPrefix, initiateMetadata)
+				.withSSEAwsKeyManagementParams(sseAwsKeyManagementParams);
+		String uploadId = this.amazonS3Client.initiateMultipartUpload(initiateRequest).getUploadId();
+
+		long effectivePartSize = Math.max(this.partSize,
+				(contentLength + MAX_PART_COUNT - 1) / MAX_PART_COUNT);
+		ExecutorService executorService = Executors.newFixedThreadPool(this.threadCount);
+		try(FileChannel fileChannel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+
+			List<Future<PartETag>> partFutures = new ArrayList<Future<PartETag>>();
+			int partNumber = 1;
+			for(long offset = 0; offset < contentLength; offset += effectivePartSize) {
+				long size = Math.min(effectivePartSize, contentLength - offset);
+				UploadPartRequest uploadPartRequest = new UploadPartRequest()
+						.withBucketName(bucketName)
+						.withKey(objectPrefix)
+						.withUploadId(uploadId)
+						.withPartNumber(partNumber++)
+						.withPartSize(size)
+						.withLastPart(offset + size >= contentLength)
+						.withInputStream(new S3FilePartInputStream(fileChannel, offset, size));
+				partFutures.add(executorService.submit(() ->
+						this.amazonS3Client.uploadPart(uploadPartRequest).getPartETag()));
+			}
+
+			List<PartETag> partETags = new ArrayList<PartETag>();
+			for(Future<PartETag> partFuture : partFutures) {
+				partETags.add(partFuture.get());
+			}
+
+			this.amazonS3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(
+					bucketName, objectPrefix, uploadId, partETags));
+
+		} catch(ExecutionException e) {
+			executorService.shutdownNow();
+			this.abort(bucketName, objectPrefix, uploadId);
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+
+		} catch(InterruptedException e) {
+			executorService.shutdownNow();
+			this.abort(bucketName, objectPrefix, uploadId);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(String.format("Interrupted while uploading '%s' to "
+					+ "'s3://%s/%s'", inputFile, bucketName, objectPrefix));
+
+		} catch(RuntimeException | IOException e) {
+			this.abort(bucketName, objectPrefix, uploadId);
+			throw e;
+
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Aborts the given multipart upload; failures are not rethrown so the original cause of the
+	 * abort reaches the caller.
+	 *
+	 * @param bucketName				the bucket name destination.
+	 * @param objectPrefix				the object prefix destination.
+	 * @param uploadId					the multipart upload Id.
+	 */
+	private void abort(String bucketName, String objectPrefix, String uploadId) {
+		try {
+			this.amazonS3Client.abortMultipartUpload(
+					new AbortMultipartUploadRequest(bucketName, objectPrefix, uploadId));
+		} catch(SdkClientException e) {
+			System.out.println(String.format("Failed to abort multipart upload '%s' for "
+					+ "'s3://%s/%s': %s", uploadId, bucketName, objectPrefix, e.getMessage()));
+		}
+	}
+}
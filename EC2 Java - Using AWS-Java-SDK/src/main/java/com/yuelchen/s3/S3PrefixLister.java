@@ -0,0 +1,296 @@
+package com.yuelchen.s3;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+/**
+ * S3PrefixLister lists every object under an S3 prefix by fanning out across its common
+ * prefixes, so separate branches of the key space are listed concurrently instead of walking
+ * one continuation token chain.
+ *
+ * Every prefix is a task on a fixed pool which pages through its continuation tokens, so the
+ * pool size caps the number of list requests in flight. Pending prefixes wait in a bounded
+ * queue; once it is full the thread which found a prefix lists it itself, so memory grows with
+ * the in-flight limit and the delimiter depth rather than with the fan-out of a wide listing.
+ * Objects and common prefixes are handed to the caller's consumers as each page arrives; the
+ * consumers are called from pool threads (or the caller's thread when the queue is full) and
+ * must be thread safe. Progress is kept in counters rather than logged.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class S3PrefixLister implements AutoCloseable {
+
+	/**
+	 * The default maximum number of list requests in flight.
+	 */
+	public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 16;
+
+	/**
+	 * The number of pending prefixes queued per list thread before prefixes are listed by the
+	 * thread which found them.
+	 */
+	private static final int PENDING_PREFIXES_PER_THREAD = 4;
+
+	/**
+	 * The Amazon S3 Client for making list requests.
+	 */
+	private final AmazonS3 amazonS3Client;
+
+	/**
+	 * The executor running list requests; its size caps the requests in flight and its queue the
+	 * pending prefixes.
+	 */
+	private final ExecutorService listExecutor;
+
+	/**
+	 * The number of list requests made.
+	 */
+	private final AtomicLong requestCount = new AtomicLong();
+
+	/**
+	 * The number of objects listed.
+	 */
+	private final AtomicLong objectCount = new AtomicLong();
+
+	/**
+	 * The number of common prefixes listed.
+	 */
+	private final AtomicLong prefixCount = new AtomicLong();
+
+	//====================================================================================================
+
+	/**
+	 * Constructor using the default maximum number of list requests in flight.
+	 */
+	public S3PrefixLister() {
+		this(DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxInFlightRequests		the maximum number of list requests in flight.
+	 */
+	public S3PrefixLister(int maxInFlightRequests) {
+		if(maxInFlightRequests <= 0) {
+			throw new IllegalArgumentException(String.format("Max in-flight requests '%d' must be "
+					+ "positive", maxInFlightRequests));
+		}
+
+		this.amazonS3Client = S3ApiClient.getAmazonS3Client();
+		this.listExecutor = new ThreadPoolExecutor(maxInFlightRequests, maxInFlightRequests,
+				0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(maxInFlightRequests * PENDING_PREFIXES_PER_THREAD),
+				runnable -> {
+					Thread thread = new Thread(runnable, "s3-prefix-lister");
+					thread.setDaemon(true);
+					return thread;
+				},
+				(runnable, executor) -> {
+					if(executor.isShutdown()) {
+						throw new RejectedExecutionException("S3PrefixLister has been closed");
+					}
+					runnable.run();
+				});
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Lists every object under given bucket and object prefix path, descending into each common
+	 * prefix with delimiter '/'.
+	 *
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix path.
+	 * @param objectConsumer			the consumer of listed objects.
+	 * @param prefixConsumer			the consumer of listed common prefixes.
+	 *
+	 * @return							a future completed when the listing has finished, or
+	 * 									exceptionally with the first list request failure.
+	 */
+	public CompletableFuture<Void> list(String bucketName, String objectPrefix,
+			Consumer<S3ObjectSummary> objectConsumer, Consumer<String> prefixConsumer) {
+
+		Listing listing = new Listing(bucketName, objectConsumer, prefixConsumer);
+		this.submit(listing, objectPrefix);
+		return listing.future;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of list requests made.
+	 *
+	 * @return							the request count.
+	 */
+	public long getRequestCount() {
+		return this.requestCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of objects listed.
+	 *
+	 * @return							the object count.
+	 */
+	public long getObjectCount() {
+		return this.objectCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of common prefixes listed.
+	 *
+	 * @return							the prefix count.
+	 */
+	public long getPrefixCount() {
+		return this.prefixCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Stops the list executor; listings still running do not complete.
+	 */
+	@Override
+	public void close() {
+		this.listExecutor.shutdownNow();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Submits the listing of given prefix; runs it on the calling thread when the pending queue is
+	 * full.
+	 *
+	 * @param listing					the listing the prefix belongs to.
+	 * @param objectPrefix				the object prefix path.
+	 */
+	private void submit(Listing listing, String objectPrefix) {
+		listing.pendingPrefixes.incrementAndGet();
+		try {
+			this.listExecutor.execute(() -> this.listPrefix(listing, objectPrefix));
+		} catch(RejectedExecutionException e) {
+			listing.pendingPrefixes.decrementAndGet();
+			listing.future.completeExceptionally(e);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Lists every page of given prefix, hands its objects and common prefixes to the consumers and
+	 * submits every common prefix; completes the listing after its last prefix.
+	 *
+	 * @param listing					the listing the prefix belongs to.
+	 * @param objectPrefix				the object prefix path.
+	 */
+	private void listPrefix(Listing listing, String objectPrefix) {
+		try {
+			String continuationToken = null;
+			do {
+				if(listing.future.isDone()) {
+					return;
+				}
+
+				ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request()
+						.withBucketName(listing.bucketName)
+						.withPrefix(objectPrefix)
+						.withDelimiter(S3ObjectParse.PREFIX_DELIMITER)
+						.withContinuationToken(continuationToken);
+				ListObjectsV2Result listObjectsResult = this.amazonS3Client.listObjectsV2(listObjectsRequest);
+				this.requestCount.incrementAndGet();
+
+				//submitted before the consumers run so other threads keep listing meanwhile
+				for(String commonPrefix : listObjectsResult.getCommonPrefixes()) {
+					this.submit(listing, commonPrefix);
+				}
+
+				for(S3ObjectSummary objectSummary : listObjectsResult.getObjectSummaries()) {
+					listing.objectConsumer.accept(objectSummary);
+				}
+				this.objectCount.addAndGet(listObjectsResult.getObjectSummaries().size());
+
+				for(String commonPrefix : listObjectsResult.getCommonPrefixes()) {
+					listing.prefixConsumer.accept(commonPrefix);
+				}
+				this.prefixCount.addAndGet(listObjectsResult.getCommonPrefixes().size());
+
+				continuationToken = listObjectsResult.isTruncated()
+						? listObjectsResult.getNextContinuationToken() : null;
+			} while(continuationToken != null);
+
+		} catch(RuntimeException e) {
+			listing.future.completeExceptionally(e);
+
+		} finally {
+			if(listing.pendingPrefixes.decrementAndGet() == 0) {
+				listing.future.complete(null);
+			}
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * The state of a single listing.
+	 */
+	private static class Listing {
+
+		/**
+		 * The bucket name.
+		 */
+		private final String bucketName;
+
+		/**
+		 * The consumer of listed objects.
+		 */
+		private final Consumer<S3ObjectSummary> objectConsumer;
+
+		/**
+		 * The consumer of listed common prefixes.
+		 */
+		private final Consumer<String> prefixConsumer;
+
+		/**
+		 * The number of prefixes submitted but not yet listed.
+		 */
+		private final AtomicInteger pendingPrefixes = new AtomicInteger();
+
+		/**
+		 * The future completed when the listing has finished.
+		 */
+		private final CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+		/**
+		 * Constructor.
+		 *
+		 * @param bucketName			the bucket name.
+		 * @param objectConsumer		the consumer of listed objects.
+		 * @param prefixConsumer		the consumer of listed common prefixes.
+		 */
+		private Listing(String bucketName, Consumer<S3ObjectSummary> objectConsumer,
+				Consumer<String> prefixConsumer) {
+			this.bucketName = bucketName;
+			this.objectConsumer = objectConsumer;
+			this.prefixConsumer = prefixConsumer;
+		}
+	}
+}
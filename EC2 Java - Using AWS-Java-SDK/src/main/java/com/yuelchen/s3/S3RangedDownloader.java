@@ -0,0 +1,394 @@
+package com.yuelchen.s3;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+/**
+ * S3RangedDownloader downloads large S3 objects as concurrent ranged GET requests, each part
+ * written to its own region of a single local file.
+ *
+ * Completed parts are recorded in a sidecar checkpoint (see S3DownloadCheckpoint) so a download
+ * interrupted partway through resumes with only the missing parts.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class S3RangedDownloader {
+
+	/**
+	 * The default part size of 64 MB.
+	 */
+	public static final long DEFAULT_PART_SIZE = 64L * 1024 * 1024;
+
+	/**
+	 * The default number of parts downloaded concurrently.
+	 */
+	public static final int DEFAULT_THREAD_COUNT = 8;
+
+	/**
+	 * The default number of attempts for each part.
+	 */
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	/**
+	 * The base delay in milliseconds between attempts of a part; doubled after every attempt.
+	 */
+	private static final long RETRY_BASE_DELAY = 200;
+
+	/**
+	 * The Amazon S3 Client for making ranged requests.
+	 */
+	private final AmazonS3 amazonS3Client;
+
+	/**
+	 * The size in bytes of every part except the last.
+	 */
+	private final long partSize;
+
+	/**
+	 * The maximum number of parts downloaded concurrently.
+	 */
+	private final int threadCount;
+
+	/**
+	 * The maximum number of attempts for each part.
+	 */
+	private final int maxAttempts;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor using default part size, thread count and attempts.
+	 */
+	public S3RangedDownloader() {
+		this(DEFAULT_PART_SIZE, DEFAULT_THREAD_COUNT, DEFAULT_MAX_ATTEMPTS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param partSize					the size in bytes of each ranged request.
+	 * @param threadCount				the maximum number of parts downloaded concurrently.
+	 * @param maxAttempts				the maximum number of attempts for each part.
+	 */
+	public S3RangedDownloader(long partSize, int threadCount, int maxAttempts) {
+		if(partSize <= 0 || threadCount <= 0 || maxAttempts <= 0) {
+			throw new IllegalArgumentException(String.format("Part size '%d', thread count '%d' and "
+					+ "max attempts '%d' must all be positive", partSize, threadCount, maxAttempts));
+		}
+
+		this.amazonS3Client = S3ApiClient.getAmazonS3Client();
+		this.partSize = partSize;
+		this.threadCount = threadCount;
+		this.maxAttempts = maxAttempts;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of bytes downloaded after fetching the S3 object to designated file
+	 * location; parts recorded by an earlier interrupted download of the same object version are
+	 * not fetched again.
+	 *
+	 * @param fileLocation				the download location.
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix.
+	 *
+	 * @return							the number of bytes downloaded by this call.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but S3 could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to S3.
+	 * @throws IOException				thrown when unable to stream content or the download was
+	 * 									interrupted.
+	 */
+	public long download(String fileLocation, String bucketName, String objectPrefix)
+			throws AmazonServiceException, SdkClientException, IOException {
+
+		ObjectMetadata objectMetadata = this.amazonS3Client.getObjectMetadata(bucketName, objectPrefix);
+		long contentLength = objectMetadata.getContentLength();
+		String eTag = objectMetadata.getETag();
+
+		S3DownloadCheckpoint checkpoint = S3DownloadCheckpoint.open(fileLocation, eTag,
+				contentLength, this.partSize);
+		FileChannel targetChannel;
+		try {
+			targetChannel = openTarget(fileLocation, checkpoint.getCompletedCount() > 0);
+		} catch(IOException e) {
+			checkpoint.close();
+			throw e;
+		}
+
+		//the file may have been removed after the checkpoint was read, taking its recorded parts with it
+		if(targetChannel == null) {
+			checkpoint.delete();
+			checkpoint = S3DownloadCheckpoint.open(fileLocation, eTag, contentLength, this.partSize);
+			try {
+				targetChannel = openTarget(fileLocation, false);
+			} catch(IOException e) {
+				checkpoint.close();
+				throw e;
+			}
+		}
+
+		return this.downloadParts(targetChannel, checkpoint, fileLocation, bucketName, objectPrefix,
+				eTag, contentLength);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of bytes downloaded after fetching every part the checkpoint has not
+	 * recorded as completed into the opened target file.
+	 *
+	 * @param targetChannel				the opened target file channel, closed when done.
+	 * @param checkpoint				the download checkpoint.
+	 * @param fileLocation				the download location.
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix.
+	 * @param eTag						the S3 object ETag every part must match.
+	 * @param contentLength				the S3 object content length.
+	 *
+	 * @return							the number of bytes downloaded.
+	 *
+	 * @throws IOException				thrown when unable to stream content or the download was
+	 * 									interrupted.
+	 */
+	private long downloadParts(FileChannel targetChannel, S3DownloadCheckpoint checkpoint,
+			String fileLocation, String bucketName, String objectPrefix, String eTag, long contentLength)
+					throws IOException {
+
+		int partCount = (int) ((contentLength + this.partSize - 1) / this.partSize);
+		ExecutorService executorService = Executors.newFixedThreadPool(this.threadCount);
+		try(FileChannel fileChannel = targetChannel) {
+
+			List<Future<Long>> partFutures = new ArrayList<Future<Long>>();
+			for(int partIndex = 0; partIndex < partCount; partIndex++) {
+				if(!checkpoint.isCompleted(partIndex)) {
+					int index = partIndex;
+					partFutures.add(executorService.submit(() -> this.downloadPart(fileChannel,
+							checkpoint, bucketName, objectPrefix, eTag, contentLength, index)));
+				}
+			}
+
+			long downloaded = 0;
+			for(Future<Long> partFuture : partFutures) {
+				downloaded += partFuture.get();
+			}
+
+			//zero-byte objects have no parts but the file still has to exist at its full length
+			fileChannel.truncate(contentLength);
+			checkpoint.delete();
+			return downloaded;
+
+		} catch(ExecutionException e) {
+			executorService.shutdownNow();
+			checkpoint.close();
+			throw unwrapPartFailure(e);
+
+		} catch(InterruptedException e) {
+			executorService.shutdownNow();
+			checkpoint.close();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(String.format("Interrupted while downloading "
+					+ "'s3://%s/%s' to '%s'", bucketName, objectPrefix, fileLocation));
+
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of bytes written for the given part, retrying with exponential backoff
+	 * until the maximum number of attempts is reached.
+	 *
+	 * @param fileChannel				the target file channel shared by all parts.
+	 * @param checkpoint				the download checkpoint.
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix.
+	 * @param eTag						the S3 object ETag every part must match.
+	 * @param contentLength				the S3 object content length.
+	 * @param partIndex					the part index.
+	 *
+	 * @return							the number of bytes written.
+	 *
+	 * @throws IOException				thrown when unable to stream content after all attempts.
+	 * @throws InterruptedException		thrown when interrupted while waiting to retry.
+	 */
+	private long downloadPart(FileChannel fileChannel, S3DownloadCheckpoint checkpoint,
+			String bucketName, String objectPrefix, String eTag, long contentLength, int partIndex)
+					throws IOException, InterruptedException {
+
+		long firstByte = partIndex * this.partSize;
+		long lastByte = Math.min(firstByte + this.partSize, contentLength) - 1;
+
+		for(int attempt = 1; ; attempt++) {
+			try {
+				long written = this.fetchRange(fileChannel, bucketName, objectPrefix, eTag,
+						firstByte, lastByte);
+
+				//force before recording so the checkpoint never claims bytes that are not on disk
+				fileChannel.force(false);
+				checkpoint.markCompleted(partIndex);
+				return written;
+
+			} catch(IOException | SdkClientException e) {
+				if(attempt >= this.maxAttempts || !isRetryable(e)) {
+					throw e;
+				}
+				Thread.sleep(RETRY_BASE_DELAY << (attempt - 1));
+			}
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of bytes written after fetching a single byte range into its position
+	 * in the target file.
+	 *
+	 * @param fileChannel				the target file channel.
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix.
+	 * @param eTag						the S3 object ETag the range must match.
+	 * @param firstByte					the first byte of the range, inclusive.
+	 * @param lastByte					the last byte of the range, inclusive.
+	 *
+	 * @return							the number of bytes written.
+	 *
+	 * @throws IOException				thrown when unable to stream content or the range was short.
+	 */
+	private long fetchRange(FileChannel fileChannel, String bucketName, String objectPrefix,
+			String eTag, long firstByte, long lastByte) throws IOException {
+
+		GetObjectRequest getObjectRequest = new GetObjectRequest(bucketName, objectPrefix)
+				.withRange(firstByte, lastByte)
+				.withMatchingETagConstraint(eTag);
+
+		//a null object means the ETag constraint failed, i.e. the object was replaced mid-download
+		S3Object s3Object = this.amazonS3Client.getObject(getObjectRequest);
+		if(s3Object == null) {
+			throw new ObjectChangedException(String.format("Object 's3://%s/%s' no longer matches "
+					+ "ETag '%s'", bucketName, objectPrefix, eTag));
+		}
+
+		try(S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent()) {
+			long written = S3ChannelTransfer.transfer(s3ObjectInputStream, fileChannel, firstByte);
+			long expected = lastByte - firstByte + 1;
+			if(written != expected) {
+				throw new IOException(String.format("Range '%d-%d' of 's3://%s/%s' returned '%d' "
+						+ "of '%d' bytes", firstByte, lastByte, bucketName, objectPrefix, written, expected));
+			}
+			return written;
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns true if a failed part should be attempted again; client errors other than
+	 * throttling, and a replaced object, will fail the same way on every attempt.
+	 *
+	 * @param exception					the part failure.
+	 *
+	 * @return							true if part should be retried, false if it should not.
+	 */
+	private static boolean isRetryable(Exception exception) {
+		if(exception instanceof ObjectChangedException) {
+			return false;
+		}
+		if(exception instanceof AmazonServiceException) {
+			int statusCode = ((AmazonServiceException) exception).getStatusCode();
+			return statusCode >= 500 || statusCode == 429 || statusCode == 408;
+		}
+		return true;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the target file channel, truncated for a new download or kept for a resumed one.
+	 *
+	 * @param fileLocation				the download location.
+	 * @param isResumed					whether or not completed parts are kept.
+	 *
+	 * @return							the target file channel, or null when resuming but the file
+	 * 									no longer exists.
+	 *
+	 * @throws IOException				thrown when unable to open the file.
+	 */
+	private static FileChannel openTarget(String fileLocation, boolean isResumed) throws IOException {
+		if(!isResumed) {
+			return FileChannel.open(Paths.get(fileLocation), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		try {
+			return FileChannel.open(Paths.get(fileLocation), StandardOpenOption.WRITE);
+		} catch(NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the original part failure so callers see the same exception types as
+	 * S3ApiClient.downloadWithFileLocation.
+	 *
+	 * @param executionException		the execution exception thrown by a part.
+	 *
+	 * @return							the IOException to be thrown.
+	 */
+	private static IOException unwrapPartFailure(ExecutionException executionException) {
+		Throwable cause = executionException.getCause();
+		if(cause instanceof IOException) {
+			return (IOException) cause;
+		}
+		if(cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		}
+		return new IOException(cause);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Thrown when the object was replaced during the download, i.e. a range no longer matches the
+	 * ETag read when the download started; not retried since every attempt would fail the same way.
+	 */
+	public static class ObjectChangedException extends SdkClientException {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param message				the detail message.
+		 */
+		public ObjectChangedException(String message) {
+			super(message);
+		}
+	}
+}
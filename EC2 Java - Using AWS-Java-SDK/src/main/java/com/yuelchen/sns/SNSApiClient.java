@@ -1,14 +1,35 @@
 package com.yuelchen.sns;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.SdkClientException;
 import com.amazonaws.services.sns.AmazonSNS;
-import com.amazonaws.services.sns.AmazonSNSClientBuilder;
 import com.amazonaws.services.sns.model.ConfirmSubscriptionRequest;
 import com.amazonaws.services.sns.model.CreateTopicResult;
+import com.amazonaws.services.sns.model.GetSubscriptionAttributesRequest;
+import com.amazonaws.services.sns.model.ListSubscriptionsByTopicRequest;
+import com.amazonaws.services.sns.model.ListSubscriptionsByTopicResult;
+import com.amazonaws.services.sns.model.ListTopicsRequest;
+import com.amazonaws.services.sns.model.ListTopicsResult;
+import com.amazonaws.services.sns.model.MessageAttributeValue;
+import com.amazonaws.services.sns.model.NotFoundException;
+import com.amazonaws.services.sns.model.PublishRequest;
+import com.amazonaws.services.sns.model.PublishResult;
+import com.amazonaws.services.sns.model.SetSubscriptionAttributesRequest;
 import com.amazonaws.services.sns.model.SubscribeRequest;
 import com.amazonaws.services.sns.model.SubscribeResult;
+import com.amazonaws.services.sns.model.Subscription;
+import com.amazonaws.services.sns.model.Topic;
 import com.amazonaws.services.sns.model.UnsubscribeRequest;
+import com.yuelchen.client.AwsClientFactory;
+import com.yuelchen.client.BatchPublisher;
+import com.yuelchen.client.PageStreams;
 
 /**
  * Amazon SNS API client handler for performing SNS operations. 
@@ -20,9 +41,14 @@ import com.amazonaws.services.sns.model.UnsubscribeRequest;
 public class SNSApiClient {
 	
 	/**
-	 * The default Amazon SNS Client. 
+	 * The Amazon SNS Client, built from the SNS client profile. 
 	 */
-	private static AmazonSNS amazonSNSClient = AmazonSNSClientBuilder.defaultClient();
+	private static AmazonSNS amazonSNSClient = AwsClientFactory.newSNSClient();
+	
+	/**
+	 * The cache of topic arns by topic name. 
+	 */
+	private static SNSTopicArnCache topicArnCache = new SNSTopicArnCache();
 	
 	//====================================================================================================
     
@@ -33,6 +59,114 @@ public class SNSApiClient {
     
     //====================================================================================================
     
+    /**
+     * Returns the Amazon SNS Client shared by SNS engines within this package. 
+     * 
+     * @return							the Amazon SNS Client.
+     */
+    static AmazonSNS getAmazonSNSClient() {
+    	return amazonSNSClient;
+    }
+    
+    //====================================================================================================
+    
+    /**
+     * Replaces the Amazon SNS Client, i.e. one built with a tuned profile from AwsClientFactory; 
+     * cached topic arns are dropped since they may belong to another endpoint. 
+     * 
+     * @param snsClient					the Amazon SNS Client.
+     */
+    public static void setAmazonSNSClient(AmazonSNS snsClient) {
+    	amazonSNSClient = snsClient;
+    	topicArnCache.invalidateAll();
+    }
+    
+    //====================================================================================================
+    
+    /**
+     * Returns the topic arn cache, i.e. for reading hit and miss counters. 
+     * 
+     * @return							the topic arn cache.
+     */
+    public static SNSTopicArnCache getTopicArnCache() {
+    	return topicArnCache;
+    }
+    
+    //====================================================================================================
+    
+	/**
+	 * Returns the topic arn for given topic name; served from the topic arn cache when the topic 
+	 * has been created or listed before, otherwise topics are listed, caching every topic seen, 
+	 * until the topic is found. 
+	 * 
+	 * @param topicName					the topic name.
+	 * 
+	 * @return							the topic arn.
+	 * 
+	 * @throws NotFoundException		thrown when no topic with given name exists.
+	 * @throws AmazonServiceException	thrown when call was successfully sent but SNS could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to SNS. 
+	 */
+	public static String getTopicArn(String topicName) 
+			throws AmazonServiceException, SdkClientException {
+		
+		return topicArnCache.get(topicName, name -> listTopics()
+				.map(Topic::getTopicArn)
+				.filter(topicArn -> SNSTopicArnCache.getTopicName(topicArn).equals(name))
+				.findFirst()
+				.orElseThrow(() -> new NotFoundException(String.format(
+						"Topic with name '%s' does not exist", name))));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a stream of all topics, requested one ListTopics page (of up to 100 topics) at a 
+	 * time as the stream is consumed; every topic seen is added to the topic arn cache. 
+	 * 
+	 * @return							a lazily paginated stream of topics.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but SNS could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to SNS. 
+	 */
+	public static Stream<Topic> listTopics() 
+			throws AmazonServiceException, SdkClientException {
+		
+		return PageStreams.stream(nextToken -> {
+			ListTopicsResult listTopicsResult = amazonSNSClient.listTopics(
+					new ListTopicsRequest().withNextToken(nextToken));
+			listTopicsResult.getTopics().forEach(topic -> topicArnCache.put(topic.getTopicArn()));
+			return listTopicsResult;
+		}, ListTopicsResult::getTopics, ListTopicsResult::getNextToken);
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a stream of the subscriptions of given topic, requested one ListSubscriptionsByTopic 
+	 * page (of up to 100 subscriptions) at a time as the stream is consumed. 
+	 * 
+	 * @param topicArn					the topic arn.
+	 * 
+	 * @return							a lazily paginated stream of subscriptions.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but SNS could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to SNS. 
+	 */
+	public static Stream<Subscription> listSubscriptions(String topicArn) 
+			throws AmazonServiceException, SdkClientException {
+		
+		return PageStreams.stream(nextToken -> amazonSNSClient.listSubscriptionsByTopic(
+				new ListSubscriptionsByTopicRequest(topicArn, nextToken)), 
+				ListSubscriptionsByTopicResult::getSubscriptions, 
+				ListSubscriptionsByTopicResult::getNextToken);
+	}
+	
+	//====================================================================================================
+	
 	/**
 	 * Creates a topic with the given name. 
 	 * 
@@ -48,6 +182,7 @@ public class SNSApiClient {
 			throws AmazonServiceException, SdkClientException {
 		
 		CreateTopicResult result = amazonSNSClient.createTopic(topicName);
+		topicArnCache.put(result.getTopicArn());
 		System.out.println(String.format("Successfully create topic with name '%s'", topicName));		
 		return result.getTopicArn();
 	}
@@ -80,6 +215,181 @@ public class SNSApiClient {
 	
 	//====================================================================================================
 	
+	/**
+	 * Returns the subscription arn after adding a new subscriber to given topic which only receives 
+	 * the messages matching given filter policy. 
+	 * 
+	 * @param topicArn					the topic arn.
+	 * @param type						the subscription type (i.e. SQS, E-mail).
+	 * @param endpoint					the subscription endpoint. 
+	 * @param filterPolicy				the filter policy of the subscription.
+	 * 
+	 * @return							the subscription arn. 
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but SNS could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to SNS.
+	 */
+	public static String addSubscriberToTopic(String topicArn, String type, String endpoint, 
+			SNSFilterPolicy filterPolicy) throws AmazonServiceException, SdkClientException {
+		
+		SubscribeRequest subscribeRequest = new SubscribeRequest(topicArn, type, endpoint)
+				.withAttributes(filterPolicy.toSubscriptionAttributes())
+				.withReturnSubscriptionArn(true);
+		SubscribeResult subscribeResult = amazonSNSClient.subscribe(subscribeRequest);
+		System.out.println(String.format("Successfully create subscription for endpoint '%s' "
+				+ "of type '%s' to topic arn '%s' with filter policy '%s' and recieved subscription "
+				+ "arn '%s'", endpoint, type, topicArn, filterPolicy.getPolicy(), 
+				subscribeResult.getSubscriptionArn()));
+		return subscribeResult.getSubscriptionArn();
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Subscribes the endpoints to given topic concurrently under the shared SNSBulkSubscriber's 
+	 * rate limit, each only receiving the messages matching given filter policy. 
+	 * 
+	 * @param topicArn					the topic arn.
+	 * @param type						the subscription type (i.e. SQS, E-mail).
+	 * @param endpoints					the subscription endpoints.
+	 * @param filterPolicy				the filter policy of the subscriptions.
+	 * 
+	 * @return							a future per endpoint in given order, completed with the 
+	 * 									subscription arn or exceptionally with its error.
+	 */
+	public static Map<String, CompletableFuture<String>> addSubscribersToTopic(String topicArn, 
+			String type, Collection<String> endpoints, SNSFilterPolicy filterPolicy) {
+		return SharedBulkSubscriber.bulkSubscriber.subscribe(topicArn, type, endpoints, 
+				filterPolicy.toSubscriptionAttributes());
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Replaces the filter policy of an existing subscription. The scope is only set when it 
+	 * changes, in the order SNS accepts: a nested policy is only valid for the message body 
+	 * scope, so a move to the message attributes scope sets the policy first and a move to the 
+	 * message body scope sets the scope first. Between the two calls either the new policy is 
+	 * matched against the old scope or the old policy against the new scope. Changes can take 
+	 * up to 15 minutes to fully take effect according to Amazon SNS documentation. 
+	 * 
+	 * @param subscriptionArn			the subscription arn. 
+	 * @param filterPolicy				the new filter policy.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but SNS could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to SNS.
+	 */
+	public static void setFilterPolicy(String subscriptionArn, SNSFilterPolicy filterPolicy) 
+			throws AmazonServiceException, SdkClientException {
+		
+		Map<String, String> attributes = amazonSNSClient.getSubscriptionAttributes(
+				new GetSubscriptionAttributesRequest(subscriptionArn)).getAttributes();
+		SNSFilterPolicy.Scope currentScope = SNSFilterPolicy.Scope.fromAttributeValue(
+				attributes.get(SNSFilterPolicy.FILTER_POLICY_SCOPE_ATTRIBUTE));
+		SetSubscriptionAttributesRequest setPolicyRequest = new SetSubscriptionAttributesRequest(
+				subscriptionArn, SNSFilterPolicy.FILTER_POLICY_ATTRIBUTE, filterPolicy.getPolicy());
+		SetSubscriptionAttributesRequest setScopeRequest = new SetSubscriptionAttributesRequest(
+				subscriptionArn, SNSFilterPolicy.FILTER_POLICY_SCOPE_ATTRIBUTE, 
+				filterPolicy.getScope().getAttributeValue());
+		
+		if(currentScope == filterPolicy.getScope()) {
+			amazonSNSClient.setSubscriptionAttributes(setPolicyRequest);
+		} else if(filterPolicy.getScope() == SNSFilterPolicy.Scope.MESSAGE_ATTRIBUTES) {
+			amazonSNSClient.setSubscriptionAttributes(setPolicyRequest);
+			amazonSNSClient.setSubscriptionAttributes(setScopeRequest);
+		} else {
+			amazonSNSClient.setSubscriptionAttributes(setScopeRequest);
+			amazonSNSClient.setSubscriptionAttributes(setPolicyRequest);
+		}
+		System.out.println(String.format("Successfully set filter policy '%s' with scope '%s' on "
+				+ "subscription with arn '%s'", filterPolicy.getPolicy(), 
+				filterPolicy.getScope().getAttributeValue(), subscriptionArn));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Removes the filter policy of an existing subscription so it receives every message again. 
+	 * 
+	 * @param subscriptionArn			the subscription arn. 
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but SNS could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to SNS.
+	 */
+	public static void removeFilterPolicy(String subscriptionArn) 
+			throws AmazonServiceException, SdkClientException {
+		
+		amazonSNSClient.setSubscriptionAttributes(new SetSubscriptionAttributesRequest(subscriptionArn, 
+				SNSFilterPolicy.FILTER_POLICY_ATTRIBUTE, "{}"));
+		System.out.println(String.format("Successfully removed filter policy from subscription "
+				+ "with arn '%s'", subscriptionArn));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns the filter policy of an existing subscription. 
+	 * 
+	 * @param subscriptionArn			the subscription arn. 
+	 * 
+	 * @return							the filter policy, or null when the subscription has none.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but SNS could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to SNS.
+	 */
+	public static SNSFilterPolicy getFilterPolicy(String subscriptionArn) 
+			throws AmazonServiceException, SdkClientException {
+		
+		Map<String, String> attributes = amazonSNSClient.getSubscriptionAttributes(
+				new GetSubscriptionAttributesRequest(subscriptionArn)).getAttributes();
+		String policy = attributes.get(SNSFilterPolicy.FILTER_POLICY_ATTRIBUTE);
+		if(policy == null || policy.trim().isEmpty()) {
+			return null;
+		}
+		return new SNSFilterPolicy(policy, SNSFilterPolicy.Scope.fromAttributeValue(
+				attributes.get(SNSFilterPolicy.FILTER_POLICY_SCOPE_ATTRIBUTE)));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Subscribes the endpoints to given topic concurrently under the shared SNSBulkSubscriber's 
+	 * rate limit; see SNSBulkSubscriber.subscribe. 
+	 * 
+	 * @param topicArn					the topic arn.
+	 * @param type						the subscription type (i.e. SQS, E-mail).
+	 * @param endpoints					the subscription endpoints.
+	 * 
+	 * @return							a future per endpoint in given order, completed with the 
+	 * 									subscription arn or exceptionally with its error.
+	 */
+	public static Map<String, CompletableFuture<String>> addSubscribersToTopic(String topicArn, 
+			String type, Collection<String> endpoints) {
+		return SharedBulkSubscriber.bulkSubscriber.subscribe(topicArn, type, endpoints, null);
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Removes the subscriptions concurrently under the shared SNSBulkSubscriber's rate limit; 
+	 * see SNSBulkSubscriber.unsubscribe. 
+	 * 
+	 * @param subscriptionArns			the subscription arns.
+	 * 
+	 * @return							a future per subscription arn in given order, completed 
+	 * 									when removed or exceptionally with its error.
+	 */
+	public static Map<String, CompletableFuture<Void>> removeSubscribersFromTopic(
+			Collection<String> subscriptionArns) {
+		return SharedBulkSubscriber.bulkSubscriber.unsubscribe(subscriptionArns);
+	}
+	
+	//====================================================================================================
+	
 	/**
 	 * Comfirms the subscription for given topic using subscription token. 
 	 * 
@@ -120,4 +430,197 @@ public class SNSApiClient {
 		System.out.println(String.format("Successfully removed subscription with arn '%s'", 
 				subscriptionArn));
 	}
-}
\ No newline at end of file
+	
+	//====================================================================================================
+	
+	/**
+	 * Publishes a message to given standard topic and returns its message Id. 
+	 * 
+	 * @param topicArn					the topic arn.
+	 * @param message					the content to be published.
+	 * 
+	 * @return							the message Id.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but SNS could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to SNS.
+	 */
+	public static String publishMessage(String topicArn, String message) 
+			throws AmazonServiceException, SdkClientException {
+		
+		return publishMessage(topicArn, message, null);
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Publishes a message with attributes to given standard topic and returns its message Id. 
+	 * 
+	 * @param topicArn					the topic arn.
+	 * @param message					the content to be published.
+	 * @param messageAttributes			the message attributes by name, or null for none.
+	 * 
+	 * @return							the message Id.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but SNS could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to SNS.
+	 */
+	public static String publishMessage(String topicArn, String message, 
+			Map<String, MessageAttributeValue> messageAttributes) 
+					throws AmazonServiceException, SdkClientException {
+		
+		PublishRequest publishRequest = new PublishRequest()
+				.withTopicArn(topicArn)
+				.withMessage(message)
+				.withMessageAttributes(messageAttributes);
+		PublishResult publishResult = amazonSNSClient.publish(publishRequest);
+		return publishResult.getMessageId();
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Publishes a message to given FIFO topic and returns its message Id. 
+	 * 
+	 * @param topicArn					the FIFO topic arn.
+	 * @param message					the content to be published.
+	 * @param groupId					the message group Id.
+	 * @param deduplicationId			the deduplication Id, or null when the topic uses 
+	 * 									content-based deduplication.
+	 * @param messageAttributes			the message attributes by name, or null for none.
+	 * 
+	 * @return							the message Id.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but SNS could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to SNS.
+	 */
+	public static String publishFIFOMessage(String topicArn, String message, String groupId, 
+			String deduplicationId, Map<String, MessageAttributeValue> messageAttributes) 
+					throws AmazonServiceException, SdkClientException {
+		
+		PublishRequest publishRequest = new PublishRequest()
+				.withTopicArn(topicArn)
+				.withMessage(message)
+				.withMessageGroupId(groupId)
+				.withMessageDeduplicationId(deduplicationId)
+				.withMessageAttributes(messageAttributes);
+		PublishResult publishResult = amazonSNSClient.publish(publishRequest);
+		return publishResult.getMessageId();
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the message Id after publishing the message to given standard topic; 
+	 * messages are buffered per topic by a shared SNSBatchPublisher and sent as PublishBatch 
+	 * requests, which are flushed when the JVM shuts down. 
+	 * 
+	 * @param topicArn					the topic arn.
+	 * @param message					the content to be published.
+	 * @param messageAttributes			the message attributes by name, or null for none.
+	 * 
+	 * @return							a future completed with the message Id, or exceptionally 
+	 * 									with the per-entry error.
+	 */
+	public static CompletableFuture<String> publishMessageAsync(String topicArn, String message, 
+			Map<String, MessageAttributeValue> messageAttributes) {
+		return SharedBatchPublishers.getPublisher(topicArn).publish(message, messageAttributes);
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the message Id after publishing the message to given FIFO topic; see 
+	 * publishMessageAsync(String, String, Map). Batches of a FIFO topic are sent one at a time so 
+	 * messages of a group keep their order. 
+	 * 
+	 * @param topicArn					the FIFO topic arn.
+	 * @param message					the content to be published.
+	 * @param groupId					the message group Id.
+	 * @param deduplicationId			the deduplication Id, or null when the topic uses 
+	 * 									content-based deduplication.
+	 * @param messageAttributes			the message attributes by name, or null for none.
+	 * 
+	 * @return							a future completed with the message Id, or exceptionally 
+	 * 									with the per-entry error.
+	 */
+	public static CompletableFuture<String> publishFIFOMessageAsync(String topicArn, String message, 
+			String groupId, String deduplicationId, Map<String, MessageAttributeValue> messageAttributes) {
+		return SharedBatchPublishers.getPublisher(topicArn)
+				.publishFIFO(message, groupId, deduplicationId, messageAttributes);
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a string message attribute value, i.e. for attributes matched by filter policies. 
+	 * 
+	 * @param value						the string value.
+	 * 
+	 * @return							the message attribute value.
+	 */
+	public static MessageAttributeValue stringAttribute(String value) {
+		return new MessageAttributeValue()
+				.withDataType("String")
+				.withStringValue(value);
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Holder of the shared bulk subscriber; created on first bulk operation. 
+	 */
+	private static class SharedBulkSubscriber {
+		
+		/**
+		 * The bulk subscriber shared by bulk subscription operations. 
+		 */
+		private static final SNSBulkSubscriber bulkSubscriber = new SNSBulkSubscriber();
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Holder of the batch publishers shared by asynchronous publishes; created on first publish. 
+	 * The publishers of every topic send their batches on one bounded pool of sender threads. 
+	 */
+	private static class SharedBatchPublishers {
+		
+		/**
+		 * The number of sender threads shared by the publishers of every topic. 
+		 */
+		private static final int SENDER_THREADS = 16;
+		
+		/**
+		 * The executor sending the batches of every topic. 
+		 */
+		private static final ExecutorService senderExecutor = 
+				BatchPublisher.newSenderExecutor("sns-batch-sender", SENDER_THREADS);
+		
+		/**
+		 * The batch publishers by topic arn. 
+		 */
+		private static final Map<String, SNSBatchPublisher> batchPublishers = 
+				new ConcurrentHashMap<String, SNSBatchPublisher>();
+		
+		static {
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> 
+					batchPublishers.values().forEach(SNSBatchPublisher::close), "sns-publish-shutdown"));
+		}
+		
+		/**
+		 * Returns the batch publisher of given topic, created on first use. 
+		 * 
+		 * @param topicArn				the topic arn.
+		 * 
+		 * @return						the batch publisher.
+		 */
+		private static SNSBatchPublisher getPublisher(String topicArn) {
+			return batchPublishers.computeIfAbsent(topicArn, key -> new SNSBatchPublisher(key, 
+					BatchPublisher.DEFAULT_LINGER_MILLIS, BatchPublisher.DEFAULT_MAX_ATTEMPTS, 
+					BatchPublisher.DEFAULT_SENDER_THREADS, senderExecutor));
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package com.yuelchen.sns;
+
+import java.util.concurrent.CompletableFuture;
+import com.yuelchen.client.AsyncApiExecutor;
+
+/**
+ * Asynchronous facade of SNSApiClient; each method runs the blocking SNS call of the same name 
+ * on an AsyncApiExecutor and returns a future of its result, completed exceptionally with the 
+ * exception the call threw. 
+ * 
+ * Per-call timeouts are applied with AsyncApiExecutor.orTimeout, i.e. 
+ * orTimeout(SNSAsyncApiClient.createTopic(...), 5, TimeUnit.SECONDS); cancelling or timing out a 
+ * returned future interrupts the call. 
+ * 
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class SNSAsyncApiClient {
+	
+	/**
+	 * The executor running the calls; the shared executor unless replaced. 
+	 */
+	private static AsyncApiExecutor asyncApiExecutor = AsyncApiExecutor.getSharedExecutor();
+	
+	//====================================================================================================
+	
+	/**
+	 * Private constructor.
+	 */
+	private SNSAsyncApiClient() {}
+	
+	//====================================================================================================
+	
+	/**
+	 * Replaces the executor running the calls, i.e. one with more threads or a default timeout. 
+	 * 
+	 * @param executor					the executor.
+	 */
+	public static void setAsyncApiExecutor(AsyncApiExecutor executor) {
+		asyncApiExecutor = executor;
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the ARN of the topic created with given name; see 
+	 * SNSApiClient.createTopic(String). 
+	 * 
+	 * @param topicName					the topic name.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<String> createTopic(String topicName) {
+		return asyncApiExecutor.submit(() -> SNSApiClient.createTopic(topicName));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the ARN of the subscription added to given topic; see 
+	 * SNSApiClient.addSubscriberToTopic(String, String, String). 
+	 * 
+	 * @param topicArn					the topic ARN.
+	 * @param type						the subscription protocol.
+	 * @param endpoint					the subscription endpoint.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<String> addSubscriberToTopic(String topicArn, String type,
+			String endpoint) {
+		return asyncApiExecutor.submit(() -> 
+				SNSApiClient.addSubscriberToTopic(topicArn, type, endpoint));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future completed once the subscription is confirmed; see 
+	 * SNSApiClient.confirmSubscription(String, String). 
+	 * 
+	 * @param topicArn					the topic ARN.
+	 * @param token						the confirmation token.
+	 * 
+	 * @return							a future of the completion.
+	 */
+	public static CompletableFuture<Void> confirmSubscription(String topicArn, String token) {
+		return asyncApiExecutor.submit(() -> {
+			SNSApiClient.confirmSubscription(topicArn, token);
+			return null;
+		});
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future completed once the subscription is removed; see 
+	 * SNSApiClient.removeSubscriberFromTopic(String). 
+	 * 
+	 * @param subscriptionArn			the subscription ARN.
+	 * 
+	 * @return							a future of the completion.
+	 */
+	public static CompletableFuture<Void> removeSubscriberFromTopic(String subscriptionArn) {
+		return asyncApiExecutor.submit(() -> {
+			SNSApiClient.removeSubscriberFromTopic(subscriptionArn);
+			return null;
+		});
+	}
+}
@@ -0,0 +1,280 @@
+package com.yuelchen.sns;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.model.BatchResultErrorEntry;
+import com.amazonaws.services.sns.model.MessageAttributeValue;
+import com.amazonaws.services.sns.model.PublishBatchRequest;
+import com.amazonaws.services.sns.model.PublishBatchRequestEntry;
+import com.amazonaws.services.sns.model.PublishBatchResult;
+import com.amazonaws.services.sns.model.PublishBatchResultEntry;
+import com.yuelchen.client.BatchPublisher;
+
+/**
+ * SNSBatchPublisher buffers messages for a single topic and publishes them with PublishBatch
+ * requests of up to 10 entries and 256 KB, including message attributes.
+ *
+ * A batch is sent once it is full or once the linger time has passed since its first message.
+ * Every published message gets a future completed with its message Id; entries which fail within
+ * a partially successful batch are retried on their own, unless SNS reports a sender fault.
+ *
+ * For FIFO topics batches are sent one at a time, with retries completed before the next batch,
+ * so messages of a group keep their order; deduplication Ids make the retries safe. Batching,
+ * lingering and retries are shared with SQSBatchPublisher through BatchPublisher.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class SNSBatchPublisher extends BatchPublisher<PublishBatchRequestEntry, PublishBatchResult> {
+
+	/**
+	 * The Amazon SNS Client.
+	 */
+	private final AmazonSNS amazonSNSClient;
+
+	/**
+	 * The topic arn messages are published to.
+	 */
+	private final String topicArn;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor using default linger time, attempts and sender threads.
+	 *
+	 * @param topicArn					the topic arn messages are published to.
+	 */
+	public SNSBatchPublisher(String topicArn) {
+		this(topicArn, DEFAULT_LINGER_MILLIS, DEFAULT_MAX_ATTEMPTS, DEFAULT_SENDER_THREADS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor with its own sender threads.
+	 *
+	 * @param topicArn					the topic arn messages are published to.
+	 * @param lingerMillis				the linger time in milliseconds before a partial batch is sent.
+	 * @param maxAttempts				the maximum number of send attempts for each message.
+	 * @param senderThreads				the number of batches sent concurrently; always one for
+	 * 									FIFO topics.
+	 */
+	public SNSBatchPublisher(String topicArn, long lingerMillis, int maxAttempts, int senderThreads) {
+		this(topicArn, lingerMillis, maxAttempts, senderThreads, newSenderExecutor("sns-batch-sender",
+				isFIFOTopic(topicArn) ? 1 : senderThreads), true);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor sending batches on a shared executor (see BatchPublisher.newSenderExecutor),
+	 * which close leaves running.
+	 *
+	 * @param topicArn					the topic arn messages are published to.
+	 * @param lingerMillis				the linger time in milliseconds before a partial batch is sent.
+	 * @param maxAttempts				the maximum number of send attempts for each message.
+	 * @param maxSendingBatches			the number of batches sent concurrently; always one for
+	 * 									FIFO topics.
+	 * @param senderExecutor			the shared executor sending batches.
+	 */
+	public SNSBatchPublisher(String topicArn, long lingerMillis, int maxAttempts, int maxSendingBatches,
+			ExecutorService senderExecutor) {
+		this(topicArn, lingerMillis, maxAttempts, maxSendingBatches, senderExecutor, false);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param topicArn					the topic arn messages are published to.
+	 * @param lingerMillis				the linger time in milliseconds before a partial batch is sent.
+	 * @param maxAttempts				the maximum number of send attempts for each message.
+	 * @param maxSendingBatches			the number of batches sent concurrently; always one for
+	 * 									FIFO topics.
+	 * @param senderExecutor			the executor sending batches.
+	 * @param isSenderExecutorOwned		true if close shuts down the executor.
+	 */
+	private SNSBatchPublisher(String topicArn, long lingerMillis, int maxAttempts, int maxSendingBatches,
+			ExecutorService senderExecutor, boolean isSenderExecutorOwned) {
+		super("topic", topicArn, lingerMillis, maxAttempts, isFIFOTopic(topicArn) ? 1 : maxSendingBatches,
+				senderExecutor, isSenderExecutorOwned);
+		this.amazonSNSClient = SNSApiClient.getAmazonSNSClient();
+		this.topicArn = topicArn;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a future of the message Id after publishing the message to a standard topic.
+	 *
+	 * @param message					the content to be published.
+	 *
+	 * @return							a future completed with the message Id.
+	 */
+	public CompletableFuture<String> publish(String message) {
+		return this.publish(message, null);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a future of the message Id after publishing the message with attributes to a
+	 * standard topic.
+	 *
+	 * @param message					the content to be published.
+	 * @param messageAttributes			the message attributes by name, or null for none.
+	 *
+	 * @return							a future completed with the message Id.
+	 */
+	public CompletableFuture<String> publish(String message,
+			Map<String, MessageAttributeValue> messageAttributes) {
+		return this.enqueue(new PublishBatchRequestEntry()
+				.withMessage(message)
+				.withMessageAttributes(messageAttributes));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a future of the message Id after publishing the message to a FIFO topic.
+	 *
+	 * @param message					the content to be published.
+	 * @param groupId					the message group Id.
+	 * @param deduplicationId			the deduplication Id, or null when the topic uses
+	 * 									content-based deduplication.
+	 * @param messageAttributes			the message attributes by name, or null for none.
+	 *
+	 * @return							a future completed with the message Id.
+	 */
+	public CompletableFuture<String> publishFIFO(String message, String groupId, String deduplicationId,
+			Map<String, MessageAttributeValue> messageAttributes) {
+		return this.enqueue(new PublishBatchRequestEntry()
+				.withMessage(message)
+				.withMessageGroupId(groupId)
+				.withMessageDeduplicationId(deduplicationId)
+				.withMessageAttributes(messageAttributes));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the payload size in bytes SNS counts for the entry: the message plus the name, data
+	 * type and value of every message attribute.
+	 *
+	 * @param entry						the batch entry.
+	 *
+	 * @return							the payload size in bytes.
+	 */
+	@Override
+	protected int getPayloadBytes(PublishBatchRequestEntry entry) {
+		int payloadBytes = entry.getMessage().getBytes(StandardCharsets.UTF_8).length;
+		if(entry.getMessageAttributes() != null) {
+			for(Map.Entry<String, MessageAttributeValue> attribute
+					: entry.getMessageAttributes().entrySet()) {
+				MessageAttributeValue value = attribute.getValue();
+				payloadBytes += attribute.getKey().getBytes(StandardCharsets.UTF_8).length
+						+ value.getDataType().getBytes(StandardCharsets.UTF_8).length
+						+ (value.getStringValue() == null ? 0
+								: value.getStringValue().getBytes(StandardCharsets.UTF_8).length)
+						+ (value.getBinaryValue() == null ? 0 : value.getBinaryValue().remaining());
+			}
+		}
+		return payloadBytes;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Sets the Id of the entry within its batch request.
+	 *
+	 * @param entry						the batch entry.
+	 * @param entryId					the entry Id.
+	 */
+	@Override
+	protected void setEntryId(PublishBatchRequestEntry entry, String entryId) {
+		entry.setId(entryId);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the result of sending the given entries as one PublishBatch request.
+	 *
+	 * @param entries					the batch entries with Ids.
+	 *
+	 * @return							the batch result.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but SNS could not process
+	 * 									the requested action.
+	 * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to SNS.
+	 */
+	@Override
+	protected PublishBatchResult sendBatchRequest(List<PublishBatchRequestEntry> entries)
+			throws AmazonServiceException, SdkClientException {
+
+		PublishBatchRequest publishBatchRequest = new PublishBatchRequest()
+				.withTopicArn(this.topicArn)
+				.withPublishBatchRequestEntries(entries);
+		return this.amazonSNSClient.publishBatch(publishBatchRequest);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the message Ids of the successful entries of a batch result.
+	 *
+	 * @param publishBatchResult		the batch result.
+	 *
+	 * @return							the message Ids mapped by entry Id.
+	 */
+	@Override
+	protected Map<String, String> getMessageIds(PublishBatchResult publishBatchResult) {
+		Map<String, String> messageIds = new HashMap<String, String>();
+		for(PublishBatchResultEntry resultEntry : publishBatchResult.getSuccessful()) {
+			messageIds.put(resultEntry.getId(), resultEntry.getMessageId());
+		}
+		return messageIds;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the failed entries of a batch result.
+	 *
+	 * @param publishBatchResult		the batch result.
+	 *
+	 * @return							the failed entries.
+	 */
+	@Override
+	protected List<FailedEntry> getFailedEntries(PublishBatchResult publishBatchResult) {
+		List<FailedEntry> failedEntries = new ArrayList<FailedEntry>();
+		for(BatchResultErrorEntry errorEntry : publishBatchResult.getFailed()) {
+			failedEntries.add(new FailedEntry(errorEntry.getId(), errorEntry.getCode(),
+					errorEntry.getMessage(), errorEntry.getSenderFault()));
+		}
+		return failedEntries;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns true if the topic arn is of a FIFO topic.
+	 *
+	 * @param topicArn					the topic arn.
+	 *
+	 * @return							true if FIFO topic, false if standard topic.
+	 */
+	static boolean isFIFOTopic(String topicArn) {
+		return topicArn.endsWith(".fifo");
+	}
+}
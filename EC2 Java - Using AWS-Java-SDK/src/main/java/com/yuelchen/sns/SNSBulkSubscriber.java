@@ -0,0 +1,183 @@
+package com.yuelchen.sns;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.model.SubscribeRequest;
+import com.amazonaws.services.sns.model.UnsubscribeRequest;
+import com.yuelchen.client.AdaptiveRateLimiter;
+
+/**
+ * SNSBulkSubscriber subscribes and unsubscribes many endpoints concurrently, i.e. when
+ * provisioning thousands of SQS or e-mail subscriptions during a rollout.
+ *
+ * Requests are spread over a pool of threads and paced by an adaptive rate limiter, which backs
+ * off when SNS throttles and ramps up again on success; Subscribe and Unsubscribe are limited to
+ * 100 transactions per second per account by default according to Amazon SNS documentation.
+ * Every endpoint gets its own future, so one failure does not abort the rest of the rollout.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class SNSBulkSubscriber implements AutoCloseable {
+
+	/**
+	 * The default maximum number of requests per second.
+	 */
+	public static final double DEFAULT_REQUESTS_PER_SECOND = 100;
+
+	/**
+	 * The default number of requests in flight.
+	 */
+	public static final int DEFAULT_THREAD_COUNT = 16;
+
+	/**
+	 * The Amazon SNS Client.
+	 */
+	private final AmazonSNS amazonSNSClient;
+
+	/**
+	 * The limiter pacing requests.
+	 */
+	private final AdaptiveRateLimiter rateLimiter;
+
+	/**
+	 * The executor making requests.
+	 */
+	private final ExecutorService requestExecutor;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor using default rate and thread count.
+	 */
+	public SNSBulkSubscriber() {
+		this(DEFAULT_REQUESTS_PER_SECOND, DEFAULT_THREAD_COUNT);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param requestsPerSecond			the maximum number of requests per second.
+	 * @param threadCount				the number of requests in flight.
+	 */
+	public SNSBulkSubscriber(double requestsPerSecond, int threadCount) {
+		this.amazonSNSClient = SNSApiClient.getAmazonSNSClient();
+		this.rateLimiter = new AdaptiveRateLimiter(requestsPerSecond, Math.min(1, requestsPerSecond));
+		this.requestExecutor = Executors.newFixedThreadPool(threadCount, runnable -> {
+			Thread thread = new Thread(runnable, "sns-bulk-subscriber");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a future of the subscription arn for each endpoint after subscribing it to given
+	 * topic; the arn is returned even while a subscription is pending confirmation.
+	 *
+	 * @param topicArn					the topic arn.
+	 * @param protocol					the subscription protocol (i.e. sqs, email).
+	 * @param endpoints					the subscription endpoints.
+	 * @param attributes				the subscription attributes (i.e. RawMessageDelivery or
+	 * 									FilterPolicy), or null for none.
+	 *
+	 * @return							a future per endpoint in given order, completed with the
+	 * 									subscription arn or exceptionally with its error.
+	 */
+	public Map<String, CompletableFuture<String>> subscribe(String topicArn, String protocol,
+			Collection<String> endpoints, Map<String, String> attributes) {
+
+		Map<String, CompletableFuture<String>> subscriptions =
+				new LinkedHashMap<String, CompletableFuture<String>>();
+		for(String endpoint : endpoints) {
+			SubscribeRequest subscribeRequest = new SubscribeRequest(topicArn, protocol, endpoint)
+					.withAttributes(attributes)
+					.withReturnSubscriptionArn(true);
+			subscriptions.put(endpoint, this.submit(() ->
+					this.amazonSNSClient.subscribe(subscribeRequest).getSubscriptionArn()));
+		}
+		return subscriptions;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a future for each subscription arn completed once the subscription is removed.
+	 *
+	 * @param subscriptionArns			the subscription arns.
+	 *
+	 * @return							a future per subscription arn in given order, completed
+	 * 									when removed or exceptionally with its error.
+	 */
+	public Map<String, CompletableFuture<Void>> unsubscribe(Collection<String> subscriptionArns) {
+		Map<String, CompletableFuture<Void>> removals = new LinkedHashMap<String, CompletableFuture<Void>>();
+		for(String subscriptionArn : subscriptionArns) {
+			UnsubscribeRequest unsubscribeRequest = new UnsubscribeRequest()
+					.withSubscriptionArn(subscriptionArn);
+			removals.put(subscriptionArn, this.submit(() -> {
+				this.amazonSNSClient.unsubscribe(unsubscribeRequest);
+				return null;
+			}));
+		}
+		return removals;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the current request rate of the limiter in requests per second.
+	 *
+	 * @return							the current request rate.
+	 */
+	public double getRequestRate() {
+		return this.rateLimiter.getRate();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Stops the request threads once submitted requests are made.
+	 */
+	@Override
+	public void close() {
+		this.requestExecutor.shutdown();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a future of the request result, made on a request thread once the limiter permits;
+	 * throttle errors which outlast the client's retries lower the request rate.
+	 *
+	 * @param request					the request to be made.
+	 *
+	 * @return							a future of the request result.
+	 */
+	private <T> CompletableFuture<T> submit(Supplier<T> request) {
+		return CompletableFuture.supplyAsync(() -> {
+			this.rateLimiter.acquire();
+			try {
+				T result = request.get();
+				this.rateLimiter.onSuccess();
+				return result;
+			} catch(AmazonServiceException e) {
+				if(RetryUtils.isThrottlingException(e)) {
+					this.rateLimiter.onThrottle();
+				}
+				throw e;
+			}
+		}, this.requestExecutor);
+	}
+}
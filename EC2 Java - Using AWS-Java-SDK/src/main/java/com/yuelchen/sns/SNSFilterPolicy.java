@@ -0,0 +1,604 @@
+package com.yuelchen.sns;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import com.amazonaws.services.sns.model.MessageAttributeValue;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * SNSFilterPolicy is a subscription filter policy together with its scope, so SNS only delivers
+ * the messages a subscriber needs instead of every consumer discarding most of them itself.
+ *
+ * The policy can be evaluated locally with the SNS matching rules: all keys of a policy must
+ * match, any condition of a key may match, and a condition is an exact string, number, boolean
+ * or null, or one of prefix, suffix, equals-ignore-case, anything-but, numeric and exists; $or
+ * combines alternative policies and, for the message body scope, nested objects match nested
+ * properties. String.Array attributes and body arrays match when any element matches, and
+ * numeric conditions only match Number attributes. The dryRun method replays recorded SNS
+ * notifications (i.e. SQS message bodies of a subscribed queue) against the policy to estimate
+ * the delivery reduction before the policy is applied.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class SNSFilterPolicy {
+
+	/**
+	 * The parts of a message a filter policy is matched against.
+	 */
+	public enum Scope {
+		MESSAGE_ATTRIBUTES("MessageAttributes"),
+		MESSAGE_BODY("MessageBody");
+
+		/**
+		 * The FilterPolicyScope attribute value.
+		 */
+		private final String attributeValue;
+
+		Scope(String attributeValue) {
+			this.attributeValue = attributeValue;
+		}
+
+		/**
+		 * Returns the FilterPolicyScope attribute value.
+		 *
+		 * @return						the attribute value.
+		 */
+		public String getAttributeValue() {
+			return attributeValue;
+		}
+
+		/**
+		 * Returns the scope of given FilterPolicyScope attribute value.
+		 *
+		 * @param attributeValue		the attribute value, or null for the default scope.
+		 *
+		 * @return						the scope.
+		 */
+		public static Scope fromAttributeValue(String attributeValue) {
+			return MESSAGE_BODY.attributeValue.equals(attributeValue) ? MESSAGE_BODY : MESSAGE_ATTRIBUTES;
+		}
+	}
+
+	/**
+	 * The FilterPolicy subscription attribute name.
+	 */
+	public static final String FILTER_POLICY_ATTRIBUTE = "FilterPolicy";
+
+	/**
+	 * The FilterPolicyScope subscription attribute name.
+	 */
+	public static final String FILTER_POLICY_SCOPE_ATTRIBUTE = "FilterPolicyScope";
+
+	/**
+	 * The mapper reading policies, message bodies and notifications.
+	 */
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	/**
+	 * The policy document.
+	 */
+	private final String policy;
+
+	/**
+	 * The parsed policy document.
+	 */
+	private final ObjectNode policyNode;
+
+	/**
+	 * The scope the policy is matched against.
+	 */
+	private final Scope scope;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param policy					the policy document (JSON).
+	 * @param scope						the scope the policy is matched against.
+	 *
+	 * @throws IllegalArgumentException	thrown when the policy is not a JSON object or uses an 
+	 * 									operator which cannot be evaluated locally.
+	 */
+	public SNSFilterPolicy(String policy, Scope scope) {
+		JsonNode policyNode;
+		try {
+			policyNode = objectMapper.readTree(policy);
+		} catch(IOException e) {
+			throw new IllegalArgumentException(String.format(
+					"Filter policy is not valid JSON: %s", e.getMessage()), e);
+		}
+		if(policyNode == null || !policyNode.isObject()) {
+			throw new IllegalArgumentException("Filter policy must be a JSON object");
+		}
+		validatePolicy(policyNode);
+
+		this.policy = policy;
+		this.policyNode = (ObjectNode) policyNode;
+		this.scope = scope;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the policy document.
+	 *
+	 * @return							the policy document.
+	 */
+	public String getPolicy() {
+		return policy;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the scope the policy is matched against.
+	 *
+	 * @return							the scope.
+	 */
+	public Scope getScope() {
+		return scope;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the subscription attributes applying the policy, i.e. for SNSBulkSubscriber.subscribe.
+	 *
+	 * @return							the FilterPolicy and FilterPolicyScope attributes.
+	 */
+	public Map<String, String> toSubscriptionAttributes() {
+		Map<String, String> attributes = new HashMap<String, String>();
+		attributes.put(FILTER_POLICY_ATTRIBUTE, policy);
+		attributes.put(FILTER_POLICY_SCOPE_ATTRIBUTE, scope.getAttributeValue());
+		return attributes;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns whether or not a message with given attributes would be delivered; the policy must
+	 * have the message attributes scope.
+	 *
+	 * @param messageAttributes			the message attributes by name, or null for none.
+	 *
+	 * @return							true when the message would be delivered.
+	 */
+	public boolean matchesAttributes(Map<String, MessageAttributeValue> messageAttributes) {
+		ObjectNode attributesNode = JsonNodeFactory.instance.objectNode();
+		if(messageAttributes != null) {
+			messageAttributes.forEach((name, value) ->
+					attributesNode.set(name, toAttributeNode(value.getDataType(), value.getStringValue())));
+		}
+		return matchesPolicy(policyNode, attributesNode);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns whether or not a message with given body would be delivered; the policy must have
+	 * the message body scope. A body which is not a JSON object never matches.
+	 *
+	 * @param message					the message body.
+	 *
+	 * @return							true when the message would be delivered.
+	 */
+	public boolean matchesBody(String message) {
+		JsonNode messageNode;
+		try {
+			messageNode = objectMapper.readTree(message);
+		} catch(IOException e) {
+			return false;
+		}
+		return messageNode != null && messageNode.isObject() && matchesPolicy(policyNode, messageNode);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns whether or not the message of a recorded SNS notification would be delivered; the
+	 * notification is the JSON envelope SNS delivers without raw message delivery, matched by
+	 * attributes or body according to the scope.
+	 *
+	 * @param notification				the SNS notification JSON.
+	 *
+	 * @return							true when the message would be delivered.
+	 *
+	 * @throws IllegalArgumentException	thrown when the notification is not valid JSON.
+	 */
+	public boolean matchesNotification(String notification) {
+		JsonNode notificationNode;
+		try {
+			notificationNode = objectMapper.readTree(notification);
+		} catch(IOException e) {
+			throw new IllegalArgumentException(String.format(
+					"Notification is not valid JSON: %s", e.getMessage()), e);
+		}
+
+		if(scope == Scope.MESSAGE_BODY) {
+			return matchesBody(notificationNode.path("Message").asText());
+		}
+
+		ObjectNode attributesNode = JsonNodeFactory.instance.objectNode();
+		Iterator<Map.Entry<String, JsonNode>> attributes = notificationNode.path("MessageAttributes").fields();
+		while(attributes.hasNext()) {
+			Map.Entry<String, JsonNode> attribute = attributes.next();
+			attributesNode.set(attribute.getKey(), toAttributeNode(
+					attribute.getValue().path("Type").asText(), attribute.getValue().path("Value").asText()));
+		}
+		return matchesPolicy(policyNode, attributesNode);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Replays recorded SNS notifications against the policy.
+	 *
+	 * @param notifications				the SNS notification JSON documents.
+	 *
+	 * @return							the number of notifications replayed and matched.
+	 */
+	public DryRunResult dryRun(Stream<String> notifications) {
+		long[] counts = new long[2];
+		notifications.forEach(notification -> {
+			counts[0]++;
+			if(matchesNotification(notification)) {
+				counts[1]++;
+			}
+		});
+		return new DryRunResult(counts[0], counts[1]);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a policy with the message attributes scope, matching one attribute against any of
+	 * given string values.
+	 *
+	 * @param attributeName				the attribute name.
+	 * @param values					the accepted values.
+	 *
+	 * @return							the filter policy.
+	 */
+	public static SNSFilterPolicy attributeIn(String attributeName, String... values) {
+		ObjectNode policyNode = JsonNodeFactory.instance.objectNode();
+		policyNode.putArray(attributeName).addAll(Stream.of(values)
+				.map(JsonNodeFactory.instance::textNode)
+				.collect(Collectors.toList()));
+		return new SNSFilterPolicy(policyNode.toString(), Scope.MESSAGE_ATTRIBUTES);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the attribute value as SNS matches it: Number attributes as numbers, String.Array
+	 * attributes as arrays and all others as strings.
+	 *
+	 * @param dataType					the attribute data type.
+	 * @param value						the attribute string value.
+	 *
+	 * @return							the attribute node.
+	 */
+	private static JsonNode toAttributeNode(String dataType, String value) {
+		if(value == null) {
+			return JsonNodeFactory.instance.nullNode();
+		}
+
+		try {
+			if(dataType != null && dataType.startsWith("Number")) {
+				return JsonNodeFactory.instance.numberNode(new BigDecimal(value.trim()));
+			}
+			if("String.Array".equals(dataType)) {
+				JsonNode arrayNode = objectMapper.readTree(value);
+				if(arrayNode != null && arrayNode.isArray()) {
+					return arrayNode;
+				}
+			}
+		} catch(NumberFormatException | IOException e) {
+			//SNS matches malformed typed values as plain strings
+		}
+		return JsonNodeFactory.instance.textNode(value);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Validates the keys and operators of a policy so unsupported ones (i.e. cidr) are reported 
+	 * when the policy is created rather than on the first message carrying the attribute.
+	 *
+	 * @param policyNode				the policy or nested policy.
+	 *
+	 * @throws IllegalArgumentException	thrown when a key or operator cannot be evaluated locally.
+	 */
+	private static void validatePolicy(JsonNode policyNode) {
+		Iterator<Map.Entry<String, JsonNode>> keys = policyNode.fields();
+		while(keys.hasNext()) {
+			Map.Entry<String, JsonNode> key = keys.next();
+			JsonNode conditions = key.getValue();
+
+			if("$or".equals(key.getKey()) && conditions.isArray()) {
+				conditions.forEach(SNSFilterPolicy::validatePolicy);
+			} else if(conditions.isObject()) {
+				validatePolicy(conditions);
+			} else if(conditions.isArray()) {
+				for(JsonNode condition : conditions) {
+					if(condition.isObject()) {
+						validateOperator(condition);
+					}
+				}
+			} else {
+				throw new IllegalArgumentException(String.format(
+						"Filter policy key '%s' must map to an array or object", key.getKey()));
+			}
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Validates a single operator condition, i.e. {"prefix": "order-"}.
+	 *
+	 * @param condition					the operator condition.
+	 *
+	 * @throws IllegalArgumentException	thrown when the operator cannot be evaluated locally.
+	 */
+	private static void validateOperator(JsonNode condition) {
+		if(condition.size() != 1) {
+			throw new IllegalArgumentException(String.format(
+					"Filter policy condition '%s' must have a single operator", condition));
+		}
+
+		Map.Entry<String, JsonNode> operator = condition.fields().next();
+		switch(operator.getKey()) {
+			case "prefix":
+			case "suffix":
+			case "equals-ignore-case":
+			case "exists":
+				return;
+			case "anything-but":
+				if(operator.getValue().isObject()) {
+					validateOperator(operator.getValue());
+				}
+				return;
+			case "numeric":
+				JsonNode comparisons = operator.getValue();
+				for(int index = 0; index < comparisons.size(); index += 2) {
+					if(!comparisons.get(index).asText().matches("=|<|<=|>|>=")
+							|| index + 1 >= comparisons.size() || !comparisons.get(index + 1).isNumber()) {
+						throw new IllegalArgumentException(String.format(
+								"Numeric condition '%s' is not valid", comparisons));
+					}
+				}
+				return;
+			default:
+				throw new IllegalArgumentException(String.format(
+						"Filter policy operator '%s' is not supported locally", operator.getKey()));
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns whether or not the message node matches all keys of the policy node.
+	 *
+	 * @param policyNode				the policy or nested policy.
+	 * @param messageNode				the attributes or body object, or null when missing.
+	 *
+	 * @return							true when all keys match.
+	 */
+	private static boolean matchesPolicy(JsonNode policyNode, JsonNode messageNode) {
+		Iterator<Map.Entry<String, JsonNode>> keys = policyNode.fields();
+		while(keys.hasNext()) {
+			Map.Entry<String, JsonNode> key = keys.next();
+			JsonNode conditions = key.getValue();
+			boolean isMatch;
+
+			if("$or".equals(key.getKey())) {
+				isMatch = false;
+				for(JsonNode alternative : conditions) {
+					isMatch = isMatch || matchesPolicy(alternative, messageNode);
+				}
+			} else {
+				JsonNode value = messageNode == null ? null : messageNode.get(key.getKey());
+				if(conditions.isObject()) {
+					isMatch = value != null && value.isObject() && matchesPolicy(conditions, value);
+				} else {
+					isMatch = matchesAnyCondition(conditions, value);
+				}
+			}
+
+			if(!isMatch) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns whether or not any condition matches the value, or any element of an array value.
+	 *
+	 * @param conditions				the conditions of a policy key.
+	 * @param value						the message value, or null when missing.
+	 *
+	 * @return							true when a condition matches.
+	 */
+	private static boolean matchesAnyCondition(JsonNode conditions, JsonNode value) {
+		Iterable<JsonNode> candidates = value == null ? Collections.<JsonNode>emptyList()
+				: value.isArray() ? value : Collections.singletonList(value);
+
+		for(JsonNode condition : conditions) {
+			if(condition.isObject() && condition.has("exists")) {
+				if(condition.get("exists").asBoolean() == (value != null)) {
+					return true;
+				}
+				continue;
+			}
+			for(JsonNode candidate : candidates) {
+				if(matchesCondition(condition, candidate)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns whether or not a single condition matches a single value.
+	 *
+	 * @param condition					the condition.
+	 * @param candidate					the value.
+	 *
+	 * @return							true when the condition matches.
+	 */
+	private static boolean matchesCondition(JsonNode condition, JsonNode candidate) {
+		if(!condition.isObject()) {
+			return matchesExactly(condition, candidate);
+		}
+
+		Map.Entry<String, JsonNode> operator = condition.fields().next();
+		JsonNode operand = operator.getValue();
+		switch(operator.getKey()) {
+			case "prefix":
+				return candidate.isTextual() && candidate.asText().startsWith(operand.asText());
+			case "suffix":
+				return candidate.isTextual() && candidate.asText().endsWith(operand.asText());
+			case "equals-ignore-case":
+				return candidate.isTextual() && candidate.asText().equalsIgnoreCase(operand.asText());
+			case "anything-but":
+				if(operand.isObject()) {
+					return !matchesCondition(operand, candidate);
+				}
+				for(JsonNode excluded : operand.isArray() ? operand : Collections.singletonList(operand)) {
+					if(matchesExactly(excluded, candidate)) {
+						return false;
+					}
+				}
+				return true;
+			default:
+				return candidate.isNumber() && matchesNumeric(operand, candidate.decimalValue());
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns whether or not the value equals an exact condition; numbers compare by value.
+	 *
+	 * @param condition					the exact string, number, boolean or null condition.
+	 * @param candidate					the value.
+	 *
+	 * @return							true when equal.
+	 */
+	private static boolean matchesExactly(JsonNode condition, JsonNode candidate) {
+		if(condition.isNumber() && candidate.isNumber()) {
+			return condition.decimalValue().compareTo(candidate.decimalValue()) == 0;
+		}
+		return condition.equals(candidate);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns whether or not the number satisfies all comparisons of a numeric condition, i.e.
+	 * [">", 0, "<=", 150].
+	 *
+	 * @param comparisons				the operator and operand pairs.
+	 * @param number					the value.
+	 *
+	 * @return							true when all comparisons hold.
+	 */
+	private static boolean matchesNumeric(JsonNode comparisons, BigDecimal number) {
+		for(int index = 0; index + 1 < comparisons.size(); index += 2) {
+			int comparison = number.compareTo(comparisons.get(index + 1).decimalValue());
+			boolean isSatisfied;
+			switch(comparisons.get(index).asText()) {
+				case "=":	isSatisfied = comparison == 0; break;
+				case "<":	isSatisfied = comparison < 0; break;
+				case "<=":	isSatisfied = comparison <= 0; break;
+				case ">":	isSatisfied = comparison > 0; break;
+				default:	isSatisfied = comparison >= 0; break;
+			}
+			if(!isSatisfied) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * The outcome of replaying recorded notifications against a policy.
+	 */
+	public static class DryRunResult {
+
+		/**
+		 * The number of notifications replayed.
+		 */
+		private final long messageCount;
+
+		/**
+		 * The number of notifications the policy would deliver.
+		 */
+		private final long matchedCount;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param messageCount			the number of notifications replayed.
+		 * @param matchedCount			the number of notifications the policy would deliver.
+		 */
+		private DryRunResult(long messageCount, long matchedCount) {
+			this.messageCount = messageCount;
+			this.matchedCount = matchedCount;
+		}
+
+		/**
+		 * Returns the number of notifications replayed.
+		 *
+		 * @return						the number of notifications.
+		 */
+		public long getMessageCount() {
+			return messageCount;
+		}
+
+		/**
+		 * Returns the number of notifications the policy would deliver.
+		 *
+		 * @return						the number of delivered notifications.
+		 */
+		public long getMatchedCount() {
+			return matchedCount;
+		}
+
+		/**
+		 * Returns the fraction of notifications the policy would filter out.
+		 *
+		 * @return						the delivery reduction between 0 and 1.
+		 */
+		public double getDeliveryReduction() {
+			return messageCount == 0 ? 0 : 1 - (double) matchedCount / messageCount;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Policy delivers %d of %d messages; %.1f%% fewer deliveries",
+					matchedCount, messageCount, getDeliveryReduction() * 100);
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.yuelchen.sns;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * SNSTopicArnCache maps topic names to topic arns so SNS operations by topic name do not need a
+ * CreateTopic or ListTopics request before every call.
+ *
+ * The cache is seeded by topic creation and by every topic seen while listing topics; since a
+ * topic arn is derived from region, account and name, it stays valid for as long as the topic
+ * exists and is only removed when the topic is deleted. Hit and miss counters are kept so the
+ * saved round trips can be confirmed at runtime.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class SNSTopicArnCache {
+
+	/**
+	 * The cached topic arns mapped by topic name.
+	 */
+	private final ConcurrentMap<String, String> topicArns = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * The number of lookups answered from the cache.
+	 */
+	private final AtomicLong hitCount = new AtomicLong();
+
+	/**
+	 * The number of lookups which required listing topics.
+	 */
+	private final AtomicLong missCount = new AtomicLong();
+
+	//====================================================================================================
+
+	/**
+	 * Returns the topic arn for given topic name, resolving it on a miss; the resolver is expected
+	 * to seed the cache with every topic it comes across.
+	 *
+	 * @param topicName					the topic name.
+	 * @param resolver					the function resolving a topic name to its arn.
+	 *
+	 * @return							the topic arn.
+	 */
+	public String get(String topicName, Function<String, String> resolver) {
+		String topicArn = this.topicArns.get(topicName);
+		if(topicArn != null) {
+			this.hitCount.incrementAndGet();
+			return topicArn;
+		}
+
+		this.missCount.incrementAndGet();
+		topicArn = resolver.apply(topicName);
+		this.topicArns.put(topicName, topicArn);
+		return topicArn;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Caches given topic arn under the topic name it ends with.
+	 *
+	 * @param topicArn					the topic arn.
+	 */
+	public void put(String topicArn) {
+		this.topicArns.put(getTopicName(topicArn), topicArn);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Removes the cached topic arn for given topic name (i.e. after deleting the topic).
+	 *
+	 * @param topicName					the topic name.
+	 */
+	public void invalidate(String topicName) {
+		this.topicArns.remove(topicName);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Removes all cached topic arns.
+	 */
+	public void invalidateAll() {
+		this.topicArns.clear();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of lookups answered from the cache.
+	 *
+	 * @return							the hit count.
+	 */
+	public long getHitCount() {
+		return this.hitCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of lookups which required listing topics.
+	 *
+	 * @return							the miss count.
+	 */
+	public long getMissCount() {
+		return this.missCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of cached topic arns.
+	 *
+	 * @return							the number of cached topic arns.
+	 */
+	public int size() {
+		return this.topicArns.size();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the topic name of given topic arn, i.e. its last colon separated part.
+	 *
+	 * @param topicArn					the topic arn.
+	 *
+	 * @return							the topic name.
+	 */
+	public static String getTopicName(String topicArn) {
+		return topicArn.substring(topicArn.lastIndexOf(':') + 1);
+	}
+}
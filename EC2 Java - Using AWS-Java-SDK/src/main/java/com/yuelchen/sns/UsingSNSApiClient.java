@@ -1,5 +1,9 @@
 package com.yuelchen.sns;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 
  * @author 	Yue Chen
@@ -9,11 +13,38 @@ package com.yuelchen.sns;
 public class UsingSNSApiClient {
 	
 	/**
-	 * The main method. 
+	 * The main method; publishes the given number of messages to the given topic through the 
+	 * batching publish path and prints the throughput. Point it at a local SNS stand-in with 
+	 * -Daws.local.endpoint=http://localhost:4566. 
 	 * 
-	 * @param args			an array of Strings as main method arguments.
+	 * @param args			an array of Strings as main method arguments; the topic arn and 
+	 * 						optionally the number of messages (default 10000).
 	 */
 	public static void main(String[] args) {
+		if(args.length < 1) {
+			System.out.println("Usage: UsingSNSApiClient <topic arn> [message count]");
+			return;
+		}
+		
+		String topicArn = args[0];
+		int messageCount = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		
+		long startTime = System.nanoTime();
+		List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>();
+		for(int index = 0; index < messageCount; index++) {
+			String message = String.format("message-%d", index);
+			futures.add(SNSBatchPublisher.isFIFOTopic(topicArn)
+					? SNSApiClient.publishFIFOMessageAsync(topicArn, message, "group-" + (index % 10), 
+							message, null)
+					: SNSApiClient.publishMessageAsync(topicArn, message, null));
+		}
 		
+		long failedCount = futures.stream()
+				.filter(future -> future.handle((messageId, e) -> e != null).join())
+				.count();
+		double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+		System.out.println(String.format("Published %d messages (%d failed) to topic '%s' in %.2f s; "
+				+ "%.0f messages/s", messageCount, failedCount, topicArn, elapsedSeconds, 
+				messageCount / elapsedSeconds));
 	}
-}
\ No newline at end of file
+}
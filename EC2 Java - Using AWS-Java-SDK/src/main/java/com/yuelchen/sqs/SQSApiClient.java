@@ -2,19 +2,22 @@ package com.yuelchen.sqs;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.SdkClientException;
 import com.amazonaws.services.sqs.AmazonSQS;
-import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
 import com.amazonaws.services.sqs.model.CreateQueueRequest;
 import com.amazonaws.services.sqs.model.CreateQueueResult;
 import com.amazonaws.services.sqs.model.DeleteMessageRequest;
 import com.amazonaws.services.sqs.model.Message;
-import com.amazonaws.services.sqs.model.PurgeQueueRequest;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import com.amazonaws.services.sqs.model.SendMessageRequest;
 import com.amazonaws.services.sqs.model.SendMessageResult;
+import com.yuelchen.client.AwsClientFactory;
 
 /**
  * Amazon SQS API client handler for performing SQS operations. 
@@ -26,9 +29,15 @@ import com.amazonaws.services.sqs.model.SendMessageResult;
 public class SQSApiClient {
 	
 	/**
-	 * The default Amazon SQS Client. 
+	 * The Amazon SQS Client, built from the SQS client profile. 
 	 */
-	private static AmazonSQS amazonSQSClient = AmazonSQSClientBuilder.defaultClient();
+	private static AmazonSQS amazonSQSClient = AwsClientFactory.newSQSClient();
+	
+	/**
+	 * The cache of queue urls by queue name. 
+	 */
+	private static SQSQueueUrlCache queueUrlCache = 
+			new SQSQueueUrlCache(SQSQueueUrlCache.DEFAULT_TTL_MILLIS);
 	
 	//====================================================================================================
     
@@ -37,10 +46,67 @@ public class SQSApiClient {
      */
     private SQSApiClient() {}
     
+    //====================================================================================================
+    
+    /**
+     * Returns the Amazon SQS Client shared by SQS engines within this package. 
+     * 
+     * @return							the Amazon SQS Client.
+     */
+    static AmazonSQS getAmazonSQSClient() {
+    	return amazonSQSClient;
+    }
+    
+    //====================================================================================================
+    
+    /**
+     * Replaces the Amazon SQS Client, i.e. one built with a tuned profile from AwsClientFactory; 
+     * cached queue urls are dropped since they may belong to another endpoint. SQS engines 
+     * created afterwards use the new client. 
+     * 
+     * @param sqsClient					the Amazon SQS Client.
+     */
+    public static void setAmazonSQSClient(AmazonSQS sqsClient) {
+    	amazonSQSClient = sqsClient;
+    	queueUrlCache.invalidateAll();
+    }
+    
+    //====================================================================================================
+    
+    /**
+     * Returns the queue url cache, i.e. for reading hit and miss counters. 
+     * 
+     * @return							the queue url cache.
+     */
+    public static SQSQueueUrlCache getQueueUrlCache() {
+    	return queueUrlCache;
+    }
+    
     //====================================================================================================
 	
 	/**
-	 * Returns the queue url for the given queue name. 
+	 * Returns the result of the given request against a queue; a cached url for a queue which 
+	 * no longer exists is evicted before the error reaches the caller. 
+	 * 
+	 * @param queueName					the queue name the request was made for.
+	 * @param request					the request to be made.
+	 * 
+	 * @return							the request result.
+	 */
+	static <T> T invokeOnQueue(String queueName, Supplier<T> request) {
+		try {
+			return request.get();
+		} catch(QueueDoesNotExistException e) {
+			queueUrlCache.invalidate(queueName);
+			throw e;
+		}
+	}
+    
+    //====================================================================================================
+	
+	/**
+	 * Returns the queue url for the given queue name; served from the queue url cache when 
+	 * the queue has been resolved or created within the cache time to live. 
 	 * 
 	 * @param queueName					the queue name.
 	 * 
@@ -52,7 +118,8 @@ public class SQSApiClient {
 	 */
 	public static String getQueueUrl(String queueName) 
 			throws AmazonServiceException, SdkClientException {
-		return amazonSQSClient.getQueueUrl(queueName).getQueueUrl();
+		return queueUrlCache.get(queueName, 
+				name -> amazonSQSClient.getQueueUrl(name).getQueueUrl());
 	}
 	
 	//====================================================================================================
@@ -74,6 +141,8 @@ public class SQSApiClient {
 		CreateQueueRequest createQueueRequest = new CreateQueueRequest(queueName);
 		CreateQueueResult createQueueResult = amazonSQSClient.createQueue(createQueueRequest);
 		
+		queueUrlCache.put(queueName, createQueueResult.getQueueUrl());
+		
 		System.out.println(String.format("Successfully create queue with name '%s'", queueName));		
 		return createQueueResult.getQueueUrl();
 	}
@@ -98,6 +167,7 @@ public class SQSApiClient {
 		CreateQueueRequest createQueueRequest = new CreateQueueRequest(queueName)
 				.withAttributes(attributes);
 		CreateQueueResult createQueueResult = amazonSQSClient.createQueue(createQueueRequest);
+		queueUrlCache.put(queueName, createQueueResult.getQueueUrl());
 		
 		System.out.println(String.format("Successfully create queue with name '%s' and '%d' "
 				+ "attributes", queueName, attributes.size()));
@@ -124,7 +194,8 @@ public class SQSApiClient {
 				.withQueueUrl(queueUrl)
 				.withMessageBody(messageBody);
 		
-		SendMessageResult sendMessageResult = amazonSQSClient.sendMessage(sendMessageRequest);
+		SendMessageResult sendMessageResult = invokeOnQueue(queueName, 
+				() -> amazonSQSClient.sendMessage(sendMessageRequest));
 		System.out.println(String.format("Successfully published message to standard queue with url "
 				+ "'%s' and recieved message Id '%s'", queueUrl, sendMessageResult.getMessageId()));
 	}
@@ -149,7 +220,8 @@ public class SQSApiClient {
 				.withQueueUrl(queueUrl)
 				.withMessageBody(message.getBody());
 		
-		SendMessageResult sendMessageResult = amazonSQSClient.sendMessage(sendMessageRequest);
+		SendMessageResult sendMessageResult = invokeOnQueue(queueName, 
+				() -> amazonSQSClient.sendMessage(sendMessageRequest));
 		System.out.println(String.format("Successfully published message to standard queue with url "
 				+ "'%s' and recieved message Id '%s'", queueUrl, sendMessageResult.getMessageId()));
 	}
@@ -176,7 +248,8 @@ public class SQSApiClient {
 				.withMessageBody(messageBody)
 				.withMessageGroupId(id);
 		
-		SendMessageResult sendMessageResult = amazonSQSClient.sendMessage(sendMessageRequest);
+		SendMessageResult sendMessageResult = invokeOnQueue(queueName, 
+				() -> amazonSQSClient.sendMessage(sendMessageRequest));
 		System.out.println(String.format("Successfully published message to FIFO queue with url "
 				+ "'%s' and recieved message Id '%s'", queueUrl, sendMessageResult.getMessageId()));
 	}
@@ -203,7 +276,8 @@ public class SQSApiClient {
 				.withMessageBody(message.getBody())
 				.withMessageGroupId(id);
 		
-		SendMessageResult sendMessageResult = amazonSQSClient.sendMessage(sendMessageRequest);
+		SendMessageResult sendMessageResult = invokeOnQueue(queueName, 
+				() -> amazonSQSClient.sendMessage(sendMessageRequest));
 		System.out.println(String.format("Successfully published message to FIFO queue with url "
 				+ "'%s' and recieved message Id '%s'", queueUrl, sendMessageResult.getMessageId()));
 	}
@@ -230,8 +304,8 @@ public class SQSApiClient {
 				.withQueueUrl(queueUrl)
 				.withMaxNumberOfMessages(maxNumberOfMessages);
 		
-		ReceiveMessageResult receiveMessageResult = 
-				amazonSQSClient.receiveMessage(receiveMessageRequest);
+		ReceiveMessageResult receiveMessageResult = invokeOnQueue(queueName, 
+				() -> amazonSQSClient.receiveMessage(receiveMessageRequest));
 		System.out.println(String.format("Successfully polled '%d' messages from queue with url "
 				+ "'%s'", receiveMessageResult.getMessages().size() ,queueUrl));
 		return receiveMessageResult.getMessages();
@@ -239,6 +313,66 @@ public class SQSApiClient {
 	
 	//====================================================================================================
 	
+	/**
+	 * Returns a list of messages from long polling queue with given name; the request waits up 
+	 * to the given time for messages to arrive instead of returning immediately when empty. 
+	 * 
+	 * @param queueName					the queue to be polled for messages.
+	 * @param maxNumberOfMessages		the max number of messages preferred (does not guarantee). 
+	 * @param waitTimeSeconds			the long poll wait time in seconds (between 0 and 20). 
+	 * 
+	 * @return							a list of messages.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but SQS could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to SQS.
+	 */
+	public static List<Message> pollMessage(String queueName, int maxNumberOfMessages, int waitTimeSeconds) 
+			throws AmazonServiceException, SdkClientException {
+		
+		return pollMessage(queueName, maxNumberOfMessages, waitTimeSeconds, 0);
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a list of messages from long polling queue with given name, kept invisible for the 
+	 * given visibility timeout instead of the queue's default. 
+	 * 
+	 * @param queueName					the queue to be polled for messages.
+	 * @param maxNumberOfMessages		the max number of messages preferred (does not guarantee). 
+	 * @param waitTimeSeconds			the long poll wait time in seconds (between 0 and 20). 
+	 * @param visibilityTimeoutSeconds	the visibility timeout in seconds of received messages, or 0 
+	 * 									for the queue's visibility timeout.
+	 * 
+	 * @return							a list of messages.
+	 * 
+	 * @throws AmazonServiceException	thrown when call was successfully sent but SQS could not process
+     * 									the requested action.
+     * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to SQS.
+	 */
+	public static List<Message> pollMessage(String queueName, int maxNumberOfMessages, int waitTimeSeconds, 
+			int visibilityTimeoutSeconds) throws AmazonServiceException, SdkClientException {
+		
+		String queueUrl = getQueueUrl(queueName);
+		ReceiveMessageRequest receiveMessageRequest = new ReceiveMessageRequest()
+				.withQueueUrl(queueUrl)
+				.withMaxNumberOfMessages(maxNumberOfMessages)
+				.withWaitTimeSeconds(waitTimeSeconds);
+		if(visibilityTimeoutSeconds > 0) {
+			receiveMessageRequest.setVisibilityTimeout(visibilityTimeoutSeconds);
+		}
+		
+		ReceiveMessageResult receiveMessageResult = invokeOnQueue(queueName, 
+				() -> amazonSQSClient.receiveMessage(receiveMessageRequest));
+		System.out.println(String.format("Successfully polled '%d' messages from queue with url "
+				+ "'%s' waiting up to '%d' seconds", receiveMessageResult.getMessages().size(), 
+				queueUrl, waitTimeSeconds));
+		return receiveMessageResult.getMessages();
+	}
+	
+	//====================================================================================================
+	
 	/**
 	 * Deletes the message corresponding to the given receiptHandle from given queue. 
 	 * 
@@ -257,7 +391,7 @@ public class SQSApiClient {
 				.withQueueUrl(queueUrl)
 				.withReceiptHandle(receiptHandle);
 		
-		amazonSQSClient.deleteMessage(deleteMessageRequest);
+		invokeOnQueue(queueName, () -> amazonSQSClient.deleteMessage(deleteMessageRequest));
 		System.out.println(String.format("Successfully deleted message with receipt handler "
 				+ "'%s' from queue with url '%s'", receiptHandle, queueUrl));
 	}
@@ -282,7 +416,7 @@ public class SQSApiClient {
 				.withQueueUrl(queueUrl)
 				.withReceiptHandle(message.getReceiptHandle());
 		
-		amazonSQSClient.deleteMessage(deleteMessageRequest);
+		invokeOnQueue(queueName, () -> amazonSQSClient.deleteMessage(deleteMessageRequest));
 		System.out.println(String.format("Successfully deleted message with receipt handler '%s' "
 				+ "from queue with url '%s'", message.getReceiptHandle(), queueUrl));
 	}
@@ -290,8 +424,41 @@ public class SQSApiClient {
 	//====================================================================================================
 	
 	/**
-	 * Purges all messages from given queue; wait time to 60 seconds as recommended in 
-	 * Amazon SQS developer documentation. 
+	 * Returns a future completed once the message corresponding to the given receiptHandle is 
+	 * deleted; deletions are buffered and sent as DeleteMessageBatch requests by a shared 
+	 * delete buffer, which is flushed when the JVM shuts down. 
+	 * 
+	 * @param queueName					the queue name.
+	 * @param receiptHandle				the receipt handle for message.
+	 * 
+	 * @return							a future completed when the message is deleted, or 
+	 * 									exceptionally with the per-entry error.
+	 */
+	public static CompletableFuture<Void> deleteMessageAsync(String queueName, String receiptHandle) {
+		return SharedDeleteBuffer.deleteBuffer.delete(queueName, receiptHandle);
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future completed once the message is deleted from given queue; see 
+	 * deleteMessageAsync(String, String). 
+	 * 
+	 * @param queueName					the queue name.
+	 * @param message					the message to be deleted.
+	 * 
+	 * @return							a future completed when the message is deleted, or 
+	 * 									exceptionally with the per-entry error.
+	 */
+	public static CompletableFuture<Void> deleteMessageAsync(String queueName, Message message) {
+		return deleteMessageAsync(queueName, message.getReceiptHandle());
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Purges all messages from given queue and blocks until the purge has settled; see 
+	 * purgeQueueMessagesAsync(String...). 
 	 * 
 	 * @param queueName					the queue name. 
 	 * 
@@ -302,25 +469,36 @@ public class SQSApiClient {
 	public static void purgeQueueMessages(String queueName) 
 			throws AmazonServiceException, SdkClientException {
 		
-		String queueUrl = getQueueUrl(queueName);
-		PurgeQueueRequest purgeQueueRequest = new PurgeQueueRequest()
-				.withQueueUrl(queueUrl);
-		
-		amazonSQSClient.purgeQueue(purgeQueueRequest);
 		try {
-			Thread.sleep(60000);
-			System.out.println(String.format("Successfully purged queue with name '%s' and waited "
-					+ "for 60 seconds as recommended by Amazon in Java SDK Docs", queueName));
-		} catch(InterruptedException e) {
-			System.out.println(String.format("Successfully purged queue with name '%s' but failed "
-					+ "to wait for 60 seconds as recommended by Amazon in Java SDK Docs", queueName));
+			purgeQueueMessagesAsync(queueName).get(queueName).join();
+		} catch(CompletionException e) {
+			if(e.getCause() instanceof SdkClientException) {
+				throw (SdkClientException) e.getCause();
+			}
+			throw e;
 		}
 	}
 	
 	//====================================================================================================
 	
 	/**
-	 * Deletes the queue with the given name. 
+	 * Purges all messages from given queues in parallel; each future completes once the queue 
+	 * reports no visible or in-flight messages, polled with backoff, or at the latest after the 
+	 * 60 seconds a purge can take according to Amazon SQS developer documentation. 
+	 * 
+	 * @param queueNames				the queue names. 
+	 * 
+	 * @return							a future per queue name, completed when its purge has 
+	 * 									settled or exceptionally when the purge failed.
+	 */
+	public static Map<String, CompletableFuture<Void>> purgeQueueMessagesAsync(String... queueNames) {
+		return SharedQueuePurger.queuePurger.purge(queueNames);
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Deletes the queue with the given name and evicts its cached queue url. 
 	 * 
 	 * @param queueName					the queue name. 
 	 * 
@@ -331,7 +509,42 @@ public class SQSApiClient {
 	public static void deleteQueue(String queueName) 
 			throws AmazonServiceException, SdkClientException {
 		
-		amazonSQSClient.deleteQueue(queueName);	
+		String queueUrl = getQueueUrl(queueName);
+		try {
+			amazonSQSClient.deleteQueue(queueUrl);
+		} finally {
+			queueUrlCache.invalidate(queueName);
+		}
 		System.out.println(String.format("Successfully deleted queue with name '%s'", queueName));
 	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Holder of the shared delete buffer; created on first asynchronous delete. 
+	 */
+	private static class SharedDeleteBuffer {
+		
+		/**
+		 * The delete buffer shared by asynchronous deletes. 
+		 */
+		private static final SQSDeleteBuffer deleteBuffer = new SQSDeleteBuffer();
+		
+		static {
+			Runtime.getRuntime().addShutdownHook(new Thread(deleteBuffer::close, "sqs-delete-shutdown"));
+		}
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Holder of the shared queue purger; created on first purge. 
+	 */
+	private static class SharedQueuePurger {
+		
+		/**
+		 * The queue purger shared by purges. 
+		 */
+		private static final SQSQueuePurger queuePurger = new SQSQueuePurger();
+	}
 }
\ No newline at end of file
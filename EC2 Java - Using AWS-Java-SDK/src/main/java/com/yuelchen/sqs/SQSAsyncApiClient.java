@@ -0,0 +1,167 @@
+package com.yuelchen.sqs;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import com.amazonaws.services.sqs.model.Message;
+import com.yuelchen.client.AsyncApiExecutor;
+
+/**
+ * Asynchronous facade of SQSApiClient; each method runs the blocking SQS call of the same name 
+ * on an AsyncApiExecutor and returns a future of its result, completed exceptionally with the 
+ * exception the call threw. 
+ * 
+ * Deletes and purges are asynchronous in SQSApiClient already (deleteMessageAsync and 
+ * purgeQueueMessagesAsync) and are not mirrored.
+ * 
+ * Per-call timeouts are applied with AsyncApiExecutor.orTimeout, i.e. 
+ * orTimeout(SQSAsyncApiClient.getQueueUrl(...), 5, TimeUnit.SECONDS); cancelling or timing out a 
+ * returned future interrupts the call. 
+ * 
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class SQSAsyncApiClient {
+	
+	/**
+	 * The executor running the calls; the shared executor unless replaced. 
+	 */
+	private static AsyncApiExecutor asyncApiExecutor = AsyncApiExecutor.getSharedExecutor();
+	
+	//====================================================================================================
+	
+	/**
+	 * Private constructor.
+	 */
+	private SQSAsyncApiClient() {}
+	
+	//====================================================================================================
+	
+	/**
+	 * Replaces the executor running the calls, i.e. one with more threads or a default timeout. 
+	 * 
+	 * @param executor					the executor.
+	 */
+	public static void setAsyncApiExecutor(AsyncApiExecutor executor) {
+		asyncApiExecutor = executor;
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the queue url for given queue name; see 
+	 * SQSApiClient.getQueueUrl(String). 
+	 * 
+	 * @param queueName					the queue name.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<String> getQueueUrl(String queueName) {
+		return asyncApiExecutor.submit(() -> SQSApiClient.getQueueUrl(queueName));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the url of the queue created with given name; see 
+	 * SQSApiClient.createQueue(String). 
+	 * 
+	 * @param queueName					the queue name.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<String> createQueue(String queueName) {
+		return asyncApiExecutor.submit(() -> SQSApiClient.createQueue(queueName));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the url of the queue created with given attributes; see 
+	 * SQSApiClient.createQueueWithAttributes(String, Map<String, String>). 
+	 * 
+	 * @param queueName					the queue name.
+	 * @param attributes				the queue attributes.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<String> createQueueWithAttributes(String queueName,
+			Map<String, String> attributes) {
+		return asyncApiExecutor.submit(() -> 
+				SQSApiClient.createQueueWithAttributes(queueName, attributes));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future completed once the message is sent to a standard queue; see 
+	 * SQSApiClient.publishStandardMessage(String, String). 
+	 * 
+	 * @param queueName					the queue name.
+	 * @param messageBody				the message body.
+	 * 
+	 * @return							a future of the completion.
+	 */
+	public static CompletableFuture<Void> publishStandardMessage(String queueName,
+			String messageBody) {
+		return asyncApiExecutor.submit(() -> {
+			SQSApiClient.publishStandardMessage(queueName, messageBody);
+			return null;
+		});
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future completed once the message is sent to a FIFO queue; see 
+	 * SQSApiClient.publishFIFOMessage(String, String, String). 
+	 * 
+	 * @param queueName					the queue name.
+	 * @param messageBody				the message body.
+	 * @param id						the message group and deduplication id.
+	 * 
+	 * @return							a future of the completion.
+	 */
+	public static CompletableFuture<Void> publishFIFOMessage(String queueName, String messageBody,
+			String id) {
+		return asyncApiExecutor.submit(() -> {
+			SQSApiClient.publishFIFOMessage(queueName, messageBody, id);
+			return null;
+		});
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future of the messages received from given queue; see 
+	 * SQSApiClient.pollMessage(String, int, int). 
+	 * 
+	 * @param queueName					the queue name.
+	 * @param maxNumberOfMessages		the maximum number of messages.
+	 * @param waitTimeSeconds			the long poll wait time in seconds.
+	 * 
+	 * @return							a future of the result.
+	 */
+	public static CompletableFuture<List<Message>> pollMessage(String queueName,
+			int maxNumberOfMessages, int waitTimeSeconds) {
+		return asyncApiExecutor.submit(() -> 
+				SQSApiClient.pollMessage(queueName, maxNumberOfMessages, waitTimeSeconds));
+	}
+	
+	//====================================================================================================
+	
+	/**
+	 * Returns a future completed once the queue is deleted; see SQSApiClient.deleteQueue(String). 
+	 * 
+	 * @param queueName					the queue name.
+	 * 
+	 * @return							a future of the completion.
+	 */
+	public static CompletableFuture<Void> deleteQueue(String queueName) {
+		return asyncApiExecutor.submit(() -> {
+			SQSApiClient.deleteQueue(queueName);
+			return null;
+		});
+	}
+}
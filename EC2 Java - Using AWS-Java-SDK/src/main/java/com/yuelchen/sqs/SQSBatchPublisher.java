@@ -0,0 +1,248 @@
+package com.yuelchen.sqs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
+import com.yuelchen.client.BatchPublisher;
+
+/**
+ * SQSBatchPublisher buffers messages for a single queue and publishes them with SendMessageBatch
+ * requests of up to 10 entries and 256 KB.
+ *
+ * A batch is sent once it is full or once the linger time has passed since its first message.
+ * Every published message gets a future completed with its message Id; entries which fail within
+ * a partially successful batch are retried on their own, unless SQS reports a sender fault.
+ *
+ * For FIFO queues batches are sent one at a time, with retries completed before the next batch,
+ * so messages of a group keep their order; deduplication Ids make the retries safe. Batching,
+ * lingering and retries are shared with SNSBatchPublisher through BatchPublisher.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class SQSBatchPublisher extends BatchPublisher<SendMessageBatchRequestEntry, SendMessageBatchResult> {
+
+	/**
+	 * The Amazon SQS Client.
+	 */
+	private final AmazonSQS amazonSQSClient;
+
+	/**
+	 * The queue name messages are published to.
+	 */
+	private final String queueName;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor using default linger time, attempts and sender threads.
+	 *
+	 * @param queueName					the queue name messages are published to.
+	 */
+	public SQSBatchPublisher(String queueName) {
+		this(queueName, DEFAULT_LINGER_MILLIS, DEFAULT_MAX_ATTEMPTS, DEFAULT_SENDER_THREADS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor with its own sender threads.
+	 *
+	 * @param queueName					the queue name messages are published to.
+	 * @param lingerMillis				the linger time in milliseconds before a partial batch is sent.
+	 * @param maxAttempts				the maximum number of send attempts for each message.
+	 * @param senderThreads				the number of batches sent concurrently; always one for
+	 * 									FIFO queues.
+	 */
+	public SQSBatchPublisher(String queueName, long lingerMillis, int maxAttempts, int senderThreads) {
+		this(queueName, lingerMillis, maxAttempts, senderThreads, newSenderExecutor("sqs-batch-sender",
+				isFIFOQueue(queueName) ? 1 : senderThreads), true);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor sending batches on a shared executor (see BatchPublisher.newSenderExecutor),
+	 * which close leaves running.
+	 *
+	 * @param queueName					the queue name messages are published to.
+	 * @param lingerMillis				the linger time in milliseconds before a partial batch is sent.
+	 * @param maxAttempts				the maximum number of send attempts for each message.
+	 * @param maxSendingBatches			the number of batches sent concurrently; always one for
+	 * 									FIFO queues.
+	 * @param senderExecutor			the shared executor sending batches.
+	 */
+	public SQSBatchPublisher(String queueName, long lingerMillis, int maxAttempts, int maxSendingBatches,
+			ExecutorService senderExecutor) {
+		this(queueName, lingerMillis, maxAttempts, maxSendingBatches, senderExecutor, false);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param queueName					the queue name messages are published to.
+	 * @param lingerMillis				the linger time in milliseconds before a partial batch is sent.
+	 * @param maxAttempts				the maximum number of send attempts for each message.
+	 * @param maxSendingBatches			the number of batches sent concurrently; always one for
+	 * 									FIFO queues.
+	 * @param senderExecutor			the executor sending batches.
+	 * @param isSenderExecutorOwned		true if close shuts down the executor.
+	 */
+	private SQSBatchPublisher(String queueName, long lingerMillis, int maxAttempts, int maxSendingBatches,
+			ExecutorService senderExecutor, boolean isSenderExecutorOwned) {
+		super("queue", queueName, lingerMillis, maxAttempts, isFIFOQueue(queueName) ? 1 : maxSendingBatches,
+				senderExecutor, isSenderExecutorOwned);
+		this.amazonSQSClient = SQSApiClient.getAmazonSQSClient();
+		this.queueName = queueName;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a future of the message Id after publishing the message to a standard queue.
+	 *
+	 * @param messageBody				the content to be published.
+	 *
+	 * @return							a future completed with the message Id.
+	 */
+	public CompletableFuture<String> publish(String messageBody) {
+		return this.enqueue(new SendMessageBatchRequestEntry()
+				.withMessageBody(messageBody));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a future of the message Id after publishing the message to a FIFO queue.
+	 *
+	 * @param messageBody				the content to be published.
+	 * @param groupId					the message group Id.
+	 * @param deduplicationId			the deduplication Id, or null when the queue uses
+	 * 									content-based deduplication.
+	 *
+	 * @return							a future completed with the message Id.
+	 */
+	public CompletableFuture<String> publishFIFO(String messageBody, String groupId, String deduplicationId) {
+		return this.enqueue(new SendMessageBatchRequestEntry()
+				.withMessageBody(messageBody)
+				.withMessageGroupId(groupId)
+				.withMessageDeduplicationId(deduplicationId));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the payload size in bytes of the message body.
+	 *
+	 * @param entry						the batch entry.
+	 *
+	 * @return							the payload size in bytes.
+	 */
+	@Override
+	protected int getPayloadBytes(SendMessageBatchRequestEntry entry) {
+		return entry.getMessageBody().getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Sets the Id of the entry within its batch request.
+	 *
+	 * @param entry						the batch entry.
+	 * @param entryId					the entry Id.
+	 */
+	@Override
+	protected void setEntryId(SendMessageBatchRequestEntry entry, String entryId) {
+		entry.setId(entryId);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the result of sending the given entries as one SendMessageBatch request.
+	 *
+	 * @param entries					the batch entries with Ids.
+	 *
+	 * @return							the batch result.
+	 *
+	 * @throws AmazonServiceException	thrown when call was successfully sent but SQS could not process
+	 * 									the requested action.
+	 * @throws SdkClientException		thrown when call couldn't be reached or wasn't unknown to SQS.
+	 */
+	@Override
+	protected SendMessageBatchResult sendBatchRequest(List<SendMessageBatchRequestEntry> entries)
+			throws AmazonServiceException, SdkClientException {
+
+		String queueUrl = SQSApiClient.getQueueUrl(this.queueName);
+		SendMessageBatchRequest sendMessageBatchRequest = new SendMessageBatchRequest()
+				.withQueueUrl(queueUrl)
+				.withEntries(entries);
+		return SQSApiClient.invokeOnQueue(this.queueName,
+				() -> this.amazonSQSClient.sendMessageBatch(sendMessageBatchRequest));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the message Ids of the successful entries of a batch result.
+	 *
+	 * @param sendMessageBatchResult	the batch result.
+	 *
+	 * @return							the message Ids mapped by entry Id.
+	 */
+	@Override
+	protected Map<String, String> getMessageIds(SendMessageBatchResult sendMessageBatchResult) {
+		Map<String, String> messageIds = new HashMap<String, String>();
+		for(SendMessageBatchResultEntry resultEntry : sendMessageBatchResult.getSuccessful()) {
+			messageIds.put(resultEntry.getId(), resultEntry.getMessageId());
+		}
+		return messageIds;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the failed entries of a batch result.
+	 *
+	 * @param sendMessageBatchResult	the batch result.
+	 *
+	 * @return							the failed entries.
+	 */
+	@Override
+	protected List<FailedEntry> getFailedEntries(SendMessageBatchResult sendMessageBatchResult) {
+		List<FailedEntry> failedEntries = new ArrayList<FailedEntry>();
+		for(BatchResultErrorEntry errorEntry : sendMessageBatchResult.getFailed()) {
+			failedEntries.add(new FailedEntry(errorEntry.getId(), errorEntry.getCode(),
+					errorEntry.getMessage(), errorEntry.getSenderFault()));
+		}
+		return failedEntries;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns true if the queue name is of a FIFO queue.
+	 *
+	 * @param queueName					the queue name.
+	 *
+	 * @return							true if FIFO queue, false if standard queue.
+	 */
+	private static boolean isFIFOQueue(String queueName) {
+		return queueName.endsWith(".fifo");
+	}
+}
@@ -0,0 +1,448 @@
+package com.yuelchen.sqs;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.sqs.model.Message;
+
+/**
+ * SQSConsumer is a managed consumer which long polls a queue with several concurrent receivers
+ * and hands every message to a bounded pool of workers.
+ *
+ * Receivers only request as many messages as there are free worker slots, so a saturated pool
+ * stops receiving instead of letting visibility timeouts run out in a local queue. Messages
+ * are deleted through an SQSDeleteBuffer once their handler returns without an exception;
+ * failed messages are left to reappear after their visibility timeout, and failed deletes are
+ * counted and logged since those messages reappear as well. When a visibility
+ * timeout is given, an SQSVisibilityExtender keeps messages invisible while their handler runs.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class SQSConsumer implements AutoCloseable {
+
+	/**
+	 * The maximum number of messages a single receive request can return.
+	 */
+	public static final int MAX_RECEIVE_MESSAGES = 10;
+
+	/**
+	 * The default long poll wait time in seconds.
+	 */
+	public static final int DEFAULT_WAIT_TIME_SECONDS = 20;
+
+	/**
+	 * The delay in milliseconds before a receiver polls again after a failed receive.
+	 */
+	private static final long RECEIVE_ERROR_DELAY = 1000;
+
+	/**
+	 * The handler of consumed messages; a message is deleted when the handler returns and left
+	 * on the queue when it throws.
+	 */
+	@FunctionalInterface
+	public interface MessageHandler {
+
+		/**
+		 * Handles a consumed message.
+		 *
+		 * @param message				the consumed message.
+		 *
+		 * @throws Exception			thrown when the message could not be handled.
+		 */
+		void handle(Message message) throws Exception;
+	}
+
+	/**
+	 * The queue name to be consumed.
+	 */
+	private final String queueName;
+
+	/**
+	 * The handler of consumed messages.
+	 */
+	private final MessageHandler messageHandler;
+
+	/**
+	 * The number of concurrent receivers.
+	 */
+	private final int receiverCount;
+
+	/**
+	 * The long poll wait time in seconds.
+	 */
+	private final int waitTimeSeconds;
+
+	/**
+	 * The visibility timeout in seconds requested on receive and set by every extension, or 0 for
+	 * the queue's visibility timeout.
+	 */
+	private final int visibilityTimeoutSeconds;
+
+	/**
+	 * The free slots in the worker pool and its queue; receivers never hold more messages than
+	 * there are slots.
+	 */
+	private final Semaphore workerSlots;
+
+	/**
+	 * The executor running receivers.
+	 */
+	private final ExecutorService receiverExecutor;
+
+	/**
+	 * The executor running message handlers.
+	 */
+	private final ExecutorService workerExecutor;
+
+	/**
+	 * The buffer deleting successfully handled messages.
+	 */
+	private final SQSDeleteBuffer deleteBuffer;
+
+	/**
+	 * The extender keeping messages invisible while their handler is running, or null if the
+	 * queue's visibility timeout is left unchanged.
+	 */
+	private final SQSVisibilityExtender visibilityExtender;
+
+	/**
+	 * Whether receivers should keep polling.
+	 */
+	private volatile boolean isRunning = false;
+
+	/**
+	 * The number of receive requests made.
+	 */
+	private final AtomicLong receiveCount = new AtomicLong();
+
+	/**
+	 * The number of receive requests which returned no messages.
+	 */
+	private final AtomicLong emptyReceiveCount = new AtomicLong();
+
+	/**
+	 * The number of messages received.
+	 */
+	private final AtomicLong receivedCount = new AtomicLong();
+
+	/**
+	 * The number of messages handled successfully.
+	 */
+	private final AtomicLong processedCount = new AtomicLong();
+
+	/**
+	 * The number of messages whose handler failed.
+	 */
+	private final AtomicLong failedCount = new AtomicLong();
+
+	/**
+	 * The number of handled messages whose delete failed; they reappear after their visibility
+	 * timeout and are handled again.
+	 */
+	private final AtomicLong failedDeleteCount = new AtomicLong();
+
+	//====================================================================================================
+
+	/**
+	 * Constructor using the default long poll wait time.
+	 *
+	 * @param queueName					the queue name to be consumed.
+	 * @param messageHandler			the handler of consumed messages.
+	 * @param receiverCount				the number of concurrent receivers.
+	 * @param workerCount				the number of concurrent message handlers.
+	 */
+	public SQSConsumer(String queueName, MessageHandler messageHandler, int receiverCount, int workerCount) {
+		this(queueName, messageHandler, receiverCount, workerCount, DEFAULT_WAIT_TIME_SECONDS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param queueName					the queue name to be consumed.
+	 * @param messageHandler			the handler of consumed messages.
+	 * @param receiverCount				the number of concurrent receivers.
+	 * @param workerCount				the number of concurrent message handlers.
+	 * @param waitTimeSeconds			the long poll wait time in seconds (between 0 and 20).
+	 */
+	public SQSConsumer(String queueName, MessageHandler messageHandler, int receiverCount,
+			int workerCount, int waitTimeSeconds) {
+		this(queueName, messageHandler, receiverCount, workerCount, waitTimeSeconds, 0);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor extending the visibility of messages while their handler is running.
+	 *
+	 * @param queueName					the queue name to be consumed.
+	 * @param messageHandler			the handler of consumed messages.
+	 * @param receiverCount				the number of concurrent receivers.
+	 * @param workerCount				the number of concurrent message handlers.
+	 * @param waitTimeSeconds			the long poll wait time in seconds (between 0 and 20).
+	 * @param visibilityTimeoutSeconds	the visibility timeout in seconds requested on receive and set
+	 * 									by every extension, so the first extension comes before the
+	 * 									timeout runs out; or 0 to leave the queue's timeout unchanged.
+	 */
+	public SQSConsumer(String queueName, MessageHandler messageHandler, int receiverCount,
+			int workerCount, int waitTimeSeconds, int visibilityTimeoutSeconds) {
+
+		this.queueName = queueName;
+		this.messageHandler = messageHandler;
+		this.receiverCount = receiverCount;
+		this.waitTimeSeconds = waitTimeSeconds;
+		this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+
+		//one slot per running handler plus one queued message per worker keeps workers busy
+		//between receives without holding messages much longer than they take to handle
+		this.workerSlots = new Semaphore(workerCount * 2);
+		this.receiverExecutor = Executors.newFixedThreadPool(receiverCount);
+		this.workerExecutor = Executors.newFixedThreadPool(workerCount);
+		this.deleteBuffer = new SQSDeleteBuffer();
+		this.visibilityExtender = visibilityTimeoutSeconds > 0
+				? new SQSVisibilityExtender(visibilityTimeoutSeconds) : null;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Starts the receivers.
+	 */
+	public synchronized void start() {
+		if(this.isRunning) {
+			return;
+		}
+
+		this.isRunning = true;
+		for(int index = 0; index < this.receiverCount; index++) {
+			this.receiverExecutor.execute(this::receive);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Stops receiving and drains gracefully: receivers finish their current long poll, every
+	 * received message is handled and all pending deletes are flushed.
+	 */
+	@Override
+	public void close() {
+		this.isRunning = false;
+
+		try {
+			this.receiverExecutor.shutdown();
+			this.receiverExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			this.workerExecutor.shutdown();
+			this.workerExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if(this.visibilityExtender != null) {
+				this.visibilityExtender.close();
+			}
+			this.deleteBuffer.close();
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of receive requests made.
+	 *
+	 * @return							the receive count.
+	 */
+	public long getReceiveCount() {
+		return this.receiveCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of receive requests which returned no messages.
+	 *
+	 * @return							the empty receive count.
+	 */
+	public long getEmptyReceiveCount() {
+		return this.emptyReceiveCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of messages received.
+	 *
+	 * @return							the received message count.
+	 */
+	public long getReceivedCount() {
+		return this.receivedCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of messages handled successfully.
+	 *
+	 * @return							the processed message count.
+	 */
+	public long getProcessedCount() {
+		return this.processedCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of messages whose handler failed.
+	 *
+	 * @return							the failed message count.
+	 */
+	public long getFailedCount() {
+		return this.failedCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of handled messages whose delete failed.
+	 *
+	 * @return							the failed delete count.
+	 */
+	public long getFailedDeleteCount() {
+		return this.failedDeleteCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Receives messages until the consumer is closed; each iteration first waits for a free
+	 * worker slot and then requests at most as many messages as there are free slots.
+	 */
+	private void receive() {
+		while(this.isRunning) {
+			int slots = this.acquireSlots();
+			if(slots == 0) {
+				continue;
+			}
+
+			List<Message> messages;
+			try {
+				messages = SQSApiClient.pollMessage(this.queueName, slots, this.waitTimeSeconds,
+						this.visibilityTimeoutSeconds);
+			} catch(SdkClientException e) {
+				this.workerSlots.release(slots);
+				System.out.println(String.format("Failed to receive messages from queue '%s': %s",
+						this.queueName, e.getMessage()));
+				this.pause(RECEIVE_ERROR_DELAY);
+				continue;
+			}
+
+			this.receiveCount.incrementAndGet();
+			if(messages.isEmpty()) {
+				this.emptyReceiveCount.incrementAndGet();
+			}
+			this.receivedCount.addAndGet(messages.size());
+			this.workerSlots.release(slots - messages.size());
+
+			for(Message message : messages) {
+				//registered on receipt so messages waiting for a worker are extended as well
+				if(this.visibilityExtender != null) {
+					this.visibilityExtender.register(this.queueName, message);
+				}
+				this.workerExecutor.execute(() -> this.handle(message));
+			}
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Handles a single message, stops extending its visibility and releases its worker slot.
+	 *
+	 * @param message					the message to be handled.
+	 */
+	private void handle(Message message) {
+		try {
+			this.messageHandler.handle(message);
+			this.processedCount.incrementAndGet();
+			this.deleteBuffer.delete(this.queueName, message.getReceiptHandle())
+					.whenComplete((result, throwable) -> {
+						if(throwable != null) {
+							this.failedDeleteCount.incrementAndGet();
+							System.out.println(String.format("Failed to delete handled message with Id "
+									+ "'%s' from queue '%s'; it will be delivered again: %s",
+									message.getMessageId(), this.queueName, throwable.getMessage()));
+						}
+					});
+
+		} catch(Exception e) {
+			this.failedCount.incrementAndGet();
+			System.out.println(String.format("Failed to handle message with Id '%s' from queue "
+					+ "'%s': %s", message.getMessageId(), this.queueName, e.getMessage()));
+
+		} finally {
+			this.deregister(message);
+			this.workerSlots.release();
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Stops extending the visibility of given message, if visibility extension is enabled.
+	 *
+	 * @param message					the handled message.
+	 */
+	private void deregister(Message message) {
+		if(this.visibilityExtender != null) {
+			this.visibilityExtender.deregister(message);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of worker slots acquired, between one and MAX_RECEIVE_MESSAGES; returns
+	 * zero when no slot became free within a second so the receiver can check for shutdown.
+	 *
+	 * @return							the number of slots acquired.
+	 */
+	private int acquireSlots() {
+		try {
+			if(!this.workerSlots.tryAcquire(1, TimeUnit.SECONDS)) {
+				return 0;
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.isRunning = false;
+			return 0;
+		}
+
+		int slots = 1;
+		while(slots < MAX_RECEIVE_MESSAGES && this.workerSlots.tryAcquire()) {
+			slots++;
+		}
+		return slots;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Pauses the receiver for the given time.
+	 *
+	 * @param millis					the pause in milliseconds.
+	 */
+	private void pause(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.isRunning = false;
+		}
+	}
+}
@@ -0,0 +1,311 @@
+package com.yuelchen.sqs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResultEntry;
+
+/**
+ * SQSDeleteBuffer collects receipt handles of processed messages per queue and deletes them
+ * with DeleteMessageBatch requests of up to 10 entries.
+ *
+ * A queue's buffer is flushed once it holds 10 receipt handles or once the flush delay has
+ * passed since its first receipt handle. Every acknowledgement gets a future which completes
+ * when the message is deleted, or exceptionally with the per-entry error reported by SQS.
+ *
+ * Closing waits at most the close timeout for outstanding batches, as it runs from a shutdown
+ * hook; acknowledgements not deleted by then are completed exceptionally.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class SQSDeleteBuffer implements AutoCloseable {
+
+	/**
+	 * The maximum number of entries in a DeleteMessageBatch request.
+	 */
+	public static final int MAX_BATCH_ENTRIES = 10;
+
+	/**
+	 * The default delay in milliseconds before a partial batch is flushed.
+	 */
+	public static final long DEFAULT_FLUSH_DELAY_MILLIS = 200;
+
+	/**
+	 * The default number of batches deleted concurrently.
+	 */
+	public static final int DEFAULT_SENDER_THREADS = 2;
+
+	/**
+	 * The default time in milliseconds close waits for outstanding batches.
+	 */
+	public static final long DEFAULT_CLOSE_TIMEOUT_MILLIS = 10000;
+
+	/**
+	 * The Amazon SQS Client.
+	 */
+	private final AmazonSQS amazonSQSClient;
+
+	/**
+	 * The delay in milliseconds before a partial batch is flushed.
+	 */
+	private final long flushDelayMillis;
+
+	/**
+	 * The executor sending batches.
+	 */
+	private final ExecutorService senderExecutor;
+
+	/**
+	 * The scheduler flushing partial batches after the flush delay.
+	 */
+	private final ScheduledExecutorService flushScheduler;
+
+	/**
+	 * The buffered acknowledgements mapped by queue name.
+	 */
+	private final Map<String, List<PendingDelete>> pendingDeletes =
+			new HashMap<String, List<PendingDelete>>();
+
+	/**
+	 * The acknowledgements whose futures have not completed yet.
+	 */
+	private final Set<PendingDelete> outstandingDeletes = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Whether the buffer has been closed.
+	 */
+	private boolean isClosed = false;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor using default flush delay and sender threads.
+	 */
+	public SQSDeleteBuffer() {
+		this(DEFAULT_FLUSH_DELAY_MILLIS, DEFAULT_SENDER_THREADS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param flushDelayMillis			the delay in milliseconds before a partial batch is flushed.
+	 * @param senderThreads				the number of batches deleted concurrently.
+	 */
+	public SQSDeleteBuffer(long flushDelayMillis, int senderThreads) {
+		this.amazonSQSClient = SQSApiClient.getAmazonSQSClient();
+		this.flushDelayMillis = flushDelayMillis;
+		this.senderExecutor = Executors.newFixedThreadPool(senderThreads, runnable -> {
+			Thread thread = new Thread(runnable, "sqs-delete-sender");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "sqs-delete-flush");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a future completed once the message with given receipt handle is deleted.
+	 *
+	 * @param queueName					the queue name.
+	 * @param receiptHandle				the receipt handle for message.
+	 *
+	 * @return							a future completed when the message is deleted.
+	 */
+	public synchronized CompletableFuture<Void> delete(String queueName, String receiptHandle) {
+		CompletableFuture<Void> deleteFuture = new CompletableFuture<Void>();
+		if(this.isClosed) {
+			deleteFuture.completeExceptionally(new IllegalStateException(
+					"Delete buffer is closed"));
+			return deleteFuture;
+		}
+
+		PendingDelete pendingDelete = new PendingDelete(receiptHandle, deleteFuture);
+		this.outstandingDeletes.add(pendingDelete);
+		deleteFuture.whenComplete((result, throwable) -> this.outstandingDeletes.remove(pendingDelete));
+
+		List<PendingDelete> queueDeletes = this.pendingDeletes
+				.computeIfAbsent(queueName, name -> new ArrayList<PendingDelete>());
+		queueDeletes.add(pendingDelete);
+
+		if(queueDeletes.size() >= MAX_BATCH_ENTRIES) {
+			this.flush(queueName);
+		} else if(queueDeletes.size() == 1) {
+			this.flushScheduler.schedule(() -> this.flush(queueName),
+					this.flushDelayMillis, TimeUnit.MILLISECONDS);
+		}
+
+		return deleteFuture;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Flushes the buffered acknowledgements of every queue.
+	 */
+	public synchronized void flush() {
+		for(String queueName : new ArrayList<String>(this.pendingDeletes.keySet())) {
+			this.flush(queueName);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Flushes all buffered acknowledgements and waits for outstanding batches; see close(long).
+	 */
+	@Override
+	public void close() {
+		this.close(DEFAULT_CLOSE_TIMEOUT_MILLIS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Flushes all buffered acknowledgements and waits at most given timeout for outstanding
+	 * batches; acknowledgements not deleted by then are completed exceptionally.
+	 *
+	 * @param timeoutMillis				the time in milliseconds to wait for outstanding batches.
+	 */
+	public void close(long timeoutMillis) {
+		synchronized(this) {
+			this.isClosed = true;
+			this.flush();
+		}
+
+		this.flushScheduler.shutdownNow();
+		this.senderExecutor.shutdown();
+		try {
+			if(!this.senderExecutor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+				this.senderExecutor.shutdownNow();
+			}
+		} catch(InterruptedException e) {
+			this.senderExecutor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		for(PendingDelete pendingDelete : new ArrayList<PendingDelete>(this.outstandingDeletes)) {
+			pendingDelete.future.completeExceptionally(new SdkClientException(String.format(
+					"Delete buffer closed before message with receipt handle '%s' was deleted "
+					+ "within '%d' ms", pendingDelete.receiptHandle, timeoutMillis)));
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Flushes the buffered acknowledgements of given queue.
+	 *
+	 * @param queueName					the queue name.
+	 */
+	private synchronized void flush(String queueName) {
+		List<PendingDelete> queueDeletes = this.pendingDeletes.remove(queueName);
+		if(queueDeletes == null || queueDeletes.isEmpty()) {
+			return;
+		}
+
+		this.senderExecutor.execute(() -> this.deleteBatch(queueName, queueDeletes));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Deletes the given acknowledgements with a single DeleteMessageBatch request and completes
+	 * their futures with the per-entry result.
+	 *
+	 * @param queueName					the queue name.
+	 * @param queueDeletes				the acknowledgements to be deleted.
+	 */
+	private void deleteBatch(String queueName, List<PendingDelete> queueDeletes) {
+		Map<String, PendingDelete> deletesById = new HashMap<String, PendingDelete>();
+		List<DeleteMessageBatchRequestEntry> entries = new ArrayList<DeleteMessageBatchRequestEntry>();
+		for(int index = 0; index < queueDeletes.size(); index++) {
+			String entryId = Integer.toString(index);
+			deletesById.put(entryId, queueDeletes.get(index));
+			entries.add(new DeleteMessageBatchRequestEntry(entryId, queueDeletes.get(index).receiptHandle));
+		}
+
+		DeleteMessageBatchResult deleteMessageBatchResult;
+		try {
+			String queueUrl = SQSApiClient.getQueueUrl(queueName);
+			DeleteMessageBatchRequest deleteMessageBatchRequest = new DeleteMessageBatchRequest()
+					.withQueueUrl(queueUrl)
+					.withEntries(entries);
+			deleteMessageBatchResult = SQSApiClient.invokeOnQueue(queueName,
+					() -> this.amazonSQSClient.deleteMessageBatch(deleteMessageBatchRequest));
+
+		} catch(SdkClientException e) {
+			queueDeletes.forEach(pendingDelete -> pendingDelete.future.completeExceptionally(e));
+			return;
+		}
+
+		for(DeleteMessageBatchResultEntry resultEntry : deleteMessageBatchResult.getSuccessful()) {
+			deletesById.remove(resultEntry.getId()).future.complete(null);
+		}
+
+		for(BatchResultErrorEntry errorEntry : deleteMessageBatchResult.getFailed()) {
+			PendingDelete pendingDelete = deletesById.remove(errorEntry.getId());
+			pendingDelete.future.completeExceptionally(new SdkClientException(String.format(
+					"Failed to delete message with receipt handle '%s' from queue '%s' with code "
+					+ "'%s': %s", pendingDelete.receiptHandle, queueName, errorEntry.getCode(),
+					errorEntry.getMessage())));
+		}
+
+		for(PendingDelete pendingDelete : deletesById.values()) {
+			pendingDelete.future.completeExceptionally(new SdkClientException(String.format(
+					"No result returned for receipt handle '%s' from queue '%s'",
+					pendingDelete.receiptHandle, queueName)));
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A buffered receipt handle with the future of its deletion.
+	 */
+	private static class PendingDelete {
+
+		/**
+		 * The receipt handle.
+		 */
+		private final String receiptHandle;
+
+		/**
+		 * The future completed when the message is deleted.
+		 */
+		private final CompletableFuture<Void> future;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param receiptHandle			the receipt handle.
+		 * @param future				the future completed when the message is deleted.
+		 */
+		private PendingDelete(String receiptHandle, CompletableFuture<Void> future) {
+			this.receiptHandle = receiptHandle;
+			this.future = future;
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package com.yuelchen.sqs;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
+import com.amazonaws.services.sqs.model.PurgeQueueInProgressException;
+import com.amazonaws.services.sqs.model.PurgeQueueRequest;
+import com.amazonaws.services.sqs.model.QueueAttributeName;
+
+/**
+ * SQSQueuePurger purges queues in parallel without blocking the calling thread.
+ *
+ * Every queue gets a future which completes once its purge has settled, i.e. once the queue
+ * reports no visible and no in-flight messages. The queue attributes are polled with an
+ * exponential backoff starting from the initial poll delay; since SQS documents a purge to take
+ * up to 60 seconds, the future completes at the latest after the settle timeout.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class SQSQueuePurger implements AutoCloseable {
+
+	/**
+	 * The default delay in milliseconds before the first attribute poll.
+	 */
+	public static final long DEFAULT_INITIAL_POLL_DELAY_MILLIS = 500;
+
+	/**
+	 * The default maximum delay in milliseconds between attribute polls.
+	 */
+	public static final long DEFAULT_MAX_POLL_DELAY_MILLIS = 8000;
+
+	/**
+	 * The default time in milliseconds after which a purge is considered settled; the duration
+	 * of a purge as documented by Amazon.
+	 */
+	public static final long DEFAULT_SETTLE_TIMEOUT_MILLIS = 60000;
+
+	/**
+	 * The default number of threads purging and polling queues.
+	 */
+	public static final int DEFAULT_THREADS = 4;
+
+	/**
+	 * The Amazon SQS Client.
+	 */
+	private final AmazonSQS amazonSQSClient;
+
+	/**
+	 * The delay in milliseconds before the first attribute poll.
+	 */
+	private final long initialPollDelayMillis;
+
+	/**
+	 * The maximum delay in milliseconds between attribute polls.
+	 */
+	private final long maxPollDelayMillis;
+
+	/**
+	 * The time in milliseconds after which a purge is considered settled.
+	 */
+	private final long settleTimeoutMillis;
+
+	/**
+	 * The scheduler running purges and attribute polls.
+	 */
+	private final ScheduledExecutorService purgeScheduler;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor using default poll delays, settle timeout and threads.
+	 */
+	public SQSQueuePurger() {
+		this(DEFAULT_INITIAL_POLL_DELAY_MILLIS, DEFAULT_MAX_POLL_DELAY_MILLIS,
+				DEFAULT_SETTLE_TIMEOUT_MILLIS, DEFAULT_THREADS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param initialPollDelayMillis	the delay in milliseconds before the first attribute poll.
+	 * @param maxPollDelayMillis		the maximum delay in milliseconds between attribute polls.
+	 * @param settleTimeoutMillis		the time in milliseconds after which a purge is settled.
+	 * @param threads					the number of threads purging and polling queues.
+	 */
+	public SQSQueuePurger(long initialPollDelayMillis, long maxPollDelayMillis,
+			long settleTimeoutMillis, int threads) {
+
+		this.amazonSQSClient = SQSApiClient.getAmazonSQSClient();
+		this.initialPollDelayMillis = initialPollDelayMillis;
+		this.maxPollDelayMillis = maxPollDelayMillis;
+		this.settleTimeoutMillis = settleTimeoutMillis;
+		this.purgeScheduler = Executors.newScheduledThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "sqs-purge");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Purges the given queues in parallel.
+	 *
+	 * @param queueNames				the queue names.
+	 *
+	 * @return							a future per queue name, completed when its purge has
+	 * 									settled or exceptionally when the purge failed.
+	 */
+	public Map<String, CompletableFuture<Void>> purge(String... queueNames) {
+		Map<String, CompletableFuture<Void>> purgeFutures =
+				new LinkedHashMap<String, CompletableFuture<Void>>();
+		for(String queueName : queueNames) {
+			CompletableFuture<Void> purgeFuture = new CompletableFuture<Void>();
+			purgeFutures.put(queueName, purgeFuture);
+			this.purgeScheduler.execute(() -> this.purgeQueue(queueName, purgeFuture));
+		}
+		return purgeFutures;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Stops purging; futures of unsettled purges are not completed.
+	 */
+	@Override
+	public void close() {
+		this.purgeScheduler.shutdownNow();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Sends the purge request for given queue and schedules the first attribute poll; a purge
+	 * already in progress for the queue is awaited the same way.
+	 *
+	 * @param queueName					the queue name.
+	 * @param purgeFuture				the future completed when the purge has settled.
+	 */
+	private void purgeQueue(String queueName, CompletableFuture<Void> purgeFuture) {
+		long startedAt = System.currentTimeMillis();
+		try {
+			String queueUrl = SQSApiClient.getQueueUrl(queueName);
+			PurgeQueueRequest purgeQueueRequest = new PurgeQueueRequest()
+					.withQueueUrl(queueUrl);
+			SQSApiClient.invokeOnQueue(queueName, () -> this.amazonSQSClient.purgeQueue(purgeQueueRequest));
+
+		} catch(PurgeQueueInProgressException e) {
+			System.out.println(String.format("Purge already in progress for queue with name '%s'", queueName));
+
+		} catch(SdkClientException e) {
+			purgeFuture.completeExceptionally(e);
+			return;
+		}
+
+		this.schedulePoll(queueName, purgeFuture, startedAt, this.initialPollDelayMillis);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Schedules an attribute poll for given queue after given delay.
+	 *
+	 * @param queueName					the queue name.
+	 * @param purgeFuture				the future completed when the purge has settled.
+	 * @param startedAt					the time in milliseconds the purge was requested.
+	 * @param delayMillis				the delay in milliseconds before the poll.
+	 */
+	private void schedulePoll(String queueName, CompletableFuture<Void> purgeFuture,
+			long startedAt, long delayMillis) {
+
+		long remainingMillis = startedAt + this.settleTimeoutMillis - System.currentTimeMillis();
+		this.purgeScheduler.schedule(() -> this.poll(queueName, purgeFuture, startedAt, delayMillis),
+				Math.max(0, Math.min(delayMillis, remainingMillis)), TimeUnit.MILLISECONDS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Completes the purge future if the queue is empty or the settle timeout has passed;
+	 * otherwise polls again after twice the delay, capped at the maximum poll delay.
+	 *
+	 * @param queueName					the queue name.
+	 * @param purgeFuture				the future completed when the purge has settled.
+	 * @param startedAt					the time in milliseconds the purge was requested.
+	 * @param delayMillis				the delay in milliseconds before this poll.
+	 */
+	private void poll(String queueName, CompletableFuture<Void> purgeFuture,
+			long startedAt, long delayMillis) {
+
+		long elapsedMillis = System.currentTimeMillis() - startedAt;
+		if(elapsedMillis >= this.settleTimeoutMillis) {
+			System.out.println(String.format("Purged queue with name '%s'; settle timeout of '%d' "
+					+ "milliseconds reached", queueName, this.settleTimeoutMillis));
+			purgeFuture.complete(null);
+			return;
+		}
+
+		try {
+			if(this.getApproximateMessageCount(queueName) == 0) {
+				System.out.println(String.format("Successfully purged queue with name '%s' after '%d' "
+						+ "milliseconds", queueName, elapsedMillis));
+				purgeFuture.complete(null);
+				return;
+			}
+		} catch(SdkClientException e) {
+			purgeFuture.completeExceptionally(e);
+			return;
+		}
+
+		this.schedulePoll(queueName, purgeFuture, startedAt,
+				Math.min(delayMillis * 2, this.maxPollDelayMillis));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the approximate number of visible and in-flight messages in given queue.
+	 *
+	 * @param queueName					the queue name.
+	 *
+	 * @return							the approximate number of messages.
+	 */
+	private long getApproximateMessageCount(String queueName) {
+		GetQueueAttributesRequest getQueueAttributesRequest = new GetQueueAttributesRequest()
+				.withQueueUrl(SQSApiClient.getQueueUrl(queueName))
+				.withAttributeNames(QueueAttributeName.ApproximateNumberOfMessages.toString(),
+						QueueAttributeName.ApproximateNumberOfMessagesNotVisible.toString());
+		Map<String, String> attributes = SQSApiClient.invokeOnQueue(queueName,
+				() -> this.amazonSQSClient.getQueueAttributes(getQueueAttributesRequest)).getAttributes();
+
+		return Long.parseLong(attributes.getOrDefault(
+						QueueAttributeName.ApproximateNumberOfMessages.toString(), "0"))
+				+ Long.parseLong(attributes.getOrDefault(
+						QueueAttributeName.ApproximateNumberOfMessagesNotVisible.toString(), "0"));
+	}
+}
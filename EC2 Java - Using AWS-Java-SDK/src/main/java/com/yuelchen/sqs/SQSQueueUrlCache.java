@@ -0,0 +1,196 @@
+package com.yuelchen.sqs;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * SQSQueueUrlCache maps queue names to queue urls so SQS operations do not need a GetQueueUrl
+ * request before every call.
+ *
+ * Entries expire after a configurable time to live; hit and miss counters are kept so the
+ * saved round trips can be confirmed at runtime.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class SQSQueueUrlCache {
+
+	/**
+	 * The default time to live of 15 minutes for a cached queue url.
+	 */
+	public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+	/**
+	 * The cached queue urls mapped by queue name.
+	 */
+	private final ConcurrentMap<String, CachedQueueUrl> queueUrls =
+			new ConcurrentHashMap<String, CachedQueueUrl>();
+
+	/**
+	 * The number of lookups answered from the cache.
+	 */
+	private final AtomicLong hitCount = new AtomicLong();
+
+	/**
+	 * The number of lookups which required a GetQueueUrl request.
+	 */
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * The time to live in milliseconds for a cached queue url.
+	 */
+	private volatile long ttlMillis;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param ttlMillis					the time to live in milliseconds for a cached queue url.
+	 */
+	public SQSQueueUrlCache(long ttlMillis) {
+		this.ttlMillis = ttlMillis;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the queue url for given queue name, resolving and caching it on a miss.
+	 *
+	 * @param queueName					the queue name.
+	 * @param resolver					the function resolving a queue name to its url.
+	 *
+	 * @return							the queue url.
+	 */
+	public String get(String queueName, Function<String, String> resolver) {
+		CachedQueueUrl cachedQueueUrl = this.queueUrls.get(queueName);
+		if(cachedQueueUrl != null && !cachedQueueUrl.isExpired()) {
+			this.hitCount.incrementAndGet();
+			return cachedQueueUrl.queueUrl;
+		}
+
+		this.missCount.incrementAndGet();
+		String queueUrl = resolver.apply(queueName);
+		this.put(queueName, queueUrl);
+		return queueUrl;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Caches the queue url for given queue name (i.e. after creating the queue).
+	 *
+	 * @param queueName					the queue name.
+	 * @param queueUrl					the queue url.
+	 */
+	public void put(String queueName, String queueUrl) {
+		this.queueUrls.put(queueName, new CachedQueueUrl(queueUrl,
+				System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.ttlMillis)));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Removes the cached queue url for given queue name.
+	 *
+	 * @param queueName					the queue name.
+	 */
+	public void invalidate(String queueName) {
+		this.queueUrls.remove(queueName);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Removes all cached queue urls.
+	 */
+	public void invalidateAll() {
+		this.queueUrls.clear();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Sets the time to live for queue urls cached from now on.
+	 *
+	 * @param ttlMillis					the time to live in milliseconds.
+	 */
+	public void setTtlMillis(long ttlMillis) {
+		this.ttlMillis = ttlMillis;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of lookups answered from the cache.
+	 *
+	 * @return							the hit count.
+	 */
+	public long getHitCount() {
+		return this.hitCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of lookups which required a GetQueueUrl request.
+	 *
+	 * @return							the miss count.
+	 */
+	public long getMissCount() {
+		return this.missCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of cached queue urls, including expired ones not yet looked up again.
+	 *
+	 * @return							the number of cached queue urls.
+	 */
+	public int size() {
+		return this.queueUrls.size();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A queue url with its expiry time.
+	 */
+	private static class CachedQueueUrl {
+
+		/**
+		 * The queue url.
+		 */
+		private final String queueUrl;
+
+		/**
+		 * The System.nanoTime value after which the queue url is expired.
+		 */
+		private final long expiresAtNanos;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param queueUrl				the queue url.
+		 * @param expiresAtNanos		the System.nanoTime value after which the url is expired.
+		 */
+		private CachedQueueUrl(String queueUrl, long expiresAtNanos) {
+			this.queueUrl = queueUrl;
+			this.expiresAtNanos = expiresAtNanos;
+		}
+
+		/**
+		 * Returns true if the queue url has expired.
+		 *
+		 * @return						true if expired, false if it is not.
+		 */
+		private boolean isExpired() {
+			return System.nanoTime() - this.expiresAtNanos > 0;
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package com.yuelchen.sqs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.Message;
+
+/**
+ * SQSVisibilityExtender keeps in-flight messages invisible while their handlers are running by
+ * extending their visibility timeout with batched ChangeMessageVisibility requests.
+ *
+ * A heartbeat runs every third of the visibility timeout and extends every registered message
+ * whose current timeout would expire before the next two heartbeats. Messages stop being
+ * extended once they are deregistered (i.e. deleted or failed), once SQS reports their receipt
+ * handle as no longer valid, or once SQS's 12 hour maximum visibility has been reached.
+ *
+ * Registered messages must have been received with the same visibility timeout (i.e. through
+ * SQSApiClient.pollMessage with a visibility timeout, as SQSConsumer does), since the first
+ * extension only happens on the first heartbeat after registration; with the queue's default
+ * timeout a message could be redelivered before it is ever extended.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class SQSVisibilityExtender implements AutoCloseable {
+
+	/**
+	 * The maximum number of entries in a ChangeMessageVisibilityBatch request.
+	 */
+	public static final int MAX_BATCH_ENTRIES = 10;
+
+	/**
+	 * The maximum total time in milliseconds a message can be kept invisible by SQS.
+	 */
+	private static final long MAX_VISIBILITY_MILLIS = TimeUnit.HOURS.toMillis(12);
+
+	/**
+	 * The Amazon SQS Client.
+	 */
+	private final AmazonSQS amazonSQSClient;
+
+	/**
+	 * The visibility timeout in seconds set by every extension.
+	 */
+	private final int visibilityTimeoutSeconds;
+
+	/**
+	 * The interval in milliseconds between heartbeats.
+	 */
+	private final long heartbeatMillis;
+
+	/**
+	 * The scheduler running heartbeats.
+	 */
+	private final ScheduledExecutorService heartbeatScheduler;
+
+	/**
+	 * The in-flight messages mapped by receipt handle.
+	 */
+	private final ConcurrentMap<String, InFlightMessage> inFlightMessages =
+			new ConcurrentHashMap<String, InFlightMessage>();
+
+	//====================================================================================================
+
+	/**
+	 * Constructor.
+	 *
+	 * @param visibilityTimeoutSeconds	the visibility timeout in seconds set by every extension.
+	 */
+	public SQSVisibilityExtender(int visibilityTimeoutSeconds) {
+		this.amazonSQSClient = SQSApiClient.getAmazonSQSClient();
+		this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+		this.heartbeatMillis = Math.max(1, TimeUnit.SECONDS.toMillis(visibilityTimeoutSeconds) / 3);
+		this.heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "sqs-visibility-heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat,
+				this.heartbeatMillis, this.heartbeatMillis, TimeUnit.MILLISECONDS);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Starts extending the visibility of the given message.
+	 *
+	 * @param queueName					the queue name the message was received from.
+	 * @param message					the in-flight message.
+	 */
+	public void register(String queueName, Message message) {
+		long now = System.currentTimeMillis();
+		this.inFlightMessages.put(message.getReceiptHandle(),
+				new InFlightMessage(queueName, message.getReceiptHandle(), now, now));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Stops extending the visibility of the given message (i.e. once deleted or its handler failed).
+	 *
+	 * @param message					the in-flight message.
+	 */
+	public void deregister(Message message) {
+		this.inFlightMessages.remove(message.getReceiptHandle());
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of messages being extended.
+	 *
+	 * @return							the number of in-flight messages.
+	 */
+	public int getInFlightCount() {
+		return this.inFlightMessages.size();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Stops the heartbeat; registered messages are no longer extended.
+	 */
+	@Override
+	public void close() {
+		this.heartbeatScheduler.shutdownNow();
+		this.inFlightMessages.clear();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Extends every in-flight message whose visibility would expire before the next two
+	 * heartbeats, grouped per queue into batches of up to 10 entries.
+	 */
+	private void heartbeat() {
+		long now = System.currentTimeMillis();
+		Map<String, List<InFlightMessage>> dueMessages = new HashMap<String, List<InFlightMessage>>();
+
+		for(InFlightMessage inFlightMessage : this.inFlightMessages.values()) {
+			if(now - inFlightMessage.registeredAt + TimeUnit.SECONDS.toMillis(this.visibilityTimeoutSeconds)
+					> MAX_VISIBILITY_MILLIS) {
+				this.inFlightMessages.remove(inFlightMessage.receiptHandle);
+
+			} else if(inFlightMessage.visibleAt - now <= 2 * this.heartbeatMillis) {
+				dueMessages.computeIfAbsent(inFlightMessage.queueName,
+						queueName -> new ArrayList<InFlightMessage>()).add(inFlightMessage);
+			}
+		}
+
+		for(Map.Entry<String, List<InFlightMessage>> queueMessages : dueMessages.entrySet()) {
+			List<InFlightMessage> messages = queueMessages.getValue();
+			for(int index = 0; index < messages.size(); index += MAX_BATCH_ENTRIES) {
+				this.extendBatch(queueMessages.getKey(),
+						messages.subList(index, Math.min(index + MAX_BATCH_ENTRIES, messages.size())));
+			}
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Extends the visibility of the given messages with a single batch request; messages SQS
+	 * fails to extend are no longer tracked since their receipt handle is no longer usable.
+	 *
+	 * @param queueName					the queue name.
+	 * @param messages					the messages to be extended.
+	 */
+	private void extendBatch(String queueName, List<InFlightMessage> messages) {
+		List<ChangeMessageVisibilityBatchRequestEntry> entries =
+				new ArrayList<ChangeMessageVisibilityBatchRequestEntry>();
+		for(int index = 0; index < messages.size(); index++) {
+			entries.add(new ChangeMessageVisibilityBatchRequestEntry()
+					.withId(Integer.toString(index))
+					.withReceiptHandle(messages.get(index).receiptHandle)
+					.withVisibilityTimeout(this.visibilityTimeoutSeconds));
+		}
+
+		long requestedAt = System.currentTimeMillis();
+		ChangeMessageVisibilityBatchResult changeMessageVisibilityBatchResult;
+		try {
+			String queueUrl = SQSApiClient.getQueueUrl(queueName);
+			ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest =
+					new ChangeMessageVisibilityBatchRequest()
+					.withQueueUrl(queueUrl)
+					.withEntries(entries);
+			changeMessageVisibilityBatchResult = SQSApiClient.invokeOnQueue(queueName,
+					() -> this.amazonSQSClient.changeMessageVisibilityBatch(changeMessageVisibilityBatchRequest));
+
+		} catch(SdkClientException e) {
+			//left registered so the next heartbeat tries again
+			System.out.println(String.format("Failed to extend visibility of '%d' messages in queue "
+					+ "'%s': %s", messages.size(), queueName, e.getMessage()));
+			return;
+		}
+
+		long visibleAt = requestedAt + TimeUnit.SECONDS.toMillis(this.visibilityTimeoutSeconds);
+		for(InFlightMessage inFlightMessage : messages) {
+			inFlightMessage.visibleAt = visibleAt;
+		}
+
+		for(BatchResultErrorEntry errorEntry : changeMessageVisibilityBatchResult.getFailed()) {
+			InFlightMessage inFlightMessage = messages.get(Integer.parseInt(errorEntry.getId()));
+			this.inFlightMessages.remove(inFlightMessage.receiptHandle);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A message whose visibility is being extended.
+	 */
+	private static class InFlightMessage {
+
+		/**
+		 * The queue name the message was received from.
+		 */
+		private final String queueName;
+
+		/**
+		 * The receipt handle of the message.
+		 */
+		private final String receiptHandle;
+
+		/**
+		 * The time in milliseconds the message was registered.
+		 */
+		private final long registeredAt;
+
+		/**
+		 * The time in milliseconds the message becomes visible unless extended again.
+		 */
+		private volatile long visibleAt;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param queueName				the queue name the message was received from.
+		 * @param receiptHandle			the receipt handle of the message.
+		 * @param registeredAt			the time in milliseconds the message was registered.
+		 * @param visibleAt				the time in milliseconds the message becomes visible.
+		 */
+		private InFlightMessage(String queueName, String receiptHandle, long registeredAt, long visibleAt) {
+			this.queueName = queueName;
+			this.receiptHandle = receiptHandle;
+			this.registeredAt = registeredAt;
+			this.visibleAt = visibleAt;
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package com.yuelchen.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AsyncApiExecutorBenchmark compares a fixed pool of platform threads with the virtual thread
+ * executor, both bounded to the same number of calls in flight, running a burst of blocking
+ * calls against a stand-in which injects a fixed latency per call, as a request waiting on S3 or
+ * SQS would.
+ *
+ * Virtual threads need Java 21 or later; on older JVMs newVirtualThreadExecutor falls back to
+ * platform threads and both benchmarks measure the same pool. Run with:
+ * mvn -Pbenchmark test -Dbenchmark=AsyncApiExecutorBenchmark
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AsyncApiExecutorBenchmark {
+
+	/**
+	 * The number of calls submitted per operation.
+	 */
+	private static final int CALL_COUNT = 4096;
+
+	/**
+	 * The latency in milliseconds injected into every call.
+	 */
+	@Param({"10"})
+	public long latencyMillis;
+
+	/**
+	 * The maximum number of calls in flight, i.e. the platform pool size.
+	 */
+	@Param({"32", "256", "1024"})
+	public int maxInFlightCalls;
+
+	/**
+	 * The fixed pool of platform threads.
+	 */
+	private AsyncApiExecutor platformExecutor;
+
+	/**
+	 * The virtual thread executor.
+	 */
+	private AsyncApiExecutor virtualExecutor;
+
+	//====================================================================================================
+
+	/**
+	 * Creates both executors.
+	 */
+	@Setup
+	public void setUp() {
+		this.platformExecutor = new AsyncApiExecutor(this.maxInFlightCalls, 0);
+		this.virtualExecutor = AsyncApiExecutor.newVirtualThreadExecutor(this.maxInFlightCalls, 0);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Stops both executors.
+	 */
+	@TearDown
+	public void tearDown() {
+		this.platformExecutor.close();
+		this.virtualExecutor.close();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Runs the calls on the fixed pool of platform threads.
+	 *
+	 * @return							the number of completed calls.
+	 */
+	@Benchmark
+	public int platformThreads() {
+		return this.runCalls(this.platformExecutor);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Runs the calls on virtual threads behind the concurrency limiter.
+	 *
+	 * @return							the number of completed calls.
+	 */
+	@Benchmark
+	public int virtualThreads() {
+		return this.runCalls(this.virtualExecutor);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Submits every call and waits until all have completed.
+	 *
+	 * @param asyncApiExecutor			the executor running the calls.
+	 *
+	 * @return							the number of completed calls.
+	 */
+	private int runCalls(AsyncApiExecutor asyncApiExecutor) {
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[CALL_COUNT];
+		for(int index = 0; index < CALL_COUNT; index++) {
+			futures[index] = asyncApiExecutor.submit(this::standInCall);
+		}
+		CompletableFuture.allOf(futures).join();
+		return futures.length;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A stand-in for a blocking SDK call, waiting the injected latency.
+	 *
+	 * @return							the injected latency.
+	 *
+	 * @throws InterruptedException		thrown when interrupted while waiting.
+	 */
+	private Long standInCall() throws InterruptedException {
+		Thread.sleep(this.latencyMillis);
+		return this.latencyMillis;
+	}
+}
@@ -0,0 +1,120 @@
+package com.yuelchen.glue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.glue.AbstractAWSGlue;
+import com.amazonaws.services.glue.model.Database;
+import com.amazonaws.services.glue.model.GetDatabasesRequest;
+import com.amazonaws.services.glue.model.GetDatabasesResult;
+import com.amazonaws.services.glue.model.GetTablesRequest;
+import com.amazonaws.services.glue.model.GetTablesResult;
+import com.amazonaws.services.glue.model.Table;
+
+/**
+ * Runs GlueCatalogCrawler against a stand-in Glue client serving two pages of databases whose
+ * GetTables requests take a while, checking that the crawl never returns while databases are in
+ * flight.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class GlueCatalogCrawlerTest {
+
+	private static final long GET_TABLES_MILLIS = 300;
+
+	private final AmazonServiceException pageFailure = new AmazonServiceException("Throttling");
+
+	private volatile boolean isSecondPageFailing = false;
+
+	//====================================================================================================
+
+	@Before
+	public void setUp() {
+		//GlueApiClient builds its default client on first use, which needs a region
+		System.setProperty("aws.region", "us-east-1");
+		GlueApiClient.setAmazonGlueClient(new AbstractAWSGlue() {
+			@Override
+			public GetDatabasesResult getDatabases(GetDatabasesRequest getDatabasesRequest) {
+				if(getDatabasesRequest.getNextToken() == null) {
+					return new GetDatabasesResult().withNextToken("page-2").withDatabaseList(
+							new Database().withName("first"), new Database().withName("second"),
+							new Database().withName("third"));
+				}
+				if(isSecondPageFailing) {
+					throw pageFailure;
+				}
+				return new GetDatabasesResult().withDatabaseList(new Database().withName("fourth"));
+			}
+
+			@Override
+			public GetTablesResult getTables(GetTablesRequest getTablesRequest) {
+				try {
+					Thread.sleep(GET_TABLES_MILLIS);
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return new GetTablesResult().withTableList(
+						new Table().withName(getTablesRequest.getDatabaseName() + "_table"));
+			}
+		});
+	}
+
+	//====================================================================================================
+
+	@Test
+	public void crawlsEveryDatabase() {
+		try(GlueCatalogCrawler glueCatalogCrawler = new GlueCatalogCrawler(3)) {
+			Map<String, List<Table>> catalog = glueCatalogCrawler.crawl("000000000000");
+
+			assertEquals(4, catalog.size());
+			assertEquals("fourth_table", catalog.get("fourth").get(0).getName());
+		}
+	}
+
+	//====================================================================================================
+
+	@Test
+	public void waitsForDatabasesInFlightWhenPageFails() throws InterruptedException {
+		this.isSecondPageFailing = true;
+		List<String> consumed = Collections.synchronizedList(new ArrayList<String>());
+
+		try(GlueCatalogCrawler glueCatalogCrawler = new GlueCatalogCrawler(3)) {
+			glueCatalogCrawler.crawl("000000000000", (database, tables) -> consumed.add(database.getName()));
+			fail("Expected the second page to fail");
+		} catch(AmazonServiceException e) {
+			assertSame(this.pageFailure, e);
+		}
+
+		//every database of the first page was consumed before the failure was rethrown
+		List<String> consumedOnFailure = new ArrayList<String>(consumed);
+		Thread.sleep(2 * GET_TABLES_MILLIS);
+		assertEquals(3, consumedOnFailure.size());
+		assertEquals(consumedOnFailure, consumed);
+		assertEquals(Arrays.asList("first", "second", "third"), sorted(consumed));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a sorted copy of given names.
+	 *
+	 * @param names						the names.
+	 *
+	 * @return							the sorted names.
+	 */
+	private static List<String> sorted(List<String> names) {
+		List<String> sortedNames = new ArrayList<String>(names);
+		Collections.sort(sortedNames);
+		return sortedNames;
+	}
+}
@@ -0,0 +1,607 @@
+package com.yuelchen.s3;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * FakeS3Endpoint is a local HTTP stand-in for the S3 object APIs used by the S3 engines
+ * (PutObject, GetObject and the multipart upload APIs), so tests run the real SDK client,
+ * including its request signing and stream handling, against a local endpoint.
+ *
+ * Uploaded bodies are streamed through an MD5 digest rather than stored, unless small enough
+ * to be read back; the endpoint records object sizes and the headers objects were created with.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class FakeS3Endpoint implements AutoCloseable {
+
+	/**
+	 * The largest uploaded body kept for GetObject.
+	 */
+	private static final int MAX_STORED_BYTES = 1024 * 1024;
+
+	/**
+	 * The HTTP server.
+	 */
+	private final HttpServer httpServer;
+
+	/**
+	 * The executor handling requests.
+	 */
+	private final ExecutorService requestExecutor;
+
+	/**
+	 * The objects by "bucket/key".
+	 */
+	private final Map<String, StoredObject> objects = new ConcurrentHashMap<String, StoredObject>();
+
+	/**
+	 * The multipart uploads in progress by upload Id.
+	 */
+	private final Map<String, StoredObject> uploads = new ConcurrentHashMap<String, StoredObject>();
+
+	/**
+	 * The last upload Id handed out.
+	 */
+	private final AtomicInteger uploadCount = new AtomicInteger();
+
+	/**
+	 * The number of parts uploaded.
+	 */
+	private final AtomicInteger partCount = new AtomicInteger();
+
+	/**
+	 * The number of aborted multipart uploads.
+	 */
+	private final AtomicInteger abortCount = new AtomicInteger();
+
+	/**
+	 * The number of body bytes received.
+	 */
+	private final AtomicLong receivedBytes = new AtomicLong();
+
+	/**
+	 * Run once per uploaded part after half of its body was read, or null.
+	 */
+	private volatile Runnable partProgressHook;
+
+	//====================================================================================================
+
+	/**
+	 * Constructor; starts the endpoint on a free local port.
+	 *
+	 * @throws IOException				thrown when the server could not be started.
+	 */
+	public FakeS3Endpoint() throws IOException {
+		this.httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		this.requestExecutor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "fake-s3-endpoint");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.httpServer.setExecutor(this.requestExecutor);
+		this.httpServer.createContext("/", exchange -> {
+			try {
+				this.handle(exchange);
+			} catch(RuntimeException | IOException e) {
+				this.sendError(exchange, 500, "InternalError", String.valueOf(e));
+			} finally {
+				exchange.close();
+			}
+		});
+		this.httpServer.start();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the endpoint url.
+	 *
+	 * @return							the endpoint url, i.e. http://127.0.0.1:port.
+	 */
+	public String getEndpoint() {
+		return "http://127.0.0.1:" + this.httpServer.getAddress().getPort();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Stores an object which can be read back with GetObject.
+	 *
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix.
+	 * @param content					the object content.
+	 */
+	public void putObject(String bucketName, String objectPrefix, byte[] content) {
+		StoredObject storedObject = new StoredObject(new HashMap<String, String>());
+		storedObject.size = content.length;
+		storedObject.content = content;
+		storedObject.eTag = toHex(md5().digest(content));
+		this.objects.put(bucketName + "/" + objectPrefix, storedObject);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the size of an object, or -1 when it does not exist.
+	 *
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix.
+	 *
+	 * @return							the object size.
+	 */
+	public long getObjectSize(String bucketName, String objectPrefix) {
+		StoredObject storedObject = this.objects.get(bucketName + "/" + objectPrefix);
+		return storedObject == null ? -1 : storedObject.size;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the request headers an object was created with, lower cased; for a multipart upload
+	 * these are the headers of the initiate request.
+	 *
+	 * @param bucketName				the bucket name.
+	 * @param objectPrefix				the object prefix.
+	 *
+	 * @return							the headers, or null when the object does not exist.
+	 */
+	public Map<String, String> getObjectHeaders(String bucketName, String objectPrefix) {
+		StoredObject storedObject = this.objects.get(bucketName + "/" + objectPrefix);
+		return storedObject == null ? null : storedObject.headers;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of parts uploaded.
+	 *
+	 * @return							the part count.
+	 */
+	public int getPartCount() {
+		return this.partCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of aborted multipart uploads.
+	 *
+	 * @return							the abort count.
+	 */
+	public int getAbortCount() {
+		return this.abortCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of body bytes received.
+	 *
+	 * @return							the received bytes.
+	 */
+	public long getReceivedBytes() {
+		return this.receivedBytes.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Sets the hook run once per uploaded part after half of its body was read, i.e. to sample
+	 * the heap while parts are in flight.
+	 *
+	 * @param partProgressHook			the hook, or null for none.
+	 */
+	public void setPartProgressHook(Runnable partProgressHook) {
+		this.partProgressHook = partProgressHook;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Stops the endpoint.
+	 */
+	@Override
+	public void close() {
+		this.httpServer.stop(0);
+		this.requestExecutor.shutdownNow();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Handles a single request.
+	 *
+	 * @param exchange					the HTTP exchange.
+	 *
+	 * @throws IOException				thrown when the exchange failed.
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		String method = exchange.getRequestMethod();
+		String objectPath = exchange.getRequestURI().getPath().substring(1);
+		Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+		if("POST".equals(method) && query.containsKey("uploads")) {
+			String uploadId = "upload-" + this.uploadCount.incrementAndGet();
+			this.uploads.put(uploadId, new StoredObject(getHeaders(exchange)));
+			String[] bucketAndKey = objectPath.split("/", 2);
+			this.sendXml(exchange, "<InitiateMultipartUploadResult><Bucket>" + bucketAndKey[0]
+					+ "</Bucket><Key>" + bucketAndKey[1] + "</Key><UploadId>" + uploadId
+					+ "</UploadId></InitiateMultipartUploadResult>");
+
+		} else if("PUT".equals(method) && query.containsKey("uploadId")) {
+			StoredObject upload = this.uploads.get(query.get("uploadId"));
+			if(upload == null) {
+				this.sendError(exchange, 404, "NoSuchUpload", "Upload does not exist");
+				return;
+			}
+			ReceivedBody receivedBody = this.receiveBody(exchange, this.partProgressHook);
+			synchronized(upload) {
+				upload.size += receivedBody.size;
+			}
+			this.partCount.incrementAndGet();
+			this.sendETag(exchange, receivedBody.eTag);
+
+		} else if("POST".equals(method) && query.containsKey("uploadId")) {
+			StoredObject upload = this.uploads.remove(query.get("uploadId"));
+			if(upload == null) {
+				this.sendError(exchange, 404, "NoSuchUpload", "Upload does not exist");
+				return;
+			}
+			exchange.getRequestBody().readAllBytes();
+			upload.eTag = "multipart-" + query.get("uploadId");
+			this.objects.put(objectPath, upload);
+			this.sendXml(exchange, "<CompleteMultipartUploadResult><Location>" + objectPath
+					+ "</Location><ETag>\"" + upload.eTag + "\"</ETag></CompleteMultipartUploadResult>");
+
+		} else if("DELETE".equals(method) && query.containsKey("uploadId")) {
+			this.uploads.remove(query.get("uploadId"));
+			this.abortCount.incrementAndGet();
+			exchange.sendResponseHeaders(204, -1);
+
+		} else if("PUT".equals(method)) {
+			StoredObject storedObject = new StoredObject(getHeaders(exchange));
+			ReceivedBody receivedBody = this.receiveBody(exchange, null);
+			storedObject.size = receivedBody.size;
+			storedObject.content = receivedBody.content;
+			storedObject.eTag = receivedBody.eTag;
+			this.objects.put(objectPath, storedObject);
+			this.sendETag(exchange, receivedBody.eTag);
+
+		} else if("GET".equals(method) || "HEAD".equals(method)) {
+			StoredObject storedObject = this.objects.get(objectPath);
+			if(storedObject == null || storedObject.content == null) {
+				this.sendError(exchange, 404, "NoSuchKey", "The specified key does not exist.");
+				return;
+			}
+			exchange.getResponseHeaders().add("ETag", "\"" + storedObject.eTag + "\"");
+			exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+			if("HEAD".equals(method)) {
+				exchange.getResponseHeaders().add("Content-Length", String.valueOf(storedObject.size));
+				exchange.sendResponseHeaders(200, -1);
+				return;
+			}
+			exchange.sendResponseHeaders(200, storedObject.size == 0 ? -1 : storedObject.size);
+			try(OutputStream outputStream = exchange.getResponseBody()) {
+				outputStream.write(storedObject.content);
+			}
+
+		} else {
+			this.sendError(exchange, 405, "MethodNotAllowed", method + " is not supported");
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the size and MD5 of a request body, decoding aws-chunked bodies, which the SDK sends
+	 * for signed uploads over HTTP.
+	 *
+	 * @param exchange					the HTTP exchange.
+	 * @param progressHook				run once after half of the body was read, or null.
+	 *
+	 * @return							the received body.
+	 *
+	 * @throws IOException				thrown when the body could not be read.
+	 */
+	private ReceivedBody receiveBody(HttpExchange exchange, Runnable progressHook) throws IOException {
+		InputStream inputStream = exchange.getRequestBody();
+		String decodedLength = exchange.getRequestHeaders().getFirst("x-amz-decoded-content-length");
+		boolean isChunked = decodedLength != null;
+		long expectedSize = isChunked ? Long.parseLong(decodedLength)
+				: Long.parseLong(exchange.getRequestHeaders().getFirst("Content-Length"));
+
+		MessageDigest messageDigest = md5();
+		ByteArrayOutputStream storedContent = expectedSize <= MAX_STORED_BYTES
+				? new ByteArrayOutputStream((int) expectedSize) : null;
+		byte[] buffer = new byte[64 * 1024];
+		long size = 0;
+		boolean isHookRun = progressHook == null;
+
+		long remainingInChunk = isChunked ? readChunkSize(inputStream) : expectedSize;
+		while(remainingInChunk > 0) {
+			int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remainingInChunk));
+			if(read < 0) {
+				throw new IOException("Body ended early");
+			}
+			messageDigest.update(buffer, 0, read);
+			if(storedContent != null) {
+				storedContent.write(buffer, 0, read);
+			}
+			size += read;
+			remainingInChunk -= read;
+
+			if(!isHookRun && size >= expectedSize / 2) {
+				isHookRun = true;
+				progressHook.run();
+			}
+
+			if(remainingInChunk == 0 && isChunked) {
+				readLine(inputStream);
+				remainingInChunk = readChunkSize(inputStream);
+			}
+		}
+		this.receivedBytes.addAndGet(size);
+
+		ReceivedBody receivedBody = new ReceivedBody();
+		receivedBody.size = size;
+		receivedBody.eTag = toHex(messageDigest.digest());
+		receivedBody.content = storedContent == null ? null : storedContent.toByteArray();
+		return receivedBody;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the size of the next aws-chunked chunk, i.e. "400;chunk-signature=...".
+	 *
+	 * @param inputStream				the request body.
+	 *
+	 * @return							the chunk size, 0 for the final chunk.
+	 *
+	 * @throws IOException				thrown when the body could not be read.
+	 */
+	private static long readChunkSize(InputStream inputStream) throws IOException {
+		String chunkHeader = readLine(inputStream);
+		int extensionIndex = chunkHeader.indexOf(';');
+		return Long.parseLong(extensionIndex < 0 ? chunkHeader : chunkHeader.substring(0, extensionIndex), 16);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the next CRLF terminated line of the body, without the line end.
+	 *
+	 * @param inputStream				the request body.
+	 *
+	 * @return							the line.
+	 *
+	 * @throws IOException				thrown when the body could not be read.
+	 */
+	private static String readLine(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int read;
+		while((read = inputStream.read()) >= 0 && read != '\n') {
+			if(read != '\r') {
+				line.write(read);
+			}
+		}
+		return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Sends an empty 200 response with given ETag.
+	 *
+	 * @param exchange					the HTTP exchange.
+	 * @param eTag						the ETag.
+	 *
+	 * @throws IOException				thrown when the response could not be sent.
+	 */
+	private void sendETag(HttpExchange exchange, String eTag) throws IOException {
+		exchange.getResponseHeaders().add("ETag", "\"" + eTag + "\"");
+		exchange.sendResponseHeaders(200, -1);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Sends a 200 response with given XML body.
+	 *
+	 * @param exchange					the HTTP exchange.
+	 * @param xml						the XML body.
+	 *
+	 * @throws IOException				thrown when the response could not be sent.
+	 */
+	private void sendXml(HttpExchange exchange, String xml) throws IOException {
+		this.sendResponse(exchange, 200, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Sends an S3 error response.
+	 *
+	 * @param exchange					the HTTP exchange.
+	 * @param statusCode				the HTTP status code.
+	 * @param errorCode					the S3 error code.
+	 * @param message					the error message.
+	 */
+	private void sendError(HttpExchange exchange, int statusCode, String errorCode, String message) {
+		try {
+			this.sendResponse(exchange, statusCode, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>"
+					+ errorCode + "</Code><Message>" + message + "</Message></Error>");
+		} catch(IOException e) {
+			//the response was already started, the client sees the connection close
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Sends a response with given XML body.
+	 *
+	 * @param exchange					the HTTP exchange.
+	 * @param statusCode				the HTTP status code.
+	 * @param xml						the XML body.
+	 *
+	 * @throws IOException				thrown when the response could not be sent.
+	 */
+	private void sendResponse(HttpExchange exchange, int statusCode, String xml) throws IOException {
+		byte[] body = xml.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/xml");
+		exchange.sendResponseHeaders(statusCode, body.length);
+		try(OutputStream outputStream = exchange.getResponseBody()) {
+			outputStream.write(body);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the request headers with lower cased names.
+	 *
+	 * @param exchange					the HTTP exchange.
+	 *
+	 * @return							the headers.
+	 */
+	private static Map<String, String> getHeaders(HttpExchange exchange) {
+		Map<String, String> headers = new HashMap<String, String>();
+		for(Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+			headers.put(header.getKey().toLowerCase(), header.getValue().get(0));
+		}
+		return headers;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the query parameters of a raw query; parameters without value map to "".
+	 *
+	 * @param rawQuery					the raw query, or null.
+	 *
+	 * @return							the query parameters.
+	 */
+	private static Map<String, String> parseQuery(String rawQuery) {
+		Map<String, String> query = new HashMap<String, String>();
+		if(rawQuery != null) {
+			for(String parameter : rawQuery.split("&")) {
+				int valueIndex = parameter.indexOf('=');
+				query.put(valueIndex < 0 ? parameter : parameter.substring(0, valueIndex),
+						valueIndex < 0 ? "" : parameter.substring(valueIndex + 1));
+			}
+		}
+		return query;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a new MD5 digest.
+	 *
+	 * @return							the digest.
+	 */
+	private static MessageDigest md5() {
+		try {
+			return MessageDigest.getInstance("MD5");
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the lower case hex string of given bytes.
+	 *
+	 * @param bytes						the bytes.
+	 *
+	 * @return							the hex string.
+	 */
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for(byte value : bytes) {
+			hex.append(String.format("%02x", value));
+		}
+		return hex.toString();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * An object or multipart upload.
+	 */
+	private static class StoredObject {
+
+		/**
+		 * The request headers the object was created with.
+		 */
+		private final Map<String, String> headers;
+
+		/**
+		 * The object size.
+		 */
+		private long size;
+
+		/**
+		 * The object content, or null when too large to be kept.
+		 */
+		private byte[] content;
+
+		/**
+		 * The object ETag.
+		 */
+		private String eTag;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param headers				the request headers the object was created with.
+		 */
+		private StoredObject(Map<String, String> headers) {
+			this.headers = headers;
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A received request body.
+	 */
+	private static class ReceivedBody {
+
+		/**
+		 * The body size.
+		 */
+		private long size;
+
+		/**
+		 * The MD5 hex of the body.
+		 */
+		private String eTag;
+
+		/**
+		 * The body, or null when too large to be kept.
+		 */
+		private byte[] content;
+	}
+}
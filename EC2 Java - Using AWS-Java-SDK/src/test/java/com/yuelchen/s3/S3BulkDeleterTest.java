@@ -0,0 +1,99 @@
+package com.yuelchen.s3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Test;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsResult;
+
+/**
+ * Runs S3BulkDeleter against a stand-in S3 client counting DeleteObjects requests, checking that
+ * keys are deleted in chunks and that a failing key stream stops the deletion.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class S3BulkDeleterTest {
+
+	private final AtomicInteger deleteRequestCount = new AtomicInteger();
+
+	private final AtomicInteger deletedKeyCount = new AtomicInteger();
+
+	//====================================================================================================
+
+	@Before
+	public void setUp() {
+		//S3ApiClient builds its default client on first use, which needs a region
+		System.setProperty("aws.region", "us-east-1");
+		S3ApiClient.setAmazonS3Client(new AbstractAmazonS3() {
+			@Override
+			public DeleteObjectsResult deleteObjects(DeleteObjectsRequest deleteObjectsRequest) {
+				deleteRequestCount.incrementAndGet();
+				deletedKeyCount.addAndGet(deleteObjectsRequest.getKeys().size());
+				return new DeleteObjectsResult(Collections.emptyList());
+			}
+		});
+	}
+
+	//====================================================================================================
+
+	@Test
+	public void deletesKeysInChunks() throws InterruptedIOException {
+		S3BulkDeleter.Result result = new S3BulkDeleter(4, 100).delete("bucket", keys(2500));
+
+		assertEquals(2500, result.getDeletedCount());
+		assertTrue(result.getErrors().isEmpty());
+		assertEquals(3, this.deleteRequestCount.get());
+		assertEquals(2500, this.deletedKeyCount.get());
+	}
+
+	//====================================================================================================
+
+	@Test
+	public void stopsDeletingWhenKeyStreamFails() throws InterruptedException, InterruptedIOException {
+		IllegalStateException listingFailure = new IllegalStateException("Listing failed");
+		Stream<String> failingKeys = Stream.concat(keys(4 * S3BulkDeleter.MAX_KEYS_PER_REQUEST),
+				Stream.<String>generate(() -> {
+					throw listingFailure;
+				}));
+
+		//two requests per second, so the four chunks sent before the failure are still queued
+		try {
+			new S3BulkDeleter(2, 2).delete("bucket", failingKeys);
+			fail("Expected the key stream failure");
+		} catch(IllegalStateException e) {
+			assertSame(listingFailure, e);
+		}
+
+		Thread.sleep(2500);
+		assertTrue("Sent " + this.deleteRequestCount.get() + " requests after the failure",
+				this.deleteRequestCount.get() <= 1);
+		for(Thread thread : Thread.getAllStackTraces().keySet()) {
+			assertFalse("Delete thread still running", "s3-bulk-delete".equals(thread.getName()));
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns a stream of numbered keys.
+	 *
+	 * @param keyCount					the number of keys.
+	 *
+	 * @return							the keys.
+	 */
+	private static Stream<String> keys(int keyCount) {
+		return IntStream.range(0, keyCount).mapToObj(index -> "prefix/key-" + index);
+	}
+}
@@ -0,0 +1,264 @@
+package com.yuelchen.s3;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * S3ChannelTransferBenchmark compares the download loops writing an object stream to a local
+ * file: the original 1 KB byte[] loop, a Channels.newChannel adapter filling a direct buffer, and
+ * the S3ChannelTransfer streaming and memory-mapped transfers.
+ *
+ * The object stream is a local stand-in which, like a socket, returns at most a given number of
+ * bytes per read. The target file is created under the "benchmark.dir" system property, by
+ * default the temporary directory; a tmpfs directory (i.e. /dev/shm) keeps disk writeback out of
+ * the measurement. Run with: mvn -Pbenchmark test -Dbenchmark=S3ChannelTransferBenchmark
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class S3ChannelTransferBenchmark {
+
+	/**
+	 * The size of the streamed object.
+	 */
+	private static final int CONTENT_LENGTH = 64 * 1024 * 1024;
+
+	/**
+	 * The most bytes the stand-in stream returns per read.
+	 */
+	@Param({"8192", "65536"})
+	public int maxReadBytes;
+
+	/**
+	 * The target file.
+	 */
+	private Path targetPath;
+
+	/**
+	 * The direct buffer reused by the channel adapter loop.
+	 */
+	private ByteBuffer directBuffer;
+
+	//====================================================================================================
+
+	/**
+	 * Creates the target file and buffers.
+	 *
+	 * @throws IOException				thrown when the target file could not be created.
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		this.targetPath = Files.createTempFile(Paths.get(System.getProperty("benchmark.dir",
+				System.getProperty("java.io.tmpdir"))), "s3-channel-transfer", ".bin");
+		this.directBuffer = ByteBuffer.allocateDirect(S3ChannelTransfer.BUFFER_SIZE);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Deletes the target file.
+	 *
+	 * @throws IOException				thrown when the target file could not be deleted.
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(this.targetPath);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * The download loop S3ApiClient used before S3ChannelTransfer: a 1 KB byte[] written to a
+	 * FileOutputStream.
+	 *
+	 * @return							the number of bytes written.
+	 *
+	 * @throws IOException				thrown when unable to stream content.
+	 */
+	@Benchmark
+	public long byteArrayLoop() throws IOException {
+		InputStream inputStream = new StandInObjectStream(CONTENT_LENGTH, this.maxReadBytes);
+		long transferred = 0;
+		try(FileOutputStream fileOutputStream = new FileOutputStream(this.targetPath.toFile())) {
+			byte[] bufferSize = new byte[1024];
+			int contentIndex = 0;
+			do {
+				fileOutputStream.write(bufferSize, 0, contentIndex);
+				transferred += contentIndex;
+				contentIndex = inputStream.read(bufferSize);
+			} while(contentIndex > 0);
+		}
+		return transferred;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A Channels.newChannel adapter filling a 1 MB direct buffer before each FileChannel write.
+	 *
+	 * @return							the number of bytes written.
+	 *
+	 * @throws IOException				thrown when unable to stream content.
+	 */
+	@Benchmark
+	public long directBufferChannel() throws IOException {
+		ReadableByteChannel readableByteChannel = Channels.newChannel(
+				new StandInObjectStream(CONTENT_LENGTH, this.maxReadBytes));
+		ByteBuffer buffer = this.directBuffer;
+		buffer.clear();
+
+		long transferred = 0;
+		try(FileChannel fileChannel = this.openTarget()) {
+			boolean isEndOfStream = false;
+			while(!isEndOfStream) {
+				while(buffer.hasRemaining() && !isEndOfStream) {
+					isEndOfStream = readableByteChannel.read(buffer) < 0;
+				}
+
+				buffer.flip();
+				while(buffer.hasRemaining()) {
+					transferred += fileChannel.write(buffer);
+				}
+				buffer.clear();
+			}
+		}
+		return transferred;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * S3ChannelTransfer.transfer, filling a 1 MB heap array before each FileChannel write.
+	 *
+	 * @return							the number of bytes written.
+	 *
+	 * @throws IOException				thrown when unable to stream content.
+	 */
+	@Benchmark
+	public long channelTransfer() throws IOException {
+		try(FileChannel fileChannel = this.openTarget()) {
+			return S3ChannelTransfer.transfer(new StandInObjectStream(CONTENT_LENGTH, this.maxReadBytes),
+					fileChannel);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * S3ChannelTransfer.transferMapped into a pre-allocated, memory-mapped file.
+	 *
+	 * @return							the number of bytes written.
+	 *
+	 * @throws IOException				thrown when unable to stream content.
+	 */
+	@Benchmark
+	public long mappedTransfer() throws IOException {
+		return S3ChannelTransfer.transferMapped(new StandInObjectStream(CONTENT_LENGTH, this.maxReadBytes),
+				this.targetPath.toString(), CONTENT_LENGTH);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the target file channel, truncated.
+	 *
+	 * @return							the target file channel.
+	 *
+	 * @throws IOException				thrown when the target file could not be opened.
+	 */
+	private FileChannel openTarget() throws IOException {
+		return FileChannel.open(this.targetPath, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A stand-in for an S3 object stream, copying generated content out of a receive buffer at
+	 * most maxReadBytes at a time.
+	 */
+	static class StandInObjectStream extends InputStream {
+
+		/**
+		 * The generated content, repeated to the content length.
+		 */
+		private static final byte[] RECEIVE_BUFFER = new byte[64 * 1024];
+
+		static {
+			for(int index = 0; index < RECEIVE_BUFFER.length; index++) {
+				RECEIVE_BUFFER[index] = (byte) index;
+			}
+		}
+
+		/**
+		 * The number of bytes left to stream.
+		 */
+		private long remaining;
+
+		/**
+		 * The most bytes returned per read.
+		 */
+		private final int maxReadBytes;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param contentLength			the number of bytes streamed.
+		 * @param maxReadBytes			the most bytes returned per read.
+		 */
+		StandInObjectStream(long contentLength, int maxReadBytes) {
+			this.remaining = contentLength;
+			this.maxReadBytes = Math.min(maxReadBytes, RECEIVE_BUFFER.length);
+		}
+
+		@Override
+		public int read() {
+			if(this.remaining <= 0) {
+				return -1;
+			}
+			this.remaining--;
+			return RECEIVE_BUFFER[(int) (this.remaining % RECEIVE_BUFFER.length)] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) {
+			if(this.remaining <= 0) {
+				return -1;
+			}
+
+			int count = (int) Math.min(Math.min(length, this.maxReadBytes), this.remaining);
+			System.arraycopy(RECEIVE_BUFFER, 0, buffer, offset, count);
+			this.remaining -= count;
+			return count;
+		}
+	}
+}
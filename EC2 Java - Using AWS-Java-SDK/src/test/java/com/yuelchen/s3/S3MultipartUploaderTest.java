@@ -0,0 +1,127 @@
+package com.yuelchen.s3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.yuelchen.client.AwsClientFactory;
+
+/**
+ * Uploads files through S3ApiClient and S3MultipartUploader to a FakeS3Endpoint, checking that
+ * parts are streamed without holding file content in heap and that encryption and user metadata
+ * reach the object.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class S3MultipartUploaderTest {
+
+	private static final long MB = 1024L * 1024;
+
+	private static FakeS3Endpoint fakeS3Endpoint;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	//====================================================================================================
+
+	@BeforeClass
+	public static void startEndpoint() throws IOException {
+		fakeS3Endpoint = new FakeS3Endpoint();
+		System.setProperty("aws.accessKeyId", "test");
+		System.setProperty("aws.secretKey", "test");
+		AwsClientFactory.setLocalEndpoint(fakeS3Endpoint.getEndpoint(), "us-east-1");
+		S3ApiClient.setAmazonS3Client(AwsClientFactory.newS3Client());
+	}
+
+	//====================================================================================================
+
+	@AfterClass
+	public static void stopEndpoint() {
+		fakeS3Endpoint.close();
+		AwsClientFactory.setLocalEndpoint(null, null);
+	}
+
+	//====================================================================================================
+
+	@Test
+	public void uploadsLargeFileInPartsWithBoundedHeap() throws IOException {
+		//sparse, so the test does not write 256 MB to disk
+		File inputFile = this.temporaryFolder.newFile("large.bin");
+		try(RandomAccessFile randomAccessFile = new RandomAccessFile(inputFile, "rw")) {
+			randomAccessFile.setLength(256 * MB);
+		}
+
+		//a first upload loads the SDK's classes and caches, which are not part of the upload's heap
+		File warmUpFile = this.temporaryFolder.newFile("warm-up.bin");
+		try(RandomAccessFile randomAccessFile = new RandomAccessFile(warmUpFile, "rw")) {
+			randomAccessFile.setLength(2 * S3MultipartUploader.DEFAULT_PART_SIZE);
+		}
+		S3ApiClient.uploadWithAES256(warmUpFile.getPath(), "bucket", "warm-up.bin");
+
+		//the live heap is sampled while every part is halfway through, i.e. with all threads' parts in flight
+		long baselineBytes = getLiveHeapBytes();
+		AtomicLong peakBytes = new AtomicLong();
+		fakeS3Endpoint.setPartProgressHook(() -> peakBytes.accumulateAndGet(getLiveHeapBytes(), Math::max));
+		try {
+			S3ApiClient.uploadMetadataWithAES256(inputFile.getPath(), "bucket", "large.bin",
+					Collections.singletonMap("owner", "tests"));
+		} finally {
+			fakeS3Endpoint.setPartProgressHook(null);
+		}
+
+		assertEquals(256 * MB, fakeS3Endpoint.getObjectSize("bucket", "large.bin"));
+		assertEquals(2 + 256 * MB / S3MultipartUploader.DEFAULT_PART_SIZE, fakeS3Endpoint.getPartCount());
+		Map<String, String> headers = fakeS3Endpoint.getObjectHeaders("bucket", "large.bin");
+		assertEquals("AES256", headers.get("x-amz-server-side-encryption"));
+		assertEquals("tests", headers.get("x-amz-meta-owner"));
+
+		//buffering the parts in flight would hold 4 x 16 MB, the whole file 256 MB; streaming leaves
+		//only the SDK's per-connection buffers, a few MB per upload thread whatever the part size
+		long growthBytes = peakBytes.get() - baselineBytes;
+		System.out.println(String.format("Live heap grew by '%d' KB while uploading '%d' MB",
+				growthBytes / 1024, 256));
+		assertTrue("Live heap grew by " + growthBytes + " bytes", growthBytes < 2 * S3MultipartUploader.DEFAULT_PART_SIZE);
+	}
+
+	//====================================================================================================
+
+	@Test
+	public void uploadsSmallFileWithSingleRequest() throws IOException {
+		File inputFile = this.temporaryFolder.newFile("small.bin");
+		try(RandomAccessFile randomAccessFile = new RandomAccessFile(inputFile, "rw")) {
+			randomAccessFile.setLength(3 * MB);
+		}
+		int partCount = fakeS3Endpoint.getPartCount();
+
+		S3ApiClient.uploadWithAES256(inputFile.getPath(), "bucket", "small.bin");
+
+		assertEquals(3 * MB, fakeS3Endpoint.getObjectSize("bucket", "small.bin"));
+		assertEquals(partCount, fakeS3Endpoint.getPartCount());
+		assertEquals("AES256", fakeS3Endpoint.getObjectHeaders("bucket", "small.bin")
+				.get("x-amz-server-side-encryption"));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the heap used after a full collection.
+	 *
+	 * @return							the live heap in bytes.
+	 */
+	private static long getLiveHeapBytes() {
+		System.gc();
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+}
@@ -0,0 +1,173 @@
+package com.yuelchen.s3;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.http.client.methods.HttpGet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+/**
+ * S3ObjectContentBenchmark compares reading a text object: the original getObjectContent loop
+ * concatenating lines with +=, the current getObjectContent reading a single array sized to the
+ * content length, and getObjectLines streaming the lines.
+ *
+ * Objects are served from memory by a stand-in S3 client, so only reading and decoding is
+ * measured. Run with: mvn -Pbenchmark test -Dbenchmark=S3ObjectContentBenchmark
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class S3ObjectContentBenchmark {
+
+	/**
+	 * The length of each line, including its separator.
+	 */
+	private static final int LINE_LENGTH = 64;
+
+	/**
+	 * The size of the object in bytes.
+	 */
+	@Param({"16384", "262144"})
+	public int contentLength;
+
+	/**
+	 * The stand-in S3 client.
+	 */
+	private AmazonS3 standInS3Client;
+
+	//====================================================================================================
+
+	/**
+	 * Generates the object and installs the stand-in S3 client.
+	 */
+	@Setup
+	public void setUp() {
+		byte[] content = new byte[this.contentLength];
+		for(int index = 0; index < content.length; index++) {
+			content[index] = (byte) (index % LINE_LENGTH == LINE_LENGTH - 1 ? '\n' : 'a' + index % 26);
+		}
+
+		//S3ApiClient builds its default client when first used, which needs a region
+		System.setProperty("aws.region", "us-east-1");
+		this.standInS3Client = new StandInS3Client(content);
+		S3ApiClient.setAmazonS3Client(this.standInS3Client);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * The getObjectContent loop S3ApiClient used before: lines read with a BufferedReader and
+	 * concatenated with +=, copying the content read so far for every line.
+	 *
+	 * @return							the content.
+	 *
+	 * @throws IOException				thrown when unable to stream content.
+	 */
+	@Benchmark
+	public String concatenatedLines() throws IOException {
+		S3Object s3Object = this.standInS3Client.getObject("bucket", "object.txt");
+		S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent();
+		InputStreamReader inputStreamReader = new InputStreamReader(s3ObjectInputStream);
+		BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
+		String content = "", line = "";
+		do {
+			content += line;
+			line = bufferedReader.readLine();
+		} while(line != null);
+		s3ObjectInputStream.close();
+		inputStreamReader.close();
+		bufferedReader.close();
+		return content;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * S3ApiClient.getObjectContent, reading a single array sized to the content length.
+	 *
+	 * @return							the content.
+	 *
+	 * @throws IOException				thrown when unable to stream content.
+	 */
+	@Benchmark
+	public String objectContent() throws IOException {
+		return S3ApiClient.getObjectContent("bucket", "object.txt", StandardCharsets.UTF_8);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * S3ApiClient.getObjectLines, streaming the lines through the reader buffer.
+	 *
+	 * @return							the number of characters read, without line separators.
+	 */
+	@Benchmark
+	public long objectLines() {
+		try(Stream<String> lines = S3ApiClient.getObjectLines("bucket", "object.txt",
+				StandardCharsets.UTF_8, S3ApiClient.DEFAULT_LINE_BUFFER_SIZE)) {
+			return lines.mapToLong(String::length).sum();
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A stand-in S3 client serving a single object from memory.
+	 */
+	static class StandInS3Client extends AbstractAmazonS3 {
+
+		/**
+		 * The object content.
+		 */
+		private final byte[] content;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param content				the object content.
+		 */
+		StandInS3Client(byte[] content) {
+			this.content = content;
+		}
+
+		@Override
+		public S3Object getObject(String bucketName, String key) {
+			ObjectMetadata objectMetadata = new ObjectMetadata();
+			objectMetadata.setContentLength(this.content.length);
+
+			S3Object s3Object = new S3Object();
+			s3Object.setBucketName(bucketName);
+			s3Object.setKey(key);
+			s3Object.setObjectMetadata(objectMetadata);
+			s3Object.setObjectContent(new S3ObjectInputStream(new ByteArrayInputStream(this.content),
+					new HttpGet()));
+			return s3Object;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.yuelchen.sns;
+
+import static org.junit.Assert.assertEquals;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import com.amazonaws.services.sns.AbstractAmazonSNS;
+import com.amazonaws.services.sns.model.GetSubscriptionAttributesRequest;
+import com.amazonaws.services.sns.model.GetSubscriptionAttributesResult;
+import com.amazonaws.services.sns.model.SetSubscriptionAttributesRequest;
+import com.amazonaws.services.sns.model.SetSubscriptionAttributesResult;
+
+/**
+ * Runs SNSApiClient.setFilterPolicy against a stand-in SNS client recording the order in which
+ * subscription attributes are set.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class SNSApiClientTest {
+
+	private static final String SUBSCRIPTION_ARN = "arn:aws:sns:us-east-1:000000000000:topic:subscription";
+
+	private final Map<String, String> subscriptionAttributes = new HashMap<String, String>();
+
+	private final List<String> setAttributeNames = new ArrayList<String>();
+
+	//====================================================================================================
+
+	@Before
+	public void setUp() {
+		//SNSApiClient builds its default client on first use, which needs a region
+		System.setProperty("aws.region", "us-east-1");
+		SNSApiClient.setAmazonSNSClient(new AbstractAmazonSNS() {
+			@Override
+			public GetSubscriptionAttributesResult getSubscriptionAttributes(
+					GetSubscriptionAttributesRequest getSubscriptionAttributesRequest) {
+				return new GetSubscriptionAttributesResult()
+						.withAttributes(new HashMap<String, String>(subscriptionAttributes));
+			}
+
+			@Override
+			public SetSubscriptionAttributesResult setSubscriptionAttributes(
+					SetSubscriptionAttributesRequest setSubscriptionAttributesRequest) {
+				setAttributeNames.add(setSubscriptionAttributesRequest.getAttributeName());
+				subscriptionAttributes.put(setSubscriptionAttributesRequest.getAttributeName(),
+						setSubscriptionAttributesRequest.getAttributeValue());
+				return new SetSubscriptionAttributesResult();
+			}
+		});
+	}
+
+	//====================================================================================================
+
+	@Test
+	public void setsOnlyPolicyWhenScopeIsUnchanged() {
+		this.subscriptionAttributes.put(SNSFilterPolicy.FILTER_POLICY_ATTRIBUTE, "{\"store\":[\"example\"]}");
+
+		SNSApiClient.setFilterPolicy(SUBSCRIPTION_ARN, new SNSFilterPolicy("{\"store\":[\"other\"]}",
+				SNSFilterPolicy.Scope.MESSAGE_ATTRIBUTES));
+
+		assertEquals(Arrays.asList(SNSFilterPolicy.FILTER_POLICY_ATTRIBUTE), this.setAttributeNames);
+	}
+
+	//====================================================================================================
+
+	@Test
+	public void setsScopeFirstWhenMovingToMessageBody() {
+		SNSApiClient.setFilterPolicy(SUBSCRIPTION_ARN, new SNSFilterPolicy(
+				"{\"order\":{\"store\":[\"example\"]}}", SNSFilterPolicy.Scope.MESSAGE_BODY));
+
+		assertEquals(Arrays.asList(SNSFilterPolicy.FILTER_POLICY_SCOPE_ATTRIBUTE,
+				SNSFilterPolicy.FILTER_POLICY_ATTRIBUTE), this.setAttributeNames);
+		assertEquals("MessageBody", this.subscriptionAttributes.get(SNSFilterPolicy.FILTER_POLICY_SCOPE_ATTRIBUTE));
+	}
+
+	//====================================================================================================
+
+	@Test
+	public void setsPolicyFirstWhenMovingToMessageAttributes() {
+		this.subscriptionAttributes.put(SNSFilterPolicy.FILTER_POLICY_SCOPE_ATTRIBUTE, "MessageBody");
+
+		SNSApiClient.setFilterPolicy(SUBSCRIPTION_ARN, new SNSFilterPolicy("{\"store\":[\"example\"]}",
+				SNSFilterPolicy.Scope.MESSAGE_ATTRIBUTES));
+
+		assertEquals(Arrays.asList(SNSFilterPolicy.FILTER_POLICY_ATTRIBUTE,
+				SNSFilterPolicy.FILTER_POLICY_SCOPE_ATTRIBUTE), this.setAttributeNames);
+		assertEquals("MessageAttributes", this.subscriptionAttributes.get(
+				SNSFilterPolicy.FILTER_POLICY_SCOPE_ATTRIBUTE));
+	}
+}
@@ -0,0 +1,360 @@
+package com.yuelchen.sqs;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResultEntry;
+import com.amazonaws.services.sqs.model.CreateQueueRequest;
+import com.amazonaws.services.sqs.model.CreateQueueResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.GetQueueUrlRequest;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageResult;
+
+/**
+ * InMemorySQS is an in-memory stand-in for the SQS queue APIs used by the SQS engines: queue
+ * creation and lookup, SendMessage, long polling ReceiveMessage with visibility timeouts, and the
+ * DeleteMessageBatch and ChangeMessageVisibilityBatch APIs.
+ *
+ * It counts the requests it serves, so tests can check how many receives a consumer made and how
+ * many of them returned no messages.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class InMemorySQS extends AbstractAmazonSQS {
+
+	/**
+	 * The visibility timeout in seconds of received messages when the request sets none.
+	 */
+	public static final int DEFAULT_VISIBILITY_TIMEOUT_SECONDS = 30;
+
+	/**
+	 * The queues mapped by queue url.
+	 */
+	private final Map<String, StoredQueue> queues = new ConcurrentHashMap<String, StoredQueue>();
+
+	/**
+	 * The number of ReceiveMessage requests served.
+	 */
+	private final AtomicLong receiveCount = new AtomicLong();
+
+	/**
+	 * The number of ReceiveMessage requests which returned no messages.
+	 */
+	private final AtomicLong emptyReceiveCount = new AtomicLong();
+
+	/**
+	 * The number of messages deleted.
+	 */
+	private final AtomicLong deletedCount = new AtomicLong();
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of ReceiveMessage requests served.
+	 *
+	 * @return							the receive count.
+	 */
+	public long getReceiveCount() {
+		return this.receiveCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of ReceiveMessage requests which returned no messages.
+	 *
+	 * @return							the empty receive count.
+	 */
+	public long getEmptyReceiveCount() {
+		return this.emptyReceiveCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of messages deleted.
+	 *
+	 * @return							the deleted message count.
+	 */
+	public long getDeletedCount() {
+		return this.deletedCount.get();
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the number of messages of given queue which are received but not deleted.
+	 *
+	 * @param queueName					the queue name.
+	 *
+	 * @return							the in-flight message count.
+	 */
+	public int getInFlightCount(String queueName) {
+		StoredQueue storedQueue = this.getQueue(toQueueUrl(queueName));
+		synchronized(storedQueue) {
+			return storedQueue.inFlightMessages.size();
+		}
+	}
+
+	//====================================================================================================
+
+	@Override
+	public CreateQueueResult createQueue(CreateQueueRequest createQueueRequest) {
+		String queueUrl = toQueueUrl(createQueueRequest.getQueueName());
+		this.queues.putIfAbsent(queueUrl, new StoredQueue());
+		return new CreateQueueResult().withQueueUrl(queueUrl);
+	}
+
+	//====================================================================================================
+
+	@Override
+	public GetQueueUrlResult getQueueUrl(GetQueueUrlRequest getQueueUrlRequest) {
+		String queueUrl = toQueueUrl(getQueueUrlRequest.getQueueName());
+		this.getQueue(queueUrl);
+		return new GetQueueUrlResult().withQueueUrl(queueUrl);
+	}
+
+	//====================================================================================================
+
+	@Override
+	public SendMessageResult sendMessage(SendMessageRequest sendMessageRequest) {
+		StoredQueue storedQueue = this.getQueue(sendMessageRequest.getQueueUrl());
+		String messageId = UUID.randomUUID().toString();
+		synchronized(storedQueue) {
+			storedQueue.visibleMessages.add(new StoredMessage(messageId, sendMessageRequest.getMessageBody()));
+			storedQueue.notifyAll();
+		}
+		return new SendMessageResult().withMessageId(messageId);
+	}
+
+	//====================================================================================================
+
+	@Override
+	public ReceiveMessageResult receiveMessage(ReceiveMessageRequest receiveMessageRequest) {
+		StoredQueue storedQueue = this.getQueue(receiveMessageRequest.getQueueUrl());
+		int maxNumberOfMessages = receiveMessageRequest.getMaxNumberOfMessages() == null
+				? 1 : receiveMessageRequest.getMaxNumberOfMessages();
+		long waitMillis = receiveMessageRequest.getWaitTimeSeconds() == null
+				? 0 : receiveMessageRequest.getWaitTimeSeconds() * 1000L;
+		long visibilityMillis = (receiveMessageRequest.getVisibilityTimeout() == null
+				? DEFAULT_VISIBILITY_TIMEOUT_SECONDS : receiveMessageRequest.getVisibilityTimeout()) * 1000L;
+
+		List<Message> messages = new ArrayList<Message>();
+		synchronized(storedQueue) {
+			long deadline = System.currentTimeMillis() + waitMillis;
+			storedQueue.releaseExpired();
+			while(storedQueue.visibleMessages.isEmpty() && System.currentTimeMillis() < deadline) {
+				try {
+					//woken by sends; expired messages are checked at least every 100 ms
+					storedQueue.wait(Math.min(100, Math.max(1, deadline - System.currentTimeMillis())));
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				storedQueue.releaseExpired();
+			}
+
+			while(messages.size() < maxNumberOfMessages && !storedQueue.visibleMessages.isEmpty()) {
+				StoredMessage storedMessage = storedQueue.visibleMessages.removeFirst();
+				String receiptHandle = UUID.randomUUID().toString();
+				storedMessage.visibleAt = System.currentTimeMillis() + visibilityMillis;
+				storedQueue.inFlightMessages.put(receiptHandle, storedMessage);
+				messages.add(new Message()
+						.withMessageId(storedMessage.messageId)
+						.withReceiptHandle(receiptHandle)
+						.withBody(storedMessage.body));
+			}
+		}
+
+		this.receiveCount.incrementAndGet();
+		if(messages.isEmpty()) {
+			this.emptyReceiveCount.incrementAndGet();
+		}
+		return new ReceiveMessageResult().withMessages(messages);
+	}
+
+	//====================================================================================================
+
+	@Override
+	public DeleteMessageBatchResult deleteMessageBatch(DeleteMessageBatchRequest deleteMessageBatchRequest) {
+		StoredQueue storedQueue = this.getQueue(deleteMessageBatchRequest.getQueueUrl());
+		DeleteMessageBatchResult deleteMessageBatchResult = new DeleteMessageBatchResult();
+		synchronized(storedQueue) {
+			for(DeleteMessageBatchRequestEntry entry : deleteMessageBatchRequest.getEntries()) {
+				if(storedQueue.inFlightMessages.remove(entry.getReceiptHandle()) != null) {
+					this.deletedCount.incrementAndGet();
+					deleteMessageBatchResult.withSuccessful(new DeleteMessageBatchResultEntry()
+							.withId(entry.getId()));
+				} else {
+					deleteMessageBatchResult.withFailed(newInvalidReceiptHandle(entry.getId()));
+				}
+			}
+		}
+		return deleteMessageBatchResult;
+	}
+
+	//====================================================================================================
+
+	@Override
+	public ChangeMessageVisibilityBatchResult changeMessageVisibilityBatch(
+			ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest) {
+
+		StoredQueue storedQueue = this.getQueue(changeMessageVisibilityBatchRequest.getQueueUrl());
+		ChangeMessageVisibilityBatchResult changeMessageVisibilityBatchResult =
+				new ChangeMessageVisibilityBatchResult();
+		synchronized(storedQueue) {
+			for(ChangeMessageVisibilityBatchRequestEntry entry : changeMessageVisibilityBatchRequest.getEntries()) {
+				StoredMessage storedMessage = storedQueue.inFlightMessages.get(entry.getReceiptHandle());
+				if(storedMessage != null) {
+					storedMessage.visibleAt = System.currentTimeMillis() + entry.getVisibilityTimeout() * 1000L;
+					changeMessageVisibilityBatchResult.withSuccessful(
+							new ChangeMessageVisibilityBatchResultEntry().withId(entry.getId()));
+				} else {
+					changeMessageVisibilityBatchResult.withFailed(newInvalidReceiptHandle(entry.getId()));
+				}
+			}
+		}
+		return changeMessageVisibilityBatchResult;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the queue with given url.
+	 *
+	 * @param queueUrl					the queue url.
+	 *
+	 * @return							the queue.
+	 *
+	 * @throws QueueDoesNotExistException	thrown when the queue was not created.
+	 */
+	private StoredQueue getQueue(String queueUrl) {
+		StoredQueue storedQueue = this.queues.get(queueUrl);
+		if(storedQueue == null) {
+			QueueDoesNotExistException queueDoesNotExistException = new QueueDoesNotExistException(
+					"The specified queue does not exist.");
+			queueDoesNotExistException.setStatusCode(400);
+			throw queueDoesNotExistException;
+		}
+		return storedQueue;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the url of the queue with given name.
+	 *
+	 * @param queueName					the queue name.
+	 *
+	 * @return							the queue url.
+	 */
+	private static String toQueueUrl(String queueName) {
+		return "http://localhost/000000000000/" + queueName;
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Returns the batch error entry for a receipt handle which is not in flight.
+	 *
+	 * @param entryId					the batch entry Id.
+	 *
+	 * @return							the batch error entry.
+	 */
+	private static BatchResultErrorEntry newInvalidReceiptHandle(String entryId) {
+		return new BatchResultErrorEntry()
+				.withId(entryId)
+				.withCode("ReceiptHandleIsInvalid")
+				.withMessage("The receipt handle is not valid")
+				.withSenderFault(true);
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A queue's messages; guarded by the queue itself.
+	 */
+	private static class StoredQueue {
+
+		/**
+		 * The messages which can be received, in send order.
+		 */
+		private final LinkedList<StoredMessage> visibleMessages = new LinkedList<StoredMessage>();
+
+		/**
+		 * The received messages mapped by receipt handle.
+		 */
+		private final Map<String, StoredMessage> inFlightMessages = new LinkedHashMap<String, StoredMessage>();
+
+		/**
+		 * Makes in-flight messages whose visibility timeout ran out visible again.
+		 */
+		private void releaseExpired() {
+			long now = System.currentTimeMillis();
+			Iterator<StoredMessage> iterator = this.inFlightMessages.values().iterator();
+			while(iterator.hasNext()) {
+				StoredMessage storedMessage = iterator.next();
+				if(storedMessage.visibleAt <= now) {
+					iterator.remove();
+					this.visibleMessages.add(storedMessage);
+				}
+			}
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * A stored message.
+	 */
+	private static class StoredMessage {
+
+		/**
+		 * The message Id.
+		 */
+		private final String messageId;
+
+		/**
+		 * The message body.
+		 */
+		private final String body;
+
+		/**
+		 * The time in milliseconds when the received message becomes visible again.
+		 */
+		private long visibleAt;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param messageId				the message Id.
+		 * @param body					the message body.
+		 */
+		private StoredMessage(String messageId, String body) {
+			this.messageId = messageId;
+			this.body = body;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.yuelchen.sqs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.function.LongSupplier;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Drives SQSConsumer against an InMemorySQS, checking its counters: every message is handled
+ * and deleted once, handlers run concurrently, and long polling keeps empty receives rare.
+ *
+ * @author 	yuelchen
+ * @version	1.0.0
+ * @since 	2019-09-01
+ */
+public class SQSConsumerTest {
+
+	private InMemorySQS inMemorySQS;
+
+	//====================================================================================================
+
+	@BeforeClass
+	public static void setRegion() {
+		//SQSApiClient builds its default client on first use, which needs a region
+		System.setProperty("aws.region", "us-east-1");
+	}
+
+	//====================================================================================================
+
+	@Before
+	public void setUp() {
+		this.inMemorySQS = new InMemorySQS();
+		SQSApiClient.setAmazonSQSClient(this.inMemorySQS);
+	}
+
+	//====================================================================================================
+
+	@Test
+	public void consumesEveryMessageConcurrently() throws InterruptedException {
+		String queueName = "consumer-throughput";
+		int messageCount = 200;
+		long handleMillis = 20;
+		publish(queueName, messageCount, "message");
+
+		long elapsedMillis;
+		try(SQSConsumer sqsConsumer = new SQSConsumer(queueName, message -> Thread.sleep(handleMillis),
+				2, 8, 1)) {
+			long start = System.currentTimeMillis();
+			sqsConsumer.start();
+			awaitCount(sqsConsumer::getProcessedCount, messageCount);
+			elapsedMillis = System.currentTimeMillis() - start;
+
+			assertEquals(messageCount, sqsConsumer.getReceivedCount());
+			assertEquals(0, sqsConsumer.getFailedCount());
+			//receivers ask for up to 10 messages, never more than there are free worker slots
+			assertTrue(sqsConsumer.getReceiveCount() >= messageCount / SQSConsumer.MAX_RECEIVE_MESSAGES);
+			assertTrue(sqsConsumer.getReceiveCount() - sqsConsumer.getEmptyReceiveCount() < messageCount);
+		}
+
+		assertEquals(messageCount, this.inMemorySQS.getDeletedCount());
+		assertEquals(0, this.inMemorySQS.getInFlightCount(queueName));
+		System.out.println(String.format("Consumed '%d' messages in '%d' ms, '%.0f' messages per second",
+				messageCount, elapsedMillis, messageCount * 1000.0 / elapsedMillis));
+
+		//handling one message at a time would take messageCount x handleMillis
+		assertTrue("Consumed in " + elapsedMillis + " ms", elapsedMillis < messageCount * handleMillis / 2);
+	}
+
+	//====================================================================================================
+
+	@Test
+	public void longPollsEmptyQueue() throws InterruptedException {
+		String queueName = "consumer-empty";
+		SQSApiClient.createQueue(queueName);
+
+		SQSConsumer sqsConsumer = new SQSConsumer(queueName, message -> {}, 2, 2, 1);
+		sqsConsumer.start();
+		Thread.sleep(2500);
+		sqsConsumer.close();
+
+		//each receiver waits a second per receive, so it makes about three in 2.5 seconds
+		assertEquals(sqsConsumer.getReceiveCount(), sqsConsumer.getEmptyReceiveCount());
+		assertEquals(this.inMemorySQS.getReceiveCount(), sqsConsumer.getReceiveCount());
+		assertTrue(sqsConsumer.getEmptyReceiveCount() >= 2);
+		assertTrue("Made " + sqsConsumer.getEmptyReceiveCount() + " empty receives",
+				sqsConsumer.getEmptyReceiveCount() <= 8);
+		assertEquals(0, sqsConsumer.getReceivedCount());
+	}
+
+	//====================================================================================================
+
+	@Test
+	public void leavesFailedMessagesOnQueue() throws InterruptedException {
+		String queueName = "consumer-failures";
+		publish(queueName, 10, "message");
+		publish(queueName, 5, "failure");
+
+		try(SQSConsumer sqsConsumer = new SQSConsumer(queueName, message -> {
+					if(message.getBody().startsWith("failure")) {
+						throw new IllegalArgumentException("Unable to handle " + message.getBody());
+					}
+				}, 1, 2, 1)) {
+			sqsConsumer.start();
+			awaitCount(() -> sqsConsumer.getProcessedCount() + sqsConsumer.getFailedCount(), 15);
+
+			assertEquals(10, sqsConsumer.getProcessedCount());
+			assertEquals(5, sqsConsumer.getFailedCount());
+		}
+
+		//failed messages stay in flight until their visibility timeout runs out
+		assertEquals(10, this.inMemorySQS.getDeletedCount());
+		assertEquals(5, this.inMemorySQS.getInFlightCount(queueName));
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Creates the queue and publishes numbered messages to it.
+	 *
+	 * @param queueName					the queue name.
+	 * @param messageCount				the number of messages.
+	 * @param bodyPrefix				the prefix of message bodies.
+	 */
+	private static void publish(String queueName, int messageCount, String bodyPrefix) {
+		SQSApiClient.createQueue(queueName);
+		for(int index = 0; index < messageCount; index++) {
+			SQSApiClient.publishStandardMessage(queueName, bodyPrefix + "-" + index);
+		}
+	}
+
+	//====================================================================================================
+
+	/**
+	 * Waits at most ten seconds until the counter reaches the expected count.
+	 *
+	 * @param counter					the counter.
+	 * @param expectedCount				the expected count.
+	 *
+	 * @throws InterruptedException		thrown when interrupted while waiting.
+	 */
+	private static void awaitCount(LongSupplier counter, long expectedCount) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while(counter.getAsLong() < expectedCount && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(expectedCount, counter.getAsLong());
+	}
+}
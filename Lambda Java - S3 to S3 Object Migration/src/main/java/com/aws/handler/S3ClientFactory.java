@@ -0,0 +1,61 @@
+package com.aws.handler;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.ylc.log.AppLog;
+
+public class S3ClientFactory {
+	//tuning is read from the function's environment variables so it can change without a redeploy
+	public static final String ENV_MAX_CONNECTIONS = "S3_MAX_CONNECTIONS";
+	public static final String ENV_CONNECTION_TIMEOUT = "S3_CONNECTION_TIMEOUT_MS";
+	public static final String ENV_SOCKET_TIMEOUT = "S3_SOCKET_TIMEOUT_MS";
+	public static final String ENV_MAX_ERROR_RETRY = "S3_MAX_ERROR_RETRY";
+	public static final String ENV_ENDPOINT = "S3_ENDPOINT";
+	public static final String ENV_REGION = "AWS_REGION";
+
+	//covers 8 record threads times 10 copy part threads, so concurrent part copies never wait on the pool
+	private static final int DEFAULT_MAX_CONNECTIONS = 100;
+	private static final int DEFAULT_CONNECTION_TIMEOUT = 5000;
+	private static final int DEFAULT_SOCKET_TIMEOUT = 60000;
+	private static final int DEFAULT_MAX_ERROR_RETRY = 5;
+	private static final String DEFAULT_REGION = "us-east-1";
+
+	public static ClientConfiguration getClientConfiguration() {
+		return new ClientConfiguration()
+				.withMaxConnections(getIntEnv(ENV_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS))
+				.withConnectionTimeout(getIntEnv(ENV_CONNECTION_TIMEOUT, DEFAULT_CONNECTION_TIMEOUT))
+				.withSocketTimeout(getIntEnv(ENV_SOCKET_TIMEOUT, DEFAULT_SOCKET_TIMEOUT))
+				.withMaxErrorRetry(getIntEnv(ENV_MAX_ERROR_RETRY, DEFAULT_MAX_ERROR_RETRY))
+				.withTcpKeepAlive(true);
+	}
+
+	public static AmazonS3 newS3Client() {
+		AmazonS3ClientBuilder builder = AmazonS3ClientBuilder.standard().withClientConfiguration(getClientConfiguration());
+
+		//a local endpoint needs path style access since local stand-ins do not resolve bucket subdomains
+		String endpoint = System.getenv(ENV_ENDPOINT);
+		if(endpoint != null && !endpoint.isEmpty()) {
+			String region = System.getenv(ENV_REGION) != null ? System.getenv(ENV_REGION) : DEFAULT_REGION;
+			builder.withEndpointConfiguration(new EndpointConfiguration(endpoint, region)).withPathStyleAccessEnabled(true);
+			AppLog.log.info("Using S3 endpoint '" + endpoint + "' with signing region '" + region + "'");
+		}
+
+		return builder.build();
+	}
+
+	private static int getIntEnv(String name, int defaultValue) {
+		String value = System.getenv(name);
+		if(value == null || value.isEmpty()) {
+			return defaultValue;
+		}
+
+		try {
+			return Integer.parseInt(value.trim());
+		} catch(NumberFormatException e) {
+			AppLog.log.warn("Ignoring environmental variable '" + name + "' with non-numeric value '" + value + "'; using default '" + defaultValue + "'");
+			return defaultValue;
+		}
+	}
+}
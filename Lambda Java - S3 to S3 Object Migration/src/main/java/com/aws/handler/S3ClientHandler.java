@@ -2,38 +2,80 @@ package com.aws.handler;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.SSEAwsKeyManagementParams;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.ylc.log.AppLog;
 
 public class S3ClientHandler {
-	private static AmazonS3 client = AmazonS3ClientBuilder.defaultClient();
+	//built on first use rather than during class loading so handler init only pays for it when asked to prewarm
+	private static volatile AmazonS3 client;
+	private static final int TRANSFER_BUFFER_SIZE = 1024 * 1024;
+	
+	//each transfer thread reuses one array; the stream reads straight into it since a Channels.newChannel adapter
+	//would copy through its own 8 KB array per read, making a direct buffer one more copy rather than one less
+	private static final ThreadLocal<byte[]> transferBuffer = ThreadLocal.withInitial(() -> new byte[TRANSFER_BUFFER_SIZE]);
+	
+	public static void setClient(AmazonS3 s3Client) {
+		client = s3Client;
+	}
+	
+	public static AmazonS3 getClient() {
+		AmazonS3 s3Client = client;
+		if(s3Client == null) {
+			synchronized(S3ClientHandler.class) {
+				if(client == null) {
+					client = S3ClientFactory.newS3Client();
+				}
+				s3Client = client;
+			}
+		}
+		return s3Client;
+	}
+	
+	public static void prewarm(String bucketName) {
+		//a cheap request also loads the signer, HTTP and TLS classes the first transfer would otherwise pay for
+		AmazonS3 s3Client = getClient();
+		if(bucketName != null && !bucketName.isEmpty()) {
+			try {
+				s3Client.doesBucketExistV2(bucketName);
+			} catch(SdkClientException e) {
+				AppLog.log.warn("Unable to prewarm S3 client against bucket '" + bucketName + "' due to SdkClientException: " + e.getMessage() + "; caused by " + e.getCause());
+			}
+		}
+	}
 	
 	public static boolean downloadObject(String bucketName, String objectPrefix, String location) {
 		try {
-			S3Object s3Object = client.getObject(bucketName, objectPrefix);
-			S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent();
-
-	        File file = new File(location);
-	        FileOutputStream fileOutputStream = new FileOutputStream(file);
-			
-	        int length = 0;
-	        byte[] byteSize = new byte[1024];
-	        do {
-	            fileOutputStream.write(byteSize, 0, length);
-	            length = s3ObjectInputStream.read(byteSize);
-	        } while(length > 0);
-
-	        s3ObjectInputStream.close();
-	        fileOutputStream.close();
-	        return true;
+			S3Object s3Object = getClient().getObject(bucketName, objectPrefix);
+			try(S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent();
+					FileChannel fileChannel = FileChannel.open(Paths.get(location), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				transferToChannel(s3ObjectInputStream, fileChannel);
+			}
+			return true;
 		
 		} catch(AmazonS3Exception e) {
 			AppLog.log.error("Unable to download file from 's3://" + bucketName + "/" + objectPrefix + "' to local temp location '" + location + "' due to AmazonS3Exception: " + e.getMessage() + "; caused by " + e.getCause());
@@ -49,7 +91,7 @@ public class S3ClientHandler {
 			File file = new File(location);
 			
 			PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, objectPrefix, file);
-			client.putObject(putObjectRequest);
+			getClient().putObject(putObjectRequest);
 			
 			file.delete();
 			return true;
@@ -71,13 +113,13 @@ public class S3ClientHandler {
 	        objectMetadata.setSSEAlgorithm(ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
 
 	        PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, objectPrefix, fileInputStream, objectMetadata);
-	        client.putObject(putObjectRequest);
+	        getClient().putObject(putObjectRequest);
 	        
 	        fileInputStream.close();
 	        
 	        File file = new File(location);
 	        file.delete();
-	        return true;
+			return true;
 	        
 		} catch(AmazonS3Exception e) {
 			AppLog.log.error("Unable to upload file from '" + location + "' to 's3://" + bucketName + "/" + objectPrefix + "' with AES256 due to AmazonS3Exception: " + e.getMessage() + "; caused by " + e.getCause());
@@ -89,4 +131,162 @@ public class S3ClientHandler {
 
 		return false;
     }
+	
+	public static ObjectMetadata getObjectMetadata(String bucketName, String objectPrefix) {
+		try {
+			return getClient().getObjectMetadata(bucketName, objectPrefix);
+			
+		} catch(AmazonS3Exception e) {
+			AppLog.log.error("Unable to retrieve metadata for 's3://" + bucketName + "/" + objectPrefix + "' due to AmazonS3Exception: " + e.getMessage() + "; caused by " + e.getCause());
+		} catch(SdkClientException e) {
+			AppLog.log.error("Unable to retrieve metadata for 's3://" + bucketName + "/" + objectPrefix + "' due to SdkClientException: " + e.getMessage() + "; caused by " + e.getCause());
+		}
+		
+		return null;
+	}
+	
+	public static boolean copyObject(String sourceBucket, String sourcePrefix, String destinationBucket, String destinationPrefix, ObjectMetadata sourceMetadata) {
+		try {
+			//same metadata and encryption as the multipart path so the destination does not depend on object size
+			CopyObjectRequest copyObjectRequest = new CopyObjectRequest(sourceBucket, sourcePrefix, destinationBucket, destinationPrefix)
+					.withNewObjectMetadata(getCopyMetadata(sourceMetadata))
+					.withMatchingETagConstraint(sourceMetadata.getETag());
+			if(sourceMetadata.getSSEAwsKmsKeyId() != null) {
+				copyObjectRequest.setSSEAwsKeyManagementParams(new SSEAwsKeyManagementParams(sourceMetadata.getSSEAwsKmsKeyId()));
+			}
+			//the client returns null instead of throwing when the ETag constraint fails
+			if(getClient().copyObject(copyObjectRequest) == null) {
+				AppLog.log.error("Unable to copy 's3://" + sourceBucket + "/" + sourcePrefix + "' to 's3://" + destinationBucket + "/" + destinationPrefix + "' since the source object changed during the copy");
+				return false;
+			}
+			return true;
+			
+		} catch(AmazonS3Exception e) {
+			AppLog.log.error("Unable to copy 's3://" + sourceBucket + "/" + sourcePrefix + "' to 's3://" + destinationBucket + "/" + destinationPrefix + "' due to AmazonS3Exception: " + e.getMessage() + "; caused by " + e.getCause());
+		} catch(SdkClientException e) {
+			AppLog.log.error("Unable to copy 's3://" + sourceBucket + "/" + sourcePrefix + "' to 's3://" + destinationBucket + "/" + destinationPrefix + "' due to SdkClientException: " + e.getMessage() + "; caused by " + e.getCause());
+		}
+		
+		return false;
+	}
+	
+	public static boolean multipartCopyObject(String sourceBucket, String sourcePrefix, String destinationBucket, String destinationPrefix, 
+			ObjectMetadata sourceMetadata, long partSize, ExecutorService executor) {
+		String uploadId = null;
+		List<Future<PartETag>> partFutures = new ArrayList<Future<PartETag>>();
+		try {
+			InitiateMultipartUploadRequest initiateRequest = new InitiateMultipartUploadRequest(destinationBucket, destinationPrefix, getCopyMetadata(sourceMetadata));
+			if(sourceMetadata.getSSEAwsKmsKeyId() != null) {
+				initiateRequest.setSSEAwsKeyManagementParams(new SSEAwsKeyManagementParams(sourceMetadata.getSSEAwsKmsKeyId()));
+			}
+			uploadId = getClient().initiateMultipartUpload(initiateRequest).getUploadId();
+			
+			//every part is an independent server-side UploadPartCopy so the object bytes never reach the function
+			long contentLength = sourceMetadata.getContentLength();
+			int partNumber = 1;
+			for(long firstByte = 0; firstByte < contentLength; firstByte += partSize) {
+				CopyPartRequest copyPartRequest = new CopyPartRequest()
+						.withSourceBucketName(sourceBucket)
+						.withSourceKey(sourcePrefix)
+						.withDestinationBucketName(destinationBucket)
+						.withDestinationKey(destinationPrefix)
+						.withUploadId(uploadId)
+						//parts only copy the version whose metadata was read, so an overwrite mid-copy fails instead of mixing versions
+						.withMatchingETagConstraint(sourceMetadata.getETag())
+						.withPartNumber(partNumber++)
+						.withFirstByte(firstByte)
+						.withLastByte(Math.min(firstByte + partSize, contentLength) - 1);
+				partFutures.add(executor.submit(() -> {
+					CopyPartResult copyPartResult = getClient().copyPart(copyPartRequest);
+					if(copyPartResult == null) {
+						throw new SdkClientException("Source object 's3://" + sourceBucket + "/" + sourcePrefix + "' changed during the copy of part " + copyPartRequest.getPartNumber());
+					}
+					return copyPartResult.getPartETag();
+				}));
+			}
+			
+			List<PartETag> partETags = new ArrayList<PartETag>();
+			for(Future<PartETag> partFuture : partFutures) {
+				partETags.add(partFuture.get());
+			}
+			
+			getClient().completeMultipartUpload(new CompleteMultipartUploadRequest(destinationBucket, destinationPrefix, uploadId, partETags));
+			return true;
+			
+		} catch(AmazonS3Exception e) {
+			AppLog.log.error("Unable to multipart copy 's3://" + sourceBucket + "/" + sourcePrefix + "' to 's3://" + destinationBucket + "/" + destinationPrefix + "' due to AmazonS3Exception: " + e.getMessage() + "; caused by " + e.getCause());
+		} catch(SdkClientException e) {
+			AppLog.log.error("Unable to multipart copy 's3://" + sourceBucket + "/" + sourcePrefix + "' to 's3://" + destinationBucket + "/" + destinationPrefix + "' due to SdkClientException: " + e.getMessage() + "; caused by " + e.getCause());
+		} catch(ExecutionException e) {
+			AppLog.log.error("Unable to multipart copy 's3://" + sourceBucket + "/" + sourcePrefix + "' to 's3://" + destinationBucket + "/" + destinationPrefix + "' due to ExecutionException: " + e.getMessage() + "; caused by " + e.getCause());
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			AppLog.log.error("Unable to multipart copy 's3://" + sourceBucket + "/" + sourcePrefix + "' to 's3://" + destinationBucket + "/" + destinationPrefix + "' due to InterruptedException: " + e.getMessage());
+		}
+		
+		//parts still queued or running would otherwise keep copying into an upload that is about to be aborted
+		for(Future<PartETag> partFuture : partFutures) {
+			partFuture.cancel(true);
+		}
+		abortMultipartUpload(destinationBucket, destinationPrefix, uploadId);
+		return false;
+	}
+	
+	private static long transferToChannel(InputStream inputStream, FileChannel fileChannel) throws IOException {
+		byte[] array = transferBuffer.get();
+		
+		long transferred = 0;
+		boolean endOfStream = false;
+		while(!endOfStream) {
+			//fill the whole buffer before writing so each write syscall covers up to TRANSFER_BUFFER_SIZE bytes
+			int filled = 0;
+			while(filled < array.length && !endOfStream) {
+				int read = inputStream.read(array, filled, array.length - filled);
+				if(read < 0) {
+					endOfStream = true;
+				} else {
+					filled += read;
+				}
+			}
+			
+			ByteBuffer buffer = ByteBuffer.wrap(array, 0, filled);
+			while(buffer.hasRemaining()) {
+				transferred += fileChannel.write(buffer);
+			}
+		}
+		return transferred;
+	}
+	
+	private static ObjectMetadata getCopyMetadata(ObjectMetadata sourceMetadata) {
+		ObjectMetadata objectMetadata = new ObjectMetadata();
+		objectMetadata.setUserMetadata(sourceMetadata.getUserMetadata());
+		if(sourceMetadata.getContentType() != null) {
+			objectMetadata.setContentType(sourceMetadata.getContentType());
+		}
+		if(sourceMetadata.getContentEncoding() != null) {
+			objectMetadata.setContentEncoding(sourceMetadata.getContentEncoding());
+		}
+		if(sourceMetadata.getCacheControl() != null) {
+			objectMetadata.setCacheControl(sourceMetadata.getCacheControl());
+		}
+		if(sourceMetadata.getContentDisposition() != null) {
+			objectMetadata.setContentDisposition(sourceMetadata.getContentDisposition());
+		}
+		if(ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION.equals(sourceMetadata.getSSEAlgorithm())) {
+			objectMetadata.setSSEAlgorithm(ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
+		}
+		return objectMetadata;
+	}
+	
+	private static void abortMultipartUpload(String bucketName, String objectPrefix, String uploadId) {
+		if(uploadId == null) {
+			return;
+		}
+		
+		try {
+			getClient().abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, objectPrefix, uploadId));
+		} catch(SdkClientException e) {
+			AppLog.log.error("Unable to abort multipart upload '" + uploadId + "' for 's3://" + bucketName + "/" + objectPrefix + "' due to SdkClientException: " + e.getMessage() + "; caused by " + e.getCause());
+		}
+	}
 }
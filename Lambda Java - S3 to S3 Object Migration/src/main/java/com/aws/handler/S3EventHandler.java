@@ -1,18 +1,36 @@
 package com.aws.handler;
 
+import java.util.List;
 import com.amazonaws.services.lambda.runtime.events.S3Event;
+import com.amazonaws.services.s3.event.S3EventNotification.S3EventNotificationRecord;
 
 public class S3EventHandler {
 	
+	public static List<S3EventNotificationRecord> getRecords(S3Event event) {
+		return event.getRecords();
+	}
+	
 	public static String getEventType(S3Event event) {
-		return event.getRecords().get(0).getEventName();
+		return getEventType(event.getRecords().get(0));
 	}
 	
 	public static String getBucketName(S3Event event) {
-		return event.getRecords().get(0).getS3().getBucket().getName();
+		return getBucketName(event.getRecords().get(0));
 	}
 	
 	public static String getObjectPrefix(S3Event event) {
-		return event.getRecords().get(0).getS3().getObject().getKey();
+		return getObjectPrefix(event.getRecords().get(0));
+	}
+	
+	public static String getEventType(S3EventNotificationRecord record) {
+		return record.getEventName();
+	}
+	
+	public static String getBucketName(S3EventNotificationRecord record) {
+		return record.getS3().getBucket().getName();
+	}
+	
+	public static String getObjectPrefix(S3EventNotificationRecord record) {
+		return record.getS3().getObject().getKey();
 	}
 }
\ No newline at end of file
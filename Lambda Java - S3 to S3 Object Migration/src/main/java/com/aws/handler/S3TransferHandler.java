@@ -0,0 +1,133 @@
+package com.aws.handler;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.ylc.log.AppLog;
+
+public class S3TransferHandler {
+	//single CopyObject requests are limited to 5 GB by S3; anything larger has to be copied in parts
+	public static final long COPY_OBJECT_MAX_SIZE = 5L * 1024 * 1024 * 1024;
+	public static final long COPY_PART_SIZE = 512L * 1024 * 1024;
+	private static final int MAX_PART_COUNT = 10000;
+	private static final int COPY_PART_THREADS = 10;
+	//size of the function's ephemeral /tmp storage in MB, matching the function configuration (512 MB by default)
+	public static final String ENV_EPHEMERAL_STORAGE = "EPHEMERAL_STORAGE_MB";
+	private static final long DEFAULT_EPHEMERAL_STORAGE_MB = 512;
+
+	private static volatile long ephemeralStorageBytes = getEphemeralStorageEnv() * 1024 * 1024;
+	//bytes of /tmp claimed by downloads in flight, since records of a batch fall back concurrently
+	private static final AtomicLong reservedTempBytes = new AtomicLong();
+
+	private static ExecutorService copyPartExecutor = Executors.newFixedThreadPool(COPY_PART_THREADS, runnable -> {
+		Thread thread = new Thread(runnable, "s3-copy-part");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	public enum TransferMode {
+		SERVER_SIDE_COPY,
+		MULTIPART_COPY,
+		DOWNLOAD_UPLOAD
+	}
+
+	public static TransferMode transferObject(String sourceBucket, String sourcePrefix, String destinationBucket, String destinationPrefix, String tempLocation) {
+		ObjectMetadata sourceMetadata = S3ClientHandler.getObjectMetadata(sourceBucket, sourcePrefix);
+		if(sourceMetadata == null) {
+			//without a size the download cannot be checked against /tmp, so the record fails and S3 retries it
+			return null;
+		}
+
+		long contentLength = sourceMetadata.getContentLength();
+		TransferMode transferMode = getServerSideMode(contentLength);
+		if(serverSideTransfer(transferMode, sourceBucket, sourcePrefix, destinationBucket, destinationPrefix, sourceMetadata)) {
+			return transferMode;
+		}
+
+		if(!reserveTempSpace(contentLength)) {
+			AppLog.log.error("Server-side " + transferMode + " of '" + getFullS3Path(sourceBucket, sourcePrefix) + "' failed and its '" + contentLength + "' bytes do not fit the free ephemeral storage of '" + (ephemeralStorageBytes - reservedTempBytes.get()) + "' bytes; not falling back to " + TransferMode.DOWNLOAD_UPLOAD);
+			return null;
+		}
+		AppLog.log.warn("Server-side " + transferMode + " of '" + getFullS3Path(sourceBucket, sourcePrefix) + "' failed; falling back to " + TransferMode.DOWNLOAD_UPLOAD);
+
+		try {
+			if(downloadUploadTransfer(sourceBucket, sourcePrefix, destinationBucket, destinationPrefix, tempLocation)) {
+				return TransferMode.DOWNLOAD_UPLOAD;
+			}
+			return null;
+		} finally {
+			reservedTempBytes.addAndGet(-contentLength);
+		}
+	}
+
+	public static void setEphemeralStorageBytes(long storageBytes) {
+		ephemeralStorageBytes = storageBytes;
+	}
+
+	public static TransferMode getServerSideMode(long contentLength) {
+		return contentLength <= COPY_OBJECT_MAX_SIZE ? TransferMode.SERVER_SIDE_COPY : TransferMode.MULTIPART_COPY;
+	}
+
+	public static long getCopyPartSize(long contentLength) {
+		//S3 accepts at most 10,000 parts per upload, so very large objects need parts above the default size
+		long minimumPartSize = (contentLength + MAX_PART_COUNT - 1) / MAX_PART_COUNT;
+		return Math.max(COPY_PART_SIZE, minimumPartSize);
+	}
+
+	private static boolean reserveTempSpace(long contentLength) {
+		long reserved;
+		do {
+			reserved = reservedTempBytes.get();
+			if(reserved + contentLength > ephemeralStorageBytes) {
+				return false;
+			}
+		} while(!reservedTempBytes.compareAndSet(reserved, reserved + contentLength));
+		return true;
+	}
+
+	private static long getEphemeralStorageEnv() {
+		String value = System.getenv(ENV_EPHEMERAL_STORAGE);
+		if(value == null || value.isEmpty()) {
+			return DEFAULT_EPHEMERAL_STORAGE_MB;
+		}
+
+		try {
+			return Long.parseLong(value.trim());
+		} catch(NumberFormatException e) {
+			AppLog.log.warn("Ignoring environmental variable '" + ENV_EPHEMERAL_STORAGE + "' with non-numeric value '" + value + "'; using default '" + DEFAULT_EPHEMERAL_STORAGE_MB + "'");
+			return DEFAULT_EPHEMERAL_STORAGE_MB;
+		}
+	}
+
+	private static boolean serverSideTransfer(TransferMode transferMode, String sourceBucket, String sourcePrefix,
+			String destinationBucket, String destinationPrefix, ObjectMetadata sourceMetadata) {
+		if(transferMode == TransferMode.SERVER_SIDE_COPY) {
+			return S3ClientHandler.copyObject(sourceBucket, sourcePrefix, destinationBucket, destinationPrefix, sourceMetadata);
+		}
+
+		long partSize = getCopyPartSize(sourceMetadata.getContentLength());
+		return S3ClientHandler.multipartCopyObject(sourceBucket, sourcePrefix, destinationBucket, destinationPrefix,
+				sourceMetadata, partSize, copyPartExecutor);
+	}
+
+	private static boolean downloadUploadTransfer(String sourceBucket, String sourcePrefix, String destinationBucket, String destinationPrefix, String tempLocation) {
+		if(!S3ClientHandler.downloadObject(sourceBucket, sourcePrefix, tempLocation)) {
+			new File(tempLocation).delete();
+			return false;
+		}
+		AppLog.log.info("Successfully copied S3 object from '" + getFullS3Path(sourceBucket, sourcePrefix) + "' to local location '" + tempLocation + "'");
+
+		if(!S3ClientHandler.uploadObject(tempLocation, destinationBucket, destinationPrefix)) {
+			new File(tempLocation).delete();
+			return false;
+		}
+		AppLog.log.info("Successfully copied S3 object from local location '" + tempLocation + "' to '" + getFullS3Path(destinationBucket, destinationPrefix) + "'");
+		return true;
+	}
+
+	private static String getFullS3Path(String bucketName, String objectPrefix) {
+		return "s3://" + bucketName + "/" + objectPrefix;
+	}
+}
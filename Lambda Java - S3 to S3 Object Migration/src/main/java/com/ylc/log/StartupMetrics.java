@@ -0,0 +1,48 @@
+package com.ylc.log;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class StartupMetrics {
+	//only present when the full SDK bundle is on the classpath, i.e. built without -Pstartup
+	private static final String BUNDLE_PROBE_CLASS = "com.amazonaws.services.sqs.AmazonSQS";
+
+	private static final AtomicBoolean isFirstInvocation = new AtomicBoolean(true);
+	private static volatile long initStartedAt;
+	private static volatile long initMillis;
+	private static volatile boolean isPrewarmed;
+
+	public static void markInitStarted() {
+		initStartedAt = System.currentTimeMillis();
+	}
+
+	public static void markInitFinished(boolean prewarmed) {
+		initMillis = System.currentTimeMillis() - initStartedAt;
+		isPrewarmed = prewarmed;
+	}
+
+	public static void recordInvocation(long startNanos) {
+		if(!isFirstInvocation.compareAndSet(true, false)) {
+			return;
+		}
+
+		//measured before the management classes are loaded so they do not count against the invocation
+		long invocationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+		long jvmInitMillis = initStartedAt - ManagementFactory.getRuntimeMXBean().getStartTime();
+		AppLog.log.info("Cold start metrics for configuration '" + getConfiguration() + "'; JVM init '" + jvmInitMillis + "' ms, handler init '" + initMillis + "' ms, first invocation '" + invocationMillis + "' ms");
+	}
+
+	public static String getConfiguration() {
+		return "profile=" + (isBundleOnClasspath() ? "bundle" : "startup") + ",prewarm=" + isPrewarmed;
+	}
+
+	private static boolean isBundleOnClasspath() {
+		try {
+			Class.forName(BUNDLE_PROBE_CLASS, false, StartupMetrics.class.getClassLoader());
+			return true;
+		} catch(ClassNotFoundException e) {
+			return false;
+		}
+	}
+}
@@ -1,52 +1,126 @@
 package com.ylc.main;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.lang3.RandomStringUtils;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.S3Event;
+import com.amazonaws.services.s3.event.S3EventNotification.S3EventNotificationRecord;
 import com.aws.handler.S3ClientHandler;
 import com.aws.handler.S3EventHandler;
+import com.aws.handler.S3TransferHandler;
+import com.aws.handler.S3TransferHandler.TransferMode;
 import com.ylc.log.AppLog;
+import com.ylc.log.StartupMetrics;
 
-public class S3ToS3Lambda {	
+public class S3ToS3Lambda {
 	private final String ENV_BUCKET = "DESTINATION_BUCKET";
 	private final String ENV_PREFIX = "DESTINATION_PREFIX";
+	private static final String ENV_PREWARM = "PREWARM_CLIENTS";
 	private final String TEMP_LOCATION = "/tmp/";
-	
+	private final String PREFIX_DELIMITER = "/";
+	private static final int RECORD_THREADS = 8;
+
+	//shared across warm invocations; bounds how many records of a batch are copied at once
+	private static ExecutorService recordExecutor = Executors.newFixedThreadPool(RECORD_THREADS, runnable -> {
+		Thread thread = new Thread(runnable, "s3-record-transfer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	//runs during the Lambda init phase, which is not billed against the first invocation's duration
+	static {
+		StartupMetrics.markInitStarted();
+		boolean prewarm = Boolean.parseBoolean(System.getenv(ENV_PREWARM));
+		if(prewarm) {
+			S3ClientHandler.prewarm(System.getenv("DESTINATION_BUCKET"));
+		}
+		StartupMetrics.markInitFinished(prewarm);
+	}
+
 	public String handleRequest(S3Event event, Context context) {
-		String eventType = S3EventHandler.getEventType(event);
-		String sourceBucket = S3EventHandler.getBucketName(event);
-		String sourcePrefix = S3EventHandler.getObjectPrefix(event);		
-		AppLog.log.info("S3ToS3Lambda triggered by event type '" + eventType + "' from '" + this.getFullS3Path(sourceBucket, sourcePrefix) + "'");
-		
+		long startNanos = System.nanoTime();
+		List<S3EventNotificationRecord> records = S3EventHandler.getRecords(event);
+		AppLog.log.info("S3ToS3Lambda triggered with '" + records.size() + "' S3 event records");
+
 		String destinationBucket = System.getenv(ENV_BUCKET);
 		String destinationPrefix = System.getenv(ENV_PREFIX);
 		AppLog.log.info("Retrieved environmental variables for destination bucket '" + destinationBucket + "' and destination prefix '" + destinationPrefix + "'");
-		
-		this.transferSourceFile(sourceBucket, sourcePrefix, destinationBucket, destinationPrefix);
-		
-		return "End of S3ToS3Lambda function";
+
+		List<Future<Boolean>> recordFutures = new ArrayList<Future<Boolean>>();
+		for(S3EventNotificationRecord record : records) {
+			recordFutures.add(recordExecutor.submit(() -> this.transferRecord(record, destinationBucket, destinationPrefix)));
+		}
+
+		//S3 invokes the function asynchronously, so only a thrown error makes Lambda retry the batch or send it to
+		//the on-failure destination; copies are idempotent so records which succeeded are safe to transfer again
+		List<String> failedPaths = new ArrayList<String>();
+		for(int index = 0; index < records.size(); index++) {
+			String sourcePath = this.getFullS3Path(S3EventHandler.getBucketName(records.get(index)), S3EventHandler.getObjectPrefix(records.get(index)));
+			try {
+				if(!recordFutures.get(index).get()) {
+					failedPaths.add(sourcePath);
+				}
+			} catch(ExecutionException e) {
+				failedPaths.add(sourcePath);
+				AppLog.log.error("Record '" + index + "' for '" + sourcePath + "' failed due to ExecutionException: " + e.getMessage() + "; caused by " + e.getCause());
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				failedPaths.add(sourcePath);
+				AppLog.log.error("Record '" + index + "' for '" + sourcePath + "' was interrupted while waiting for transfer");
+			}
+		}
+
+		String summary = "Transferred '" + (records.size() - failedPaths.size()) + "' of '" + records.size() + "' S3 event records";
+		StartupMetrics.recordInvocation(startNanos);
+		if(!failedPaths.isEmpty()) {
+			AppLog.log.error(summary);
+			throw new RuntimeException(summary + "; failed to transfer " + failedPaths);
+		}
+
+		AppLog.log.info(summary);
+		return "End of S3ToS3Lambda function; " + summary;
 	}
-	
-	private void transferSourceFile(String sourceBucket, String sourcePrefix, String destinationBucket, String destinationPrefix) {
+
+	private boolean transferRecord(S3EventNotificationRecord record, String destinationBucket, String destinationPrefix) {
+		String eventType = S3EventHandler.getEventType(record);
+		String sourceBucket = S3EventHandler.getBucketName(record);
+		String sourcePrefix = S3EventHandler.getObjectPrefix(record);
+		AppLog.log.info("Processing event type '" + eventType + "' from '" + this.getFullS3Path(sourceBucket, sourcePrefix) + "'");
+
+		return this.transferSourceFile(sourceBucket, sourcePrefix, destinationBucket, this.getDestinationPrefix(sourcePrefix, destinationPrefix));
+	}
+
+	private boolean transferSourceFile(String sourceBucket, String sourcePrefix, String destinationBucket, String destinationPrefix) {
 		String downloadLocation = this.getRandomFilenameLocation();
-		if(S3ClientHandler.downloadObject(sourceBucket, sourcePrefix, downloadLocation)) {
-			AppLog.log.info("Successfully copied S3 object from '" + this.getFullS3Path(sourceBucket, sourcePrefix) + "' to local location '" + downloadLocation + "'");
-			this.copySourceFile(downloadLocation, destinationBucket, destinationPrefix);
-		} 
+		TransferMode transferMode = S3TransferHandler.transferObject(sourceBucket, sourcePrefix, destinationBucket, destinationPrefix, downloadLocation);
+		if(transferMode != null) {
+			AppLog.log.info("Successfully transferred S3 object from '" + this.getFullS3Path(sourceBucket, sourcePrefix) + "' to '" + this.getFullS3Path(destinationBucket, destinationPrefix) + "' using " + transferMode);
+			return true;
+		}
+
+		AppLog.log.error("Unable to transfer S3 object from '" + this.getFullS3Path(sourceBucket, sourcePrefix) + "' to '" + this.getFullS3Path(destinationBucket, destinationPrefix) + "'");
+		return false;
 	}
-	
+
+	private String getDestinationPrefix(String sourcePrefix, String destinationPrefix) {
+		//a destination ending in '/' is treated as a folder so records in one batch do not overwrite each other
+		if(destinationPrefix != null && destinationPrefix.endsWith(PREFIX_DELIMITER)) {
+			return destinationPrefix.concat(sourcePrefix.substring(sourcePrefix.lastIndexOf(PREFIX_DELIMITER) + 1));
+		}
+		return destinationPrefix;
+	}
+
 	private String getRandomFilenameLocation() {
 		String randomFilename = RandomStringUtils.randomAlphabetic(10);
 		return this.TEMP_LOCATION.concat(randomFilename);
 	}
-	
-	private void copySourceFile(String downloadLocation, String destinationBucket, String destinationPrefix) {
-		if(S3ClientHandler.uploadObject(downloadLocation, destinationBucket, destinationPrefix)) {
-			AppLog.log.info("Successfully copied S3 object from local location '" + downloadLocation + "' to '" + this.getFullS3Path(destinationBucket, destinationPrefix) + "'");
-		} 
-	}
-	
+
 	private String getFullS3Path(String bucketName, String objectPrefix) {
 		return "s3://" + bucketName + "/" + objectPrefix;
 	}
-}
+}
\ No newline at end of file
@@ -0,0 +1,180 @@
+package com.aws.handler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.http.client.methods.HttpGet;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyObjectResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+//in-memory S3 holding only object sizes, counting the bytes each transfer mode moves
+public class FakeS3 extends AbstractAmazonS3 {
+	private final Map<String, Long> objectSizes = new ConcurrentHashMap<String, Long>();
+	private final Map<String, AtomicLong> uploadSizes = new ConcurrentHashMap<String, AtomicLong>();
+	private final AtomicInteger uploadCount = new AtomicInteger();
+
+	//bytes copied inside S3 by CopyObject and UploadPartCopy, never reaching the function
+	public final AtomicLong copiedBytes = new AtomicLong();
+	public final AtomicLong partCopiedBytes = new AtomicLong();
+	//bytes streamed to and from the function by GetObject and PutObject
+	public final AtomicLong downloadedBytes = new AtomicLong();
+	public final AtomicLong uploadedBytes = new AtomicLong();
+	public final AtomicInteger abortCount = new AtomicInteger();
+
+	public volatile boolean failCopyObject = false;
+	public volatile boolean failCopyPart = false;
+
+	public void putObject(String bucketName, String key, long size) {
+		this.objectSizes.put(bucketName + "/" + key, size);
+	}
+
+	public Long getObjectSize(String bucketName, String key) {
+		return this.objectSizes.get(bucketName + "/" + key);
+	}
+
+	@Override
+	public ObjectMetadata getObjectMetadata(String bucketName, String key) {
+		long size = this.getExistingSize(bucketName, key);
+		ObjectMetadata objectMetadata = new ObjectMetadata();
+		objectMetadata.setContentLength(size);
+		objectMetadata.setHeader("ETag", "etag-" + size);
+		return objectMetadata;
+	}
+
+	@Override
+	public CopyObjectResult copyObject(CopyObjectRequest copyObjectRequest) {
+		if(this.failCopyObject) {
+			throw newAmazonS3Exception("Access Denied", 403);
+		}
+
+		long size = this.getExistingSize(copyObjectRequest.getSourceBucketName(), copyObjectRequest.getSourceKey());
+		this.copiedBytes.addAndGet(size);
+		this.putObject(copyObjectRequest.getDestinationBucketName(), copyObjectRequest.getDestinationKey(), size);
+		return new CopyObjectResult();
+	}
+
+	@Override
+	public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest initiateRequest) {
+		String uploadId = "upload-" + this.uploadCount.incrementAndGet();
+		this.uploadSizes.put(uploadId, new AtomicLong());
+		InitiateMultipartUploadResult initiateResult = new InitiateMultipartUploadResult();
+		initiateResult.setUploadId(uploadId);
+		return initiateResult;
+	}
+
+	@Override
+	public CopyPartResult copyPart(CopyPartRequest copyPartRequest) {
+		if(this.failCopyPart) {
+			throw newAmazonS3Exception("Internal Error", 500);
+		}
+
+		long partBytes = copyPartRequest.getLastByte() - copyPartRequest.getFirstByte() + 1;
+		this.partCopiedBytes.addAndGet(partBytes);
+		this.uploadSizes.get(copyPartRequest.getUploadId()).addAndGet(partBytes);
+		CopyPartResult copyPartResult = new CopyPartResult();
+		copyPartResult.setPartNumber(copyPartRequest.getPartNumber());
+		copyPartResult.setETag("part-" + copyPartRequest.getPartNumber());
+		return copyPartResult;
+	}
+
+	@Override
+	public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest completeRequest) {
+		long size = this.uploadSizes.remove(completeRequest.getUploadId()).get();
+		this.putObject(completeRequest.getBucketName(), completeRequest.getKey(), size);
+		return new CompleteMultipartUploadResult();
+	}
+
+	@Override
+	public void abortMultipartUpload(AbortMultipartUploadRequest abortRequest) {
+		this.uploadSizes.remove(abortRequest.getUploadId());
+		this.abortCount.incrementAndGet();
+	}
+
+	@Override
+	public S3Object getObject(String bucketName, String key) {
+		long size = this.getExistingSize(bucketName, key);
+		S3Object s3Object = new S3Object();
+		s3Object.setBucketName(bucketName);
+		s3Object.setKey(key);
+		s3Object.setObjectContent(new S3ObjectInputStream(new GeneratedInputStream(size, this.downloadedBytes), new HttpGet()));
+		return s3Object;
+	}
+
+	@Override
+	public PutObjectResult putObject(PutObjectRequest putObjectRequest) {
+		try {
+			long size = Files.size(putObjectRequest.getFile().toPath());
+			this.uploadedBytes.addAndGet(size);
+			this.putObject(putObjectRequest.getBucketName(), putObjectRequest.getKey(), size);
+			return new PutObjectResult();
+		} catch(IOException e) {
+			throw new SdkClientException("Unable to read upload file: " + e.getMessage(), e);
+		}
+	}
+
+	private long getExistingSize(String bucketName, String key) {
+		Long size = this.getObjectSize(bucketName, key);
+		if(size == null) {
+			throw newAmazonS3Exception("Not Found", 404);
+		}
+		return size;
+	}
+
+	private static AmazonS3Exception newAmazonS3Exception(String message, int statusCode) {
+		AmazonS3Exception amazonS3Exception = new AmazonS3Exception(message);
+		amazonS3Exception.setStatusCode(statusCode);
+		return amazonS3Exception;
+	}
+
+	//object content generated on read so large objects need no memory
+	private static class GeneratedInputStream extends InputStream {
+		private final long size;
+		private final AtomicLong readBytes;
+		private long position = 0;
+
+		private GeneratedInputStream(long size, AtomicLong readBytes) {
+			this.size = size;
+			this.readBytes = readBytes;
+		}
+
+		@Override
+		public int read() {
+			byte[] single = new byte[1];
+			return this.read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) {
+			if(this.position >= this.size) {
+				return -1;
+			}
+
+			int count = (int) Math.min(length, this.size - this.position);
+			for(int index = 0; index < count; index++) {
+				buffer[offset + index] = (byte) (this.position + index);
+			}
+			this.position += count;
+			this.readBytes.addAndGet(count);
+			return count;
+		}
+	}
+}
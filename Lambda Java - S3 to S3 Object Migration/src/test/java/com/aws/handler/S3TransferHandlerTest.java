@@ -0,0 +1,100 @@
+package com.aws.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import java.io.File;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.aws.handler.S3TransferHandler.TransferMode;
+
+public class S3TransferHandlerTest {
+	private static final long MB = 1024L * 1024;
+	private static final long GB = 1024L * MB;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private FakeS3 fakeS3;
+	private String tempLocation;
+
+	@Before
+	public void setUp() {
+		this.fakeS3 = new FakeS3();
+		S3ClientHandler.setClient(this.fakeS3);
+		S3TransferHandler.setEphemeralStorageBytes(512 * MB);
+		this.tempLocation = new File(this.temporaryFolder.getRoot(), "transfer").getPath();
+	}
+
+	@After
+	public void tearDown() {
+		S3ClientHandler.setClient(null);
+		S3TransferHandler.setEphemeralStorageBytes(512 * MB);
+	}
+
+	@Test
+	public void copiesObjectUpTo5GBWithSingleCopy() {
+		this.fakeS3.putObject("source", "small", 10 * MB);
+
+		assertEquals(TransferMode.SERVER_SIDE_COPY, this.transfer("small"));
+		assertEquals(10 * MB, this.fakeS3.copiedBytes.get());
+		assertEquals(0, this.fakeS3.partCopiedBytes.get());
+		assertEquals(0, this.fakeS3.downloadedBytes.get());
+		assertEquals(0, this.fakeS3.uploadedBytes.get());
+		assertEquals(Long.valueOf(10 * MB), this.fakeS3.getObjectSize("destination", "small"));
+	}
+
+	@Test
+	public void copiesObjectAbove5GBInParts() {
+		this.fakeS3.putObject("source", "large", 6 * GB + 1);
+
+		assertEquals(TransferMode.MULTIPART_COPY, this.transfer("large"));
+		assertEquals(0, this.fakeS3.copiedBytes.get());
+		assertEquals(6 * GB + 1, this.fakeS3.partCopiedBytes.get());
+		assertEquals(0, this.fakeS3.downloadedBytes.get());
+		assertEquals(0, this.fakeS3.uploadedBytes.get());
+		assertEquals(Long.valueOf(6 * GB + 1), this.fakeS3.getObjectSize("destination", "large"));
+	}
+
+	@Test
+	public void fallsBackToDownloadUploadWhenCopyFails() {
+		this.fakeS3.putObject("source", "small", 3 * MB + 7);
+		this.fakeS3.failCopyObject = true;
+
+		assertEquals(TransferMode.DOWNLOAD_UPLOAD, this.transfer("small"));
+		assertEquals(3 * MB + 7, this.fakeS3.downloadedBytes.get());
+		assertEquals(3 * MB + 7, this.fakeS3.uploadedBytes.get());
+		assertEquals(Long.valueOf(3 * MB + 7), this.fakeS3.getObjectSize("destination", "small"));
+		assertFalse(new File(this.tempLocation).exists());
+	}
+
+	@Test
+	public void failsWithoutDownloadWhenMultipartCopyFails() {
+		this.fakeS3.putObject("source", "large", 6 * GB);
+		this.fakeS3.failCopyPart = true;
+
+		assertNull(this.transfer("large"));
+		assertEquals(1, this.fakeS3.abortCount.get());
+		assertEquals(0, this.fakeS3.downloadedBytes.get());
+		assertEquals(0, this.fakeS3.uploadedBytes.get());
+		assertNull(this.fakeS3.getObjectSize("destination", "large"));
+	}
+
+	@Test
+	public void failsWithoutDownloadWhenObjectExceedsEphemeralStorage() {
+		S3TransferHandler.setEphemeralStorageBytes(2 * MB);
+		this.fakeS3.putObject("source", "small", 3 * MB);
+		this.fakeS3.failCopyObject = true;
+
+		assertNull(this.transfer("small"));
+		assertEquals(0, this.fakeS3.downloadedBytes.get());
+		assertNull(this.fakeS3.getObjectSize("destination", "small"));
+	}
+
+	private TransferMode transfer(String key) {
+		return S3TransferHandler.transferObject("source", key, "destination", key, this.tempLocation);
+	}
+}